@@ -0,0 +1,103 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.benchmarks;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.opengrok.indexer.analysis.AbstractAnalyzer;
+import org.opengrok.indexer.search.QueryBuilder;
+
+/**
+ * Measures the tokenization of the sample sources, i.e. the work done by the language lexers
+ * when the documents are added to the index.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class AnalyzerBenchmark {
+
+    @Param({"c", "cxx", "csharp", "java", "javascript", "typescript", "python", "perl", "ruby", "rust",
+            "golang", "kotlin", "scala", "sh", "sql", "xml"})
+    public String language;
+
+    private AbstractAnalyzer analyzer;
+    private String content;
+
+    @Setup
+    public void setup() throws IOException {
+        content = Samples.getContent(language);
+        analyzer = Samples.getFactory(language).getAnalyzer();
+    }
+
+    @TearDown
+    public void tearDown() {
+        analyzer.getFactory().returnAnalyzer();
+    }
+
+    /**
+     * Tokenize the sample for the full text field.
+     */
+    @Benchmark
+    public void full(Blackhole bh) throws IOException {
+        tokenize(QueryBuilder.FULL, bh);
+    }
+
+    /**
+     * Tokenize the sample with the symbol tokenizer of the language, as done for the references field.
+     */
+    @Benchmark
+    public void refs(Blackhole bh) throws IOException {
+        tokenize(QueryBuilder.REFS, bh);
+    }
+
+    private void tokenize(String field, Blackhole bh) throws IOException {
+        try (TokenStream stream = analyzer.tokenStream(field, new StringReader(content))) {
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                bh.consume(term.length());
+            }
+            stream.end();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.openjdk.jmh.Main;
+import org.opengrok.indexer.Info;
+
+/**
+ * Entry point of the benchmark jar. Runs the JMH benchmarks and unless specified otherwise on the command line,
+ * stores the results in JSON format to a file named after the OpenGrok version, so that the results of different
+ * releases can be compared.
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+        // private to enforce static
+    }
+
+    /**
+     * @param args JMH command line arguments, see {@code -h}
+     * @throws IOException on error
+     */
+    public static void main(String[] args) throws IOException {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        if (!arguments.contains("-rf")) {
+            arguments.addAll(List.of("-rf", "json"));
+            if (!arguments.contains("-rff")) {
+                arguments.addAll(List.of("-rff", "opengrok-" + Info.getVersion() + "-jmh.json"));
+            }
+        }
+        Main.main(arguments.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.benchmarks;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.opengrok.indexer.configuration.Filter;
+
+/**
+ * Measures the matching of file paths against the ignored names patterns, compared with the previous implementation
+ * which matched the regular expressions of the individual patterns one by one.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class FilterBenchmark {
+
+    /**
+     * Number of patterns of each kind (file name suffix, file name prefix, exact name and path).
+     */
+    @Param({"10", "100"})
+    public int patterns;
+
+    private static final int PATHS = 1000;
+
+    private Filter filter;
+    private RegexFilter regexFilter;
+    private final List<File> files = new ArrayList<>();
+
+    @Setup
+    public void setup() {
+        List<String> items = new ArrayList<>();
+        for (int i = 0; i < patterns; i++) {
+            items.add("*.ext" + i);
+            items.add(".tmp" + i + "*");
+            items.add("name" + i);
+            items.add("src/module" + i + "/generated");
+        }
+
+        filter = new Filter();
+        filter.setItems(items);
+        regexFilter = new RegexFilter(items);
+
+        for (int i = 0; i < PATHS; i++) {
+            // Most of the paths do not match, like in a real source tree.
+            String name = i % 10 == 0 ? "file" + i + ".ext" + (i % (2 * patterns)) : "file" + i + ".c";
+            files.add(new File("/var/opengrok/src/project/src/module" + (i % 50) + "/dir" + (i % 7) + "/" + name));
+        }
+    }
+
+    @Benchmark
+    public void compiled(Blackhole blackhole) {
+        for (File file : files) {
+            blackhole.consume(filter.match(file));
+        }
+    }
+
+    @Benchmark
+    public void regex(Blackhole blackhole) {
+        for (File file : files) {
+            blackhole.consume(regexFilter.match(file));
+        }
+    }
+
+    /**
+     * Copy of the matching done by {@link Filter} before the patterns were compiled into automata.
+     */
+    private static final class RegexFilter {
+        private final Set<String> filenames = new HashSet<>();
+        private final List<Pattern> regexes = new ArrayList<>();
+        private final List<String> paths = new ArrayList<>();
+
+        RegexFilter(List<String> items) {
+            for (String item : items) {
+                if (item.contains("*") || item.contains("?")) {
+                    regexes.add(Pattern.compile(item.replace(".", "\\.").replace("*", ".*").replace("?", ".")));
+                } else if (item.contains(File.separator)) {
+                    paths.add(item.charAt(0) == File.separatorChar ? item : File.separator + item);
+                } else {
+                    filenames.add(item);
+                }
+            }
+        }
+
+        boolean match(File file) {
+            String fileName = file.getName();
+            String absolute = file.getAbsolutePath();
+
+            if (filenames.contains(fileName)) {
+                return true;
+            }
+            for (Pattern p : regexes) {
+                if (p.matcher(fileName).matches()) {
+                    return true;
+                }
+                if (p.pattern().contains("/") && p.matcher(absolute).matches()) {
+                    return true;
+                }
+            }
+            for (String path : paths) {
+                if (absolute.endsWith(path)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
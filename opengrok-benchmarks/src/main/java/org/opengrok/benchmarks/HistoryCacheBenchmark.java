@@ -0,0 +1,126 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opengrok.indexer.configuration.HistoryCacheFormat;
+import org.opengrok.indexer.configuration.RuntimeEnvironment;
+import org.opengrok.indexer.history.History;
+import org.opengrok.indexer.history.HistoryEntry;
+import org.opengrok.indexer.history.HistoryException;
+import org.opengrok.indexer.history.HistoryGuru;
+import org.opengrok.indexer.history.RepositoryInfo;
+import org.opengrok.indexer.util.IOUtils;
+
+/**
+ * Measures the creation of the history cache and the reads from it, in the format given by the parameter.
+ * The history cache is created for a Git repository generated when the benchmark starts.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HistoryCacheBenchmark {
+
+    @Param({"smile", "columnar"})
+    public String format;
+
+    /**
+     * Number of commits in the repository.
+     */
+    @Param({"10", "1000"})
+    public int commits;
+
+    private Path root;
+    private File file;
+    private final List<String> repositories = List.of(Repositories.REPOSITORY_PATH);
+
+    @Setup
+    public void setup() throws IOException {
+        root = Files.createTempDirectory("opengrok-benchmark");
+        // Configured before HistoryGuru is initialized as it selects the history cache implementation.
+        RuntimeEnvironment env = RuntimeEnvironment.getInstance();
+        env.setUseHistoryCache(true);
+        env.setHistoryCacheFormat(HistoryCacheFormat.valueOf(format.toUpperCase(Locale.ROOT)));
+        file = new File(Repositories.create(root, "git", commits), Repositories.FILE_NAME);
+        HistoryGuru.getInstance().createHistoryCache(repositories);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        IOUtils.removeRecursive(root);
+    }
+
+    /**
+     * Create the history cache of the repository from scratch. Includes the retrieval of the history
+     * from the repository.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void create() {
+        HistoryGuru guru = HistoryGuru.getInstance();
+        List<RepositoryInfo> repositoryInfos = List.of(guru.getRepository(file));
+        guru.removeHistoryCache(repositoryInfos);
+        guru.createHistoryCache(repositories);
+    }
+
+    /**
+     * Read the complete history of a file.
+     * @return the history so that it is not optimized away
+     */
+    @Benchmark
+    public History read() throws HistoryException {
+        return HistoryGuru.getInstance().getHistory(file, true, false, false);
+    }
+
+    /**
+     * Read the last history entry of a file, as done for the directory listing.
+     * @return the entry so that it is not optimized away
+     */
+    @Benchmark
+    public HistoryEntry readLastEntry() throws HistoryException {
+        return HistoryGuru.getInstance().getLastHistoryEntry(file, false, false);
+    }
+}
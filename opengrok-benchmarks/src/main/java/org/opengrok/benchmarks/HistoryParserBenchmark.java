@@ -0,0 +1,107 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opengrok.indexer.configuration.RuntimeEnvironment;
+import org.opengrok.indexer.history.History;
+import org.opengrok.indexer.history.HistoryException;
+import org.opengrok.indexer.history.HistoryGuru;
+import org.opengrok.indexer.util.IOUtils;
+
+/**
+ * Measures the retrieval of the history from the repository, i.e. without the history cache.
+ * For Git this is the traversal of the history with JGit done by {@code GitRepository},
+ * for Mercurial the parsing of the {@code hg log} output by {@code MercurialHistoryParser}.
+ * The repository is generated when the benchmark starts. The Mercurial benchmark requires the {@code hg} command.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HistoryParserBenchmark {
+
+    @Param({"git", "mercurial"})
+    public String type;
+
+    /**
+     * Number of commits in the repository.
+     */
+    @Param({"200"})
+    public int commits;
+
+    private Path root;
+    private File repository;
+    private File file;
+
+    @Setup
+    public void setup() throws IOException {
+        root = Files.createTempDirectory("opengrok-benchmark");
+        // Configured before HistoryGuru is initialized in order to always get the history from the repository.
+        RuntimeEnvironment.getInstance().setUseHistoryCache(false);
+        repository = Repositories.create(root, type, commits);
+        file = new File(repository, Repositories.FILE_NAME);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        IOUtils.removeRecursive(root);
+    }
+
+    /**
+     * Get the history of the whole repository.
+     * @return the history so that it is not optimized away
+     */
+    @Benchmark
+    public History directoryHistory() throws HistoryException {
+        return HistoryGuru.getInstance().getHistory(repository, true, false, true);
+    }
+
+    /**
+     * Get the history of a file modified by each commit.
+     * @return the history so that it is not optimized away
+     */
+    @Benchmark
+    public History fileHistory() throws HistoryException {
+        return HistoryGuru.getInstance().getHistory(file, true, false, true);
+    }
+}
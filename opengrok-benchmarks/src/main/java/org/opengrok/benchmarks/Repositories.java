@@ -0,0 +1,151 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.opengrok.indexer.configuration.RuntimeEnvironment;
+import org.opengrok.indexer.history.HistoryGuru;
+
+/**
+ * Generated repositories used by the history benchmarks. Each commit modifies {@link #FILE_NAME}
+ * and one of several other files, so that the changesets touch multiple files.
+ */
+final class Repositories {
+
+    /**
+     * Name of the file modified by each commit.
+     */
+    static final String FILE_NAME = "main.c";
+
+    /**
+     * Path of the generated repository relative to source root.
+     */
+    static final String REPOSITORY_PATH = "/repo";
+
+    private Repositories() {
+        // private to enforce static
+    }
+
+    /**
+     * Create repository of given type under the source root in the directory and set up
+     * the runtime environment and {@link HistoryGuru} to use it.
+     * @param root directory to create the source root and the data root in
+     * @param type repository type, {@code git} or {@code mercurial}
+     * @param commits number of commits
+     * @return directory of the repository
+     * @throws IOException on error
+     */
+    static File create(Path root, String type, int commits) throws IOException {
+        Path sourceRoot = Files.createDirectories(root.resolve("src"));
+        Path dataRoot = Files.createDirectories(root.resolve("data"));
+        Path repository = Files.createDirectories(sourceRoot.resolve(REPOSITORY_PATH.substring(1)));
+
+        switch (type) {
+            case "git":
+                createGit(repository, commits);
+                break;
+            case "mercurial":
+                createMercurial(repository, commits);
+                break;
+            default:
+                throw new IllegalArgumentException(String.format("unknown repository type '%s'", type));
+        }
+
+        RuntimeEnvironment env = RuntimeEnvironment.getInstance();
+        env.setSourceRoot(sourceRoot.toString());
+        env.setDataRoot(dataRoot.toString());
+        env.setProjectsEnabled(false);
+        env.setHistoryEnabled(true);
+
+        HistoryGuru.getInstance().addRepositories(List.of(repository.toString()));
+        if (HistoryGuru.getInstance().getRepository(repository.toFile()) == null) {
+            throw new IllegalStateException(String.format("%s repository in '%s' was not detected", type, repository));
+        }
+        return repository.toFile();
+    }
+
+    private static void createGit(Path dir, int commits) throws IOException {
+        try (Git git = Git.init().setDirectory(dir.toFile()).call()) {
+            for (int i = 0; i < commits; i++) {
+                writeRevision(dir, i);
+                git.add().addFilepattern(".").call();
+                String email = getAuthor(i) + "@example.com";
+                git.commit().setMessage(getMessage(i)).setAuthor(getAuthor(i), email).
+                        setCommitter(getAuthor(i), email).call();
+            }
+        } catch (GitAPIException e) {
+            throw new IOException("failed to create Git repository", e);
+        }
+    }
+
+    /**
+     * Requires the {@code hg} command.
+     */
+    private static void createMercurial(Path dir, int commits) throws IOException {
+        run(dir, "hg", "init");
+        for (int i = 0; i < commits; i++) {
+            writeRevision(dir, i);
+            run(dir, "hg", "commit", "--addremove", "-u", getAuthor(i) + " <" + getAuthor(i) + "@example.com>",
+                    "-m", getMessage(i));
+        }
+    }
+
+    private static void run(Path dir, String... command) throws IOException {
+        Process process = new ProcessBuilder(command).directory(dir.toFile()).
+                redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+        try {
+            if (process.waitFor() != 0) {
+                throw new IOException(String.format("command '%s' failed", String.join(" ", command)));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(String.format("command '%s' interrupted", String.join(" ", command)), e);
+        }
+    }
+
+    private static void writeRevision(Path dir, int revision) throws IOException {
+        String line = "int revision" + revision + " = " + revision + ";\n";
+        Files.writeString(dir.resolve(FILE_NAME), line, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        Path other = Files.createDirectories(dir.resolve("src")).resolve("file" + (revision % 20) + ".c");
+        Files.writeString(other, line, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private static String getAuthor(int revision) {
+        return "author" + (revision % 10);
+    }
+
+    private static String getMessage(int revision) {
+        return "Fix bug " + revision + "\n\nThe change touches 2 files.";
+    }
+}
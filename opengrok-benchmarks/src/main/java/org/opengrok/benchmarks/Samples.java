@@ -0,0 +1,119 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.opengrok.indexer.analysis.AnalyzerFactory;
+import org.opengrok.indexer.analysis.AnalyzerGuru;
+
+/**
+ * Sample source files used by the benchmarks. These are the analyzer samples of the indexer unit tests,
+ * bundled into the benchmark jar under the {@code samples} directory.
+ */
+public final class Samples {
+
+    /**
+     * Map of language name to resource path and the file name used to pick the analyzer.
+     * The keys are used as the {@code @Param} values of the benchmarks.
+     */
+    private static final Map<String, String[]> SAMPLES = new TreeMap<>();
+
+    static {
+        SAMPLES.put("c", new String[] {"c/sample.c", "sample.c"});
+        SAMPLES.put("cxx", new String[] {"c/sample.cc", "sample.cc"});
+        SAMPLES.put("csharp", new String[] {"csharp/sample.cs", "sample.cs"});
+        SAMPLES.put("java", new String[] {"java/Sample.jav", "Sample.java"});
+        SAMPLES.put("javascript", new String[] {"javascript/sample.js", "sample.js"});
+        SAMPLES.put("typescript", new String[] {"typescript/sample.ts", "sample.ts"});
+        SAMPLES.put("python", new String[] {"python/sample.py", "sample.py"});
+        SAMPLES.put("perl", new String[] {"perl/sample.pl", "sample.pl"});
+        SAMPLES.put("ruby", new String[] {"ruby/sample.rb", "sample.rb"});
+        SAMPLES.put("rust", new String[] {"rust/sample.rs", "sample.rs"});
+        SAMPLES.put("golang", new String[] {"golang/sample.go", "sample.go"});
+        SAMPLES.put("kotlin", new String[] {"kotlin/sample.kt", "sample.kt"});
+        SAMPLES.put("scala", new String[] {"scala/sample.scala", "sample.scala"});
+        SAMPLES.put("sh", new String[] {"sh/sample.sh", "sample.sh"});
+        SAMPLES.put("sql", new String[] {"sql/sample.sql", "sample.sql"});
+        SAMPLES.put("xml", new String[] {"xml/sample.xml", "sample.xml"});
+    }
+
+    private Samples() {
+        // private to enforce static
+    }
+
+    /**
+     * @return names of the languages with a sample
+     */
+    public static Set<String> getLanguages() {
+        return SAMPLES.keySet();
+    }
+
+    /**
+     * @param language language name
+     * @return file name of the sample, with the extension mapping to the analyzer of the language
+     */
+    public static String getFileName(String language) {
+        return getSample(language)[1];
+    }
+
+    /**
+     * @param language language name
+     * @return contents of the sample
+     * @throws IOException if the sample cannot be read
+     */
+    public static String getContent(String language) throws IOException {
+        String resource = "/samples/" + getSample(language)[0];
+        try (InputStream in = Samples.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IOException(String.format("cannot find sample resource '%s'", resource));
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * @param language language name
+     * @return analyzer factory for the sample
+     */
+    public static AnalyzerFactory getFactory(String language) {
+        AnalyzerFactory factory = AnalyzerGuru.find(getFileName(language));
+        if (factory == null) {
+            throw new IllegalArgumentException(String.format("no analyzer for language '%s'", language));
+        }
+        return factory;
+    }
+
+    private static String[] getSample(String language) {
+        String[] sample = SAMPLES.get(language);
+        if (sample == null) {
+            throw new IllegalArgumentException(String.format("unknown language '%s'", language));
+        }
+        return sample;
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.opengrok.indexer.analysis.AbstractAnalyzer;
+import org.opengrok.indexer.analysis.AnalyzerGuru;
+import org.opengrok.indexer.analysis.plain.PlainAnalyzerFactory;
+import org.opengrok.indexer.configuration.RuntimeEnvironment;
+import org.opengrok.indexer.search.QueryBuilder;
+import org.opengrok.indexer.search.context.Context;
+import org.opengrok.indexer.search.context.ContextArgs;
+import org.opengrok.indexer.search.context.ContextFormatter;
+import org.opengrok.indexer.search.context.OGKUnifiedHighlighter;
+import org.opengrok.indexer.search.context.StrictLineBreakIterator;
+import org.opengrok.indexer.util.IOUtils;
+
+/**
+ * Measures the search and the highlighting of the matches in an index built from the sample sources.
+ * The index is created in a temporary directory when the benchmark starts.
+ * <p>
+ * Each sample is copied multiple times under the source root. The source files are needed for producing
+ * the context with {@link Context#getContext2(RuntimeEnvironment, IndexSearcher, int, Appendable, String,
+ * String, boolean, int)}.
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+
+    @Param({"main", "\"int main\"", "str*", "return AND null"})
+    public String freetext;
+
+    /**
+     * Number of copies of each sample in the index.
+     */
+    @Param({"20"})
+    public int copies;
+
+    private Path root;
+    private Directory directory;
+    private IndexReader reader;
+    private IndexSearcher searcher;
+    private QueryBuilder queryBuilder;
+    private Query query;
+    private TopDocs topDocs;
+
+    @Setup
+    public void setup() throws IOException, InterruptedException, ParseException {
+        root = Files.createTempDirectory("opengrok-benchmark");
+        Path sourceRoot = Files.createDirectories(root.resolve("src"));
+        Path dataRoot = Files.createDirectories(root.resolve("data"));
+
+        RuntimeEnvironment env = RuntimeEnvironment.getInstance();
+        env.setSourceRoot(sourceRoot.toString());
+        env.setDataRoot(dataRoot.toString());
+        env.setHistoryEnabled(false);
+        env.setProjectsEnabled(false);
+
+        directory = FSDirectory.open(dataRoot.resolve("index"));
+        AnalyzerGuru analyzerGuru = new AnalyzerGuru();
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(AnalyzerGuru.getAnalyzer()))) {
+            for (String language : Samples.getLanguages()) {
+                String content = Samples.getContent(language);
+                for (int i = 0; i < copies; i++) {
+                    String path = "/" + language + "/" + i + "/" + Samples.getFileName(language);
+                    File file = sourceRoot.resolve(path.substring(1)).toFile();
+                    Files.createDirectories(file.getParentFile().toPath());
+                    Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+
+                    AbstractAnalyzer analyzer = Samples.getFactory(language).getAnalyzer();
+                    analyzer.setScopesEnabled(env.isScopesEnabled());
+                    analyzer.setFoldingEnabled(env.isFoldingEnabled());
+                    Document doc = new Document();
+                    analyzerGuru.populateDocument(doc, file, path, analyzer, null);
+                    writer.addDocument(doc);
+                }
+            }
+        }
+
+        reader = DirectoryReader.open(directory);
+        searcher = new IndexSearcher(reader);
+        queryBuilder = new QueryBuilder().setFreetext(freetext);
+        query = queryBuilder.build();
+        topDocs = searcher.search(query, 25);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        reader.close();
+        directory.close();
+        AnalyzerGuru.returnAnalyzers();
+        IOUtils.removeRecursive(root);
+    }
+
+    /**
+     * Search the index for the top 25 documents.
+     * @return the results so that they are not optimized away
+     */
+    @Benchmark
+    public TopDocs search() throws IOException {
+        return searcher.search(query, 25);
+    }
+
+    /**
+     * Produce the context of the top documents with the highlighter, the way the search results page does it.
+     */
+    @Benchmark
+    public void highlight(Blackhole bh) throws IOException {
+        ContextFormatter formatter = new ContextFormatter(new ContextArgs((short) 1, (short) 10));
+        UnifiedHighlighter.Builder builder = new UnifiedHighlighter.Builder(searcher,
+                PlainAnalyzerFactory.DEFAULT_INSTANCE.getAnalyzer())
+                .withBreakIterator(StrictLineBreakIterator::new)
+                .withFormatter(formatter);
+        OGKUnifiedHighlighter highlighter = new OGKUnifiedHighlighter(RuntimeEnvironment.getInstance(), builder);
+
+        for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+            formatter.setUrl("/source" + searcher.storedFields().document(scoreDoc.doc).get(QueryBuilder.PATH));
+            bh.consume(highlighter.highlightFieldsUnion(new String[] {QueryBuilder.FULL}, query,
+                    scoreDoc.doc, 10));
+        }
+    }
+
+    /**
+     * Produce the context of the top documents the way {@code Results} renders the search results.
+     */
+    @Benchmark
+    public void context(Blackhole bh) {
+        RuntimeEnvironment env = RuntimeEnvironment.getInstance();
+        Context context = new Context(query, queryBuilder);
+        for (ScoreDoc scoreDoc : topDocs.scoreDocs) {
+            StringBuilder out = new StringBuilder();
+            bh.consume(context.getContext2(env, searcher, scoreDoc.doc, out, "/source/xref", "/source/more",
+                    true, 8));
+            bh.consume(out);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.benchmarks;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.opengrok.indexer.analysis.AbstractAnalyzer;
+import org.opengrok.indexer.analysis.WriteXrefArgs;
+
+/**
+ * Measures the generation of the cross reference HTML of the sample sources.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class XrefBenchmark {
+
+    @Param({"c", "cxx", "csharp", "java", "javascript", "typescript", "python", "perl", "ruby", "rust",
+            "golang", "kotlin", "scala", "sh", "sql", "xml"})
+    public String language;
+
+    @Param({"true"})
+    public boolean scopes;
+
+    private AbstractAnalyzer analyzer;
+    private String content;
+
+    @Setup
+    public void setup() throws IOException {
+        content = Samples.getContent(language);
+        analyzer = Samples.getFactory(language).getAnalyzer();
+        analyzer.setScopesEnabled(scopes);
+        analyzer.setFoldingEnabled(scopes);
+    }
+
+    @TearDown
+    public void tearDown() {
+        analyzer.getFactory().returnAnalyzer();
+    }
+
+    /**
+     * Write the xref of the sample.
+     * @return the output so that it is not optimized away
+     */
+    @Benchmark
+    public StringWriter xref() throws IOException {
+        StringWriter out = new StringWriter(content.length() * 4);
+        analyzer.writeXref(new WriteXrefArgs(new StringReader(content), out));
+        return out;
+    }
+}
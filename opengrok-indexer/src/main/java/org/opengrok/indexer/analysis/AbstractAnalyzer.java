@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2005, 2021, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2005, 2023, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2017, 2020, Chris Fraire <cfraire@me.com>.
  */
 package org.opengrok.indexer.analysis;
@@ -27,11 +27,15 @@ import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
 import java.io.Writer;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.function.Supplier;
 
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.jetbrains.annotations.Nullable;
 import org.opengrok.indexer.configuration.Project;
 import org.opengrok.indexer.index.NumLinesLOCAggregator;
 
@@ -45,9 +49,11 @@ public abstract class AbstractAnalyzer extends Analyzer {
     protected Supplier<JFlexTokenizer> symbolTokenizerFactory;
     protected Project project;
     protected Ctags ctags;
+    protected Future<Definitions> definitionsFuture;
     protected NumLinesLOCAggregator countsAggregator;
     protected boolean scopesEnabled;
     protected boolean foldingEnabled;
+    protected boolean termVectorsEnabled;
 
     protected AbstractAnalyzer(ReuseStrategy reuseStrategy) {
         super(reuseStrategy);
@@ -78,6 +84,44 @@ public abstract class AbstractAnalyzer extends Analyzer {
         this.ctags = ctags;
     }
 
+    /**
+     * Set the definitions of the file to be analyzed that are being computed asynchronously,
+     * e.g. by {@link CtagsService}. If set, they take precedence over running {@link #ctags}.
+     * @param definitionsFuture future with the definitions or {@code null}
+     */
+    public void setDefinitionsFuture(@Nullable Future<Definitions> definitionsFuture) {
+        this.definitionsFuture = definitionsFuture;
+    }
+
+    /**
+     * Get the definitions of a file, either from {@link #definitionsFuture} or by running {@link #ctags}.
+     * @param file absolute path of the file
+     * @return definitions or {@code null} if there is no way to get them or ctags failed to produce them
+     * @throws IOException I/O exception
+     * @throws InterruptedException interrupted or timed out ctags
+     */
+    @Nullable
+    protected Definitions getDefinitions(String file) throws IOException, InterruptedException {
+        if (definitionsFuture != null) {
+            try {
+                return definitionsFuture.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof InterruptedException) {
+                    throw new InterruptedException(cause.getMessage());
+                }
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                throw new IOException(cause);
+            }
+        }
+        if (ctags != null) {
+            return ctags.doCtags(file);
+        }
+        return null;
+    }
+
     public void setCountsAggregator(NumLinesLOCAggregator countsAggregator) {
         this.countsAggregator = countsAggregator;
     }
@@ -94,8 +138,49 @@ public abstract class AbstractAnalyzer extends Analyzer {
         this.foldingEnabled = supportsScopes() && foldingEnabled;
     }
 
+    /**
+     * Set whether the full text and references fields should be indexed with term vectors,
+     * see {@link #newTextField(String, Reader)}.
+     * @param termVectorsEnabled whether to store term vectors
+     */
+    public void setTermVectorsEnabled(boolean termVectorsEnabled) {
+        this.termVectorsEnabled = termVectorsEnabled;
+    }
+
     protected abstract boolean supportsScopes();
 
+    /**
+     * Creates an un-stored field for the full text or references. With term vectors enabled,
+     * the highlighter does not have to re-analyze the source file for multi-term queries.
+     * @param name field name
+     * @param reader reader
+     * @return {@link OGKTextVecField} if term vectors are enabled, {@link OGKTextField} otherwise
+     */
+    protected Field newTextField(String name, Reader reader) {
+        return termVectorsEnabled ? new OGKTextVecField(name, reader) : new OGKTextField(name, reader);
+    }
+
+    /**
+     * Creates an un-stored field for the full text or references, see {@link #newTextField(String, Reader)}.
+     * @param name field name
+     * @param stream stream
+     * @return {@link OGKTextVecField} if term vectors are enabled, {@link OGKTextField} otherwise
+     */
+    protected Field newTextField(String name, TokenStream stream) {
+        return termVectorsEnabled ? new OGKTextVecField(name, stream) : new OGKTextField(name, stream);
+    }
+
+    /**
+     * Creates an un-stored field for the full text or references, see {@link #newTextField(String, Reader)}.
+     * @param name field name
+     * @param value string value
+     * @return {@link OGKTextVecField} if term vectors are enabled, {@link OGKTextField} otherwise
+     */
+    protected Field newTextField(String name, String value) {
+        return termVectorsEnabled ? new OGKTextVecField(name, value, Field.Store.NO) :
+                new OGKTextField(name, value, Field.Store.NO);
+    }
+
     /**
      * Get the factory which created this analyzer.
      *
@@ -46,8 +46,12 @@ import java.util.Objects;
 import java.util.SortedMap;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.apache.lucene.document.DateTools;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
@@ -58,6 +62,7 @@ import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
 import org.apache.lucene.util.BytesRef;
 import org.jetbrains.annotations.Nullable;
+import org.opengrok.indexer.Metrics;
 import org.opengrok.indexer.analysis.FileAnalyzerFactory.Matcher;
 import org.opengrok.indexer.analysis.ada.AdaAnalyzerFactory;
 import org.opengrok.indexer.analysis.archive.BZip2AnalyzerFactory;
@@ -626,13 +631,27 @@ public class AnalyzerGuru {
             if (g == AbstractAnalyzer.Genre.PLAIN || g == AbstractAnalyzer.Genre.XREFABLE || g == AbstractAnalyzer.Genre.HTML) {
                 doc.add(new Field(QueryBuilder.T, g.typeName(), string_ft_stored_nanalyzed_norms));
             }
+            long start = System.nanoTime();
             fa.analyze(doc, StreamSource.fromFile(file), xrefOut);
+            recordAnalyzerTime(fa, System.nanoTime() - start);
 
             String type = fa.getFileTypeName();
             doc.add(new StringField(QueryBuilder.TYPE, type, Store.YES));
         }
     }
 
+    private static void recordAnalyzerTime(AbstractAnalyzer fa, long nanos) {
+        MeterRegistry registry = Metrics.getRegistry();
+        if (registry != null) {
+            Timer.builder("indexer.analyzer").
+                    description("time spent analyzing a file (including xref generation) per analyzer").
+                    tag("analyzer", fa.getClass().getSimpleName()).
+                    publishPercentileHistogram().
+                    register(registry).
+                    record(nanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
     private static void populateDocumentHistory(Document doc, File file) {
         try {
             HistoryGuru histGuru = HistoryGuru.getInstance();
@@ -0,0 +1,154 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.analysis;
+
+import org.apache.lucene.store.ByteArrayDataInput;
+import org.apache.lucene.store.DataOutput;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Helper methods for the compact binary encoding of {@link Definitions} and {@link Scopes}
+ * stored in the index.
+ * <p>
+ * The encoded data start with 3 magic bytes identifying the type and format version byte, followed by
+ * a string table and the type specific records. The strings in the records are referenced by their
+ * position in the string table plus one, zero stands for {@code null}.
+ * </p>
+ * Data written by Java serialization (used by previous versions) are recognized by the stream magic
+ * so that existing indexes remain readable.
+ */
+final class CompactEncoding {
+
+    private CompactEncoding() {
+        // private to enforce static
+    }
+
+    /**
+     * @param bytes encoded data
+     * @return whether the data were produced by Java serialization
+     */
+    static boolean isJavaSerialized(byte[] bytes) {
+        return bytes.length >= 2 && bytes[0] == (byte) 0xAC && bytes[1] == (byte) 0xED;
+    }
+
+    static void writeHeader(DataOutput out, byte[] magic, byte version) throws IOException {
+        out.writeBytes(magic, magic.length);
+        out.writeByte(version);
+    }
+
+    static void readHeader(ByteArrayDataInput in, byte[] magic, byte version, String what) throws IOException {
+        for (byte b : magic) {
+            if (in.eof() || in.readByte() != b) {
+                throw new IOException(String.format("data do not contain %s", what));
+            }
+        }
+        if (in.eof()) {
+            throw new IOException(String.format("data do not contain %s", what));
+        }
+        byte actualVersion = in.readByte();
+        if (actualVersion != version) {
+            throw new IOException(String.format("unsupported version %d of %s", actualVersion, what));
+        }
+    }
+
+    /**
+     * Collects distinct strings and assigns references to them.
+     */
+    static class StringTableWriter {
+        private final Map<String, Integer> refs = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+
+        /**
+         * @param str string to add
+         * @return reference of the string
+         */
+        int add(@Nullable String str) {
+            if (str == null) {
+                return 0;
+            }
+            return refs.computeIfAbsent(str, s -> {
+                strings.add(s);
+                return strings.size();
+            });
+        }
+
+        void writeTo(DataOutput out) throws IOException {
+            out.writeVInt(strings.size());
+            for (String str : strings) {
+                byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+                out.writeVInt(bytes.length);
+                out.writeBytes(bytes, bytes.length);
+            }
+        }
+    }
+
+    /**
+     * Reads the string table. The strings are decoded only when referenced.
+     */
+    static class StringTableReader {
+        private final byte[] bytes;
+        private final int[] offsets;
+        private final int[] lengths;
+        private final String[] strings;
+
+        /**
+         * @param bytes encoded data
+         * @param in input positioned at the start of the string table, will be positioned after it
+         * @throws IOException on error
+         */
+        StringTableReader(byte[] bytes, ByteArrayDataInput in) throws IOException {
+            this.bytes = bytes;
+            int count = in.readVInt();
+            offsets = new int[count];
+            lengths = new int[count];
+            strings = new String[count];
+            for (int i = 0; i < count; i++) {
+                lengths[i] = in.readVInt();
+                offsets[i] = in.getPosition();
+                in.skipBytes(lengths[i]);
+            }
+        }
+
+        @Nullable
+        String get(int ref) throws IOException {
+            if (ref == 0) {
+                return null;
+            }
+            if (ref > strings.length) {
+                throw new IOException(String.format("invalid string reference %d", ref));
+            }
+            int i = ref - 1;
+            if (strings[i] == null) {
+                strings[i] = new String(bytes, offsets[i], lengths[i], StandardCharsets.UTF_8);
+            }
+            return strings[i];
+        }
+    }
+}
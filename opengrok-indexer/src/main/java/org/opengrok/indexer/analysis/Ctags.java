@@ -43,6 +43,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.ObjIntConsumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -450,9 +451,29 @@ public class Ctags implements Resettable {
      */
     @Nullable
     public Definitions doCtags(String file) throws IOException, InterruptedException {
+        Definitions[] ret = new Definitions[1];
+        doCtags(List.of(file), (definitions, i) -> ret[0] = definitions);
+        return ret[0];
+    }
 
-        if (file.length() < 1 || "\n".equals(file)) {
-            return null;
+    /**
+     * Run ctags on multiple files. All the file paths are handed over to the ctags process at once
+     * so that ctags can proceed with the next file while the tags of the previous one are being read.
+     * @param files file paths to process
+     * @param consumer consumer of the {@link Definitions} (or {@code null} on error) and index of the file,
+     *                 called in the order of the files
+     * @throws IOException I/O exception
+     * @throws InterruptedException interrupted command, the files after the last one passed to the consumer
+     * were not processed
+     */
+    public void doCtags(List<String> files, ObjIntConsumer<Definitions> consumer)
+            throws IOException, InterruptedException {
+
+        if (files.stream().noneMatch(Ctags::isValidPath)) {
+            for (int i = 0; i < files.size(); i++) {
+                consumer.accept(null, i);
+            }
+            return;
         }
 
         if (ctagsProcess != null) {
@@ -472,12 +493,12 @@ public class Ctags implements Resettable {
             run();
         }
 
-        CtagsReader rdr = new CtagsReader();
-        rdr.setSplitterSupplier(() -> trySplitSource(file));
-        rdr.setTabSize(tabSize);
-        Definitions ret = null;
         try {
-            ctagsIn.write(file + "\n");
+            for (String file : files) {
+                if (isValidPath(file)) {
+                    ctagsIn.write(file + "\n");
+                }
+            }
             if (Thread.interrupted()) {
                 throw new InterruptedException("write()");
             }
@@ -486,29 +507,9 @@ public class Ctags implements Resettable {
                 throw new InterruptedException("flush()");
             }
 
-            /*
-             * Run the ctags reader in a time bound thread to make sure
-             * the ctags process completes so that the indexer can
-             * make progress instead of hanging the whole operation.
-             */
-            IndexerParallelizer parallelizer = env.getIndexerParallelizer();
-            ExecutorService executor = parallelizer.getCtagsWatcherExecutor();
-            Future<Definitions> future = executor.submit(() -> {
-                readTags(rdr);
-                return rdr.getDefinitions();
-            });
-
-            try {
-                ret = future.get(getTimeout(), TimeUnit.SECONDS);
-            } catch (ExecutionException ex) {
-                LOGGER.log(Level.WARNING, "execution exception", ex);
-            } catch (TimeoutException ex) {
-                LOGGER.log(Level.WARNING,
-                        String.format("Terminating ctags process for file '%s' " +
-                                "due to timeout %d seconds", file, getTimeout()));
-                close();
-                // Allow for retry in IndexDatabase.
-                throw new InterruptedException("ctags timeout");
+            for (int i = 0; i < files.size(); i++) {
+                String file = files.get(i);
+                consumer.accept(isValidPath(file) ? readDefinitions(file) : null, i);
             }
         } catch (IOException ex) {
             /*
@@ -520,8 +521,44 @@ public class Ctags implements Resettable {
             }
             throw ex;
         }
+    }
+
+    private static boolean isValidPath(String file) {
+        return file.length() > 0 && file.indexOf('\n') < 0;
+    }
+
+    @Nullable
+    private Definitions readDefinitions(String file) throws InterruptedException {
+        CtagsReader rdr = new CtagsReader();
+        rdr.setSplitterSupplier(() -> trySplitSource(file));
+        rdr.setTabSize(tabSize);
+
+        /*
+         * Run the ctags reader in a time bound thread to make sure
+         * the ctags process completes so that the indexer can
+         * make progress instead of hanging the whole operation.
+         */
+        IndexerParallelizer parallelizer = env.getIndexerParallelizer();
+        ExecutorService executor = parallelizer.getCtagsWatcherExecutor();
+        Future<Definitions> future = executor.submit(() -> {
+            readTags(rdr);
+            return rdr.getDefinitions();
+        });
+
+        try {
+            return future.get(getTimeout(), TimeUnit.SECONDS);
+        } catch (ExecutionException ex) {
+            LOGGER.log(Level.WARNING, "execution exception", ex);
+        } catch (TimeoutException ex) {
+            LOGGER.log(Level.WARNING,
+                    String.format("Terminating ctags process for file '%s' " +
+                            "due to timeout %d seconds", file, getTimeout()));
+            close();
+            // Allow for retry in IndexDatabase.
+            throw new InterruptedException("ctags timeout");
+        }
 
-        return ret;
+        return null;
     }
 
     /**
@@ -0,0 +1,249 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.analysis;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.jetbrains.annotations.Nullable;
+import org.opengrok.indexer.Metrics;
+import org.opengrok.indexer.configuration.OpenGrokThreadFactory;
+import org.opengrok.indexer.logger.LoggerFactory;
+
+/**
+ * Computes {@link Definitions} asynchronously using a set of long-lived {@link Ctags} processes.
+ * <p>
+ * The requests are put into a shared queue. Each worker thread owns one {@link Ctags} instance,
+ * takes the queued requests in batches of up to {@code maxBatchSize} files and hands them over
+ * to its ctags process at once, so that the round-trip latency is paid once per batch rather than
+ * once per file. The callers are therefore free to do other work while the tags are being computed.
+ * </p>
+ * If the ctags process dies or times out, it is replaced with new one and the unfinished requests
+ * of the batch are queued again. Each request is retried at most once.
+ */
+public class CtagsService implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CtagsService.class);
+
+    /**
+     * Default maximum number of files handed over to single ctags process at once.
+     */
+    public static final int DEFAULT_MAX_BATCH_SIZE = 16;
+
+    private static final int MAX_TRIES = 2;
+
+    private static class Request {
+        private final String file;
+        private final int tabSize;
+        private final CompletableFuture<Definitions> future = new CompletableFuture<>();
+        private final long submitted = System.nanoTime();
+        private int tries;
+
+        Request(String file, int tabSize) {
+            this.file = file;
+            this.tabSize = tabSize;
+        }
+    }
+
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final Supplier<Ctags> ctagsFactory;
+    private final CtagsValidator validator = new CtagsValidator();
+    private final int maxBatchSize;
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean closed;
+
+    /**
+     * @param workerCount number of ctags processes
+     * @param ctagsFactory supplier of new {@link Ctags} instances
+     * @param maxBatchSize maximum number of files handed over to single ctags process at once
+     */
+    public CtagsService(int workerCount, Supplier<Ctags> ctagsFactory, int maxBatchSize) {
+        if (workerCount < 1) {
+            throw new IllegalArgumentException("workerCount must be positive");
+        }
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maxBatchSize must be positive");
+        }
+        this.ctagsFactory = ctagsFactory;
+        this.maxBatchSize = maxBatchSize;
+
+        OpenGrokThreadFactory threadFactory = new OpenGrokThreadFactory("ctags-worker");
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = threadFactory.newThread(this::work);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    /**
+     * Submit request to compute definitions for a file.
+     * @param file absolute path of the file
+     * @param tabSize tab size to use for the file
+     * @return future with the definitions of the file, possibly {@code null} if ctags failed to produce them.
+     * The future completes exceptionally with {@link InterruptedException} if the ctags process
+     * repeatedly died or timed out for the file.
+     */
+    public CompletableFuture<Definitions> submit(String file, int tabSize) {
+        Request request = new Request(file, tabSize);
+        if (closed) {
+            request.future.completeExceptionally(new IOException("ctags service is closed"));
+        } else {
+            queue.add(request);
+        }
+        return request.future;
+    }
+
+    private void work() {
+        Ctags ctags = null;
+        List<Request> batch = new ArrayList<>(maxBatchSize);
+        try {
+            while (!closed) {
+                batch.add(queue.take());
+                queue.drainTo(batch, maxBatchSize - 1);
+                // The requests whose results are no longer wanted do not need to be processed.
+                batch.removeIf(r -> r.future.isDone());
+
+                // The tab size is set per ctags instance so process the requests in groups with the same tab size.
+                int start = 0;
+                while (start < batch.size()) {
+                    int end = start + 1;
+                    while (end < batch.size() && batch.get(end).tabSize == batch.get(start).tabSize) {
+                        end++;
+                    }
+                    ctags = process(ctags, batch.subList(start, end));
+                    start = end;
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            if (!closed) {
+                LOGGER.log(Level.WARNING, "ctags worker interrupted", e);
+            }
+        } finally {
+            failAll(batch);
+            if (ctags != null) {
+                ctags.close();
+            }
+        }
+    }
+
+    /**
+     * @return the {@link Ctags} instance to be used for the next batch
+     */
+    @Nullable
+    private Ctags process(@Nullable Ctags ctags, List<Request> requests) throws InterruptedException {
+        if (ctags != null && !validator.isValid(ctags)) {
+            LOGGER.log(Level.INFO, "ctags process is no longer running, will start new one");
+            validator.invalidate(ctags);
+            ctags = null;
+        }
+        if (ctags == null) {
+            ctags = ctagsFactory.get();
+        }
+        ctags.setTabSize(requests.get(0).tabSize);
+
+        MeterRegistry registry = Metrics.getRegistry();
+        if (registry != null) {
+            DistributionSummary.builder("ctags.batch.size").
+                    description("number of files handed over to ctags process at once").
+                    register(registry).
+                    record(requests.size());
+        }
+
+        int[] done = {0};
+        try {
+            ctags.doCtags(requests.stream().map(r -> r.file).collect(Collectors.toList()), (definitions, i) -> {
+                Request request = requests.get(i);
+                request.future.complete(definitions);
+                done[0] = i + 1;
+                if (registry != null) {
+                    Timer.builder("ctags.latency").
+                            description("time from submitting a file to ctags service until its definitions are ready").
+                            publishPercentileHistogram().
+                            register(registry).
+                            record(System.nanoTime() - request.submitted, TimeUnit.NANOSECONDS);
+                }
+            });
+            ctags.reset();
+            return ctags;
+        } catch (InterruptedException | IOException | RuntimeException e) {
+            validator.invalidate(ctags);
+            if (closed) {
+                throw new InterruptedException("ctags service is closed");
+            }
+
+            // The first unfinished request is the one that the ctags process failed on.
+            for (int i = done[0]; i < requests.size(); i++) {
+                Request request = requests.get(i);
+                if (i == done[0] && ++request.tries >= MAX_TRIES) {
+                    LOGGER.log(Level.WARNING, String.format("No retry of ctags for '%s'", request.file), e);
+                    request.future.completeExceptionally(e);
+                } else {
+                    queue.add(request);
+                }
+            }
+            return null;
+        }
+    }
+
+    private static void failAll(List<Request> requests) {
+        for (Request request : requests) {
+            request.future.completeExceptionally(new InterruptedException("ctags service is closed"));
+        }
+    }
+
+    /**
+     * Stop the worker threads and their ctags processes. The pending requests are completed exceptionally.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        List<Request> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        failAll(pending);
+    }
+}
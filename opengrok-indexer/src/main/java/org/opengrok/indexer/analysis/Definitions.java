@@ -18,19 +18,19 @@
  */
 
 /*
- * Copyright (c) 2008, 2021, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2008, 2023, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2018, Chris Fraire <cfraire@me.com>.
  */
 package org.opengrok.indexer.analysis;
 
+import org.apache.lucene.store.ByteArrayDataInput;
+import org.apache.lucene.store.ByteBuffersDataOutput;
 import org.opengrok.indexer.util.WhitelistObjectInputFilter;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputFilter;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -38,6 +38,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.IntPredicate;
 
 public class Definitions implements Serializable {
 
@@ -56,6 +57,9 @@ public class Definitions implements Serializable {
             Object[].class
     );
 
+    private static final byte[] MAGIC = {'O', 'G', 'D'};
+    private static final byte VERSION = 1;
+
     // Per line sym -> tags mapping
     public static class LineTagMap implements Serializable {
 
@@ -293,15 +297,44 @@ public class Definitions implements Serializable {
 
     /**
      * Create a binary representation of this object.
+     * <p>
+     * The representation consists of the header and string table described in {@link CompactEncoding}
+     * followed by the number of tags and the tags in the order of {@link #getTags()}. Each tag is
+     * stored as the difference of its line number from the line of the previous tag, length of the rest
+     * of the record (so that tags on other lines can be skipped without decoding) and the references of
+     * symbol, type, text, namespace and signature followed by {@link Tag#lineStart} and {@link Tag#lineEnd}.
+     * </p>
      *
      * @return a byte array representing this object
      * @throws IOException if an error happens when writing to the array
      */
     public byte[] serialize() throws IOException {
-        try (ByteArrayOutputStream bytes = new ByteArrayOutputStream(); var oos = new ObjectOutputStream(bytes)) {
-            oos.writeObject(this);
-            return bytes.toByteArray();
+        CompactEncoding.StringTableWriter stringTable = new CompactEncoding.StringTableWriter();
+        ByteBuffersDataOutput records = new ByteBuffersDataOutput();
+        ByteBuffersDataOutput record = new ByteBuffersDataOutput();
+        int previousLine = 0;
+        for (Tag tag : tags) {
+            record.reset();
+            record.writeVInt(stringTable.add(tag.symbol));
+            record.writeVInt(stringTable.add(tag.type));
+            record.writeVInt(stringTable.add(tag.text));
+            record.writeVInt(stringTable.add(tag.namespace));
+            record.writeVInt(stringTable.add(tag.signature));
+            record.writeZInt(tag.lineStart);
+            record.writeZInt(tag.lineEnd);
+
+            records.writeZInt(tag.line - previousLine);
+            records.writeVInt((int) record.size());
+            record.copyTo(records);
+            previousLine = tag.line;
         }
+
+        ByteBuffersDataOutput out = new ByteBuffersDataOutput();
+        CompactEncoding.writeHeader(out, MAGIC, VERSION);
+        stringTable.writeTo(out);
+        out.writeVInt(tags.size());
+        records.copyTo(out);
+        return out.toArrayCopy();
     }
 
     /**
@@ -316,6 +349,71 @@ public class Definitions implements Serializable {
      * type than {@code Definitions}
      */
     public static Definitions deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        if (CompactEncoding.isJavaSerialized(bytes)) {
+            return deserializeLegacy(bytes);
+        }
+        return deserialize(bytes, line -> true);
+    }
+
+    /**
+     * De-serialize the tags on selected lines from a binary representation of a {@code Definitions} object.
+     * Tags on other lines are skipped without decoding them. Note that for data stored by previous versions
+     * (using Java serialization) the object is always decoded as whole and then filtered.
+     *
+     * @param bytes a byte array containing the {@code Definitions} object
+     * @param lineFilter predicate selecting the line numbers of the tags to decode
+     * @return a {@code Definitions} object containing the selected tags
+     * @throws IOException if an I/O error happens when reading the array
+     * @throws ClassNotFoundException if the class definition for an object
+     * stored in the byte array cannot be found
+     * @throws ClassCastException if the array contains an object of another
+     * type than {@code Definitions}
+     */
+    public static Definitions deserialize(byte[] bytes, IntPredicate lineFilter)
+            throws IOException, ClassNotFoundException {
+
+        if (CompactEncoding.isJavaSerialized(bytes)) {
+            Definitions definitions = deserializeLegacy(bytes);
+            Definitions result = new Definitions();
+            for (Tag tag : definitions.tags) {
+                if (lineFilter.test(tag.line)) {
+                    result.addTag(tag.line, tag.symbol, tag.type, tag.text, tag.namespace, tag.signature,
+                            tag.lineStart, tag.lineEnd);
+                }
+            }
+            return result;
+        }
+
+        try {
+            ByteArrayDataInput in = new ByteArrayDataInput(bytes);
+            CompactEncoding.readHeader(in, MAGIC, VERSION, "definitions");
+            CompactEncoding.StringTableReader stringTable = new CompactEncoding.StringTableReader(bytes, in);
+            Definitions result = new Definitions();
+            int count = in.readVInt();
+            int line = 0;
+            for (int i = 0; i < count; i++) {
+                line += in.readZInt();
+                int length = in.readVInt();
+                if (!lineFilter.test(line)) {
+                    in.skipBytes(length);
+                    continue;
+                }
+                String symbol = stringTable.get(in.readVInt());
+                String type = stringTable.get(in.readVInt());
+                String text = stringTable.get(in.readVInt());
+                String namespace = stringTable.get(in.readVInt());
+                String signature = stringTable.get(in.readVInt());
+                int lineStart = in.readZInt();
+                int lineEnd = in.readZInt();
+                result.addTag(line, symbol, type, text, namespace, signature, lineStart, lineEnd);
+            }
+            return result;
+        } catch (RuntimeException e) {
+            throw new IOException("corrupted definitions data", e);
+        }
+    }
+
+    private static Definitions deserializeLegacy(byte[] bytes) throws IOException, ClassNotFoundException {
         try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
             in.setObjectInputFilter(serialFilter);
             return (Definitions) in.readObject();
@@ -18,18 +18,18 @@
  */
 
  /*
- * Copyright (c) 2015, 2021, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2015, 2023, Oracle and/or its affiliates. All rights reserved.
  */
 package org.opengrok.indexer.analysis;
 
+import org.apache.lucene.store.ByteArrayDataInput;
+import org.apache.lucene.store.ByteBuffersDataOutput;
 import org.opengrok.indexer.util.WhitelistObjectInputFilter;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputFilter;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.TreeSet;
 
@@ -47,6 +47,9 @@ public class Scopes implements Serializable {
             Scope.class
     );
 
+    private static final byte[] MAGIC = {'O', 'G', 'S'};
+    private static final byte VERSION = 1;
+
     /**
      * Note: this class has a natural ordering that is inconsistent with equals.
      */
@@ -152,31 +155,74 @@ public class Scopes implements Serializable {
 
     /**
      * Create a binary representation of this object.
+     * <p>
+     * The representation consists of the header and string table described in {@link CompactEncoding}
+     * followed by the number of scopes and the scopes ordered by their starting line. Each scope is stored
+     * as the difference of its starting line from the starting line of the previous scope, its length
+     * in lines and the references of name, namespace and signature.
+     * </p>
      *
      * @return a byte array representing this object
      * @throws IOException if an error happens when writing to the array
      */
     public byte[] serialize() throws IOException {
-        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
-        new ObjectOutputStream(bytes).writeObject(this);
-        return bytes.toByteArray();
+        CompactEncoding.StringTableWriter stringTable = new CompactEncoding.StringTableWriter();
+        ByteBuffersDataOutput records = new ByteBuffersDataOutput();
+        int previousLine = 0;
+        for (Scope scope : scopes) {
+            records.writeZInt(scope.getLineFrom() - previousLine);
+            records.writeZInt(scope.getLineTo() - scope.getLineFrom());
+            records.writeVInt(stringTable.add(scope.getName()));
+            records.writeVInt(stringTable.add(scope.getNamespace()));
+            records.writeVInt(stringTable.add(scope.getSignature()));
+            previousLine = scope.getLineFrom();
+        }
+
+        ByteBuffersDataOutput out = new ByteBuffersDataOutput();
+        CompactEncoding.writeHeader(out, MAGIC, VERSION);
+        stringTable.writeTo(out);
+        out.writeVInt(scopes.size());
+        records.copyTo(out);
+        return out.toArrayCopy();
     }
 
     /**
-     * De-serialize a binary representation of a {@code Definitions} object.
+     * De-serialize a binary representation of a {@code Scopes} object.
      *
-     * @param bytes a byte array containing the {@code Definitions} object
-     * @return a {@code Definitions} object
+     * @param bytes a byte array containing the {@code Scopes} object
+     * @return a {@code Scopes} object
      * @throws IOException if an I/O error happens when reading the array
      * @throws ClassNotFoundException if the class definition for an object
      * stored in the byte array cannot be found
      * @throws ClassCastException if the array contains an object of another
-     * type than {@code Definitions}
+     * type than {@code Scopes}
      */
     public static Scopes deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
-        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
-            in.setObjectInputFilter(serialFilter);
-            return (Scopes) in.readObject();
+        if (CompactEncoding.isJavaSerialized(bytes)) {
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                in.setObjectInputFilter(serialFilter);
+                return (Scopes) in.readObject();
+            }
+        }
+
+        try {
+            ByteArrayDataInput in = new ByteArrayDataInput(bytes);
+            CompactEncoding.readHeader(in, MAGIC, VERSION, "scopes");
+            CompactEncoding.StringTableReader stringTable = new CompactEncoding.StringTableReader(bytes, in);
+            Scopes result = new Scopes();
+            int count = in.readVInt();
+            int lineFrom = 0;
+            for (int i = 0; i < count; i++) {
+                lineFrom += in.readZInt();
+                int lineTo = lineFrom + in.readZInt();
+                String name = stringTable.get(in.readVInt());
+                String namespace = stringTable.get(in.readVInt());
+                String signature = stringTable.get(in.readVInt());
+                result.addScope(new Scope(lineFrom, lineTo, name, namespace, signature));
+            }
+            return result;
+        } catch (RuntimeException e) {
+            throw new IOException("corrupted scopes data", e);
         }
     }
 }
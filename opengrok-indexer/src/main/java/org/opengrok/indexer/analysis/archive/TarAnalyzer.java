@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2005, 2018, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2005, 2023, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2018, 2019, Chris Fraire <cfraire@me.com>.
  */
 package org.opengrok.indexer.analysis.archive;
@@ -32,7 +32,6 @@ import org.apache.tools.tar.TarInputStream;
 import org.opengrok.indexer.analysis.AnalyzerFactory;
 import org.opengrok.indexer.analysis.FileAnalyzer;
 import org.opengrok.indexer.analysis.IteratorReader;
-import org.opengrok.indexer.analysis.OGKTextField;
 import org.opengrok.indexer.analysis.StreamSource;
 import org.opengrok.indexer.search.QueryBuilder;
 import org.opengrok.indexer.web.Util;
@@ -84,6 +83,6 @@ public class TarAnalyzer extends FileAnalyzer {
             }
         }
 
-        doc.add(new OGKTextField(QueryBuilder.FULL, new IteratorReader(names)));
+        doc.add(newTextField(QueryBuilder.FULL, new IteratorReader(names)));
     }
 }
@@ -29,11 +29,11 @@ import java.io.Writer;
 import java.util.concurrent.ExecutionException;
 
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
 import org.opengrok.indexer.analysis.AbstractAnalyzer;
 import org.opengrok.indexer.analysis.AnalyzerFactory;
 import org.opengrok.indexer.analysis.JFlexTokenizer;
 import org.opengrok.indexer.analysis.NumLinesLOC;
-import org.opengrok.indexer.analysis.OGKTextField;
 import org.opengrok.indexer.analysis.StreamSource;
 import org.opengrok.indexer.analysis.TextAnalyzer;
 import org.opengrok.indexer.analysis.WriteXrefArgs;
@@ -81,7 +81,7 @@ public class TroffAnalyzer extends TextAnalyzer {
         //this is to explicitly use appropriate analyzers tokenstream to workaround #1376 symbols search works like full text search
         JFlexTokenizer symbolTokenizer = symbolTokenizerFactory.get();
         symbolTokenizer.setReader(getReader(src.getStream()));
-        OGKTextField full = new OGKTextField(QueryBuilder.FULL, symbolTokenizer);
+        Field full = newTextField(QueryBuilder.FULL, symbolTokenizer);
         doc.add(full);
 
         if (xrefOut != null) {
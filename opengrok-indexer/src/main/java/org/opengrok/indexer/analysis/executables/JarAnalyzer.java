@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2005, 2018, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2005, 2023, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2018, 2019, Chris Fraire <cfraire@me.com>.
  */
 package org.opengrok.indexer.analysis.executables;
@@ -34,7 +34,6 @@ import org.apache.lucene.document.Field.Store;
 import org.opengrok.indexer.analysis.AnalyzerFactory;
 import org.opengrok.indexer.analysis.AnalyzerGuru;
 import org.opengrok.indexer.analysis.FileAnalyzer;
-import org.opengrok.indexer.analysis.OGKTextField;
 import org.opengrok.indexer.analysis.OGKTextVecField;
 import org.opengrok.indexer.analysis.StreamSource;
 import org.opengrok.indexer.search.QueryBuilder;
@@ -107,7 +106,7 @@ public class JarAnalyzer extends FileAnalyzer {
         for (String name : UNSTORED_FIELD_NAMES) {
             if (jfbuilder.hasField(name)) {
                 String fstr = jfbuilder.write(name).toString();
-                doc.add(new OGKTextField(name, fstr, Store.NO));
+                doc.add(newTextField(name, fstr));
             }
         }
         String name = QueryBuilder.DEFS;
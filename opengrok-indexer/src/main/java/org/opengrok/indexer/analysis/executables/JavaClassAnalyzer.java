@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2005, 2021, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2005, 2023, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2018, 2020, Chris Fraire <cfraire@me.com>.
  * Portions Copyright (c) 2020, Lubos Kosco <tarzanek@gmail.com>.
  */
@@ -59,7 +59,6 @@ import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field.Store;
 import org.opengrok.indexer.analysis.AnalyzerFactory;
 import org.opengrok.indexer.analysis.FileAnalyzer;
-import org.opengrok.indexer.analysis.OGKTextField;
 import org.opengrok.indexer.analysis.OGKTextVecField;
 import org.opengrok.indexer.analysis.StreamSource;
 import org.opengrok.indexer.configuration.RuntimeEnvironment;
@@ -157,10 +156,10 @@ public class JavaClassAnalyzer extends FileAnalyzer {
             doc.add(new OGKTextVecField(QueryBuilder.DEFS, dstr, Store.NO));
 
             String rstr = rout.toString();
-            doc.add(new OGKTextField(QueryBuilder.REFS, rstr, Store.NO));
+            doc.add(newTextField(QueryBuilder.REFS, rstr));
 
             String fstr = fout.toString();
-            doc.add(new OGKTextField(QueryBuilder.FULL, fstr, Store.NO));
+            doc.add(newTextField(QueryBuilder.FULL, fstr));
         }
     }
 
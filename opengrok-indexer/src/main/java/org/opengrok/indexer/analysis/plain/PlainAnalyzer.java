@@ -31,6 +31,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.function.Supplier;
 
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
 import org.apache.lucene.document.StoredField;
 import org.opengrok.indexer.analysis.AnalyzerFactory;
 import org.opengrok.indexer.analysis.Definitions;
@@ -38,7 +39,6 @@ import org.opengrok.indexer.analysis.ExpandTabsReader;
 import org.opengrok.indexer.analysis.JFlexTokenizer;
 import org.opengrok.indexer.analysis.JFlexXref;
 import org.opengrok.indexer.analysis.NumLinesLOC;
-import org.opengrok.indexer.analysis.OGKTextField;
 import org.opengrok.indexer.analysis.OGKTextVecField;
 import org.opengrok.indexer.analysis.Scopes;
 import org.opengrok.indexer.analysis.StreamSource;
@@ -114,11 +114,11 @@ public class PlainAnalyzer extends TextAnalyzer {
         Definitions defs = null;
         NullWriter nullWriter = null;
 
-        doc.add(new OGKTextField(QueryBuilder.FULL, getReader(src.getStream())));
+        doc.add(newTextField(QueryBuilder.FULL, getReader(src.getStream())));
 
         String fullPath = doc.get(QueryBuilder.FULLPATH);
-        if (fullPath != null && ctags != null) {
-            defs = ctags.doCtags(fullPath);
+        if (fullPath != null) {
+            defs = getDefinitions(fullPath);
             if (defs != null && defs.numberOfSymbols() > 0) {
                 tryAddingDefs(doc, defs, src);
                 byte[] tags = defs.serialize();
@@ -130,7 +130,7 @@ public class PlainAnalyzer extends TextAnalyzer {
          * work around #1376: symbols search works like full text search.
          */
         JFlexTokenizer symbolTokenizer = symbolTokenizerFactory.get();
-        OGKTextField ref = new OGKTextField(QueryBuilder.REFS, symbolTokenizer);
+        Field ref = newTextField(QueryBuilder.REFS, symbolTokenizer);
         symbolTokenizer.setReader(getReader(src.getStream()));
         doc.add(ref);
 
@@ -32,7 +32,6 @@ import org.apache.lucene.document.Document;
 import org.opengrok.indexer.analysis.AnalyzerFactory;
 import org.opengrok.indexer.analysis.JFlexXref;
 import org.opengrok.indexer.analysis.NumLinesLOC;
-import org.opengrok.indexer.analysis.OGKTextField;
 import org.opengrok.indexer.analysis.StreamSource;
 import org.opengrok.indexer.analysis.TextAnalyzer;
 import org.opengrok.indexer.analysis.WriteXrefArgs;
@@ -77,7 +76,7 @@ public class XMLAnalyzer extends TextAnalyzer {
 
     @Override
     public void analyze(Document doc, StreamSource src, Writer xrefOut) throws IOException, InterruptedException {
-        doc.add(new OGKTextField(QueryBuilder.FULL, getReader(src.getStream())));
+        doc.add(newTextField(QueryBuilder.FULL, getReader(src.getStream())));
 
         RuntimeEnvironment env = RuntimeEnvironment.getInstance();
 
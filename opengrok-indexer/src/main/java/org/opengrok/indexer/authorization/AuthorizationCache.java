@@ -0,0 +1,159 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.authorization;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Authorization decisions shared across requests.
+ * <p>
+ * The decisions are keyed by the identity of the user, the kind and name of the entity and the plugin version
+ * of {@link AuthorizationFramework}, so the decisions made by the previous plugin stack are never used after
+ * the stack is reloaded. Each decision expires after its time to live. Once the cache is full, the expired
+ * decisions are removed first and then arbitrary decisions until there is enough room.
+ * </p>
+ */
+final class AuthorizationCache {
+
+    /**
+     * Identifies the decision by the identity of the user, the kind and name of the entity and the plugin version.
+     */
+    static final class Key {
+        private final String user;
+        private final String kind;
+        private final String entity;
+        private final long pluginVersion;
+
+        /**
+         * @param user identity of the user
+         * @param kind kind of the entity, e.g. project or group
+         * @param entity name of the entity
+         * @param pluginVersion plugin version of the framework
+         */
+        Key(String user, String kind, String entity, long pluginVersion) {
+            this.user = user;
+            this.kind = kind;
+            this.entity = entity;
+            this.pluginVersion = pluginVersion;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return pluginVersion == other.pluginVersion && user.equals(other.user) && kind.equals(other.kind) &&
+                    entity.equals(other.entity);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(user, kind, entity, pluginVersion);
+        }
+    }
+
+    private static final class Decision {
+        private final boolean allowed;
+        private final long expiresAt;
+
+        private Decision(boolean allowed, long expiresAt) {
+            this.allowed = allowed;
+            this.expiresAt = expiresAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+    }
+
+    private final Map<Key, Decision> decisions = new ConcurrentHashMap<>();
+
+    /**
+     * @param key identification of the decision
+     * @param now current time in nanoseconds as returned by {@link System#nanoTime()}
+     * @return the decision or {@code null} if there is no decision or it has expired
+     */
+    @Nullable
+    Boolean get(Key key, long now) {
+        Decision decision = decisions.get(key);
+        if (decision == null) {
+            return null;
+        }
+        if (decision.isExpired(now)) {
+            decisions.remove(key, decision);
+            return null;
+        }
+        return decision.allowed;
+    }
+
+    /**
+     * @param key identification of the decision
+     * @param allowed the decision
+     * @param ttl time to live of the decision in nanoseconds, the decision is not stored unless it is positive
+     * @param now current time in nanoseconds as returned by {@link System#nanoTime()}
+     * @param maxSize maximum number of decisions in the cache
+     */
+    void put(Key key, boolean allowed, long ttl, long now, int maxSize) {
+        if (ttl <= 0 || maxSize <= 0) {
+            return;
+        }
+        if (decisions.size() >= maxSize) {
+            evict(now, maxSize);
+        }
+        decisions.put(key, new Decision(allowed, now + ttl));
+    }
+
+    /**
+     * Make room for new decisions. Removes more decisions than necessary so that the cache is not scanned
+     * on each subsequent {@link #put(Key, boolean, long, long, int)}.
+     */
+    private void evict(long now, int maxSize) {
+        decisions.values().removeIf(decision -> decision.isExpired(now));
+        int limit = maxSize - Math.max(maxSize / 4, 1);
+        Iterator<Key> iterator = decisions.keySet().iterator();
+        while (decisions.size() > limit && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Remove all decisions.
+     */
+    void clear() {
+        decisions.clear();
+    }
+
+    int size() {
+        return decisions.size();
+    }
+}
@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2016, 2021, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2016, 2023, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2020, Chris Fraire <cfraire@me.com>.
  */
 package org.opengrok.indexer.authorization;
@@ -27,6 +27,7 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Level;
@@ -65,6 +66,14 @@ public final class AuthorizationFramework extends PluginFramework<IAuthorization
             description("authorization cache misses").
             tag("what", "misses").
             register(Metrics.getRegistry());
+    private final Counter authDecisionCacheHits = Counter.builder("authorization.decision.cache").
+            description("cross-request authorization decision cache hits").
+            tag("what", "hits").
+            register(Metrics.getRegistry());
+    private final Counter authDecisionCacheMisses = Counter.builder("authorization.decision.cache").
+            description("cross-request authorization decision cache misses").
+            tag("what", "misses").
+            register(Metrics.getRegistry());
     private final Counter authSessionsInvalidated = Metrics.getRegistry().
             counter("authorization.sessions.invalidated");
 
@@ -110,6 +119,11 @@ public final class AuthorizationFramework extends PluginFramework<IAuthorization
     // HTTP session attribute that holds plugin version
     private static final String SESSION_VERSION = "opengrok-authorization-session-version";
 
+    /**
+     * Decisions shared across requests of the same user. Cleared on every reload.
+     */
+    private final AuthorizationCache decisionCache = new AuthorizationCache();
+
     /**
      * Create a new instance of authorization framework with no plugin
      * directory and the default plugin stack.
@@ -371,6 +385,7 @@ public final class AuthorizationFramework extends PluginFramework<IAuthorization
     protected void afterReload() {
         if (stack == null) {
             LOGGER.log(Level.WARNING, "Plugin stack not found in configuration: null. All requests allowed.");
+            decisionCache.clear();
             return;
         }
 
@@ -392,6 +407,7 @@ public final class AuthorizationFramework extends PluginFramework<IAuthorization
 
             // increase the current plugin version tracked by the framework
             increasePluginVersion();
+            decisionCache.clear();
         } finally {
             lock.writeLock().unlock();
         }
@@ -425,6 +441,19 @@ public final class AuthorizationFramework extends PluginFramework<IAuthorization
         this.pluginVersion++;
     }
 
+    /**
+     * Get identity of the user for the purpose of sharing the authorization decisions across requests.
+     *
+     * @param request the request
+     * @return the identity or {@code null} if the user cannot be identified
+     * @see RuntimeEnvironment#getAuthorizationCacheUserHeader()
+     */
+    private static String getUserIdentity(HttpServletRequest request) {
+        String header = RuntimeEnvironment.getInstance().getAuthorizationCacheUserHeader();
+        String user = header != null ? request.getHeader(header) : request.getRemoteUser();
+        return user == null || user.isEmpty() ? null : user;
+    }
+
     /**
      * Is this session marked as invalid?
      * <p>
@@ -448,7 +477,8 @@ public final class AuthorizationFramework extends PluginFramework<IAuthorization
      * thread safe with respect to the concurrent reload of plugins.
      * <p>
      * <p>Internally performed with a predicate. Using cache in request
-     * attributes.
+     * attributes and, if {@link RuntimeEnvironment#getAuthorizationCacheTimeout()}
+     * is positive, decisions shared across requests of the same user.
      * <p>
      * <p>Order of plugin invocation:
      * <p>
@@ -517,7 +547,11 @@ public final class AuthorizationFramework extends PluginFramework<IAuthorization
 
         authCacheMisses.increment();
 
-        Duration duration;
+        RuntimeEnvironment env = RuntimeEnvironment.getInstance();
+        long ttl = TimeUnit.SECONDS.toNanos(env.getAuthorizationCacheTimeout());
+        String user = ttl > 0 ? getUserIdentity(request) : null;
+
+        Duration duration = null;
         boolean overallDecision;
 
         lock.readLock().lock();
@@ -528,21 +562,41 @@ public final class AuthorizationFramework extends PluginFramework<IAuthorization
                 session.invalidate();
                 authSessionsInvalidated.increment();
             }
-            request.getSession().setAttribute(SESSION_VERSION, getPluginVersion());
-
-            Instant start = Instant.now();
-            overallDecision = performCheck(entity, pluginPredicate, skippingPredicate);
-            Instant end = Instant.now();
-            duration = Duration.between(start, end);
+            long version = getPluginVersion();
+            request.getSession().setAttribute(SESSION_VERSION, version);
+
+            AuthorizationCache.Key cacheKey = user != null ?
+                    new AuthorizationCache.Key(user, cache, entity.getName(), version) : null;
+            Boolean cached = cacheKey != null ? decisionCache.get(cacheKey, System.nanoTime()) : null;
+            if (cached != null) {
+                authDecisionCacheHits.increment();
+                overallDecision = cached;
+            } else {
+                Instant start = Instant.now();
+                overallDecision = performCheck(entity, pluginPredicate, skippingPredicate);
+                Instant end = Instant.now();
+                duration = Duration.between(start, end);
+
+                if (cacheKey != null) {
+                    // Stored under the read lock so that no decision of the previous stack survives reload.
+                    authDecisionCacheMisses.increment();
+                    long decisionTtl = overallDecision ? ttl :
+                            TimeUnit.SECONDS.toNanos(env.getAuthorizationCacheNegativeTimeout());
+                    decisionCache.put(cacheKey, overallDecision, decisionTtl, System.nanoTime(),
+                            env.getAuthorizationCacheSize());
+                }
+            }
         } finally {
             lock.readLock().unlock();
         }
 
         // Update the timers.
-        if (overallDecision) {
-            authTimerPositive.record(duration);
-        } else {
-            authTimerNegative.record(duration);
+        if (duration != null) {
+            if (overallDecision) {
+                authTimerPositive.record(duration);
+            } else {
+                authTimerNegative.record(duration);
+            }
         }
 
         m.put(entity.getName(), overallDecision);
@@ -0,0 +1,39 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.configuration;
+
+/**
+ * Determines which files get their annotation cache entries created during indexing.
+ */
+public enum AnnotationCachePolicy {
+    /**
+     * Create annotation cache entry for every indexed file.
+     */
+    ALL,
+    /**
+     * Create annotation cache entries only for files whose access count (as recorded by the web application)
+     * reached {@link Configuration#getAnnotationCacheHotThreshold()}. The entries for the other files
+     * are created by the web application on first request.
+     */
+    HOT
+}
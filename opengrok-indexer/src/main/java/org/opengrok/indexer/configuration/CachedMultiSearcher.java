@@ -0,0 +1,116 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.configuration;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.lucene.index.MultiReader;
+import org.opengrok.indexer.logger.LoggerFactory;
+
+/**
+ * IndexSearcher over {@link MultiReader} for a set of projects that can be shared by multiple searches.
+ * The instance is reference counted: the {@link MultiSearcherCache} holds one reference while the instance
+ * is cached and each search holds another one which has to be returned by calling {@link #release()}
+ * once the search results are read. When the last reference is released, the underlying
+ * {@link SuperIndexSearcher} objects are returned to their {@code SearcherManager} objects.
+ */
+public class CachedMultiSearcher extends SlicingIndexSearcher {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CachedMultiSearcher.class);
+
+    private final SortedSet<String> projects;
+    private final long[] generations;
+    private final List<SuperIndexSearcher> searchers;
+    private final AtomicInteger refCount = new AtomicInteger(1);
+    private volatile long lastUsed = System.currentTimeMillis();
+
+    CachedMultiSearcher(MultiReader reader, Executor searchExecutor, SortedSet<String> projects,
+                        long[] generations, List<SuperIndexSearcher> searchers) {
+        super(reader, searchExecutor);
+        this.projects = projects;
+        this.generations = generations;
+        this.searchers = searchers;
+    }
+
+    public SortedSet<String> getProjects() {
+        return projects;
+    }
+
+    /**
+     * @return generations of the projects (in the order of {@link #getProjects()}) at the time
+     * the searcher was created
+     * @see RuntimeEnvironment#getSearcherGenerations(SortedSet)
+     */
+    public long[] getGenerations() {
+        return generations.clone();
+    }
+
+    long getLastUsed() {
+        return lastUsed;
+    }
+
+    /**
+     * Try to acquire a reference.
+     * @return whether the reference was acquired, i.e. the searcher was not closed yet
+     */
+    boolean tryIncRef() {
+        int count;
+        do {
+            count = refCount.get();
+            if (count <= 0) {
+                return false;
+            }
+        } while (!refCount.compareAndSet(count, count + 1));
+        lastUsed = System.currentTimeMillis();
+        return true;
+    }
+
+    /**
+     * Return the reference acquired for the search.
+     */
+    public void release() {
+        int count = refCount.decrementAndGet();
+        if (count == 0) {
+            close();
+        } else if (count < 0) {
+            throw new IllegalStateException("searcher released too many times: " + projects);
+        }
+    }
+
+    private void close() {
+        // The MultiReader does not hold references to its sub-readers, these are owned by the searchers.
+        for (SuperIndexSearcher searcher : searchers) {
+            try {
+                searcher.release();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "cannot release indexSearcher", e);
+            }
+        }
+    }
+}
@@ -108,10 +108,13 @@ public final class Configuration {
      * Should the history log be cached?
      */
     private boolean historyCache;
+    private HistoryCacheFormat historyCacheFormat = HistoryCacheFormat.SMILE;
     /**
      * Should the latest annotation be cached?
      */
     private boolean annotationCacheEnabled;
+    private AnnotationCachePolicy annotationCachePolicy = AnnotationCachePolicy.ALL;
+    private int annotationCacheHotThreshold;
     /**
      * flag to generate history. This is bigger hammer than @{code historyCache}
      * above. If set to false, no history query will be ever made and the webapp
@@ -134,6 +137,13 @@ public final class Configuration {
      */
     private boolean authorizationWatchdogEnabled;
     private AuthorizationStack pluginStack;
+    /*
+     * Authorization decisions shared across requests, see AuthorizationFramework.
+     */
+    private int authorizationCacheTimeout; // in seconds
+    private int authorizationCacheNegativeTimeout; // in seconds
+    private int authorizationCacheSize;
+    private String authorizationCacheUserHeader;
     private Map<String, Project> projects; // project name -> Project
     private Map<String, Group> groups; // project name -> Group
     private String sourceRoot;
@@ -181,6 +191,10 @@ public final class Configuration {
     private int repositoryInvalidationParallelism;
     private int historyParallelism;
     private int historyFileParallelism;
+    private int historyChunkParallelism;
+    private int indexWriterParallelism;
+    private int annotationCacheParallelism;
+    private int indexingQueueSize;
     private boolean tagsEnabled;
     private int hitsPerPage;
     private int cachePages;
@@ -205,6 +219,7 @@ public final class Configuration {
     private boolean scopesEnabled;
     private boolean projectsEnabled;
     private boolean foldingEnabled;
+    private boolean termVectorsEnabled;
     /*
      * Set to false if we want to disable fetching history of individual files
      * (by running appropriate SCM command) when the history is not found
@@ -262,6 +277,15 @@ public final class Configuration {
      * searches. This is total for the whole webapp.
      */
     private int MaxSearchThreadCount;
+    private int maxSearchSlices;
+    private int multiSearcherCacheSize;
+    private int multiSearcherCacheTimeout;
+    private int searchResultCacheSize;
+    private int revisionXrefCacheSize;
+    private boolean revisionXrefPrefetch;
+    private boolean xrefLoadedSeparately;
+    private int gitRepositoryCacheTimeout;
+    private int gitPackCacheSize;
 
     /**
      * Upper bound for number of threads used for getting revision contents.
@@ -553,6 +577,7 @@ public final class Configuration {
         setAllowLeadingWildcard(true);
         setAllowedSymlinks(new HashSet<>());
         setAnnotationCacheEnabled(false);
+        setAnnotationCacheHotThreshold(10);
         setApiTimeout(300); // 5 minutes
         setAuthenticationTokens(new HashSet<>());
         setAuthorizationWatchdogEnabled(false);
@@ -591,6 +616,13 @@ public final class Configuration {
         //luceneLocking default is OFF
         //mandoc is default(String)
         setMaxSearchThreadCount(2 * Runtime.getRuntime().availableProcessors());
+        setMultiSearcherCacheSize(64);
+        setMultiSearcherCacheTimeout(600);
+        setSearchResultCacheSize(64);
+        setAuthorizationCacheSize(100000);
+        setRevisionXrefCacheSize(256);
+        setGitRepositoryCacheTimeout(600);
+        setGitPackCacheSize(128);
         setMaxRevisionThreadCount(Runtime.getRuntime().availableProcessors());
         setMaxDirectoryListingThreadCount(Runtime.getRuntime().availableProcessors());
         setMergeCommitsEnabled(true);
@@ -691,6 +723,54 @@ public final class Configuration {
         this.pluginStack = pluginStack;
     }
 
+    /**
+     * @return time in seconds for which the authorization decisions allowing access are shared across
+     * requests of the same user, 0 means the decisions are not shared
+     */
+    public int getAuthorizationCacheTimeout() {
+        return authorizationCacheTimeout;
+    }
+
+    public void setAuthorizationCacheTimeout(int timeout) {
+        this.authorizationCacheTimeout = Math.max(timeout, 0);
+    }
+
+    /**
+     * @return time in seconds for which the authorization decisions denying access are shared across
+     * requests of the same user, 0 means such decisions are not shared. Effective only if
+     * {@link #getAuthorizationCacheTimeout()} is positive.
+     */
+    public int getAuthorizationCacheNegativeTimeout() {
+        return authorizationCacheNegativeTimeout;
+    }
+
+    public void setAuthorizationCacheNegativeTimeout(int timeout) {
+        this.authorizationCacheNegativeTimeout = Math.max(timeout, 0);
+    }
+
+    /**
+     * @return maximum number of authorization decisions shared across requests
+     */
+    public int getAuthorizationCacheSize() {
+        return authorizationCacheSize;
+    }
+
+    public void setAuthorizationCacheSize(int size) {
+        this.authorizationCacheSize = Math.max(size, 0);
+    }
+
+    /**
+     * @return name of the HTTP header identifying the user for the purpose of sharing the authorization decisions
+     * across requests or {@code null} to identify the user by {@code HttpServletRequest#getRemoteUser()}
+     */
+    public String getAuthorizationCacheUserHeader() {
+        return authorizationCacheUserHeader;
+    }
+
+    public void setAuthorizationCacheUserHeader(String header) {
+        this.authorizationCacheUserHeader = header;
+    }
+
     public void setCmds(Map<String, String> cmds) {
         this.cmds.clear();
         this.cmds.putAll(cmds);
@@ -858,6 +938,33 @@ public final class Configuration {
         this.annotationCacheEnabled = useCache;
     }
 
+    public AnnotationCachePolicy getAnnotationCachePolicy() {
+        return annotationCachePolicy;
+    }
+
+    /**
+     * Set which files should have their annotation cache entries created during indexing.
+     *
+     * @param annotationCachePolicy annotation cache policy
+     */
+    public void setAnnotationCachePolicy(AnnotationCachePolicy annotationCachePolicy) {
+        this.annotationCachePolicy = annotationCachePolicy;
+    }
+
+    public int getAnnotationCacheHotThreshold() {
+        return annotationCacheHotThreshold;
+    }
+
+    /**
+     * Set the number of web accesses needed for a file to have its annotation cache entry created
+     * during indexing with {@link AnnotationCachePolicy#HOT}.
+     *
+     * @param value number of accesses
+     */
+    public void setAnnotationCacheHotThreshold(int value) {
+        this.annotationCacheHotThreshold = Math.max(value, 0);
+    }
+
     /**
      * Set whether history should be cached.
      *
@@ -867,6 +974,20 @@ public final class Configuration {
         this.historyCache = historyCache;
     }
 
+    public HistoryCacheFormat getHistoryCacheFormat() {
+        return historyCacheFormat;
+    }
+
+    /**
+     * Set the on-disk format of the history cache. Changing the format requires the history cache
+     * to be regenerated as each format is stored in separate directory under the data root.
+     *
+     * @param historyCacheFormat history cache format
+     */
+    public void setHistoryCacheFormat(HistoryCacheFormat historyCacheFormat) {
+        this.historyCacheFormat = historyCacheFormat;
+    }
+
     public boolean isFetchHistoryWhenNotInCache() {
         return fetchHistoryWhenNotInCache;
     }
@@ -1209,6 +1330,38 @@ public final class Configuration {
         this.historyFileParallelism = Math.max(value, 0);
     }
 
+    public int getHistoryChunkParallelism() {
+        return historyChunkParallelism;
+    }
+
+    public void setHistoryChunkParallelism(int value) {
+        this.historyChunkParallelism = Math.max(value, 0);
+    }
+
+    public int getIndexWriterParallelism() {
+        return indexWriterParallelism;
+    }
+
+    public void setIndexWriterParallelism(int value) {
+        this.indexWriterParallelism = Math.max(value, 0);
+    }
+
+    public int getAnnotationCacheParallelism() {
+        return annotationCacheParallelism;
+    }
+
+    public void setAnnotationCacheParallelism(int value) {
+        this.annotationCacheParallelism = Math.max(value, 0);
+    }
+
+    public int getIndexingQueueSize() {
+        return indexingQueueSize;
+    }
+
+    public void setIndexingQueueSize(int value) {
+        this.indexingQueueSize = Math.max(value, 0);
+    }
+
     public boolean isTagsEnabled() {
         return this.tagsEnabled;
     }
@@ -1344,6 +1497,21 @@ public final class Configuration {
         this.foldingEnabled = foldingEnabled;
     }
 
+    public boolean isTermVectorsEnabled() {
+        return termVectorsEnabled;
+    }
+
+    /**
+     * Set whether the full text and references should be indexed with term vectors so that the search results
+     * context can be highlighted without re-analyzing the source files. This takes effect only for newly created
+     * indexes, existing indexes have to be removed first.
+     *
+     * @param termVectorsEnabled if {@code true} index the term vectors
+     */
+    public void setTermVectorsEnabled(boolean termVectorsEnabled) {
+        this.termVectorsEnabled = termVectorsEnabled;
+    }
+
     public int getMaxSearchThreadCount() {
         return MaxSearchThreadCount;
     }
@@ -1352,6 +1520,109 @@ public final class Configuration {
         this.MaxSearchThreadCount = count;
     }
 
+    /**
+     * @return maximum number of index slices searched concurrently for single query
+     */
+    public int getMaxSearchSlices() {
+        return maxSearchSlices;
+    }
+
+    public void setMaxSearchSlices(int maxSearchSlices) {
+        this.maxSearchSlices = Math.max(maxSearchSlices, 0);
+    }
+
+    /**
+     * @return maximum number of cached multi-project searchers, 0 means the caching is disabled
+     */
+    public int getMultiSearcherCacheSize() {
+        return multiSearcherCacheSize;
+    }
+
+    public void setMultiSearcherCacheSize(int size) {
+        this.multiSearcherCacheSize = Math.max(size, 0);
+    }
+
+    /**
+     * @return number of seconds after which unused multi-project searcher is evicted from the cache
+     */
+    public int getMultiSearcherCacheTimeout() {
+        return multiSearcherCacheTimeout;
+    }
+
+    public void setMultiSearcherCacheTimeout(int timeout) {
+        this.multiSearcherCacheTimeout = Math.max(timeout, 0);
+    }
+
+    /**
+     * @return maximum size of the search result cache of the web application in MB,
+     * 0 means the caching is disabled
+     */
+    public int getSearchResultCacheSize() {
+        return searchResultCacheSize;
+    }
+
+    public void setSearchResultCacheSize(int size) {
+        this.searchResultCacheSize = Math.max(size, 0);
+    }
+
+    /**
+     * @return maximum size of the on-disk cache of xrefs of historical revisions generated by the web application
+     * in MB, 0 means the caching is disabled
+     */
+    public int getRevisionXrefCacheSize() {
+        return revisionXrefCacheSize;
+    }
+
+    public void setRevisionXrefCacheSize(int size) {
+        this.revisionXrefCacheSize = Math.max(size, 0);
+    }
+
+    /**
+     * @return whether the xref of the previous revision of a file should be generated in the background
+     * when the history of the file is displayed
+     */
+    public boolean isRevisionXrefPrefetch() {
+        return revisionXrefPrefetch;
+    }
+
+    public void setRevisionXrefPrefetch(boolean prefetch) {
+        this.revisionXrefPrefetch = prefetch;
+    }
+
+    /**
+     * @return whether the web application should let the browser fetch the stored compressed xref
+     * of the latest revision of a file in a separate request instead of embedding it in the page
+     */
+    public boolean isXrefLoadedSeparately() {
+        return xrefLoadedSeparately;
+    }
+
+    public void setXrefLoadedSeparately(boolean separately) {
+        this.xrefLoadedSeparately = separately;
+    }
+
+    /**
+     * @return number of seconds after which unused cached handles of Git repositories are closed
+     */
+    public int getGitRepositoryCacheTimeout() {
+        return gitRepositoryCacheTimeout;
+    }
+
+    public void setGitRepositoryCacheTimeout(int timeout) {
+        this.gitRepositoryCacheTimeout = Math.max(timeout, 0);
+    }
+
+    /**
+     * @return size of the cache of Git pack file data shared by all Git repositories in MB
+     */
+    public int getGitPackCacheSize() {
+        return gitPackCacheSize;
+    }
+
+    public void setGitPackCacheSize(int size) {
+        this.gitPackCacheSize = Math.max(size, 1);
+    }
+
     public int getMaxRevisionThreadCount() {
         return MaxRevisionThreadCount;
     }
@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2010, 2018, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2010, 2023, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2020, Chris Fraire <cfraire@me.com>.
  */
 package org.opengrok.indexer.configuration;
@@ -29,19 +29,48 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.regex.Matcher;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.regex.Pattern;
 
+import org.apache.lucene.util.automaton.Automata;
+import org.apache.lucene.util.automaton.Automaton;
+import org.apache.lucene.util.automaton.CharacterRunAutomaton;
+import org.apache.lucene.util.automaton.Operations;
+import org.apache.lucene.util.automaton.TooComplexToDeterminizeException;
+import org.opengrok.indexer.logger.LoggerFactory;
+
 public class Filter implements Serializable {
 
-    private static final long serialVersionUID = 3L;
+    private static final long serialVersionUID = 4L;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(Filter.class);
+
+    /**
+     * Limit of the effort spent on compiling the patterns into single automaton.
+     */
+    private static final int DETERMINIZE_WORK_LIMIT = 10 * Operations.DEFAULT_DETERMINIZE_WORK_LIMIT;
+
+    /**
+     * Any character matched by {@code .} in {@link Pattern}, i.e. anything but line terminators.
+     */
+    private static final Automaton ANY_CHAR = Operations.union(List.of(
+            Automata.makeCharRange(0, '\n' - 1),
+            Automata.makeCharRange('\n' + 1, '\r' - 1),
+            Automata.makeCharRange('\r' + 1, '\u0085' - 1),
+            Automata.makeCharRange('\u0085' + 1, '\u2028' - 1),
+            Automata.makeCharRange('\u2029' + 1, Character.MAX_CODE_POINT)));
 
     /** The list of exact filenames. */
     private final Set<String> filenames;
     /** The list of filenames with wildcards. */
-    private final List<Pattern> patterns;
+    private final List<String> patterns;
     /** The list of paths. */
     private final List<String> paths;
+    /**
+     * The wildcards and paths compiled for matching, created on first use.
+     */
+    private transient volatile CompiledPatterns compiled;
     /**
      * The full list of all patterns. This list will be saved in the
      * configuration file (if used).
@@ -97,6 +126,7 @@ public class Filter implements Serializable {
         filenames.clear();
         paths.clear();
         items.clear();
+        compiled = null;
     }
 
     /**
@@ -107,36 +137,17 @@ public class Filter implements Serializable {
      */
     public boolean match(File file, boolean checkAbsolute) {
         String fileName = file.getName(); // basename
-        String absolute = file.getAbsolutePath();
 
         if (filenames.contains(fileName)) {
             return true;
         }
 
-        for (Pattern p : patterns) {
-            // Try to match the basename first.
-            Matcher m = p.matcher(fileName);
-            if (m.matches()) {
-                return true;
-            }
-            // Try the full path next.
-            if (checkAbsolute && p.pattern().contains("/")) {
-                m = p.matcher(absolute);
-                if (m.matches()) {
-                    return true;
-                }
-            }
-        }
-
-        if (checkAbsolute) {
-            for (String path : paths) {
-                if (absolute.endsWith(path)) {
-                    return true;
-                }
-            }
+        CompiledPatterns matcher = getCompiledPatterns();
+        if (matcher.matchName(fileName)) {
+            return true;
         }
 
-        return false;
+        return checkAbsolute && matcher.hasAbsolute() && matcher.matchAbsolute(file.getAbsolutePath());
     }
 
     /**
@@ -168,7 +179,7 @@ public class Filter implements Serializable {
      */
     private void addPattern(String pattern) {
         if (pattern.contains("*") || pattern.contains("?")) {
-            patterns.add(compilePattern(pattern));
+            patterns.add(pattern);
         } else if (pattern.contains(File.separator)) {
             if (pattern.charAt(0) == File.separatorChar) {
                 paths.add(pattern);
@@ -178,6 +189,41 @@ public class Filter implements Serializable {
         } else {
             filenames.add(pattern);
         }
+        compiled = null;
+    }
+
+    private CompiledPatterns getCompiledPatterns() {
+        CompiledPatterns result = compiled;
+        if (result == null) {
+            result = new CompiledPatterns(patterns, paths);
+            compiled = result;
+        }
+        return result;
+    }
+
+    /**
+     * Convert the glob pattern (examples: *.c, *.?xx) to an automaton.
+     *
+     * @param pattern a pattern to match file names against
+     * @return automaton accepting the same strings as {@link #compilePattern(String)}
+     */
+    private static Automaton globToAutomaton(String pattern) {
+        List<Automaton> parts = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '*' || c == '?') {
+                if (i > start) {
+                    parts.add(Automata.makeString(pattern.substring(start, i)));
+                }
+                parts.add(c == '*' ? Operations.repeat(ANY_CHAR) : ANY_CHAR);
+                start = i + 1;
+            }
+        }
+        if (start < pattern.length()) {
+            parts.add(Automata.makeString(pattern.substring(start)));
+        }
+        return Operations.concatenate(parts);
     }
 
     /**
@@ -187,7 +233,7 @@ public class Filter implements Serializable {
      * @param pattern a pattern to match file names against
      * @return a compiled regular expression representing the pattern
      */
-    private Pattern compilePattern(String pattern) {
+    private static Pattern compilePattern(String pattern) {
         // Build the regex by replacing "*" with ".*" and "?" with ".". All
         // other characters should be quoted to ensure exact match.
         StringBuilder regex = new StringBuilder();
@@ -215,6 +261,113 @@ public class Filter implements Serializable {
         return Pattern.compile(regex.toString());
     }
 
+    /**
+     * The wildcards and paths of the filter compiled into automata, so that a name is matched against
+     * all of them in a single pass. Matches the same names as the individual regular expressions
+     * and {@link String#endsWith(String)} checks, which are used as a fallback if the automata would be too large.
+     */
+    private static final class CompiledPatterns {
+
+        /** All wildcards, matched against the basename. */
+        private final CharacterRunAutomaton names;
+        /** The wildcards containing {@code /} and the paths, matched against the absolute path. */
+        private final CharacterRunAutomaton absolute;
+
+        /** Fallback of {@link #names}. */
+        private final List<Pattern> namePatterns;
+        /** Fallback of {@link #absolute}. */
+        private final List<Pattern> absolutePatterns;
+        private final List<String> paths;
+
+        CompiledPatterns(List<String> patterns, List<String> paths) {
+            List<Automaton> nameAutomata = new ArrayList<>();
+            List<Automaton> absoluteAutomata = new ArrayList<>();
+            for (String pattern : patterns) {
+                Automaton automaton = globToAutomaton(pattern);
+                nameAutomata.add(automaton);
+                if (pattern.contains("/")) {
+                    absoluteAutomata.add(automaton);
+                }
+            }
+            for (String path : paths) {
+                absoluteAutomata.add(Operations.concatenate(Operations.repeat(ANY_CHAR), Automata.makeString(path)));
+            }
+
+            CharacterRunAutomaton namesAutomaton = null;
+            CharacterRunAutomaton absoluteAutomaton = null;
+            boolean determinized = true;
+            try {
+                namesAutomaton = toRunAutomaton(nameAutomata);
+                absoluteAutomaton = toRunAutomaton(absoluteAutomata);
+            } catch (TooComplexToDeterminizeException e) {
+                LOGGER.log(Level.FINE, "Too many patterns to compile them into single automaton, " +
+                        "matching them one by one", e);
+                determinized = false;
+            }
+
+            if (determinized) {
+                this.names = namesAutomaton;
+                this.absolute = absoluteAutomaton;
+                this.namePatterns = null;
+                this.absolutePatterns = null;
+                this.paths = null;
+            } else {
+                this.names = null;
+                this.absolute = null;
+                this.namePatterns = new ArrayList<>();
+                this.absolutePatterns = new ArrayList<>();
+                for (String pattern : patterns) {
+                    Pattern p = compilePattern(pattern);
+                    namePatterns.add(p);
+                    if (pattern.contains("/")) {
+                        absolutePatterns.add(p);
+                    }
+                }
+                this.paths = new ArrayList<>(paths);
+            }
+        }
+
+        private static CharacterRunAutomaton toRunAutomaton(List<Automaton> automata) {
+            if (automata.isEmpty()) {
+                return null;
+            }
+            return new CharacterRunAutomaton(Operations.union(automata), DETERMINIZE_WORK_LIMIT);
+        }
+
+        boolean matchName(String name) {
+            if (namePatterns == null) {
+                return names != null && names.run(name);
+            }
+            for (Pattern p : namePatterns) {
+                if (p.matcher(name).matches()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean hasAbsolute() {
+            return absolute != null || (absolutePatterns != null && (!absolutePatterns.isEmpty() || !paths.isEmpty()));
+        }
+
+        boolean matchAbsolute(String path) {
+            if (absolutePatterns == null) {
+                return absolute != null && absolute.run(path);
+            }
+            for (Pattern p : absolutePatterns) {
+                if (p.matcher(path).matches()) {
+                    return true;
+                }
+            }
+            for (String suffix : paths) {
+                if (path.endsWith(suffix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
     public static class PatternList extends ArrayList<String> {
 
         private static final long serialVersionUID = -6883390970972775838L;
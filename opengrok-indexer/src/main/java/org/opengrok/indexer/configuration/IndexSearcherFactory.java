@@ -37,6 +37,6 @@ public class IndexSearcherFactory extends SearcherFactory {
     @Override
     public IndexSearcher newSearcher(IndexReader reader, IndexReader prev) {
         // The previous IndexReader is not used here.
-        return new IndexSearcher(reader, RuntimeEnvironment.getInstance().getSearchExecutor());
+        return new SlicingIndexSearcher(reader, RuntimeEnvironment.getInstance().getSearchSliceExecutor());
     }
 }
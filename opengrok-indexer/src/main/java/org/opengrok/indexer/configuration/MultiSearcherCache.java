@@ -0,0 +1,234 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.configuration;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.lucene.index.MultiReader;
+import org.apache.lucene.search.ReferenceManager;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.VisibleForTesting;
+import org.opengrok.indexer.logger.LoggerFactory;
+
+/**
+ * Cache of {@link CachedMultiSearcher} objects keyed by the set of project names.
+ * <p>
+ * Each cached searcher remembers the generations of its projects, i.e. the number of refreshes
+ * of the project {@code SearcherManager} objects at the time the searcher was created. Refresh of any
+ * of the {@code SearcherManager} objects bumps the generation of the project and evicts all searchers
+ * that include the project so that the searches always see the current index data.
+ * </p>
+ * The least recently used searchers are evicted once the cache grows over
+ * {@link RuntimeEnvironment#getMultiSearcherCacheSize()} entries and the searchers not used for
+ * {@link RuntimeEnvironment#getMultiSearcherCacheTimeout()} seconds are evicted as well.
+ */
+final class MultiSearcherCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(MultiSearcherCache.class);
+
+    private final RuntimeEnvironment env;
+
+    /**
+     * Map of project names to the number of refreshes of their {@code SearcherManager} objects.
+     */
+    private final Map<String, Long> generations = new ConcurrentHashMap<>();
+
+    /**
+     * Cached searchers in access order. Guarded by {@code this}.
+     */
+    private final LinkedHashMap<SortedSet<String>, CachedMultiSearcher> searchers =
+            new LinkedHashMap<>(16, 0.75f, true);
+
+    MultiSearcherCache(RuntimeEnvironment env) {
+        this.env = env;
+    }
+
+    /**
+     * Get searcher for given set of projects, either from the cache or newly created.
+     * The caller is responsible for calling {@link CachedMultiSearcher#release()} on the returned object.
+     *
+     * @param projects set of project names
+     * @return searcher or {@code null} if the index of some project cannot be opened
+     */
+    @Nullable
+    CachedMultiSearcher get(SortedSet<String> projects) {
+        SortedSet<String> key = Collections.unmodifiableSortedSet(new TreeSet<>(projects));
+        long[] currentGenerations = getGenerations(key);
+        int maxSize = env.getMultiSearcherCacheSize();
+        List<CachedMultiSearcher> evicted = new ArrayList<>();
+
+        try {
+            synchronized (this) {
+                if (maxSize == 0) {
+                    evicted.addAll(searchers.values());
+                    searchers.clear();
+                }
+                expire(evicted);
+                CachedMultiSearcher searcher = searchers.get(key);
+                if (searcher != null) {
+                    if (Arrays.equals(searcher.getGenerations(), currentGenerations) && searcher.tryIncRef()) {
+                        return searcher;
+                    }
+                    searchers.remove(key);
+                    evicted.add(searcher);
+                }
+            }
+
+            CachedMultiSearcher searcher = create(key, currentGenerations);
+            if (searcher == null || maxSize == 0) {
+                return searcher;
+            }
+
+            synchronized (this) {
+                // Do not cache the searcher if some of the projects were refreshed in the meantime.
+                if (!searchers.containsKey(key) && Arrays.equals(currentGenerations, getGenerations(key)) &&
+                        searcher.tryIncRef()) {
+                    searchers.put(key, searcher);
+                    Iterator<CachedMultiSearcher> iterator = searchers.values().iterator();
+                    while (searchers.size() > maxSize && iterator.hasNext()) {
+                        evicted.add(iterator.next());
+                        iterator.remove();
+                    }
+                }
+            }
+
+            return searcher;
+        } finally {
+            evicted.forEach(CachedMultiSearcher::release);
+        }
+    }
+
+    @Nullable
+    private CachedMultiSearcher create(SortedSet<String> projects, long[] projectGenerations) {
+        List<SuperIndexSearcher> searcherList = new ArrayList<>();
+        MultiReader reader = env.getMultiReader(projects, searcherList);
+        if (reader == null) {
+            for (SuperIndexSearcher searcher : searcherList) {
+                try {
+                    searcher.release();
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "cannot release indexSearcher", e);
+                }
+            }
+            return null;
+        }
+
+        return new CachedMultiSearcher(reader, env.getSearchSliceExecutor(), projects, projectGenerations, searcherList);
+    }
+
+    /**
+     * @param projects set of project names
+     * @return current generations of the projects in the order of the set
+     */
+    long[] getGenerations(SortedSet<String> projects) {
+        return projects.stream().mapToLong(project -> generations.getOrDefault(project, 0L)).toArray();
+    }
+
+    /**
+     * Move searchers not used for the configured time to the list. Guarded by {@code this}.
+     */
+    private void expire(List<CachedMultiSearcher> evicted) {
+        long limit = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(env.getMultiSearcherCacheTimeout());
+        Iterator<CachedMultiSearcher> iterator = searchers.values().iterator();
+        // The map is in access order so the iteration can stop at the first recently used searcher.
+        while (iterator.hasNext()) {
+            CachedMultiSearcher searcher = iterator.next();
+            if (searcher.getLastUsed() >= limit) {
+                break;
+            }
+            evicted.add(searcher);
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Evict all searchers that include given project.
+     * @param project project name or empty string for project-less configuration
+     */
+    void invalidate(String project) {
+        generations.merge(project, 1L, Long::sum);
+
+        List<CachedMultiSearcher> evicted = new ArrayList<>();
+        synchronized (this) {
+            Iterator<CachedMultiSearcher> iterator = searchers.values().iterator();
+            while (iterator.hasNext()) {
+                CachedMultiSearcher searcher = iterator.next();
+                if (searcher.getProjects().contains(project)) {
+                    evicted.add(searcher);
+                    iterator.remove();
+                }
+            }
+        }
+        evicted.forEach(CachedMultiSearcher::release);
+    }
+
+    /**
+     * Evict all searchers.
+     */
+    void clear() {
+        List<CachedMultiSearcher> evicted;
+        synchronized (this) {
+            evicted = new ArrayList<>(searchers.values());
+            searchers.clear();
+        }
+        evicted.forEach(CachedMultiSearcher::release);
+    }
+
+    @VisibleForTesting
+    synchronized int size() {
+        return searchers.size();
+    }
+
+    /**
+     * @param project project name or empty string for project-less configuration
+     * @return listener that invalidates the searchers of the project after its {@code SearcherManager} refreshes
+     */
+    ReferenceManager.RefreshListener getRefreshListener(String project) {
+        return new ReferenceManager.RefreshListener() {
+            @Override
+            public void beforeRefresh() {
+                // nothing to do
+            }
+
+            @Override
+            public void afterRefresh(boolean didRefresh) {
+                if (didRefresh) {
+                    invalidate(project);
+                }
+            }
+        };
+    }
+}
@@ -47,6 +47,7 @@ import java.util.SortedSet;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
@@ -102,6 +103,7 @@ public final class RuntimeEnvironment {
     private final CloseableReentrantReadWriteLock configLock;
     private final LazilyInstantiate<IndexerParallelizer> lzIndexerParallelizer;
     private final LazilyInstantiate<ExecutorService> lzSearchExecutor;
+    private final LazilyInstantiate<Executor> lzSearchSliceExecutor;
     private final LazilyInstantiate<ExecutorService> lzRevisionExecutor;
     private final LazilyInstantiate<ExecutorService> lzDirectoryListingExecutor;
     private static final RuntimeEnvironment instance = new RuntimeEnvironment();
@@ -114,6 +116,7 @@ public final class RuntimeEnvironment {
      * Map of project name (or empty string in case of project-less configuration) to SearcherManager object.
      */
     private final Map<String, SearcherManager> searcherManagerMap = new ConcurrentHashMap<>();
+    private final MultiSearcherCache multiSearcherCache = new MultiSearcherCache(this);
 
     private String configURI;
     IncludeFiles includeFiles = new IncludeFiles();
@@ -164,6 +167,7 @@ public final class RuntimeEnvironment {
         watchDog = new WatchDogService();
         lzIndexerParallelizer = LazilyInstantiate.using(() -> new IndexerParallelizer(this));
         lzSearchExecutor = LazilyInstantiate.using(this::newSearchExecutor);
+        lzSearchSliceExecutor = LazilyInstantiate.using(this::newSearchSliceExecutor);
         lzRevisionExecutor = LazilyInstantiate.using(this::newRevisionExecutor);
         lzDirectoryListingExecutor = LazilyInstantiate.using(this::newDirectoryListingExecutor);
         lzSuperIndexSearcherFactory = LazilyInstantiate.using(this::newSuperIndexSearcherFactory);
@@ -206,6 +210,21 @@ public final class RuntimeEnvironment {
                 new OpenGrokThreadFactory("search"));
     }
 
+    /**
+     * Gets the executor used by the index searchers to search index slices concurrently.
+     * The number of concurrently executing tasks is capped by {@link #getMaxSearchThreadCount()},
+     * tasks over the cap are run in the calling thread.
+     *
+     * @return Executor instance backed by {@link #getSearchExecutor()}
+     */
+    public Executor getSearchSliceExecutor() {
+        return lzSearchSliceExecutor.get();
+    }
+
+    private Executor newSearchSliceExecutor() {
+        return new SearchSliceExecutor(getSearchExecutor(), this.getMaxSearchThreadCount());
+    }
+
     public void shutdownSearchExecutor() {
         getSearchExecutor().shutdownNow();
         try {
@@ -774,6 +793,22 @@ public final class RuntimeEnvironment {
         syncWriteConfiguration(useAnnotationCache, Configuration::setAnnotationCacheEnabled);
     }
 
+    public AnnotationCachePolicy getAnnotationCachePolicy() {
+        return syncReadConfiguration(Configuration::getAnnotationCachePolicy);
+    }
+
+    public void setAnnotationCachePolicy(AnnotationCachePolicy policy) {
+        syncWriteConfiguration(policy, Configuration::setAnnotationCachePolicy);
+    }
+
+    public int getAnnotationCacheHotThreshold() {
+        return syncReadConfiguration(Configuration::getAnnotationCacheHotThreshold);
+    }
+
+    public void setAnnotationCacheHotThreshold(int value) {
+        syncWriteConfiguration(value, Configuration::setAnnotationCacheHotThreshold);
+    }
+
     /**
      * Should we generate HTML or not during the indexing phase.
      *
@@ -961,6 +996,38 @@ public final class RuntimeEnvironment {
         syncWriteConfiguration(pluginStack, Configuration::setPluginStack);
     }
 
+    public int getAuthorizationCacheTimeout() {
+        return syncReadConfiguration(Configuration::getAuthorizationCacheTimeout);
+    }
+
+    public void setAuthorizationCacheTimeout(int timeout) {
+        syncWriteConfiguration(timeout, Configuration::setAuthorizationCacheTimeout);
+    }
+
+    public int getAuthorizationCacheNegativeTimeout() {
+        return syncReadConfiguration(Configuration::getAuthorizationCacheNegativeTimeout);
+    }
+
+    public void setAuthorizationCacheNegativeTimeout(int timeout) {
+        syncWriteConfiguration(timeout, Configuration::setAuthorizationCacheNegativeTimeout);
+    }
+
+    public int getAuthorizationCacheSize() {
+        return syncReadConfiguration(Configuration::getAuthorizationCacheSize);
+    }
+
+    public void setAuthorizationCacheSize(int size) {
+        syncWriteConfiguration(size, Configuration::setAuthorizationCacheSize);
+    }
+
+    public String getAuthorizationCacheUserHeader() {
+        return syncReadConfiguration(Configuration::getAuthorizationCacheUserHeader);
+    }
+
+    public void setAuthorizationCacheUserHeader(String header) {
+        syncWriteConfiguration(header, Configuration::setAuthorizationCacheUserHeader);
+    }
+
     /**
      * Is the progress print flag turned on?
      *
@@ -1242,6 +1309,56 @@ public final class RuntimeEnvironment {
                 parallelism;
     }
 
+    /**
+     * Gets the value of {@link Configuration#getHistoryChunkParallelism()} -- or
+     * if zero, then as a default gets the number of available processors.
+     *
+     * @return a natural number &gt;= 1
+     */
+    public int getHistoryChunkParallelism() {
+        int parallelism = syncReadConfiguration(Configuration::getHistoryChunkParallelism);
+        return parallelism < 1 ? Runtime.getRuntime().availableProcessors() :
+                parallelism;
+    }
+
+    public void setHistoryChunkParallelism(int parallelism) {
+        syncWriteConfiguration(parallelism, Configuration::setHistoryChunkParallelism);
+    }
+
+    /**
+     * Gets the value of {@link Configuration#getIndexWriterParallelism()} -- or
+     * if zero, then as a default gets the number of available processors halved.
+     *
+     * @return a natural number &gt;= 1
+     */
+    public int getIndexWriterParallelism() {
+        int parallelism = syncReadConfiguration(Configuration::getIndexWriterParallelism);
+        return parallelism < 1 ? max(Runtime.getRuntime().availableProcessors() / 2, 1) : parallelism;
+    }
+
+    /**
+     * Gets the value of {@link Configuration#getAnnotationCacheParallelism()} -- or
+     * if zero, then as a default gets the number of available processors.
+     *
+     * @return a natural number &gt;= 1
+     */
+    public int getAnnotationCacheParallelism() {
+        int parallelism = syncReadConfiguration(Configuration::getAnnotationCacheParallelism);
+        return parallelism < 1 ? Runtime.getRuntime().availableProcessors() :
+                parallelism;
+    }
+
+    /**
+     * Gets the value of {@link Configuration#getIndexingQueueSize()} -- or
+     * if zero, then as a default four times the indexing parallelism.
+     *
+     * @return a natural number &gt;= 1
+     */
+    public int getIndexingQueueSize() {
+        int size = syncReadConfiguration(Configuration::getIndexingQueueSize);
+        return size < 1 ? 4 * getIndexingParallelism() : size;
+    }
+
     public boolean isTagsEnabled() {
         return syncReadConfiguration(Configuration::isTagsEnabled);
     }
@@ -1274,6 +1391,14 @@ public final class RuntimeEnvironment {
         syncWriteConfiguration(foldingEnabled, Configuration::setFoldingEnabled);
     }
 
+    public boolean isTermVectorsEnabled() {
+        return syncReadConfiguration(Configuration::isTermVectorsEnabled);
+    }
+
+    public void setTermVectorsEnabled(boolean termVectorsEnabled) {
+        syncWriteConfiguration(termVectorsEnabled, Configuration::setTermVectorsEnabled);
+    }
+
     public Date getDateForLastIndexRun() {
         return indexTime.getDateForLastIndexRun();
     }
@@ -1354,6 +1479,14 @@ public final class RuntimeEnvironment {
         return syncReadConfiguration(Configuration::isHistoryCache);
     }
 
+    public HistoryCacheFormat getHistoryCacheFormat() {
+        return syncReadConfiguration(Configuration::getHistoryCacheFormat);
+    }
+
+    public void setHistoryCacheFormat(HistoryCacheFormat historyCacheFormat) {
+        syncWriteConfiguration(historyCacheFormat, Configuration::setHistoryCacheFormat);
+    }
+
     public void setHandleHistoryOfRenamedFiles(boolean handleHistoryOfRenamedFiles) {
         syncWriteConfiguration(handleHistoryOfRenamedFiles,
                 Configuration::setHandleHistoryOfRenamedFiles);
@@ -1396,6 +1529,85 @@ public final class RuntimeEnvironment {
         return syncReadConfiguration(Configuration::getMaxSearchThreadCount);
     }
 
+    public void setMaxSearchSlices(int maxSearchSlices) {
+        syncWriteConfiguration(maxSearchSlices, Configuration::setMaxSearchSlices);
+    }
+
+    /**
+     * Gets the value of {@link Configuration#getMaxSearchSlices()} -- or
+     * if zero, then as a default half of {@link #getMaxSearchThreadCount()}.
+     *
+     * @return a natural number &gt;= 1
+     */
+    public int getMaxSearchSlices() {
+        int slices = syncReadConfiguration(Configuration::getMaxSearchSlices);
+        return slices < 1 ? Math.max(getMaxSearchThreadCount() / 2, 1) : slices;
+    }
+
+    public void setMultiSearcherCacheSize(int size) {
+        syncWriteConfiguration(size, Configuration::setMultiSearcherCacheSize);
+    }
+
+    public int getMultiSearcherCacheSize() {
+        return syncReadConfiguration(Configuration::getMultiSearcherCacheSize);
+    }
+
+    public void setMultiSearcherCacheTimeout(int timeout) {
+        syncWriteConfiguration(timeout, Configuration::setMultiSearcherCacheTimeout);
+    }
+
+    public int getMultiSearcherCacheTimeout() {
+        return syncReadConfiguration(Configuration::getMultiSearcherCacheTimeout);
+    }
+
+    public void setSearchResultCacheSize(int size) {
+        syncWriteConfiguration(size, Configuration::setSearchResultCacheSize);
+    }
+
+    public int getSearchResultCacheSize() {
+        return syncReadConfiguration(Configuration::getSearchResultCacheSize);
+    }
+
+    public void setRevisionXrefCacheSize(int size) {
+        syncWriteConfiguration(size, Configuration::setRevisionXrefCacheSize);
+    }
+
+    public int getRevisionXrefCacheSize() {
+        return syncReadConfiguration(Configuration::getRevisionXrefCacheSize);
+    }
+
+    public void setRevisionXrefPrefetch(boolean prefetch) {
+        syncWriteConfiguration(prefetch, Configuration::setRevisionXrefPrefetch);
+    }
+
+    public boolean isRevisionXrefPrefetch() {
+        return syncReadConfiguration(Configuration::isRevisionXrefPrefetch);
+    }
+
+    public void setXrefLoadedSeparately(boolean separately) {
+        syncWriteConfiguration(separately, Configuration::setXrefLoadedSeparately);
+    }
+
+    public boolean isXrefLoadedSeparately() {
+        return syncReadConfiguration(Configuration::isXrefLoadedSeparately);
+    }
+
+    public void setGitRepositoryCacheTimeout(int timeout) {
+        syncWriteConfiguration(timeout, Configuration::setGitRepositoryCacheTimeout);
+    }
+
+    public int getGitRepositoryCacheTimeout() {
+        return syncReadConfiguration(Configuration::getGitRepositoryCacheTimeout);
+    }
+
+    public void setGitPackCacheSize(int size) {
+        syncWriteConfiguration(size, Configuration::setGitPackCacheSize);
+    }
+
+    public int getGitPackCacheSize() {
+        return syncReadConfiguration(Configuration::getGitPackCacheSize);
+    }
+
     public void setMaxRevisionThreadCount(int maxRevisionThreadCount) {
         syncWriteConfiguration(maxRevisionThreadCount, Configuration::setMaxRevisionThreadCount);
     }
@@ -1967,6 +2179,7 @@ public final class RuntimeEnvironment {
             File indexDir = new File(getDataRootPath(), IndexDatabase.INDEX_DIR);
             Directory dir = FSDirectory.open(new File(indexDir, searcherName).toPath());
             mgr = new SearcherManager(dir, getSuperIndexSearcherFactory());
+            mgr.addListener(multiSearcherCache.getRefreshListener(searcherName));
             searcherManagerMap.put(searcherName, mgr);
         }
 
@@ -2001,6 +2214,7 @@ public final class RuntimeEnvironment {
 
         for (String proj : toRemove) {
             searcherManagerMap.remove(proj);
+            multiSearcherCache.invalidate(proj);
         }
     }
 
@@ -2039,6 +2253,40 @@ public final class RuntimeEnvironment {
         return multiReader;
     }
 
+    /**
+     * Get IndexSearcher over {@link MultiReader} for given set of projects. The searchers are cached
+     * so that searches of the same set of projects share the searcher until any of the projects is refreshed.
+     * The caller is responsible for calling {@link CachedMultiSearcher#release()} on the returned object
+     * once the search results are read.
+     *
+     * @param projects set of project names
+     * @return searcher or {@code null} if the index of some project cannot be opened
+     */
+    @Nullable
+    public CachedMultiSearcher getMultiSearcher(SortedSet<String> projects) {
+        return multiSearcherCache.get(projects);
+    }
+
+    /**
+     * Get the generations of the searchers of given projects. The generation of a project is increased
+     * each time its {@code SearcherManager} is refreshed so it can be used to detect that data derived
+     * from the search results are stale.
+     *
+     * @param projects set of project names
+     * @return generations of the projects in the order of the set
+     * @see CachedMultiSearcher#getGenerations()
+     */
+    public long[] getSearcherGenerations(SortedSet<String> projects) {
+        return multiSearcherCache.getGenerations(projects);
+    }
+
+    /**
+     * Evict all searchers cached by {@link #getMultiSearcher(SortedSet)}.
+     */
+    public void clearMultiSearcherCache() {
+        multiSearcherCache.clear();
+    }
+
     public void startExpirationTimer() {
         messagesContainer.setMessageLimit(getMessageLimit());
         messagesContainer.startExpirationTimer();
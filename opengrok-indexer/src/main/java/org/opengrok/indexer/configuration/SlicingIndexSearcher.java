@@ -0,0 +1,109 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.configuration;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executor;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.IndexSearcher;
+
+/**
+ * IndexSearcher that limits the number of slices searched concurrently for single query
+ * to {@link RuntimeEnvironment#getMaxSearchSlices()} so that a query over many projects
+ * cannot occupy all threads of the search executor.
+ */
+public class SlicingIndexSearcher extends IndexSearcher {
+
+    /*
+     * Same values as the defaults used by IndexSearcher.
+     */
+    private static final int MAX_DOCS_PER_SLICE = 250_000;
+    private static final int MAX_SEGMENTS_PER_SLICE = 5;
+
+    public SlicingIndexSearcher(IndexReader r) {
+        super(r);
+    }
+
+    public SlicingIndexSearcher(IndexReader r, Executor executor) {
+        super(r, executor);
+    }
+
+    @Override
+    protected LeafSlice[] slices(List<LeafReaderContext> leaves) {
+        // This might be called from the IndexSearcher constructor so no instance fields can be used here.
+        return slices(leaves, RuntimeEnvironment.getInstance().getMaxSearchSlices());
+    }
+
+    /**
+     * Group the leaves into slices using the default Lucene slicing and if that produces more than
+     * {@code maxSlices} slices, distribute the leaves into {@code maxSlices} slices with
+     * balanced number of documents.
+     * @param leaves leaves of the index reader
+     * @param maxSlices maximum number of slices
+     * @return slices
+     */
+    static LeafSlice[] slices(List<LeafReaderContext> leaves, int maxSlices) {
+        LeafSlice[] slices = IndexSearcher.slices(leaves, MAX_DOCS_PER_SLICE, MAX_SEGMENTS_PER_SLICE);
+        if (slices.length <= maxSlices) {
+            return slices;
+        }
+
+        // Assign the biggest leaves first, always to the slice with the least documents.
+        List<LeafReaderContext> sortedLeaves = new ArrayList<>(leaves);
+        sortedLeaves.sort(Comparator.comparingInt((LeafReaderContext ctx) -> ctx.reader().maxDoc()).reversed());
+        PriorityQueue<SliceBuilder> queue = new PriorityQueue<>(maxSlices,
+                Comparator.comparingLong(SliceBuilder::getDocCount));
+        for (int i = 0; i < maxSlices; i++) {
+            queue.add(new SliceBuilder());
+        }
+        for (LeafReaderContext ctx : sortedLeaves) {
+            SliceBuilder builder = queue.remove();
+            builder.add(ctx);
+            queue.add(builder);
+        }
+
+        return queue.stream().
+                filter(builder -> !builder.leaves.isEmpty()).
+                map(builder -> new LeafSlice(builder.leaves)).
+                toArray(LeafSlice[]::new);
+    }
+
+    private static class SliceBuilder {
+        private final List<LeafReaderContext> leaves = new ArrayList<>();
+        private long docCount;
+
+        void add(LeafReaderContext ctx) {
+            leaves.add(ctx);
+            docCount += ctx.reader().maxDoc();
+        }
+
+        long getDocCount() {
+            return docCount;
+        }
+    }
+}
@@ -23,9 +23,8 @@
 package org.opengrok.indexer.configuration;
 
 import java.io.IOException;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executor;
 import org.apache.lucene.index.IndexReader;
-import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.SearcherManager;
 
 /**
@@ -34,14 +33,14 @@ import org.apache.lucene.search.SearcherManager;
  *
  * @author vkotal
  */
-public class SuperIndexSearcher extends IndexSearcher {
+public class SuperIndexSearcher extends SlicingIndexSearcher {
     SearcherManager searcherManager;
 
     public SuperIndexSearcher(IndexReader r) {
         super(r);
     }
 
-    SuperIndexSearcher(IndexReader r, ExecutorService searchExecutor) {
+    SuperIndexSearcher(IndexReader r, Executor searchExecutor) {
         super(r, searchExecutor);
     }
 
@@ -36,6 +36,6 @@ class SuperIndexSearcherFactory extends SearcherFactory {
     @Override
     public SuperIndexSearcher newSearcher(IndexReader r, IndexReader prev) {
         // The previous IndexReader is not used here.
-        return new SuperIndexSearcher(r, RuntimeEnvironment.getInstance().getSearchExecutor());
+        return new SuperIndexSearcher(r, RuntimeEnvironment.getInstance().getSearchSliceExecutor());
     }
 }
@@ -0,0 +1,450 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.history;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jetbrains.annotations.Nullable;
+import org.opengrok.indexer.logger.LoggerFactory;
+
+/**
+ * Append-only store of the changesets of single repository, used by {@link ColumnarHistoryCache}.
+ * <p>
+ * Each changeset is stored exactly once and is referenced by its offset in the file.
+ * Author names are interned, i.e. stored once as string records referenced by offset from the changesets.
+ * The file is read via memory mapping so that a single changeset can be decoded without
+ * reading anything else.
+ * </p>
+ * <p>
+ * The file starts with {@link #MAGIC} followed by the format version. The records follow, each starting with
+ * a type byte:
+ * <ul>
+ *     <li>string: type, varint length, UTF-8 bytes</li>
+ *     <li>changeset: type, flags, revision string, display revision string (if flagged),
+ *     date in milliseconds (if flagged), varint author string record offset (if flagged), message string</li>
+ * </ul>
+ * </p>
+ */
+final class ChangesetStore {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ChangesetStore.class);
+
+    static final String FILE_NAME = "OpenGrokChangesets";
+
+    private static final byte[] MAGIC = {'O', 'G', 'C', 'S'};
+    private static final byte VERSION = 1;
+    private static final int HEADER_LENGTH = MAGIC.length + 1;
+
+    private static final byte TYPE_STRING = 1;
+    private static final byte TYPE_CHANGESET = 2;
+
+    private static final int FLAG_DISPLAY_REVISION = 1;
+    private static final int FLAG_DATE = 1 << 1;
+    private static final int FLAG_AUTHOR = 1 << 2;
+    private static final int FLAG_ACTIVE = 1 << 3;
+
+    private final File file;
+
+    /**
+     * Read-only mapping of the file. Since the file is append-only, the mapping stays valid
+     * for all offsets below its limit and is replaced only when a record beyond it is requested.
+     */
+    private volatile MappedByteBuffer mapped;
+
+    /**
+     * Identity of the file at the time of the mapping, used to detect the file being replaced.
+     */
+    private volatile Object mappedFileIdentity;
+
+    /*
+     * The following maps are used only for appending. They are lazily populated from the file contents.
+     * Changesets are keyed by revision. As some SCMs use per-file revision numbers, there can be multiple
+     * different changesets with the same revision.
+     */
+    private Map<String, List<Long>> changesetOffsets;
+    private Map<String, Long> stringOffsets;
+
+    /**
+     * Offsets of recently stored history entries. This makes the lookups cheap for the per-file histories
+     * that share the {@link HistoryEntry} objects with the repository history being stored.
+     */
+    private final Map<HistoryEntry, Long> recentOffsets = new IdentityHashMap<>();
+
+    /**
+     * Channel kept open for appending while there are batches in progress, see {@link #beginBatch()}.
+     */
+    private FileChannel appendChannel;
+    private int batches;
+
+    ChangesetStore(File file) {
+        this.file = file;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * Get offset of the changeset record matching the history entry. If there is no such record,
+     * it will be appended to the file.
+     * @param entry history entry
+     * @return offset of the record
+     * @throws IOException on I/O error
+     */
+    synchronized long getOffset(HistoryEntry entry) throws IOException {
+        Long recentOffset = recentOffsets.get(entry);
+        if (recentOffset != null) {
+            return recentOffset;
+        }
+
+        long offset = getOffsetSlow(entry);
+        recentOffsets.put(entry, offset);
+        return offset;
+    }
+
+    /**
+     * Start a batch of {@link #getOffset(HistoryEntry)} calls. The file stays open for appending
+     * until the matching {@link #endBatch()} call so that it is not opened for each new changeset.
+     * @throws IOException on I/O error
+     */
+    synchronized void beginBatch() throws IOException {
+        if (appendChannel == null) {
+            appendChannel = openAppendChannel();
+        }
+        batches++;
+    }
+
+    /**
+     * End a batch started with {@link #beginBatch()}. Once there are no batches in progress,
+     * the file is closed and the offsets of the recently stored history entries are forgotten.
+     */
+    synchronized void endBatch() {
+        if (batches > 0 && --batches > 0) {
+            return;
+        }
+
+        recentOffsets.clear();
+        if (appendChannel != null) {
+            try {
+                appendChannel.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, String.format("failed to close '%s'", file), e);
+            }
+            appendChannel = null;
+        }
+    }
+
+    private FileChannel openAppendChannel() throws IOException {
+        return FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+    }
+
+    private long getOffsetSlow(HistoryEntry entry) throws IOException {
+        if (changesetOffsets == null) {
+            loadOffsets();
+        }
+
+        List<Long> offsets = changesetOffsets.get(entry.getRevision());
+        if (offsets != null) {
+            for (long offset : offsets) {
+                if (isSameChangeset(get(offset), entry)) {
+                    return offset;
+                }
+            }
+        }
+
+        FileChannel channel = appendChannel != null ? appendChannel : openAppendChannel();
+        try {
+            if (channel.size() == 0) {
+                channel.write(ByteBuffer.wrap(getHeader()));
+            }
+
+            Long authorOffset = null;
+            if (entry.getAuthor() != null) {
+                authorOffset = stringOffsets.get(entry.getAuthor());
+                if (authorOffset == null) {
+                    authorOffset = channel.size();
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    out.write(TYPE_STRING);
+                    writeString(out, entry.getAuthor());
+                    channel.write(ByteBuffer.wrap(out.toByteArray()));
+                    stringOffsets.put(entry.getAuthor(), authorOffset);
+                }
+            }
+
+            long offset = channel.size();
+            channel.write(ByteBuffer.wrap(encodeChangeset(entry, authorOffset)));
+            changesetOffsets.computeIfAbsent(entry.getRevision(), k -> new ArrayList<>(1)).add(offset);
+            return offset;
+        } finally {
+            if (channel != appendChannel) {
+                channel.close();
+            }
+        }
+    }
+
+    private static boolean isSameChangeset(HistoryEntry stored, HistoryEntry entry) {
+        return Objects.equals(stored.getRevision(), entry.getRevision()) &&
+                Objects.equals(stored.getDisplayRevision(), entry.getDisplayRevision()) &&
+                Objects.equals(stored.getDate(), entry.getDate()) &&
+                Objects.equals(stored.getAuthor(), entry.getAuthor()) &&
+                Objects.equals(stored.getMessage(), entry.getMessage()) &&
+                stored.isActive() == entry.isActive();
+    }
+
+    private static byte[] getHeader() {
+        byte[] header = new byte[HEADER_LENGTH];
+        System.arraycopy(MAGIC, 0, header, 0, MAGIC.length);
+        header[MAGIC.length] = VERSION;
+        return header;
+    }
+
+    private static byte[] encodeChangeset(HistoryEntry entry, @Nullable Long authorOffset) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(TYPE_CHANGESET);
+
+        int flags = 0;
+        if (entry.getDisplayRevision() != null && !entry.getDisplayRevision().equals(entry.getRevision())) {
+            flags |= FLAG_DISPLAY_REVISION;
+        }
+        if (entry.getDate() != null) {
+            flags |= FLAG_DATE;
+        }
+        if (authorOffset != null) {
+            flags |= FLAG_AUTHOR;
+        }
+        if (entry.isActive()) {
+            flags |= FLAG_ACTIVE;
+        }
+        out.write(flags);
+
+        writeString(out, entry.getRevision() == null ? "" : entry.getRevision());
+        if ((flags & FLAG_DISPLAY_REVISION) != 0) {
+            writeString(out, entry.getDisplayRevision());
+        }
+        if ((flags & FLAG_DATE) != 0) {
+            long time = entry.getDate().getTime();
+            for (int i = 7; i >= 0; i--) {
+                out.write((int) (time >>> (8 * i)));
+            }
+        }
+        if (authorOffset != null) {
+            writeVarLong(out, authorOffset);
+        }
+        writeString(out, entry.getMessage());
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Scan the file and build the maps used for de-duplication when appending.
+     */
+    private void loadOffsets() throws IOException {
+        changesetOffsets = new HashMap<>();
+        stringOffsets = new HashMap<>();
+
+        // The file can be empty if it was just opened for appending, see beginBatch().
+        if (!file.exists() || file.length() == 0) {
+            return;
+        }
+
+        ByteBuffer buffer = map(0);
+        checkHeader(buffer);
+        int position = HEADER_LENGTH;
+        while (position < buffer.limit()) {
+            buffer.position(position);
+            byte type = buffer.get();
+            if (type == TYPE_STRING) {
+                stringOffsets.put(readString(buffer), (long) position);
+            } else if (type == TYPE_CHANGESET) {
+                HistoryEntry entry = decodeChangeset(buffer);
+                changesetOffsets.computeIfAbsent(entry.getRevision(), k -> new ArrayList<>(1)).
+                        add((long) position);
+            } else {
+                throw new IOException(String.format("unknown record type %d at offset %d in '%s'",
+                        type, position, file));
+            }
+            position = buffer.position();
+        }
+    }
+
+    /**
+     * Read the changeset stored at given offset.
+     * @param offset offset of the changeset record
+     * @return history entry
+     * @throws IOException on I/O error or if there is no changeset at the offset
+     */
+    HistoryEntry get(long offset) throws IOException {
+        ByteBuffer buffer = map(offset);
+        buffer.position((int) offset);
+        byte type = buffer.get();
+        if (type != TYPE_CHANGESET) {
+            throw new IOException(String.format("no changeset at offset %d in '%s'", offset, file));
+        }
+        return decodeChangeset(buffer);
+    }
+
+    private HistoryEntry decodeChangeset(ByteBuffer buffer) throws IOException {
+        int flags = buffer.get();
+
+        HistoryEntry entry = new HistoryEntry();
+        entry.setRevision(readString(buffer));
+        if ((flags & FLAG_DISPLAY_REVISION) != 0) {
+            entry.setDisplayRevision(readString(buffer));
+        }
+        if ((flags & FLAG_DATE) != 0) {
+            entry.setDate(new Date(buffer.getLong()));
+        }
+        if ((flags & FLAG_AUTHOR) != 0) {
+            long authorOffset = readVarLong(buffer);
+            ByteBuffer authorBuffer = buffer.duplicate();
+            authorBuffer.position((int) authorOffset);
+            if (authorBuffer.get() != TYPE_STRING) {
+                throw new IOException(String.format("no string at offset %d in '%s'", authorOffset, file));
+            }
+            entry.setAuthor(readString(authorBuffer));
+        }
+        entry.setActive((flags & FLAG_ACTIVE) != 0);
+        entry.setMessage(readString(buffer));
+
+        return entry;
+    }
+
+    /**
+     * @param offset offset that needs to be covered by the mapping
+     * @return buffer (not shared with other threads) covering the offset
+     */
+    private ByteBuffer map(long offset) throws IOException {
+        MappedByteBuffer buffer = mapped;
+        if (buffer == null || offset >= buffer.limit()) {
+            synchronized (this) {
+                buffer = mapped;
+                if (buffer == null || offset >= buffer.limit()) {
+                    mappedFileIdentity = getFileIdentity();
+                    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                        long size = channel.size();
+                        if (size > Integer.MAX_VALUE) {
+                            throw new IOException(String.format("'%s' is too big", file));
+                        }
+                        buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                    }
+                    checkHeader(buffer.duplicate());
+                    mapped = buffer;
+                    LOGGER.log(Level.FINEST, "mapped {0} bytes of ''{1}''", new Object[]{buffer.limit(), file});
+                }
+            }
+        }
+
+        if (offset >= buffer.limit()) {
+            throw new IOException(String.format("offset %d is beyond the end of '%s'", offset, file));
+        }
+
+        return buffer.duplicate();
+    }
+
+    /**
+     * @return whether the file was replaced (e.g. after the cache was cleared) since it was mapped
+     */
+    boolean isStale() {
+        Object identity = mappedFileIdentity;
+        if (identity == null) {
+            return false;
+        }
+        try {
+            return !identity.equals(getFileIdentity());
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    private Object getFileIdentity() throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        return attrs.fileKey() != null ? attrs.fileKey() : attrs.creationTime();
+    }
+
+    private void checkHeader(ByteBuffer buffer) throws IOException {
+        if (buffer.limit() < HEADER_LENGTH) {
+            throw new IOException(String.format("'%s' is truncated", file));
+        }
+        for (byte b : MAGIC) {
+            if (buffer.get() != b) {
+                throw new IOException(String.format("'%s' is not a changeset store", file));
+            }
+        }
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IOException(String.format("unsupported version %d of '%s'", version, file));
+        }
+    }
+
+    static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    static void writeString(ByteArrayOutputStream out, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    static String readString(ByteBuffer buffer) {
+        int length = (int) readVarLong(buffer);
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,329 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.history;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jetbrains.annotations.Nullable;
+import org.opengrok.indexer.configuration.RuntimeEnvironment;
+import org.opengrok.indexer.logger.LoggerFactory;
+
+/**
+ * History cache that stores the changesets of each repository only once in a {@link ChangesetStore}.
+ * The per-file cache files merely contain the offsets of the changesets in the store.
+ * <p>
+ * The per-file cache file starts with {@link #MAGIC}, format version and the path of the changeset store
+ * relative to the cache directory, followed by the 8-byte offsets ordered from the oldest to the newest
+ * changeset. Therefore, incremental history update merely appends the offsets of the new changesets
+ * and the last history entry can be retrieved by reading the last offset.
+ * The offsets are appended in place, so the readers ignore incomplete trailing offset
+ * that might be seen while the file is being appended to.
+ * </p>
+ * The tags are stored the same way as in {@link FileHistoryCache}.
+ */
+class ColumnarHistoryCache extends FileHistoryCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ColumnarHistoryCache.class);
+    private static final RuntimeEnvironment env = RuntimeEnvironment.getInstance();
+
+    private static final String COLUMNAR_CACHE_DIR_NAME = "columnarhistorycache";
+
+    private static final byte[] MAGIC = {'O', 'G', 'H', 'F'};
+    private static final byte VERSION = 1;
+
+    /**
+     * Changeset stores keyed by absolute path of the store file.
+     */
+    private final Map<String, ChangesetStore> stores = new ConcurrentHashMap<>();
+
+    private File getCacheRoot() {
+        return new File(env.getDataRootPath(), getCacheDirName());
+    }
+
+    @Nullable
+    private File getStoreFile(RepositoryInfo repository) {
+        String repoCachePath = CacheUtil.getRepositoryCacheDataDirname(repository, this);
+        if (repoCachePath == null) {
+            return null;
+        }
+        return new File(repoCachePath, ChangesetStore.FILE_NAME);
+    }
+
+    private ChangesetStore getStore(File storeFile) {
+        return stores.compute(storeFile.getAbsolutePath(), (k, v) -> v == null || v.isStale() ?
+                new ChangesetStore(storeFile) : v);
+    }
+
+    private ChangesetStore getStore(Repository repository) throws HistoryException {
+        File storeFile = getStoreFile(repository);
+        if (storeFile == null) {
+            throw new HistoryException(String.format("failed to get changeset store for %s", repository));
+        }
+        return getStore(storeFile);
+    }
+
+    @Override
+    public void store(History history, Repository repository, String tillRevision) throws CacheException {
+        ChangesetStore store = null;
+        if (!history.getHistoryEntries().isEmpty()) {
+            File storeFile = getStoreFile(repository);
+            if (storeFile == null) {
+                throw new CacheException(String.format("failed to get changeset store for %s", repository));
+            }
+            File dir = storeFile.getParentFile();
+            if (!dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory()) {
+                throw new CacheException(String.format("cannot create history cache directory for '%s'", dir));
+            }
+
+            // Append the changesets in the order of the repository history, so that the subsequent per-file
+            // processing (done in parallel) merely looks up the offsets.
+            // The changeset store file is kept open for appending for the whole batch.
+            store = getStore(storeFile);
+            List<HistoryEntry> entries = new ArrayList<>(history.getHistoryEntries());
+            Collections.reverse(entries);
+            try {
+                store.beginBatch();
+            } catch (IOException e) {
+                throw new CacheException(String.format("failed to open changeset store of %s", repository), e);
+            }
+            try {
+                for (HistoryEntry entry : entries) {
+                    store.getOffset(entry);
+                }
+            } catch (IOException e) {
+                store.endBatch();
+                throw new CacheException(String.format("failed to store changesets of %s", repository), e);
+            }
+        }
+
+        try {
+            super.store(history, repository, tillRevision);
+        } finally {
+            if (store != null) {
+                store.endBatch();
+            }
+        }
+    }
+
+    @Override
+    void writeCache(History histNew, File cacheFile, Repository repo, boolean mergeHistory) throws HistoryException {
+        ChangesetStore store = getStore(repo);
+
+        // The history entries are sorted from newest to oldest, the offsets are stored the other way round.
+        List<HistoryEntry> entries = histNew.getHistoryEntries();
+        long[] offsets = new long[entries.size()];
+        try {
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[offsets.length - i - 1] = store.getOffset(entries.get(i));
+            }
+        } catch (IOException e) {
+            throw new HistoryException(String.format("failed to store changesets for '%s'", cacheFile), e);
+        }
+
+        boolean appended = false;
+        if (mergeHistory && cacheFile.exists()) {
+            try {
+                appended = appendOffsets(cacheFile, store, offsets);
+            } catch (IOException e) {
+                throw new HistoryException(String.format("failed to append to '%s'", cacheFile), e);
+            }
+        }
+
+        if (!appended) {
+            final File outputFile;
+            try {
+                outputFile = File.createTempFile("ogtmp", null, cacheFile.getParentFile());
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                        new FileOutputStream(outputFile)))) {
+                    out.write(getHeader(store));
+                    for (long offset : offsets) {
+                        out.writeLong(offset);
+                    }
+                }
+            } catch (IOException e) {
+                throw new HistoryException("Failed to write history", e);
+            }
+            safelyRename(outputFile, cacheFile);
+        }
+
+        if (env.isTagsEnabled() && repo.hasFileBasedTags()) {
+            storeTags(cacheFile, repo, appended ? null : histNew);
+        }
+    }
+
+    /**
+     * Re-tag the complete history of the file and store the tags in separate file.
+     * @param cacheFile cache file
+     * @param repo repository
+     * @param history complete history of the file or {@code null} if it should be read from the cache file
+     */
+    private void storeTags(File cacheFile, Repository repo, @Nullable History history) throws HistoryException {
+        try {
+            if (history == null) {
+                history = new History(readEntries(cacheFile));
+            }
+            history.strip();
+            repo.assignTagsInHistory(history);
+
+            File outputTagsFile = File.createTempFile("ogtmp", null, cacheFile.getParentFile());
+            writeTagsTo(outputTagsFile, history);
+            safelyRename(outputTagsFile, getTagsFile(cacheFile));
+        } catch (IOException e) {
+            throw new HistoryException("Failed to write tags", e);
+        }
+    }
+
+    /**
+     * @return whether the offsets were appended, i.e. the existing file refers to the same changeset store
+     */
+    private boolean appendOffsets(File cacheFile, ChangesetStore store, long[] offsets) throws IOException {
+        byte[] header = getHeader(store);
+        try (RandomAccessFile raf = new RandomAccessFile(cacheFile, "rw")) {
+            byte[] existingHeader = new byte[header.length];
+            if (raf.length() < header.length || raf.read(existingHeader) != header.length ||
+                    !Arrays.equals(header, existingHeader) ||
+                    (raf.length() - header.length) % Long.BYTES != 0) {
+                LOGGER.log(Level.FINE, "cannot append to ''{0}'', will rewrite it", cacheFile);
+                return false;
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate(offsets.length * Long.BYTES);
+            for (long offset : offsets) {
+                buffer.putLong(offset);
+            }
+            raf.seek(raf.length());
+            raf.write(buffer.array());
+        }
+
+        return true;
+    }
+
+    private byte[] getHeader(ChangesetStore store) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(MAGIC, 0, MAGIC.length);
+        out.write(VERSION);
+        ChangesetStore.writeString(out, getCacheRoot().toPath().relativize(store.getFile().toPath()).toString());
+        return out.toByteArray();
+    }
+
+    /**
+     * Parse the header of the per-file cache file.
+     * @param buffer buffer with the file contents, positioned at the start of the file.
+     *               Will be positioned at the first offset afterwards.
+     * @return changeset store referenced by the file
+     */
+    private ChangesetStore readHeader(ByteBuffer buffer, File cacheFile) throws IOException {
+        for (byte b : MAGIC) {
+            if (buffer.get() != b) {
+                throw new IOException(String.format("'%s' is not a columnar history cache file", cacheFile));
+            }
+        }
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IOException(String.format("unsupported version %d of '%s'", version, cacheFile));
+        }
+        return getStore(new File(getCacheRoot(), ChangesetStore.readString(buffer)));
+    }
+
+    /**
+     * @param length length of the file after the header
+     * @return length of the complete offsets, i.e. without partially appended trailing offset
+     */
+    private static int getOffsetsLength(int length) {
+        return length - length % Long.BYTES;
+    }
+
+    private static long getOffsetsLength(long length) {
+        return length - length % Long.BYTES;
+    }
+
+    private List<HistoryEntry> readEntries(File cacheFile) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(cacheFile.toPath()));
+        ChangesetStore store = readHeader(buffer, cacheFile);
+        buffer.limit(buffer.position() + getOffsetsLength(buffer.remaining()));
+
+        List<HistoryEntry> entries = new ArrayList<>(buffer.remaining() / Long.BYTES);
+        for (int position = buffer.limit() - Long.BYTES; position >= buffer.position(); position -= Long.BYTES) {
+            entries.add(store.get(buffer.getLong(position)));
+        }
+        return entries;
+    }
+
+    @Override
+    History readCache(File cacheFile, Repository repository) throws IOException {
+        History history = new History(readEntries(cacheFile));
+        if (repository != null) {
+            readTags(cacheFile, repository, history);
+        }
+        return history;
+    }
+
+    @Override
+    @Nullable
+    HistoryEntry readCacheLastEntry(File cacheFile) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(cacheFile, "r")) {
+            // The header is short, read just enough of the file to parse it.
+            byte[] headerBytes = new byte[(int) Math.min(raf.length(), 4096)];
+            raf.readFully(headerBytes);
+            ByteBuffer buffer = ByteBuffer.wrap(headerBytes);
+            ChangesetStore store = readHeader(buffer, cacheFile);
+            long length = getOffsetsLength(raf.length() - buffer.position());
+            if (length < Long.BYTES) {
+                return null;
+            }
+
+            raf.seek(buffer.position() + length - Long.BYTES);
+            return store.get(raf.readLong());
+        }
+    }
+
+    @Override
+    public void clear(RepositoryInfo repository) {
+        File storeFile = getStoreFile(repository);
+        if (storeFile != null) {
+            stores.remove(storeFile.getAbsolutePath());
+        }
+        super.clear(repository);
+    }
+
+    @Override
+    public String getCacheDirName() {
+        return COLUMNAR_CACHE_DIR_NAME;
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.history;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jetbrains.annotations.Nullable;
+import org.opengrok.indexer.logger.LoggerFactory;
+
+/**
+ * Summary of the last history entries of all files in a directory, stored in the history cache directory
+ * next to the cache files of the directory's children. This allows to fill the directory listing
+ * with single read instead of reading the cache file of each child.
+ * <p>
+ * The file starts with {@link #MAGIC} followed by the format version and then a sequence of records,
+ * each consisting of child file name, revision, flags, date (if flagged), author (if flagged) and message.
+ * </p>
+ */
+final class DirectoryHistorySummary {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DirectoryHistorySummary.class);
+
+    static final String FILE_NAME = "OpenGrokDirectorySummary";
+
+    private static final byte[] MAGIC = {'O', 'G', 'D', 'S'};
+    private static final byte VERSION = 1;
+
+    private static final int FLAG_DATE = 1;
+    private static final int FLAG_AUTHOR = 1 << 1;
+
+    private static final DirectoryHistorySummary EMPTY = new DirectoryHistorySummary(Collections.emptyMap(), 0);
+
+    /**
+     * Updates of the summary files are serialized using these locks, indexed by hash of the directory path.
+     */
+    private static final Object[] LOCKS = new Object[64];
+
+    static {
+        for (int i = 0; i < LOCKS.length; i++) {
+            LOCKS[i] = new Object();
+        }
+    }
+
+    private final Map<String, HistoryEntry> entries;
+    private final long lastModified;
+
+    private DirectoryHistorySummary(Map<String, HistoryEntry> entries, long lastModified) {
+        this.entries = entries;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * @param file source file
+     * @return last history entry of the file or {@code null} if the summary does not contain the file
+     * or if the file changed since the summary was last updated
+     */
+    @Nullable
+    HistoryEntry get(File file) {
+        HistoryEntry entry = entries.get(file.getName());
+        if (entry == null || file.lastModified() > lastModified) {
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Read the summary for given history cache directory.
+     * @param dir history cache directory
+     * @return summary instance, empty if there is no summary file or it cannot be read
+     */
+    static DirectoryHistorySummary read(File dir) {
+        File file = new File(dir, FILE_NAME);
+        if (!file.isFile()) {
+            return EMPTY;
+        }
+
+        try {
+            long lastModified = file.lastModified();
+            return new DirectoryHistorySummary(readEntries(file), lastModified);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, String.format("failed to read directory summary '%s'", file), e);
+            return EMPTY;
+        }
+    }
+
+    private static Map<String, HistoryEntry> readEntries(File file) throws IOException {
+        Map<String, HistoryEntry> entries = new HashMap<>();
+        if (!file.isFile()) {
+            return entries;
+        }
+
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        for (byte b : MAGIC) {
+            if (buffer.get() != b) {
+                throw new IOException(String.format("'%s' is not a directory summary", file));
+            }
+        }
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IOException(String.format("unsupported version %d of '%s'", version, file));
+        }
+
+        while (buffer.hasRemaining()) {
+            String name = ChangesetStore.readString(buffer);
+            HistoryEntry entry = new HistoryEntry();
+            entry.setRevision(ChangesetStore.readString(buffer));
+            int flags = buffer.get();
+            if ((flags & FLAG_DATE) != 0) {
+                entry.setDate(new Date(buffer.getLong()));
+            }
+            if ((flags & FLAG_AUTHOR) != 0) {
+                entry.setAuthor(ChangesetStore.readString(buffer));
+            }
+            entry.setMessage(ChangesetStore.readString(buffer));
+            entries.put(name, entry);
+        }
+
+        return entries;
+    }
+
+    /**
+     * Update the summary for given history cache directory.
+     * @param dir history cache directory
+     * @param updates map of child file names to their last history entries
+     * @param removals names of child files to remove from the summary
+     * @throws IOException on error
+     */
+    static void update(File dir, Map<String, HistoryEntry> updates, Collection<String> removals) throws IOException {
+        File file = new File(dir, FILE_NAME);
+        synchronized (LOCKS[Math.floorMod(file.getAbsolutePath().hashCode(), LOCKS.length)]) {
+            Map<String, HistoryEntry> entries;
+            try {
+                entries = readEntries(file);
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.WARNING, String.format("failed to read directory summary '%s', will recreate it",
+                        file), e);
+                entries = new HashMap<>();
+            }
+            entries.putAll(updates);
+            entries.keySet().removeAll(removals);
+
+            if (entries.isEmpty()) {
+                Files.deleteIfExists(file.toPath());
+                return;
+            }
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            out.write(MAGIC, 0, MAGIC.length);
+            out.write(VERSION);
+            for (Map.Entry<String, HistoryEntry> mapEntry : entries.entrySet()) {
+                HistoryEntry entry = mapEntry.getValue();
+                ChangesetStore.writeString(out, mapEntry.getKey());
+                ChangesetStore.writeString(out, entry.getRevision() == null ? "" : entry.getRevision());
+                int flags = 0;
+                if (entry.getDate() != null) {
+                    flags |= FLAG_DATE;
+                }
+                if (entry.getAuthor() != null) {
+                    flags |= FLAG_AUTHOR;
+                }
+                out.write(flags);
+                if (entry.getDate() != null) {
+                    out.write(ByteBuffer.allocate(Long.BYTES).putLong(entry.getDate().getTime()).array(),
+                            0, Long.BYTES);
+                }
+                if (entry.getAuthor() != null) {
+                    ChangesetStore.writeString(out, entry.getAuthor());
+                }
+                ChangesetStore.writeString(out, entry.getMessage());
+            }
+
+            // Write into temporary file and move it into place so that the readers do not need to be protected.
+            File tmpFile = File.createTempFile("ogtmp", null, dir);
+            try {
+                Files.write(tmpFile.toPath(), out.toByteArray());
+                Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmpFile.toPath());
+            }
+        }
+    }
+}
@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2021, 2022, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2021, 2023, Oracle and/or its affiliates. All rights reserved.
  */
 package org.opengrok.indexer.history;
 
@@ -37,6 +37,8 @@ import org.opengrok.indexer.util.Statistics;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -196,9 +198,28 @@ public class FileAnnotationCache extends AbstractCache implements AnnotationCach
         return annotation;
     }
 
+    @Nullable
+    @Override
+    public Annotation getStale(File file) throws CacheException {
+        if (!getCachedFile(file).isFile()) {
+            return null;
+        }
+
+        return readAnnotation(file);
+    }
+
     private void writeCache(AnnotationData annotationData, File outfile) throws IOException {
         ObjectMapper mapper = new SmileMapper();
-        mapper.writeValue(outfile, annotationData);
+        // The entries can be stored by the web application on first request while being read by other requests,
+        // so write into temporary file and move it into place.
+        File tmpFile = File.createTempFile("ogtmp", null, outfile.getParentFile());
+        try {
+            mapper.writeValue(tmpFile, annotationData);
+            Files.move(tmpFile.toPath(), outfile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmpFile.toPath());
+        }
     }
 
     public void store(File file, Annotation annotation) throws CacheException {
@@ -42,6 +42,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
@@ -85,15 +86,29 @@ class FileHistoryCache extends AbstractCache implements HistoryCache {
     private Counter fileHistoryCacheHits;
     private Counter fileHistoryCacheMisses;
 
+    /**
+     * Changes of the directory summaries done by {@link #storeFile(History, File, Repository)}
+     * and {@link #clearFile(String)} that were not written yet, keyed by history cache directory.
+     * These are written by {@link #flush()} so that each summary is rewritten once per batch of files.
+     */
+    private final Map<File, SummaryChanges> pendingSummaryChanges = new ConcurrentHashMap<>();
+
+    private static class SummaryChanges {
+        private final Map<String, HistoryEntry> updates = new HashMap<>();
+        private final Set<String> removals = new HashSet<>();
+    }
+
     /**
      * Generate history cache for single renamed file.
      * @param filename file path
      * @param repository repository
      * @param root root
      * @param tillRevision end revision (can be null)
+     * @return the newest history entry stored for the file or {@code null}
      */
-    public void doRenamedFileHistory(String filename, File file, Repository repository, File root, String tillRevision)
-            throws HistoryException {
+    @Nullable
+    public HistoryEntry doRenamedFileHistory(String filename, File file, Repository repository, File root,
+                                             String tillRevision) throws HistoryException {
 
         History history;
 
@@ -109,7 +124,7 @@ class FileHistoryCache extends AbstractCache implements HistoryCache {
         }
 
         history.strip();
-        doFileHistory(filename, history, repository, root, true);
+        return doFileHistory(filename, history, repository, root, true);
     }
 
     /**
@@ -119,13 +134,15 @@ class FileHistoryCache extends AbstractCache implements HistoryCache {
      * @param repository repository object in which the file belongs
      * @param root root of the source repository
      * @param renamed true if the file was renamed in the past
+     * @return the newest history entry stored for the file or {@code null}
      */
-    private void doFileHistory(String filename, History history, Repository repository, File root, boolean renamed)
-            throws HistoryException {
+    @Nullable
+    private HistoryEntry doFileHistory(String filename, History history, Repository repository, File root,
+                                       boolean renamed) throws HistoryException {
 
         File file = new File(root, filename);
         if (file.isDirectory()) {
-            return;
+            return null;
         }
 
         // Assign tags to changesets they represent.
@@ -134,6 +151,8 @@ class FileHistoryCache extends AbstractCache implements HistoryCache {
         }
 
         storeFile(history, file, repository, !renamed);
+
+        return history.getLastHistoryEntry();
     }
 
     @Override
@@ -181,9 +200,21 @@ class FileHistoryCache extends AbstractCache implements HistoryCache {
         }
 
         History history = new History(historyEntryList);
+        readTags(cacheFile, repository, history);
+
+        return history;
+    }
 
-        // Read tags from separate file.
+    /**
+     * Read tags from separate file and store them into the history object.
+     * @param cacheFile cache file
+     * @param repository repository for the file
+     * @param history history object
+     */
+    static void readTags(File cacheFile, Repository repository, History history) {
         if (env.isTagsEnabled() && repository.hasFileBasedTags()) {
+            SmileFactory factory = new SmileFactory();
+            ObjectMapper mapper = new SmileMapper();
             File tagFile = getTagsFile(cacheFile);
             try (SmileParser parser = factory.createParser(tagFile)) {
                 parser.setCodec(mapper);
@@ -195,8 +226,6 @@ class FileHistoryCache extends AbstractCache implements HistoryCache {
                 LOGGER.log(Level.WARNING, "failed to read tags from ''{0}''", tagFile);
             }
         }
-
-        return history;
     }
 
     static HistoryEntry readLastHistoryEntry(File cacheFile) throws IOException {
@@ -259,7 +288,29 @@ class FileHistoryCache extends AbstractCache implements HistoryCache {
         return mapper.writer().forType(HistoryEntry.class);
     }
 
-    private void safelyRename(File output, File cacheFile) throws HistoryException {
+    /**
+     * Read complete history from the cache file.
+     * @param cacheFile cache file
+     * @param repository repository for the file
+     * @return history
+     * @throws IOException on error
+     */
+    History readCache(File cacheFile, Repository repository) throws IOException {
+        return readHistory(cacheFile, repository);
+    }
+
+    /**
+     * Read the last (newest) history entry from the cache file.
+     * @param cacheFile cache file
+     * @return history entry or {@code null}
+     * @throws IOException on error
+     */
+    @Nullable
+    HistoryEntry readCacheLastEntry(File cacheFile) throws IOException {
+        return readLastHistoryEntry(cacheFile);
+    }
+
+    void safelyRename(File output, File cacheFile) throws HistoryException {
         if (!cacheFile.delete() && cacheFile.exists()) {
             if (!output.delete()) {
                 LOGGER.log(Level.WARNING, "Failed to remove temporary cache file ''{0}''", cacheFile);
@@ -278,13 +329,123 @@ class FileHistoryCache extends AbstractCache implements HistoryCache {
         }
     }
 
-    private static File getTagsFile(File file) {
+    static File getTagsFile(File file) {
         return new File(file.getAbsolutePath() + ".t");
     }
 
     @Override
     public void storeFile(History history, File file, Repository repository) throws HistoryException {
         storeFile(history, file, repository, false);
+
+        HistoryEntry lastHistoryEntry = history.getLastHistoryEntry();
+        if (lastHistoryEntry != null) {
+            try {
+                pendingSummaryChanges.compute(getCachedFile(file).getParentFile(), (dir, changes) -> {
+                    changes = changes == null ? new SummaryChanges() : changes;
+                    changes.removals.remove(file.getName());
+                    changes.updates.put(file.getName(), lastHistoryEntry);
+                    return changes;
+                });
+            } catch (CacheException e) {
+                throw new HistoryException(String.format("failed to update directory summary for '%s'", file), e);
+            }
+        }
+    }
+
+    @Override
+    public void clearFile(String path) {
+        File file = new File(env.getSourceRootPath() + path);
+        try {
+            pendingSummaryChanges.compute(getCachedFile(file).getParentFile(), (dir, changes) -> {
+                changes = changes == null ? new SummaryChanges() : changes;
+                changes.updates.remove(file.getName());
+                changes.removals.add(file.getName());
+                return changes;
+            });
+        } catch (CacheException e) {
+            LOGGER.log(Level.WARNING, String.format("failed to remove '%s' from directory summary", path), e);
+        }
+
+        super.clearFile(path);
+    }
+
+    /**
+     * Write the directory summary changes done by {@link #storeFile(History, File, Repository)}
+     * and {@link #clearFile(String)}. The cache directories left empty by {@link #clearFile(String)}
+     * are removed.
+     */
+    @Override
+    public void flush() {
+        Map<File, SummaryChanges> changes = new HashMap<>();
+        for (File dir : pendingSummaryChanges.keySet()) {
+            SummaryChanges dirChanges = pendingSummaryChanges.remove(dir);
+            if (dirChanges != null) {
+                changes.put(dir, dirChanges);
+            }
+        }
+
+        if (!changes.isEmpty()) {
+            writeDirectorySummaries(changes, "changed files");
+        }
+    }
+
+    /**
+     * Update the directory summaries with the newest history entries of the files.
+     * The summaries of different directories are updated in parallel.
+     * @param lastEntries map of file paths relative to source root to their newest history entries
+     * @param repository repository
+     */
+    private void updateDirectorySummaries(Map<String, HistoryEntry> lastEntries, Repository repository) {
+        Map<File, SummaryChanges> summaries = new HashMap<>();
+        for (Map.Entry<String, HistoryEntry> entry : lastEntries.entrySet()) {
+            File file = new File(env.getSourceRootPath() + entry.getKey());
+            try {
+                summaries.computeIfAbsent(getCachedFile(file).getParentFile(), k -> new SummaryChanges()).
+                        updates.put(file.getName(), entry.getValue());
+            } catch (CacheException e) {
+                LOGGER.log(Level.FINER, e.getMessage());
+            }
+        }
+
+        writeDirectorySummaries(summaries, repository.toString());
+    }
+
+    /**
+     * Apply the changes to the directory summaries. The summaries of different directories are updated in parallel.
+     * @param summaries map of history cache directories to the changes of their summaries
+     * @param description description of the changes for logging
+     */
+    private void writeDirectorySummaries(Map<File, SummaryChanges> summaries, String description) {
+        Statistics elapsed = new Statistics();
+        final CountDownLatch latch = new CountDownLatch(summaries.size());
+        for (Map.Entry<File, SummaryChanges> summary : summaries.entrySet()) {
+            env.getIndexerParallelizer().getHistoryFileExecutor().submit(() -> {
+                File dir = summary.getKey();
+                SummaryChanges changes = summary.getValue();
+                try {
+                    DirectoryHistorySummary.update(dir, changes.updates, changes.removals);
+                    // The summary file is removed once it is empty, so the directory can be removed as well.
+                    if (!changes.removals.isEmpty() && dir.delete()) {
+                        LOGGER.log(Level.FINE, "Removed empty cache dir:{0}", dir.getAbsolutePath());
+                    }
+                } catch (Exception e) {
+                    // We want to catch any exception since we are in a thread.
+                    LOGGER.log(Level.WARNING,
+                            String.format("failed to update directory summary in '%s'", dir), e);
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            LOGGER.log(Level.SEVERE, "latch exception", ex);
+            Thread.currentThread().interrupt();
+        }
+        elapsed.report(LOGGER, Level.FINE, String.format("Done updating %d directory summaries for %s",
+                summaries.size(), description));
     }
 
     /**
@@ -315,6 +476,20 @@ class FileHistoryCache extends AbstractCache implements HistoryCache {
                     new Object[]{cacheFile, histNew.getRevisionList()});
         }
 
+        writeCache(histNew, cacheFile, repo, mergeHistory);
+    }
+
+    /**
+     * Write the history into the cache file, possibly merging it with the history already stored in the file.
+     *
+     * @param histNew history object to store
+     * @param cacheFile cache file
+     * @param repo repository for the file
+     * @param mergeHistory whether to merge the history with existing or store the histNew as is
+     * @throws HistoryException if there was any problem with history cache generation
+     */
+    void writeCache(History histNew, File cacheFile, Repository repo, boolean mergeHistory) throws HistoryException {
+        File dir = cacheFile.getParentFile();
         final File outputFile;
         try {
             outputFile = File.createTempFile("ogtmp", null, dir);
@@ -520,6 +695,7 @@ class FileHistoryCache extends AbstractCache implements HistoryCache {
 
         final CountDownLatch latch = new CountDownLatch(regularFiles.size());
         AtomicInteger fileHistoryCount = new AtomicInteger();
+        final Map<String, HistoryEntry> lastEntries = new ConcurrentHashMap<>();
         try (Progress progress = new Progress(LOGGER,
                 String.format("history cache for regular files of %s till %s", repository,
                         getRevisionString(tillRevision)),
@@ -527,7 +703,11 @@ class FileHistoryCache extends AbstractCache implements HistoryCache {
             for (String file : regularFiles) {
                 env.getIndexerParallelizer().getHistoryFileExecutor().submit(() -> {
                     try {
-                        doFileHistory(file, new History(map.get(file)), repository, root, false);
+                        HistoryEntry lastEntry = doFileHistory(file, new History(map.get(file)), repository, root,
+                                false);
+                        if (lastEntry != null) {
+                            lastEntries.put(file, lastEntry);
+                        }
                         fileHistoryCount.getAndIncrement();
                     } catch (Exception ex) {
                         // We want to catch any exception since we are in a thread.
@@ -549,12 +729,11 @@ class FileHistoryCache extends AbstractCache implements HistoryCache {
                     new Object[]{fileHistoryCount, repository});
         }
 
-        if (!handleRenamedFiles) {
-            finishStore(repository, latestRev);
-            return;
+        if (handleRenamedFiles) {
+            storeRenamed(history.getRenamedFiles(), repository, tillRevision, lastEntries);
         }
 
-        storeRenamed(history.getRenamedFiles(), repository, tillRevision);
+        updateDirectorySummaries(lastEntries, repository);
 
         finishStore(repository, latestRev);
     }
@@ -566,6 +745,13 @@ class FileHistoryCache extends AbstractCache implements HistoryCache {
      * @param tillRevision end revision (can be null)
      */
     public void storeRenamed(Set<String> renamedFiles, Repository repository, String tillRevision) throws CacheException {
+        Map<String, HistoryEntry> lastEntries = new ConcurrentHashMap<>();
+        storeRenamed(renamedFiles, repository, tillRevision, lastEntries);
+        updateDirectorySummaries(lastEntries, repository);
+    }
+
+    private void storeRenamed(Set<String> renamedFiles, Repository repository, String tillRevision,
+                              Map<String, HistoryEntry> lastEntries) {
         final File root = env.getSourceRootFile();
         if (renamedFiles.isEmpty()) {
             return;
@@ -590,9 +776,12 @@ class FileHistoryCache extends AbstractCache implements HistoryCache {
             for (final String file : renamedFiles) {
                 env.getIndexerParallelizer().getHistoryFileExecutor().submit(() -> {
                     try {
-                        doRenamedFileHistory(file,
+                        HistoryEntry lastEntry = doRenamedFileHistory(file,
                                 new File(env.getSourceRootPath() + file),
                                 repositoryF, root, tillRevision);
+                        if (lastEntry != null) {
+                            lastEntries.put(file, lastEntry);
+                        }
                         renamedFileHistoryCount.getAndIncrement();
                     } catch (Exception ex) {
                         // We want to catch any exception since we are in thread.
@@ -655,7 +844,7 @@ class FileHistoryCache extends AbstractCache implements HistoryCache {
                 if (fileHistoryCacheHits != null) {
                     fileHistoryCacheHits.increment();
                 }
-                return readHistory(cacheFile, repository);
+                return readCache(cacheFile, repository);
             } catch (IOException e) {
                 LOGGER.log(Level.WARNING, String.format("Error when reading cache file '%s'", cacheFile), e);
             }
@@ -677,7 +866,7 @@ class FileHistoryCache extends AbstractCache implements HistoryCache {
                 if (fileHistoryCacheHits != null) {
                     fileHistoryCacheHits.increment();
                 }
-                return readLastHistoryEntry(cacheFile);
+                return readCacheLastEntry(cacheFile);
             } catch (IOException e) {
                 LOGGER.log(Level.WARNING, String.format("Error when reading cache file '%s'", cacheFile), e);
             }
@@ -777,18 +966,39 @@ class FileHistoryCache extends AbstractCache implements HistoryCache {
 
         Statistics statistics = new Statistics();
 
+        // First try to fill the entries from the directory summaries (typically just one for all the entries),
+        // the files not present in the summary are retrieved from their cache files.
+        List<DirectoryEntry> remaining = new ArrayList<>();
+        Map<File, DirectoryHistorySummary> summaries = new HashMap<>();
+        for (DirectoryEntry directoryEntry : entries) {
+            File file = directoryEntry.getFile();
+            if (file.isDirectory()) {
+                directoryEntry.setDescription("-");
+                directoryEntry.setDate(null);
+                continue;
+            }
+
+            HistoryEntry historyEntry = null;
+            try {
+                historyEntry = summaries.computeIfAbsent(getCachedFile(file).getParentFile(),
+                        DirectoryHistorySummary::read).get(file);
+            } catch (CacheException e) {
+                LOGGER.log(Level.FINER, "cannot get directory summary for ''{0}''", file);
+            }
+            if (historyEntry != null && historyEntry.getDate() != null) {
+                directoryEntry.setDescription(historyEntry.getDescription());
+                directoryEntry.setDate(historyEntry.getDate());
+            } else {
+                remaining.add(directoryEntry);
+            }
+        }
+
         final ExecutorService executor = env.getDirectoryListingExecutor();
         Set<Future<Boolean>> futures = new HashSet<>();
-        for (DirectoryEntry directoryEntry : entries) {
+        for (DirectoryEntry directoryEntry : remaining) {
             futures.add(executor.submit(() -> {
                 try {
                     File file = directoryEntry.getFile();
-                    if (file.isDirectory()) {
-                        directoryEntry.setDescription("-");
-                        directoryEntry.setDate(null);
-                        return true;
-                    }
-
                     HistoryEntry historyEntry = getLastHistoryEntry(file);
                     if (historyEntry != null && historyEntry.getDate() != null) {
                         directoryEntry.setDescription(historyEntry.getDescription());
@@ -817,7 +1027,8 @@ class FileHistoryCache extends AbstractCache implements HistoryCache {
             }
         }
 
-        statistics.report(LOGGER, Level.FINER, "done filling directory entries");
+        statistics.report(LOGGER, Level.FINER, String.format("done filling directory entries (%d from summary)",
+                entries.size() - remaining.size()));
 
         // Enforce the all-or-nothing semantics.
         if (!ret) {
@@ -31,6 +31,8 @@ import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
@@ -56,6 +58,9 @@ import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.blame.BlameResult;
 import org.eclipse.jgit.diff.DiffEntry;
 import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.diff.EditList;
+import org.eclipse.jgit.diff.HistogramDiff;
 import org.eclipse.jgit.diff.RawText;
 import org.eclipse.jgit.diff.RawTextComparator;
 import org.eclipse.jgit.lib.Config;
@@ -70,7 +75,6 @@ import org.eclipse.jgit.revwalk.FollowFilter;
 import org.eclipse.jgit.revwalk.RevCommit;
 import org.eclipse.jgit.revwalk.RevTree;
 import org.eclipse.jgit.revwalk.RevWalk;
-import org.eclipse.jgit.storage.file.FileRepositoryBuilder;
 import org.eclipse.jgit.treewalk.AbstractTreeIterator;
 import org.eclipse.jgit.treewalk.CanonicalTreeParser;
 import org.eclipse.jgit.treewalk.TreeWalk;
@@ -103,6 +107,17 @@ public class GitRepository extends RepositoryWithHistoryTraversal {
     public static final int GIT_ABBREV_LEN = 8;
     public static final int MAX_CHANGESETS = 65536;
 
+    /**
+     * Maximum number of commits changing a file that are applied to its older annotation
+     * in {@link #annotate(File, String, Annotation)}.
+     */
+    private static final int MAX_INCREMENTAL_ANNOTATION_COMMITS = 32;
+    /**
+     * Maximum ratio of lines changed since the older annotation to the number of lines of the file
+     * in {@link #annotate(File, String, Annotation)}, larger changes are annotated from scratch.
+     */
+    private static final double MAX_INCREMENTAL_ANNOTATION_CHANGE = 0.5;
+
     public GitRepository() {
         type = "git";
 
@@ -115,6 +130,18 @@ public class GitRepository extends RepositoryWithHistoryTraversal {
         return true;
     }
 
+    /**
+     * The repository handles are shared via {@link JGitRepositoryCache} so the rename detection
+     * is enabled on a copy of the repository configuration rather than the configuration itself.
+     * @param repository JGit repository
+     * @return diff configuration with rename detection enabled
+     */
+    private static org.eclipse.jgit.diff.DiffConfig getRenamesDiffConfig(org.eclipse.jgit.lib.Repository repository) {
+        Config config = new Config(repository.getConfig());
+        config.setBoolean("diff", null, "renames", true);
+        return config.get(org.eclipse.jgit.diff.DiffConfig.KEY);
+    }
+
     /**
      * Be careful, git uses only forward slashes in its command and output (not in file path).
      * Using backslashes together with git show will get empty output and 0 status code.
@@ -272,9 +299,7 @@ public class GitRepository extends RepositoryWithHistoryTraversal {
             walk.markStart(walk.parseCommit(repository.resolve(Constants.HEAD)));
             walk.markUninteresting(walk.lookupCommit(repository.resolve(changeset)));
 
-            Config config = repository.getConfig();
-            config.setBoolean("diff", null, "renames", true);
-            org.eclipse.jgit.diff.DiffConfig dc = config.get(org.eclipse.jgit.diff.DiffConfig.KEY);
+            org.eclipse.jgit.diff.DiffConfig dc = getRenamesDiffConfig(repository);
             FollowFilter followFilter = FollowFilter.create(getGitFilePath(fileInRepo), dc);
             walk.setTreeFilter(followFilter);
 
@@ -397,6 +422,102 @@ public class GitRepository extends RepositoryWithHistoryTraversal {
         return annotation;
     }
 
+    @Override
+    @Nullable
+    Annotation annotate(File file, String revision, Annotation previous) throws IOException {
+        String filePath = getGitFilePath(getPathRelativeToCanonicalRepositoryRoot(file.getCanonicalPath()));
+
+        try (org.eclipse.jgit.lib.Repository repository = getJGitRepository(getDirectoryName());
+             RevWalk walk = new RevWalk(repository)) {
+            ObjectId newId = repository.resolve(revision);
+            ObjectId oldId = repository.resolve(previous.getRevision());
+            if (newId == null || oldId == null) {
+                return null;
+            }
+
+            RevCommit newCommit = walk.parseCommit(newId);
+            RevCommit oldCommit = walk.parseCommit(oldId);
+            ObjectId oldBlob = getBlobId(repository, filePath, oldCommit);
+            ObjectId newBlob = getBlobId(repository, filePath, newCommit);
+            if (oldBlob == null || newBlob == null) {
+                return null;
+            }
+
+            // Commits changing the file since the old revision. The parents are rewritten to the nearest
+            // ancestors changing the file so that linear history of the file has single parent commits only.
+            walk.setTreeFilter(AndTreeFilter.create(PathFilter.create(filePath), TreeFilter.ANY_DIFF));
+            walk.markStart(newCommit);
+            walk.markUninteresting(oldCommit);
+            List<RevCommit> commits = new ArrayList<>();
+            for (RevCommit commit : walk) {
+                // Lines coming from multiple parents of a merge need full annotation.
+                if (commit.getParentCount() != 1 || commits.size() >= MAX_INCREMENTAL_ANNOTATION_COMMITS) {
+                    return null;
+                }
+                commits.add(commit);
+            }
+            Collections.reverse(commits);
+
+            List<AnnotationLine> lines = previous.annotationData.getLines();
+            ObjectId blob = oldBlob;
+            RawText text = new RawText(repository.open(blob, Constants.OBJ_BLOB).getCachedBytes());
+            if (text.size() != lines.size()) {
+                return null;
+            }
+
+            int changed = 0;
+            for (RevCommit commit : commits) {
+                // Each commit has to be based on the content annotated so far.
+                if (!blob.equals(getBlobId(repository, filePath, walk.parseCommit(commit.getParent(0))))) {
+                    return null;
+                }
+                blob = getBlobId(repository, filePath, commit);
+                if (blob == null) {
+                    return null;
+                }
+
+                RawText newText = new RawText(repository.open(blob, Constants.OBJ_BLOB).getCachedBytes());
+                // The same diff algorithm and comparator as the ones used by BlameCommand in getAnnotation().
+                EditList edits = new HistogramDiff().diff(RawTextComparator.WS_IGNORE_ALL, text, newText);
+                AnnotationLine line = new AnnotationLine(commit.getId().name(), commit.getAuthorIdent().getName(),
+                        true, commit.getId().abbreviate(GIT_ABBREV_LEN).name());
+                List<AnnotationLine> newLines = new ArrayList<>(newText.size());
+                int pos = 0;
+                for (Edit edit : edits) {
+                    newLines.addAll(lines.subList(pos, edit.getBeginA()));
+                    for (int i = edit.getBeginB(); i < edit.getEndB(); i++) {
+                        newLines.add(line);
+                    }
+                    changed += edit.getLengthB();
+                    pos = edit.getEndA();
+                }
+                newLines.addAll(lines.subList(pos, lines.size()));
+
+                lines = newLines;
+                text = newText;
+            }
+
+            if (!blob.equals(newBlob) || changed > lines.size() * MAX_INCREMENTAL_ANNOTATION_CHANGE) {
+                return null;
+            }
+
+            Annotation annotation = new Annotation(previous.getFilename());
+            for (AnnotationLine line : lines) {
+                annotation.addLine(line.getRevision(), line.getAuthor(), line.isEnabled(),
+                        line.getDisplayRevision());
+            }
+            return annotation;
+        }
+    }
+
+    @Nullable
+    private static ObjectId getBlobId(org.eclipse.jgit.lib.Repository repository, String path, RevCommit commit)
+            throws IOException {
+        try (TreeWalk treeWalk = TreeWalk.forPath(repository, path, commit.getTree())) {
+            return treeWalk != null ? treeWalk.getObjectId(0) : null;
+        }
+    }
+
     @Override
     public boolean fileHasAnnotation(File file) {
         return true;
@@ -550,9 +671,7 @@ public class GitRepository extends RepositoryWithHistoryTraversal {
         String relativePath = RuntimeEnvironment.getInstance().getPathRelativeToSourceRoot(file);
         if (!getDirectoryNameRelative().equals(relativePath)) {
             if (isHandleRenamedFiles()) {
-                Config config = repository.getConfig();
-                config.setBoolean("diff", null, "renames", true);
-                org.eclipse.jgit.diff.DiffConfig dc = config.get(org.eclipse.jgit.diff.DiffConfig.KEY);
+                org.eclipse.jgit.diff.DiffConfig dc = getRenamesDiffConfig(repository);
                 FollowFilter followFilter = FollowFilter.create(getGitFilePath(getRepoRelativePath(file)), dc);
                 walk.setTreeFilter(followFilter);
             } else {
@@ -708,7 +827,7 @@ public class GitRepository extends RepositoryWithHistoryTraversal {
     private org.eclipse.jgit.lib.Repository getJGitRepository(String directory) throws IOException {
         File dotGitFile = Paths.get(directory, Constants.DOT_GIT).toFile();
         if (dotGitFile.isDirectory()) {
-            return FileRepositoryBuilder.create(dotGitFile);
+            return JGitRepositoryCache.open(dotGitFile);
         }
 
         // Assume this is a sub-module so dotGitFile is a file.
@@ -724,7 +843,8 @@ public class GitRepository extends RepositoryWithHistoryTraversal {
             gitDirFile = new File(directory, gitDirValue);
         }
 
-        return new FileRepositoryBuilder().setWorkTree(new File(directory)).setGitDir(gitDirFile).build();
+        // The work tree is not needed as all the operations work with the objects directly.
+        return JGitRepositoryCache.open(gitDirFile);
     }
 
     private void rebuildTagList(File directory) {
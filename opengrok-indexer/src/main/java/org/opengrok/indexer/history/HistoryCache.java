@@ -105,4 +105,11 @@ interface HistoryCache extends Cache {
      * @param file path to the file relative to the source root
      */
     void clearFile(String file);
+
+    /**
+     * Write the changes of the data shared by multiple files done by {@link #storeFile(History, File, Repository)}
+     * and {@link #clearFile(String)} that the implementation might have deferred.
+     */
+    default void flush() {
+    }
 }
@@ -47,9 +47,11 @@ import java.util.stream.Collectors;
 
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.VisibleForTesting;
+import org.opengrok.indexer.configuration.AnnotationCachePolicy;
 import org.opengrok.indexer.configuration.CommandTimeoutType;
 import org.opengrok.indexer.configuration.Configuration;
 import org.opengrok.indexer.configuration.Configuration.RemoteSCM;
+import org.opengrok.indexer.configuration.HistoryCacheFormat;
 import org.opengrok.indexer.configuration.OpenGrokThreadFactory;
 import org.opengrok.indexer.configuration.PathAccepter;
 import org.opengrok.indexer.configuration.RuntimeEnvironment;
@@ -150,13 +152,17 @@ public final class HistoryGuru {
     }
 
     /**
-     * Set history cache to its default implementation.
+     * Set history cache to the implementation matching the configured format.
      * @return {@link HistoryCache} instance
      */
     private HistoryCache initializeHistoryCache() {
         HistoryCache historyCacheResult = null;
         if (env.useHistoryCache()) {
-            historyCacheResult = new FileHistoryCache();
+            if (env.getHistoryCacheFormat() == HistoryCacheFormat.COLUMNAR) {
+                historyCacheResult = new ColumnarHistoryCache();
+            } else {
+                historyCacheResult = new FileHistoryCache();
+            }
 
             try {
                 historyCacheResult.initialize();
@@ -245,15 +251,40 @@ public final class HistoryGuru {
         }
 
         // Fall back to repository based annotation.
-        // It might be possible to store the annotation to the annotation cache here, needs further thought.
         annotation = getAnnotationFromRepository(file, rev);
         if (annotation != null) {
-            annotation.setRevision(LatestRevisionUtil.getLatestRevision(file));
+            String latestRev = LatestRevisionUtil.getLatestRevision(file);
+            annotation.setRevision(latestRev);
+            if (latestRev != null && (rev == null || rev.equals(latestRev))) {
+                storeAnnotationLazily(file, annotation, repository);
+            }
         }
 
         return annotation;
     }
 
+    /**
+     * Store annotation of the latest revision of a file retrieved from the repository to the annotation cache
+     * if the cache entries are created on first request rather than during indexing,
+     * i.e. with {@link AnnotationCachePolicy#HOT}.
+     * @param file file
+     * @param annotation annotation of the latest revision with the revision set
+     * @param repository repository of the file
+     */
+    private void storeAnnotationLazily(File file, Annotation annotation, @Nullable Repository repository) {
+        if (annotationCache == null || repository == null || !repository.isAnnotationCacheEnabled() ||
+                env.getAnnotationCachePolicy() != AnnotationCachePolicy.HOT) {
+            return;
+        }
+
+        try {
+            annotationCache.store(file, annotation);
+            LOGGER.log(Level.FINEST, "stored annotation cache entry for ''{0}'' on first request", file);
+        } catch (CacheException e) {
+            LOGGER.log(e.getLevel(), "failed to store annotation", e);
+        }
+    }
+
     /**
      * Annotate given file using repository method. Makes sure that the resulting annotation has the revision set.
      * @param file file object to generate the annotaiton for
@@ -950,7 +981,8 @@ public final class HistoryGuru {
                         String.format("An error occurred while creating cache for %s", repository), e);
             }
 
-            elapsed.report(LOGGER, String.format("Done history cache for %s", repository));
+            elapsed.report(LOGGER, Level.INFO, String.format("Done history cache for %s", repository),
+                    "indexer.history.cache.repository", new String[]{"repository", getMetricTag(repository)});
         } else {
             LOGGER.log(Level.WARNING,
                     "Skipping creation of history cache for {0}: Missing SCM dependencies?", repository);
@@ -1061,6 +1093,18 @@ public final class HistoryGuru {
         }
     }
 
+    /**
+     * Write the history cache changes deferred by {@link #storeHistory(File, History)}
+     * and {@link #clearHistoryCacheFile(String, boolean)}.
+     */
+    public void flushHistoryCache() {
+        if (!useHistoryCache()) {
+            return;
+        }
+
+        historyCache.flush();
+    }
+
     /**
      * Retrieve and store the annotation cache entry for given file.
      * @param file file object under source root. Needs to have a repository associated for the cache to be created.
@@ -1085,11 +1129,18 @@ public final class HistoryGuru {
         }
 
         LOGGER.log(Level.FINEST, "creating annotation cache for ''{0}''", file);
+        Statistics total = new Statistics();
         try {
             Statistics statistics = new Statistics();
-            Annotation annotation = getAnnotationFromRepository(file, null);
-            statistics.report(LOGGER, Level.FINEST, String.format("retrieved annotation for ''%s''", file),
-                    "annotation.retrieve.latency");
+            Annotation annotation = getAnnotationIncrementally(file, latestRev, repository);
+            if (annotation != null) {
+                statistics.report(LOGGER, Level.FINEST, String.format("updated annotation for '%s'", file),
+                        "annotation.retrieve.latency", new String[]{"method", "incremental"});
+            } else {
+                annotation = getAnnotationFromRepository(file, null);
+                statistics.report(LOGGER, Level.FINEST, String.format("retrieved annotation for '%s'", file),
+                        "annotation.retrieve.latency", new String[]{"method", "full"});
+            }
 
             if (annotation != null) {
                 annotation.setRevision(latestRev);
@@ -1100,6 +1151,49 @@ public final class HistoryGuru {
         } catch (IOException e) {
             throw new CacheException(e);
         }
+        total.report(LOGGER, Level.FINEST, String.format("created annotation cache for '%s'", file),
+                "indexer.annotation.cache.repository", new String[]{"repository", getMetricTag(repository)});
+    }
+
+    /**
+     * Get annotation of the latest revision of a file by updating the annotation stored in the annotation cache
+     * for older revision of the file.
+     * @param file file object under source root
+     * @param latestRev latest revision of the file
+     * @param repository repository of the file
+     * @return annotation or {@code null} if it has to be computed from scratch
+     */
+    @Nullable
+    private Annotation getAnnotationIncrementally(File file, String latestRev, Repository repository) {
+        if (!env.getPathAccepter().accept(file) || !hasAnnotation(file)) {
+            return null;
+        }
+
+        try {
+            Annotation previous = annotationCache.getStale(file);
+            if (previous == null || previous.getRevision() == null || previous.getRevision().equals(latestRev)) {
+                return null;
+            }
+
+            Annotation annotation = repository.annotate(file, latestRev, previous);
+            if (annotation == null) {
+                LOGGER.log(Level.FINEST, "cannot update annotation of ''{0}'' from revision {1} to {2}",
+                        new Object[]{file, previous.getRevision(), latestRev});
+            }
+            return annotation;
+        } catch (CacheException | IOException | RuntimeException e) {
+            LOGGER.log(Level.FINE, String.format("failed to update annotation of '%s'", file), e);
+            return null;
+        }
+    }
+
+    /**
+     * @param repository repository
+     * @return value identifying the repository in metric tags
+     */
+    private static String getMetricTag(Repository repository) {
+        String name = repository.getDirectoryNameRelative();
+        return name != null ? name : String.valueOf(repository.getDirectoryName());
     }
 
     /**
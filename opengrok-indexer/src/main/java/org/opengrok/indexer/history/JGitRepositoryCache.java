@@ -0,0 +1,162 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.history;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.lib.RepositoryCache;
+import org.eclipse.jgit.lib.RepositoryCacheConfig;
+import org.eclipse.jgit.storage.file.WindowCacheConfig;
+import org.eclipse.jgit.util.FS;
+import org.opengrok.indexer.configuration.RuntimeEnvironment;
+import org.opengrok.indexer.logger.LoggerFactory;
+
+/**
+ * Shared cache of JGit {@link Repository} handles used by {@link GitRepository}, backed by JGit's
+ * {@link RepositoryCache}.
+ * <p>
+ * The handles are reference counted: each {@link #open(File)} has to be paired with {@link Repository#close()}.
+ * Handles that are not used by anyone are closed after {@link RuntimeEnvironment#getGitRepositoryCacheTimeout()}.
+ * The handle of a repository is dropped from the cache (and closed once its last user is done)
+ * when the pack directory of the repository changes (e.g. after {@code git gc} or {@code git repack})
+ * or when the repository is re-created in the same place.
+ * </p>
+ * The first use also installs JGit {@link WindowCacheConfig} sized according to
+ * {@link RuntimeEnvironment#getGitPackCacheSize()} which is shared by all repositories.
+ */
+final class JGitRepositoryCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JGitRepositoryCache.class);
+
+    private static final int PACKED_GIT_OPEN_FILES = 512;
+
+    /**
+     * State of the repository directories at the time their handles were cached, keyed by {@code .git} directory.
+     */
+    private static final Map<File, Stamp> stamps = new ConcurrentHashMap<>();
+
+    private static volatile boolean configured;
+
+    private JGitRepositoryCache() {
+        // private to enforce static
+    }
+
+    private static final class Stamp {
+        private final Object directoryKey;
+        private final long packsModified;
+
+        private Stamp(Object directoryKey, long packsModified) {
+            this.directoryKey = directoryKey;
+            this.packsModified = packsModified;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Stamp other = (Stamp) o;
+            return packsModified == other.packsModified && Objects.equals(directoryKey, other.directoryKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(directoryKey, packsModified);
+        }
+    }
+
+    /**
+     * Get shared handle of a repository.
+     * @param gitDir the {@code .git} directory of the repository
+     * @return repository handle, to be closed by the caller
+     * @throws IOException if the repository cannot be opened
+     */
+    static Repository open(File gitDir) throws IOException {
+        configure();
+
+        RepositoryCache.FileKey key = RepositoryCache.FileKey.exact(gitDir, FS.DETECTED);
+        Stamp stamp = getStamp(gitDir);
+        Stamp previous = stamps.put(gitDir, stamp);
+        if (previous != null && !previous.equals(stamp)) {
+            LOGGER.log(Level.FINE, "repository ''{0}'' changed, dropping cached handle", gitDir);
+            /*
+             * RepositoryCache#unregister() only removes the handle from the cache. Hold a reference
+             * while doing that so that releasing it closes the handle if it is idle. Otherwise the handle
+             * is closed once its last user is done because Repository#close() closes handles that are
+             * not cached.
+             */
+            try (Repository dropped = RepositoryCache.open(key, true)) {
+                RepositoryCache.unregister(dropped);
+            }
+        }
+
+        return RepositoryCache.open(key, true);
+    }
+
+    private static Stamp getStamp(File gitDir) throws IOException {
+        Object directoryKey = Files.readAttributes(gitDir.toPath(), BasicFileAttributes.class).fileKey();
+        long packsModified = new File(gitDir, "objects" + File.separator + "pack").lastModified();
+        return new Stamp(directoryKey, packsModified);
+    }
+
+    private static void configure() {
+        if (configured) {
+            return;
+        }
+
+        synchronized (JGitRepositoryCache.class) {
+            if (configured) {
+                return;
+            }
+
+            RuntimeEnvironment env = RuntimeEnvironment.getInstance();
+
+            RepositoryCacheConfig cacheConfig = new RepositoryCacheConfig();
+            // Zero expiration would disable the automatic cleanup altogether.
+            cacheConfig.setExpireAfter(TimeUnit.SECONDS.toMillis(Math.max(env.getGitRepositoryCacheTimeout(), 1)));
+            cacheConfig.install();
+
+            long limit = env.getGitPackCacheSize() * 1024L * 1024L;
+            WindowCacheConfig windowConfig = new WindowCacheConfig();
+            windowConfig.setPackedGitLimit(limit);
+            windowConfig.setDeltaBaseCacheLimit((int) Math.min(limit / 4, Integer.MAX_VALUE));
+            windowConfig.setPackedGitOpenFiles(PACKED_GIT_OPEN_FILES);
+            windowConfig.install();
+
+            configured = true;
+        }
+    }
+}
@@ -353,6 +353,26 @@ public abstract class Repository extends RepositoryInfo {
      */
     abstract @Nullable Annotation annotate(File file, @Nullable String revision) throws IOException;
 
+    /**
+     * Annotate the specified revision of a file by updating the annotation of its older revision,
+     * i.e. only the lines changed since the older revision are attributed anew.
+     * The result has to be the same as the one of {@link #annotate(File, String)}.
+     * <p>
+     * The default implementation does not support this and returns {@code null}.
+     * </p>
+     *
+     * @param file the file to annotate
+     * @param revision revision of the file
+     * @param previous annotation of older revision of the file with the revision set
+     * @return an <code>Annotation</code> object or {@code null} if the annotation cannot be updated
+     * and has to be computed from scratch using {@link #annotate(File, String)}
+     * @throws java.io.IOException if an error occurs
+     */
+    @Nullable
+    Annotation annotate(File file, String revision, Annotation previous) throws IOException {
+        return null;
+    }
+
     /**
      * Return revision for annotate view.
      *
@@ -28,8 +28,13 @@ import org.opengrok.indexer.util.Progress;
 import org.opengrok.indexer.util.Statistics;
 
 import java.io.File;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -92,6 +97,14 @@ public abstract class RepositoryWithPerPartesHistory extends Repository {
         List<String> boundaryChangesetList = new ArrayList<>(boundaryChangesets.getBoundaryChangesetIDs(sinceRevision));
         boundaryChangesetList.add(null);    // to finish the last step in the cycle below
         LOGGER.log(Level.FINE, "boundary changesets: {0}", boundaryChangesetList);
+
+        int parallelism = Math.min(RuntimeEnvironment.getInstance().getHistoryChunkParallelism(),
+                boundaryChangesetList.size());
+        if (parallelism > 1) {
+            createCacheParallel(cache, sinceRevision, directory, boundaryChangesetList, parallelism);
+            return;
+        }
+
         int cnt = 0;
         for (String tillRevision: boundaryChangesetList) {
             Statistics stat = new Statistics();
@@ -104,4 +117,65 @@ public abstract class RepositoryWithPerPartesHistory extends Repository {
                     ++cnt, boundaryChangesetList.size(), this.getDirectoryName()));
         }
     }
+
+    /**
+     * Retrieve the history of the chunks concurrently and store it in the order of the chunks.
+     * Storing the chunks in sequence keeps the history cache consistent (the incremental merge
+     * in {@link HistoryCache#store(History, Repository, String)} relies on the chunks being appended
+     * from the oldest to the newest) while the history retrieval, which is usually the dominant cost,
+     * runs in parallel. At most {@code parallelism} chunks are held in memory at any given time.
+     */
+    private void createCacheParallel(HistoryCache cache, String sinceRevision, File directory,
+                                     List<String> boundaryChangesetList, int parallelism)
+            throws HistoryException, CacheException {
+
+        ExecutorService executor = RuntimeEnvironment.getInstance().getIndexerParallelizer().
+                getHistoryChunkExecutor();
+        Deque<Future<History>> futures = new ArrayDeque<>(parallelism);
+        int submitted = 0;
+        try {
+            for (int i = 0; i < boundaryChangesetList.size(); i++) {
+                // Keep the window of outstanding chunks full.
+                while (submitted < boundaryChangesetList.size() && futures.size() < parallelism) {
+                    final String since = submitted == 0 ? sinceRevision : boundaryChangesetList.get(submitted - 1);
+                    final String till = boundaryChangesetList.get(submitted);
+                    futures.add(executor.submit(() -> {
+                        LOGGER.log(Level.FINEST, "retrieving history for revision range ({0}, {1})",
+                                new Object[]{since, till});
+                        return getHistory(directory, since, till);
+                    }));
+                    submitted++;
+                }
+
+                Statistics stat = new Statistics();
+                String tillRevision = boundaryChangesetList.get(i);
+                History history = getChunkHistory(futures.remove());
+                LOGGER.log(Level.FINEST, "storing history cache for revision range ({0}, {1})",
+                        new Object[]{i == 0 ? sinceRevision : boundaryChangesetList.get(i - 1), tillRevision});
+                finishCreateCache(cache, history, tillRevision);
+                stat.report(LOGGER, Level.FINE,
+                        String.format("finished chunk %d/%d of history cache for repository ''%s''",
+                        i + 1, boundaryChangesetList.size(), this.getDirectoryName()));
+            }
+        } finally {
+            for (Future<History> future : futures) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private static History getChunkHistory(Future<History> future) throws HistoryException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new HistoryException("interrupted while retrieving history", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof HistoryException) {
+                throw (HistoryException) cause;
+            }
+            throw new HistoryException(cause);
+        }
+    }
 }
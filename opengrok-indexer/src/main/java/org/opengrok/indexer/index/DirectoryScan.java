@@ -0,0 +1,264 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.opengrok.indexer.logger.LoggerFactory;
+
+/**
+ * Listing of a directory read ahead of the traversal done by
+ * {@link IndexDatabase#indexDown(File, String, IndexDownArgs, org.opengrok.indexer.util.Progress)}.
+ * <p>
+ * The task reads the entries of the directory along with their attributes, sorts them by name and decides
+ * which of them should be indexed. For each accepted subdirectory it creates another task which is started
+ * in the fork-join pool only while the number of directories scanned ahead of the traversal stays
+ * within the limit of {@link ReadAhead}, the rest is started later as the traversal approaches them
+ * (or scanned by the traversal itself). The traversal consumes the sorted listings in the same order
+ * as if it read the file system itself.
+ * </p>
+ * Symbolic links are not resolved here because their acceptance depends on the links seen before them
+ * in the traversal order.
+ */
+final class DirectoryScan extends RecursiveTask<List<DirectoryScan.Entry>> {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(DirectoryScan.class);
+
+    private static final Comparator<Entry> NAME_COMPARATOR = Comparator.comparing(e -> e.getFile().getName());
+
+    /**
+     * Default maximum number of directories scanned ahead of the traversal.
+     */
+    static final int DEFAULT_READ_AHEAD = 128;
+
+    /**
+     * State shared by the tasks of the whole tree.
+     */
+    static final class ReadAhead {
+        private final ForkJoinPool pool;
+        private final Semaphore permits;
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+
+        /**
+         * @param pool pool to run the tasks in
+         * @param maxDirectories maximum number of directories that are scanned (or were scanned)
+         * but not consumed by the traversal yet
+         */
+        ReadAhead(ForkJoinPool pool, int maxDirectories) {
+            this.pool = pool;
+            this.permits = new Semaphore(maxDirectories);
+        }
+
+        /**
+         * Stop scanning the remaining directories.
+         */
+        void cancel() {
+            cancelled.set(true);
+        }
+    }
+
+    /**
+     * Decides whether a file or directory that is not a symbolic link should be indexed.
+     * It is called from multiple threads at once.
+     */
+    @FunctionalInterface
+    interface Accepter {
+        boolean accept(File file, BasicFileAttributes attrs);
+    }
+
+    /**
+     * Single entry of the directory.
+     */
+    static final class Entry {
+        private final File file;
+        private final BasicFileAttributes attrs;
+        private boolean accepted;
+        private DirectoryScan subdirectory;
+
+        private Entry(File file, BasicFileAttributes attrs) {
+            this.file = file;
+            this.attrs = attrs;
+        }
+
+        File getFile() {
+            return file;
+        }
+
+        boolean isSymbolicLink() {
+            return attrs.isSymbolicLink();
+        }
+
+        boolean isDirectory() {
+            return attrs.isDirectory();
+        }
+
+        /**
+         * @return last modification time in milliseconds, the same as {@link File#lastModified()}
+         */
+        long lastModified() {
+            return attrs.lastModifiedTime().toMillis();
+        }
+
+        /**
+         * @return whether the entry should be indexed, always {@code false} for symbolic links
+         */
+        boolean isAccepted() {
+            return accepted;
+        }
+
+        /**
+         * @return scan of the accepted directory or {@code null}
+         */
+        DirectoryScan getSubdirectory() {
+            return subdirectory;
+        }
+    }
+
+    private final transient File dir;
+    private final transient Accepter accepter;
+    private final transient ReadAhead readAhead;
+    private final AtomicBoolean started = new AtomicBoolean();
+    /**
+     * Whether the task holds a permit of {@link #readAhead}. Written before the task is started.
+     */
+    private boolean permitted;
+
+    /**
+     * @param dir directory to scan
+     * @param accepter decides which entries should be indexed
+     * @param readAhead state shared by the tasks of the whole tree
+     */
+    DirectoryScan(File dir, Accepter accepter, ReadAhead readAhead) {
+        this.dir = dir;
+        this.accepter = accepter;
+        this.readAhead = readAhead;
+    }
+
+    /**
+     * Start the scan in the pool ahead of the traversal if the read-ahead limit allows.
+     * @return whether the scan has been started, now or before
+     */
+    private boolean start() {
+        if (started.get()) {
+            return true;
+        }
+        if (readAhead.cancelled.get() || !readAhead.permits.tryAcquire()) {
+            return false;
+        }
+        if (!started.compareAndSet(false, true)) {
+            readAhead.permits.release();
+            return true;
+        }
+        permitted = true;
+        readAhead.pool.execute(this);
+        return true;
+    }
+
+    /**
+     * Start the scans of the subdirectories of given entries in order, as long as the read-ahead limit allows.
+     * @param entries entries of a directory, possibly with {@code null} elements
+     * @param from index of the first entry to consider
+     * @return index of the first entry whose subdirectory could not be started or the number of entries
+     */
+    static int startSubdirectories(List<Entry> entries, int from) {
+        for (int i = from; i < entries.size(); i++) {
+            Entry entry = entries.get(i);
+            if (entry != null && entry.subdirectory != null && !entry.subdirectory.start()) {
+                return i;
+            }
+        }
+        return entries.size();
+    }
+
+    /**
+     * Get the listing for the traversal. If the scan has not been started yet, it is done in the calling thread.
+     * @return entries of the directory sorted by name or {@code null} if the directory could not be read
+     * or the scan was cancelled
+     */
+    List<Entry> getEntries() {
+        List<Entry> entries = started.compareAndSet(false, true) ? invoke() : join();
+        if (permitted) {
+            readAhead.permits.release();
+        }
+        return entries;
+    }
+
+    /**
+     * @return entries of the directory sorted by name or {@code null} if the directory could not be read
+     * or the scan was cancelled
+     */
+    @Override
+    protected List<Entry> compute() {
+        if (readAhead.cancelled.get()) {
+            return null;
+        }
+
+        List<Entry> entries = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir.toPath())) {
+            for (Path path : stream) {
+                try {
+                    entries.add(new Entry(path.toFile(),
+                            Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS)));
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Could not read {0}", path);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Failed to get file listing for: {0}", dir.getPath());
+            return null;
+        }
+        entries.sort(NAME_COMPARATOR);
+
+        for (Entry entry : entries) {
+            if (readAhead.cancelled.get()) {
+                return null;
+            }
+            if (entry.isSymbolicLink()) {
+                continue;
+            }
+            entry.accepted = accepter.accept(entry.file, entry.attrs);
+            if (entry.accepted && entry.isDirectory()) {
+                entry.subdirectory = new DirectoryScan(entry.file, accepter, readAhead);
+            }
+        }
+        startSubdirectories(entries, 0);
+        return entries;
+    }
+}
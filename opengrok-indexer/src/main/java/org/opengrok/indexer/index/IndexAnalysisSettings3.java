@@ -26,6 +26,7 @@ import org.opengrok.indexer.util.WhitelistObjectInputFilter;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.ObjectInputFilter;
 import java.io.ObjectInputStream;
@@ -80,6 +81,14 @@ public final class IndexAnalysisSettings3 implements Serializable {
      */
     private Map<String, IndexedSymlink> indexedSymlinks = new HashMap<>();
 
+    /**
+     * Nullable to allow easing this object into existing OpenGrok indexes
+     * without forcing a re-indexing. {@code null} means that the index was
+     * created without term vectors for the full text and references.
+     * @serial
+     */
+    private Boolean termVectors;
+
     /**
      * Gets the project name to be used to distinguish different instances of
      * {@link IndexAnalysisSettings3} that might be returned by a Lucene
@@ -160,6 +169,18 @@ public final class IndexAnalysisSettings3 implements Serializable {
         indexedSymlinks.putAll(values);
     }
 
+    /**
+     * Gets whether the full text and references were indexed with term vectors.
+     * @return a defined value or {@code null} if unknown
+     */
+    public Boolean getTermVectors() {
+        return termVectors;
+    }
+
+    public void setTermVectors(Boolean value) {
+        this.termVectors = value;
+    }
+
     /**
      * Creates a binary representation of this object.
      * @return a byte array representing this object
@@ -236,6 +257,17 @@ public final class IndexAnalysisSettings3 implements Serializable {
             IndexedSymlink indexed = new IndexedSymlink(absolute, canonical, isLocal);
             indexedSymlinks.put(canonical, indexed);
         }
+
+        /*
+         * Settings written before term vectors were introduced end here.
+         */
+        try {
+            hasValue = in.readBoolean();
+            boolean vBoolean = in.readBoolean();
+            termVectors = hasValue ? vBoolean : null;
+        } catch (EOFException e) {
+            termVectors = null;
+        }
     }
 
     @SuppressWarnings("Duplicates")
@@ -271,5 +303,8 @@ public final class IndexAnalysisSettings3 implements Serializable {
         if (collectionCount != 0) {
             throw new IllegalStateException("indexedSymlinks were modified");
         }
+
+        out.writeBoolean(termVectors != null); // hasValue
+        out.writeBoolean(termVectors != null && termVectors);
     }
 }
@@ -29,32 +29,44 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Queue;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.stream.Collectors;
 import java.util.zip.GZIPOutputStream;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.ws.rs.client.ClientBuilder;
 import jakarta.ws.rs.client.Entity;
 import jakarta.ws.rs.core.Response;
@@ -64,6 +76,7 @@ import org.apache.lucene.document.DateTools;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.FieldInfos;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
@@ -91,13 +104,16 @@ import org.apache.lucene.util.BytesRef;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.VisibleForTesting;
+import org.opengrok.indexer.Metrics;
 import org.opengrok.indexer.analysis.AbstractAnalyzer;
 import org.opengrok.indexer.analysis.AnalyzerFactory;
 import org.opengrok.indexer.analysis.AnalyzerGuru;
-import org.opengrok.indexer.analysis.Ctags;
+import org.opengrok.indexer.analysis.CtagsService;
 import org.opengrok.indexer.analysis.Definitions;
 import org.opengrok.indexer.analysis.NullableNumLinesLOC;
 import org.opengrok.indexer.analysis.NumLinesLOC;
+import org.opengrok.indexer.analysis.plain.PlainAnalyzer;
+import org.opengrok.indexer.configuration.AnnotationCachePolicy;
 import org.opengrok.indexer.configuration.PathAccepter;
 import org.opengrok.indexer.configuration.Project;
 import org.opengrok.indexer.configuration.RuntimeEnvironment;
@@ -112,10 +128,10 @@ import org.opengrok.indexer.logger.LoggerFactory;
 import org.opengrok.indexer.search.QueryBuilder;
 import org.opengrok.indexer.util.ForbiddenSymlinkException;
 import org.opengrok.indexer.util.IOUtils;
-import org.opengrok.indexer.util.ObjectPool;
 import org.opengrok.indexer.util.Progress;
 import org.opengrok.indexer.util.Statistics;
 import org.opengrok.indexer.util.TandemPath;
+import org.opengrok.indexer.web.FileAccessStatistics;
 import org.opengrok.indexer.web.Util;
 
 import static org.opengrok.indexer.index.IndexerUtil.getWebAppHeaders;
@@ -132,8 +148,6 @@ public class IndexDatabase {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(IndexDatabase.class);
 
-    private static final Comparator<File> FILENAME_COMPARATOR = Comparator.comparing(File::getName);
-
     private static final Set<String> CHECK_FIELDS;
 
     private static final Set<String> REVERT_COUNTS_FIELDS;
@@ -171,6 +185,7 @@ public class IndexDatabase {
     private boolean running;
     private boolean isCountingDeltas;
     private boolean isWithDirectoryCounts;
+    private boolean termVectors;
     private List<String> directories;
     private LockFactory lockFactory;
     private final BytesRef emptyBR = new BytesRef("");
@@ -642,6 +657,11 @@ public class IndexDatabase {
                 if (settings == null) {
                     settings = new IndexAnalysisSettings3();
                 }
+                termVectors = isTermVectorsInEffect(reader, settings.getTermVectors(), env.isTermVectorsEnabled());
+                if (termVectors != env.isTermVectorsEnabled()) {
+                    LOGGER.log(Level.WARNING, "{0} was created {1} term vectors, remove it and reindex " +
+                            "to change that", new Object[]{this, termVectors ? "with" : "without"});
+                }
                 Terms terms = null;
                 if (reader.numDocs() > 0) {
                     terms = MultiTerms.getTerms(reader, QueryBuilder.U);
@@ -694,6 +714,8 @@ public class IndexDatabase {
                     elapsed.report(LOGGER, String.format("Done indexing of directory '%s'", dir),
                             "indexer.db.directory.index");
 
+                    HistoryGuru.getInstance().flushHistoryCache();
+
                     /*
                      * As a signifier that #Lines/LOC are comprehensively
                      * stored so that later calculation is in deltas mode, we
@@ -1115,16 +1137,21 @@ public class IndexDatabase {
     }
 
     /**
-     * Add a file to the Lucene index (and generate a xref file).
+     * Analyze a file and generate a xref file for it. This is the first stage of the indexing pipeline,
+     * the resulting document is added to the Lucene index by {@link #writeDocument(IndexFileWork)}.
      *
-     * @param file The file to add
-     * @param path The path to the file (from source root)
-     * @param ctags a defined instance to use (only if its binary is not null)
+     * @param work the work item holding the file and its path (from source root); on success
+     *             the analyzer and the populated document are stored in it
+     * @param ctagsService service computing the definitions of the file
+     * @return whether the document was populated
      * @throws java.io.IOException if an error occurs
      * @throws InterruptedException if a timeout occurs
      */
-    private void addFile(File file, String path, Ctags ctags) throws IOException, InterruptedException {
+    private boolean analyzeFile(IndexFileWork work, CtagsService ctagsService)
+            throws IOException, InterruptedException {
 
+        final File file = work.file;
+        final String path = work.path;
         RuntimeEnvironment env = RuntimeEnvironment.getInstance();
         AbstractAnalyzer fa = getAnalyzerFor(file, path);
 
@@ -1132,15 +1159,17 @@ public class IndexDatabase {
             listener.fileAdd(path, fa.getClass().getSimpleName());
         }
 
-        ctags.setTabSize(project != null ? project.getTabSize() : 0);
-        if (env.getCtagsTimeout() != 0) {
-            ctags.setTimeout(env.getCtagsTimeout());
+        // Request the definitions first so that ctags can compute them while the document is being populated.
+        CompletableFuture<Definitions> definitionsFuture = null;
+        if (fa instanceof PlainAnalyzer) {
+            definitionsFuture = ctagsService.submit(file.getAbsolutePath(), project != null ? project.getTabSize() : 0);
         }
-        fa.setCtags(ctags);
+        fa.setDefinitionsFuture(definitionsFuture);
         fa.setCountsAggregator(countsAggregator);
         fa.setProject(Project.getProject(path));
         fa.setScopesEnabled(env.isScopesEnabled());
         fa.setFoldingEnabled(env.isFoldingEnabled());
+        fa.setTermVectorsEnabled(termVectors);
 
         Document doc = new Document();
         CountingWriter xrefOut = null;
@@ -1155,6 +1184,12 @@ public class IndexDatabase {
 
             analyzerGuru.populateDocument(doc, file, path, fa, xrefOut);
 
+            if (xrefOut != null) {
+                // Close the writer here (closing it again below is harmless) so that the final flush is measured.
+                xrefOut.close();
+                recordXrefWrite(transientXref.length(), xrefOut.getNanos());
+            }
+
             // Avoid producing empty xref files.
             if (xrefOut != null && xrefOut.getCount() > 0) {
                 PendingFileRenaming ren = new PendingFileRenaming(xrefAbs,
@@ -1175,15 +1210,34 @@ public class IndexDatabase {
                 LOGGER.log(Level.FINE, String.format("Exception from analyzer %s", fa.getClass().getName()), e);
             }
             cleanupResources(doc);
-            return;
+            return false;
         } finally {
-            fa.setCtags(null);
+            if (definitionsFuture != null) {
+                // No-op if the definitions were used, otherwise avoid needless ctags work.
+                definitionsFuture.cancel(false);
+            }
+            fa.setDefinitionsFuture(null);
             fa.setCountsAggregator(null);
             if (xrefOut != null) {
                 xrefOut.close();
             }
         }
 
+        work.analyzer = fa;
+        work.document = doc;
+        return true;
+    }
+
+    /**
+     * Add the document populated by {@link #analyzeFile(IndexFileWork, CtagsService)} to the Lucene index.
+     * This is the second stage of the indexing pipeline.
+     *
+     * @param work the work item with populated document
+     * @throws java.io.IOException if an error occurs
+     */
+    private void writeDocument(IndexFileWork work) throws IOException {
+        Document doc = work.document;
+        work.document = null;
         try {
             writer.addDocument(doc);
         } catch (Throwable t) {
@@ -1193,22 +1247,86 @@ public class IndexDatabase {
 
         setDirty();
 
-        String lastRev = doc.get(QueryBuilder.LASTREV);
-        if (lastRev != null) {
-            try {
-                // The last revision should be fresh. Using LatestRevisionUtil#getLatestRevision()
-                // would not work here, because it uses IndexDatabase#getDocument() and the index searcher used therein
-                // does not know about updated document yet, so stale revision would be returned.
-                // Instead, use the last revision (retrieved from the history in the populateDocument()
-                // call above) directly.
-                HistoryGuru.getInstance().createAnnotationCache(file, lastRev);
-            } catch (CacheException e) {
-                LOGGER.log(e.getLevel(), "failed to create annotation", e);
-            }
+        work.lastRev = doc.get(QueryBuilder.LASTREV);
+    }
+
+    /**
+     * Create annotation cache entry for the file. This is the last stage of the indexing pipeline.
+     * @param file the file
+     * @param lastRev the last revision of the file as retrieved from the history
+     */
+    private static void createAnnotationCache(File file, String lastRev) {
+        try {
+            // The last revision should be fresh. Using LatestRevisionUtil#getLatestRevision()
+            // would not work here, because it uses IndexDatabase#getDocument() and the index searcher used therein
+            // does not know about updated document yet, so stale revision would be returned.
+            // Instead, use the last revision (retrieved from the history in the populateDocument()
+            // call in analyzeFile()) directly.
+            HistoryGuru.getInstance().createAnnotationCache(file, lastRev);
+        } catch (CacheException e) {
+            LOGGER.log(e.getLevel(), "failed to create annotation", e);
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, String.format("failed to create annotation for '%s'", file), e);
         }
+    }
 
-        for (IndexChangedListener listener : listeners) {
-            listener.fileAdded(path, fa.getClass().getSimpleName());
+    /**
+     * Submit task of the indexing pipeline to the executor of its stage.
+     * @return future of the task, completed exceptionally if the executor rejected the task
+     */
+    private static <T> CompletableFuture<T> submitStage(Supplier<T> task, ExecutorService executor) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * @param path path of the file relative to source root
+     * @return whether annotation cache entry should be created for the file during indexing according to
+     * {@link RuntimeEnvironment#getAnnotationCachePolicy()}
+     */
+    private static boolean isAnnotationCacheWanted(String path) {
+        if (RuntimeEnvironment.getInstance().getAnnotationCachePolicy() != AnnotationCachePolicy.HOT) {
+            return true;
+        }
+
+        if (FileAccessStatistics.getInstance().isHot(path)) {
+            return true;
+        }
+
+        LOGGER.log(Level.FINEST, "not creating annotation cache for ''{0}'' as it is not accessed often enough",
+                path);
+        return false;
+    }
+
+    private static void recordStageTime(String stage, Instant start) {
+        MeterRegistry registry = Metrics.getRegistry();
+        if (registry != null) {
+            Timer.builder("indexer.pipeline.stage").
+                    description("time spent in given stage of the indexing pipeline").
+                    tag("stage", stage).
+                    publishPercentileHistogram().
+                    register(registry).
+                    record(Duration.between(start, Instant.now()));
+        }
+    }
+
+    private static void recordXrefWrite(long bytes, long nanos) {
+        MeterRegistry registry = Metrics.getRegistry();
+        if (registry != null) {
+            DistributionSummary.builder("indexer.xref.size").
+                    description("size of the xref files written").
+                    baseUnit("bytes").
+                    publishPercentileHistogram().
+                    register(registry).
+                    record(bytes);
+            Timer.builder("indexer.xref.write").
+                    description("time spent writing (and compressing) the xref of a file").
+                    publishPercentileHistogram().
+                    register(registry).
+                    record(nanos, TimeUnit.NANOSECONDS);
         }
     }
 
@@ -1295,7 +1413,41 @@ public class IndexDatabase {
             return true;
         }
 
+        return acceptFile(file);
+    }
+
+    /**
+     * Variant of {@link #accept(File, AcceptSymlinkRet)} for a file or directory that is not a symbolic link,
+     * with the attributes already read by {@link DirectoryScan}. The result does not depend on the symbolic links
+     * seen so far, so this can be called from multiple threads at once.
+     * @param file the file to check
+     * @param attrs attributes of {@code file}
+     * @return a value indicating if {@code file} should be included in index
+     */
+    private boolean acceptScanned(File file, BasicFileAttributes attrs) {
+        if (!pathAccepter.accept(file)) {
+            return false;
+        }
+
+        if (!file.canRead()) {
+            LOGGER.log(Level.WARNING, "Could not read {0}", file.getAbsolutePath());
+            return false;
+        }
+
+        if (attrs.isDirectory()) {
+            // always accept directories so that their files can be examined
+            return true;
+        }
+        if (!attrs.isRegularFile()) {
+            LOGGER.log(Level.WARNING, "Ignored special file {0}", file.getAbsolutePath());
+            return false;
+        }
+
+        return acceptFile(file);
+    }
 
+    private boolean acceptFile(File file) {
+        String absolutePath = file.getAbsolutePath();
         RuntimeEnvironment env = RuntimeEnvironment.getInstance();
         // Lookup history if indexing versioned files only.
         // Skip the lookup entirely (which is expensive) if unversioned files are allowed
@@ -1563,6 +1715,10 @@ public class IndexDatabase {
      * <p>Files at least are counted, and any deleted or updated files (based on
      * comparison to the Lucene index) are passed to
      * {@link #removeFile(boolean)}. New or updated files are noted for indexing.
+     * <p>The directories are listed ahead of the traversal by {@link DirectoryScan} tasks in the fork-join pool,
+     * at most {@link DirectoryScan#DEFAULT_READ_AHEAD} directories ahead. The traversal itself consumes the sorted
+     * listings serially so that the files are processed in the order of their UIDs and the symbolic links
+     * are handled in the same order as before.
      * @param dir the root indexDirectory to generate indexes for
      * @param parent path to parent directory
      * @param args arguments to control execution and for collecting a list of
@@ -1582,25 +1738,56 @@ public class IndexDatabase {
             return;
         }
 
-        File[] files = dir.listFiles();
-        if (files == null) {
-            LOGGER.log(Level.SEVERE, "Failed to get file listing for: {0}",
-                dir.getPath());
+        DirectoryScan.ReadAhead readAhead = new DirectoryScan.ReadAhead(
+                RuntimeEnvironment.getInstance().getIndexerParallelizer().getForkJoinPool(),
+                DirectoryScan.DEFAULT_READ_AHEAD);
+        try {
+            indexDown(dir, new DirectoryScan(dir, this::acceptScanned, readAhead), parent, args, progress);
+        } finally {
+            // Stop scanning the directories that will not be traversed because of interruption or error.
+            readAhead.cancel();
+        }
+    }
+
+    private void indexDown(File dir, DirectoryScan scan, String parent, IndexDownArgs args, Progress progress)
+            throws IOException {
+
+        if (isInterrupted()) {
+            return;
+        }
+
+        List<DirectoryScan.Entry> entries = scan.getEntries();
+        if (entries == null) {
             return;
         }
-        Arrays.sort(files, FILENAME_COMPARATOR);
 
-        for (File file : files) {
+        // The subdirectories which did not fit into the read-ahead window are started once it moves on.
+        int ahead = 0;
+        AcceptSymlinkRet ret = new AcceptSymlinkRet();
+        for (int i = 0; i < entries.size(); i++) {
+            if (ahead < entries.size()) {
+                ahead = DirectoryScan.startSubdirectories(entries, Math.max(ahead, i + 1));
+            }
+            // Drop the entry from the listing so that the scanned subtree can be garbage collected once traversed.
+            DirectoryScan.Entry entry = entries.set(i, null);
+            File file = entry.getFile();
             String path = parent + File.separator + file.getName();
-            if (!accept(dir, file, ret)) {
-                handleSymlink(path, ret);
-            } else {
-                if (file.isDirectory()) {
+            if (entry.isSymbolicLink()) {
+                if (!accept(dir, file, ret)) {
+                    handleSymlink(path, ret);
+                } else if (file.isDirectory()) {
                     indexDown(file, path, args, progress);
                 } else {
                     processFile(args, file, path);
                     progress.increment();
                 }
+            } else if (entry.isAccepted()) {
+                if (entry.isDirectory()) {
+                    indexDown(file, entry.getSubdirectory(), path, args, progress);
+                } else {
+                    processFile(args, file, path, entry.lastModified());
+                    progress.increment();
+                }
             }
         }
     }
@@ -1674,10 +1861,23 @@ public class IndexDatabase {
      */
     @VisibleForTesting
     void processFile(IndexDownArgs args, File file, String path) throws IOException {
+        processFile(args, file, path, file.lastModified());
+    }
+
+    /**
+     * Process a file on disk w.r.t. index.
+     * @param args {@link IndexDownArgs} instance
+     * @param file File object
+     * @param path path corresponding to the file parameter, relative to source root (with leading slash)
+     * @param lastModified last modification time of the file as returned by {@link File#lastModified()}
+     * @throws IOException on error
+     */
+    @VisibleForTesting
+    void processFile(IndexDownArgs args, File file, String path, long lastModified) throws IOException {
         if (uidIter != null) {
             path = Util.fixPathIfWindows(path);
             String uid = Util.path2uid(path,
-                DateTools.timeToString(file.lastModified(),
+                DateTools.timeToString(lastModified,
                 DateTools.Resolution.MILLISECOND)); // construct uid for doc
             BytesRef buid = new BytesRef(uid);
             // Traverse terms that have smaller UID than the current file,
@@ -1748,6 +1948,12 @@ public class IndexDatabase {
 
     /**
      * Executes the second, parallel stage of indexing.
+     * <p>
+     * The work is done in a pipeline: the files are analyzed (including ctags and xref generation)
+     * in the fork-join pool, the resulting documents are added to the index by the index writer executor
+     * and finally the annotation cache entries are created by the annotation executor.
+     * The stages are connected with bounded queues, see {@link IndexerParallelizer}.
+     * </p>
      * @param dir the parent directory (when appended to SOURCE_ROOT)
      * @param args contains a list of files to index, found during the earlier stage
      */
@@ -1762,75 +1968,45 @@ public class IndexDatabase {
         AtomicInteger currentCounter = new AtomicInteger();
         AtomicInteger alreadyClosedCounter = new AtomicInteger();
         IndexerParallelizer parallelizer = RuntimeEnvironment.getInstance().getIndexerParallelizer();
-        ObjectPool<Ctags> ctagsPool = parallelizer.getCtagsPool();
+        CtagsService ctagsService = parallelizer.getCtagsService();
+        ExecutorService writerExecutor = parallelizer.getIndexWriterExecutor();
+        ExecutorService annotationExecutor = parallelizer.getAnnotationExecutor();
+        Queue<CompletableFuture<Boolean>> writeFutures = new ConcurrentLinkedQueue<>();
+        Queue<CompletableFuture<Boolean>> annotationFutures = new ConcurrentLinkedQueue<>();
 
-        Map<Boolean, List<IndexFileWork>> bySuccess = null;
         try (Progress progress = new Progress(LOGGER, String.format("indexing '%s'", dir), worksCount)) {
-            bySuccess = parallelizer.getForkJoinPool().submit(() ->
-                args.works.parallelStream().collect(
-                Collectors.groupingByConcurrent((x) -> {
-                    int tries = 0;
-                    Ctags pctags = null;
-                    boolean ret;
-                    while (true) {
-                        try {
-                            if (alreadyClosedCounter.get() > 0) {
-                                ret = false;
-                            } else {
-                                pctags = ctagsPool.get();
-                                addFile(x.file, x.path, pctags);
-                                successCounter.incrementAndGet();
-                                ret = true;
-                            }
-                        } catch (AlreadyClosedException e) {
-                            alreadyClosedCounter.incrementAndGet();
-                            String errmsg = String.format("ERROR addFile(): '%s'", x.file);
-                            LOGGER.log(Level.SEVERE, errmsg, e);
-                            x.exception = e;
-                            ret = false;
-                        } catch (InterruptedException e) {
-                            // Allow one retry if interrupted
-                            if (++tries <= 1) {
-                                continue;
-                            }
-                            LOGGER.log(Level.WARNING, "No retry: ''{0}''", x.file);
-                            x.exception = e;
-                            ret = false;
-                        } catch (RuntimeException | IOException e) {
-                            String errmsg = String.format("ERROR addFile(): '%s'", x.file);
-                            LOGGER.log(Level.WARNING, errmsg, e);
-                            x.exception = e;
-                            ret = false;
-                        } finally {
-                            if (pctags != null) {
-                                pctags.reset();
-                                ctagsPool.release(pctags);
-                            }
+            try {
+                parallelizer.getForkJoinPool().submit(() ->
+                    args.works.parallelStream().forEach(x -> {
+                        if (analyzeStage(x, ctagsService, alreadyClosedCounter)) {
+                            writeFutures.add(submitStage(() ->
+                                    writeStage(x, alreadyClosedCounter, annotationExecutor, annotationFutures),
+                                    writerExecutor).whenComplete((ret, e) -> progress.increment()));
+                        } else {
+                            progress.increment();
                         }
-
-                        progress.increment();
-                        return ret;
+                    })).get();
+            } catch (InterruptedException | ExecutionException e) {
+                interrupted = true;
+                String exmsg = String.format("%d successes (%.1f%%) after aborting parallel-indexing",
+                    successCounter.intValue(), 100.0 * successCounter.intValue() / worksCount);
+                LOGGER.log(Level.SEVERE, exmsg, e);
+            } finally {
+                // Wait for the documents that made it through the analysis to be written.
+                for (CompletableFuture<Boolean> future : writeFutures) {
+                    if (Boolean.TRUE.equals(future.handle(IndexDatabase::getStageResult).join())) {
+                        successCounter.incrementAndGet();
                     }
-                }))).get();
-        } catch (InterruptedException | ExecutionException e) {
-            interrupted = true;
-            int successCount = successCounter.intValue();
-            double successPct = 100.0 * successCount / worksCount;
-            String exmsg = String.format("%d successes (%.1f%%) after aborting parallel-indexing",
-                successCount, successPct);
-            LOGGER.log(Level.SEVERE, exmsg, e);
+                }
+                for (CompletableFuture<Boolean> future : annotationFutures) {
+                    future.handle(IndexDatabase::getStageResult).join();
+                }
+            }
         }
 
         args.curCount = currentCounter.intValue();
 
-        // Start with failureCount=worksCount, and then subtract successes.
-        int failureCount = worksCount;
-        if (bySuccess != null) {
-            List<IndexFileWork> successes = bySuccess.getOrDefault(Boolean.TRUE, null);
-            if (successes != null) {
-                failureCount -= successes.size();
-            }
-        }
+        int failureCount = worksCount - successCounter.intValue();
         if (failureCount > 0) {
             double pctFailed = 100.0 * failureCount / worksCount;
             String exmsg = String.format("%d failures (%.1f%%) while parallel-indexing", failureCount, pctFailed);
@@ -1847,6 +2023,98 @@ public class IndexDatabase {
         }
     }
 
+    /**
+     * Used to wait for the tasks of the indexing pipeline without propagating their exceptions,
+     * so that the accounting of the parallel indexing is always done.
+     * @return result of the task or {@code false} if the task failed
+     */
+    private static Boolean getStageResult(Boolean result, Throwable e) {
+        if (e != null) {
+            LOGGER.log(Level.WARNING, "indexing pipeline task failed", e);
+            return false;
+        }
+        return result;
+    }
+
+    /**
+     * Runs the analysis stage of the indexing pipeline for a single file.
+     * @return whether the file was analyzed and its document should be written
+     */
+    private boolean analyzeStage(IndexFileWork x, CtagsService ctagsService, AtomicInteger alreadyClosedCounter) {
+        Instant start = Instant.now();
+        try {
+            if (alreadyClosedCounter.get() > 0) {
+                return false;
+            }
+            return analyzeFile(x, ctagsService);
+        } catch (InterruptedException e) {
+            // The ctags failures were already retried by the ctags service.
+            LOGGER.log(Level.WARNING, "No retry: ''{0}''", x.file);
+            x.exception = e;
+            return false;
+        } catch (RuntimeException | IOException e) {
+            String errmsg = String.format("ERROR addFile(): '%s'", x.file);
+            LOGGER.log(Level.WARNING, errmsg, e);
+            x.exception = e;
+            return false;
+        } finally {
+            recordStageTime("analysis", start);
+        }
+    }
+
+    /**
+     * Runs the index writing stage of the indexing pipeline for a single file and submits
+     * the annotation cache creation for it.
+     * @return whether the document was added to the index
+     */
+    private boolean writeStage(IndexFileWork x, AtomicInteger alreadyClosedCounter,
+                               ExecutorService annotationExecutor,
+                               Queue<CompletableFuture<Boolean>> annotationFutures) {
+        Instant start = Instant.now();
+        try {
+            if (alreadyClosedCounter.get() > 0) {
+                cleanupResources(x.document);
+                x.document = null;
+                return false;
+            }
+            writeDocument(x);
+        } catch (AlreadyClosedException e) {
+            alreadyClosedCounter.incrementAndGet();
+            String errmsg = String.format("ERROR addFile(): '%s'", x.file);
+            LOGGER.log(Level.SEVERE, errmsg, e);
+            x.exception = e;
+            return false;
+        } catch (RuntimeException | IOException e) {
+            String errmsg = String.format("ERROR addFile(): '%s'", x.file);
+            LOGGER.log(Level.WARNING, errmsg, e);
+            x.exception = e;
+            return false;
+        } finally {
+            recordStageTime("write", start);
+        }
+
+        final String lastRev = x.lastRev;
+        if (lastRev != null && isAnnotationCacheWanted(x.path)) {
+            annotationFutures.add(submitStage(() -> {
+                Instant annotationStart = Instant.now();
+                createAnnotationCache(x.file, lastRev);
+                recordStageTime("annotation", annotationStart);
+                return true;
+            }, annotationExecutor));
+        }
+
+        for (IndexChangedListener listener : listeners) {
+            try {
+                listener.fileAdded(x.path, x.analyzer.getClass().getSimpleName());
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, String.format("listener failed for added file '%s'", x.path), e);
+            }
+        }
+        x.analyzer = null;
+
+        return true;
+    }
+
     private boolean isInterrupted() {
         synchronized (lock) {
             return interrupted;
@@ -2052,10 +2320,12 @@ public class IndexDatabase {
     private static class CountingWriter extends Writer {
         private long count;
         private final Writer out;
+        private final TimedOutputStream stream;
 
-        CountingWriter(Writer out) {
+        CountingWriter(Writer out, TimedOutputStream stream) {
             super(out);
             this.out = out;
+            this.stream = stream;
         }
 
         @Override
@@ -2077,6 +2347,51 @@ public class IndexDatabase {
         public long getCount() {
             return count;
         }
+
+        /**
+         * @return time spent compressing and writing the data to the file, in nanoseconds
+         */
+        public long getNanos() {
+            return stream.getNanos();
+        }
+    }
+
+    /**
+     * Measures the time spent in the underlying stream. The data are expected to be written in chunks
+     * (e.g. by {@link OutputStreamWriter}) so that the measurement overhead is negligible.
+     */
+    private static class TimedOutputStream extends FilterOutputStream {
+        private long nanos;
+
+        TimedOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(@NotNull byte[] b, int off, int len) throws IOException {
+            long start = System.nanoTime();
+            out.write(b, off, len);
+            nanos += System.nanoTime() - start;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            long start = System.nanoTime();
+            out.flush();
+            nanos += System.nanoTime() - start;
+        }
+
+        @Override
+        public void close() throws IOException {
+            // Not calling super.close() as its flush() would be measured twice.
+            long start = System.nanoTime();
+            out.close();
+            nanos += System.nanoTime() - start;
+        }
+
+        long getNanos() {
+            return nanos;
+        }
     }
 
     private String getXrefPath(String path) {
@@ -2102,9 +2417,10 @@ public class IndexDatabase {
      * should be produced for files of this type.
      */
     private CountingWriter newXrefWriter(String path, File transientXref, boolean compressed) throws IOException {
-        return new CountingWriter(new BufferedWriter(new OutputStreamWriter(compressed ?
+        TimedOutputStream stream = new TimedOutputStream(compressed ?
                 new GZIPOutputStream(new FileOutputStream(transientXref)) :
-                new FileOutputStream(transientXref))));
+                new FileOutputStream(transientXref));
+        return new CountingWriter(new BufferedWriter(new OutputStreamWriter(stream)), stream);
     }
 
     LockFactory pickLockFactory(RuntimeEnvironment env) {
@@ -2132,7 +2448,8 @@ public class IndexDatabase {
             Statistics completerStat = new Statistics();
             final String logSuffix = this.project != null ? " for project " + this.project : "";
             int n = completer.complete(logSuffix);
-            completerStat.report(LOGGER, Level.FINE, String.format("completed %d object(s)%s", n, logSuffix));
+            completerStat.report(LOGGER, Level.FINE, String.format("completed %d object(s)%s", n, logSuffix),
+                    "indexer.pending.complete");
 
             // Just before commit(), reset the `hasPendingCommit' flag,
             // since after commit() is called, there is no need for
@@ -2269,11 +2586,31 @@ public class IndexDatabase {
         settings.setAnalyzerGuruVersion(AnalyzerGuru.getVersionNo());
         settings.setAnalyzersVersions(AnalyzerGuru.getAnalyzersVersionNos());
         settings.setIndexedSymlinks(indexedSymlinks);
+        settings.setTermVectors(termVectors);
 
         IndexAnalysisSettingsAccessor dao = new IndexAnalysisSettingsAccessor();
         dao.write(writer, settings);
     }
 
+    /**
+     * Lucene does not allow to index the same field with and without term vectors, so the mode recorded
+     * in the index analysis settings stays in effect until the index is created from scratch.
+     * @param reader reader of the index
+     * @param recorded mode recorded in the index analysis settings, {@code null} if the settings were written
+     * before the mode was introduced
+     * @param requested whether term vectors are requested by the configuration
+     * @return whether the full text and references should be indexed with term vectors
+     */
+    @VisibleForTesting
+    static boolean isTermVectorsInEffect(IndexReader reader, @Nullable Boolean recorded, boolean requested) {
+        FieldInfos fieldInfos = FieldInfos.getMergedFieldInfos(reader);
+        if (fieldInfos.fieldInfo(QueryBuilder.FULL) == null && fieldInfos.fieldInfo(QueryBuilder.REFS) == null) {
+            // No source documents yet.
+            return requested;
+        }
+        return recorded != null && recorded;
+    }
+
     private IndexAnalysisSettings3 readAnalysisSettings() throws IOException {
         IndexAnalysisSettingsAccessor dao = new IndexAnalysisSettingsAccessor();
         return dao.read(reader);
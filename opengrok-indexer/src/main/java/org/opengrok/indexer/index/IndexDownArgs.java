@@ -26,6 +26,9 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.apache.lucene.document.Document;
+import org.opengrok.indexer.analysis.AbstractAnalyzer;
+
 class IndexDownArgs {
     int curCount;
     final List<IndexFileWork> works = new ArrayList<>();
@@ -36,6 +39,13 @@ class IndexFileWork {
     final String path;
     Exception exception;
 
+    /*
+     * The following fields carry the state between the stages of the indexing pipeline.
+     */
+    AbstractAnalyzer analyzer;
+    Document document;
+    String lastRev;
+
     IndexFileWork(File file, String path) {
         this.file = file;
         this.path = path;
@@ -64,10 +64,12 @@ import org.opengrok.indexer.Metrics;
 import org.opengrok.indexer.analysis.AnalyzerGuru;
 import org.opengrok.indexer.analysis.AnalyzerGuruHelp;
 import org.opengrok.indexer.analysis.Ctags;
+import org.opengrok.indexer.configuration.AnnotationCachePolicy;
 import org.opengrok.indexer.configuration.CanonicalRootValidator;
 import org.opengrok.indexer.configuration.CommandTimeoutType;
 import org.opengrok.indexer.configuration.Configuration;
 import org.opengrok.indexer.configuration.ConfigurationHelp;
+import org.opengrok.indexer.configuration.HistoryCacheFormat;
 import org.opengrok.indexer.configuration.LuceneLockName;
 import org.opengrok.indexer.configuration.Project;
 import org.opengrok.indexer.configuration.RuntimeEnvironment;
@@ -125,6 +127,7 @@ public final class Indexer {
     private static boolean searchRepositories = false;
     private static boolean bareConfig = false;
     private static boolean awaitProfiler;
+    private static int progressPort;
 
     private static boolean help;
     private static String helpUsage;
@@ -148,6 +151,8 @@ public final class Indexer {
     private static final String[] ON_OFF = {ON, OFF};
     private static final String[] REMOTE_REPO_CHOICES = {ON, OFF, DIRBASED, UIONLY};
     private static final String[] LUCENE_LOCKS = {ON, OFF, "simple", "native"};
+    private static final String[] HISTORY_CACHE_FORMATS = {"smile", "columnar"};
+    private static final String[] ANNOTATION_CACHE_POLICIES = {"all", "hot"};
     private static final String OPENGROK_JAR = "opengrok.jar";
 
     public static Indexer getInstance() {
@@ -167,6 +172,7 @@ public final class Indexer {
         List<String> subFiles = RuntimeEnvironment.getInstance().getSubFiles();
         Set<String> subFilePaths = new HashSet<>();
         Set<String> subFileArgs = new HashSet<>();
+        IndexerStatusServer statusServer = null;
 
         try {
             argv = parseOptions(argv);
@@ -200,6 +206,10 @@ public final class Indexer {
             env = RuntimeEnvironment.getInstance();
             env.setIndexer(true);
 
+            if (progressPort > 0) {
+                statusServer = IndexerStatusServer.start(progressPort);
+            }
+
             // Complete the configuration of repository types.
             List<Class<? extends Repository>> repositoryClasses = RepositoryFactory.getRepositoryClasses();
             for (Class<? extends Repository> clazz : repositoryClasses) {
@@ -434,6 +444,9 @@ public final class Indexer {
              * avoid that path, yet use the IndexParallelizer. So, bounce it here for a good measure.
              */
             env.getIndexerParallelizer().bounce();
+            if (statusServer != null) {
+                statusServer.close();
+            }
             stats.report(LOGGER, "Indexer finished", "indexer.total");
         }
     }
@@ -535,6 +548,20 @@ public final class Indexer {
                             "Can be enabled per project.").
                     execute(v -> cfg.setAnnotationCacheEnabled((Boolean) v));
 
+            parser.on("--annotationCachePolicy", "=all|hot", ANNOTATION_CACHE_POLICIES,
+                    "Which files get their annotation cache entries created during indexing. ",
+                    "\"all\" creates the entries for all indexed files, \"hot\" only for the files",
+                    "accessed in the web application at least --annotationCacheHotThreshold times;",
+                    "the entries for the other files are created by the web application",
+                    "on first request. Default is all. Assumes --annotationCache.").execute(v ->
+                    cfg.setAnnotationCachePolicy(
+                            AnnotationCachePolicy.valueOf(v.toString().toUpperCase(Locale.ROOT))));
+
+            parser.on("--annotationCacheHotThreshold", "=number", Integer.class,
+                    "The number of accesses in the web application needed for a file to have ",
+                    "its annotation cache entry created during indexing with",
+                    "--annotationCachePolicy hot. Default is 10.").execute(v -> cfg.setAnnotationCacheHotThreshold((Integer) v));
+
             parser.on("--apiTimeout", "=number", Integer.class,
                     "Set timeout for asynchronous API requests.").execute(v -> cfg.setApiTimeout((Integer) v));
 
@@ -692,6 +719,36 @@ public final class Indexer {
                     "Assumes -H/--history.").execute(threadCount ->
                     cfg.setHistoryFileParallelism((Integer) threadCount));
 
+            parser.on("--historyChunkThreads", "=number", Integer.class,
+                    "The number of threads to use for history cache generation ",
+                    "of individual chunks of single repository with per partes history support.",
+                    "By default the number of threads will be set to the number of available CPUs.",
+                    "Assumes -H/--history.").execute(threadCount ->
+                    cfg.setHistoryChunkParallelism((Integer) threadCount));
+
+            parser.on("--indexWriterThreads", "=number", Integer.class,
+                    "The number of threads adding analyzed documents to the index. ",
+                    "By default the number of threads will be set to half the number",
+                    "of available CPUs.").
+                    execute(threadCount -> cfg.setIndexWriterParallelism((Integer) threadCount));
+
+            parser.on("--annotationThreads", "=number", Integer.class,
+                    "The number of threads to use for annotation cache generation during indexing. ",
+                    "By default the number of threads will be set to the number of available CPUs.",
+                    "Assumes --annotationCache.").execute(threadCount ->
+                    cfg.setAnnotationCacheParallelism((Integer) threadCount));
+
+            parser.on("--indexingQueueSize", "=number", Integer.class,
+                    "The maximum number of pending items queued between the indexing stages. ",
+                    "By default this is four times the number of indexing threads.").
+                    execute(size -> cfg.setIndexingQueueSize((Integer) size));
+
+            parser.on("--historyCacheFormat", "=smile|columnar", HISTORY_CACHE_FORMATS,
+                    "Format of the history cache. \"smile\" stores complete history per file, ",
+                    "\"columnar\" stores the changesets once per repository and lets incremental",
+                    "history updates append to the per-file cache files. Default is smile.").execute(v ->
+                    cfg.setHistoryCacheFormat(HistoryCacheFormat.valueOf(v.toString().toUpperCase(Locale.ROOT))));
+
             parser.on("-I", "--include", "=pattern",
                     "Only files matching this pattern will be examined. Pattern supports",
                     "wildcards (example: -I '*.java' -I '*.c'). Option may be repeated.").execute(
@@ -786,6 +843,11 @@ public final class Indexer {
                     "Print per-project percentage progress information.").execute(v ->
                     cfg.setPrintProgress(true));
 
+            parser.on("--progressPort", "=number", Integer.class,
+                    "Serve live progress and throughput of the indexer as JSON on",
+                    "http://localhost:<number>/progress. Default is off.").execute(v ->
+                    progressPort = (Integer) v);
+
             parser.on("-Q", "--quickScan",  "=on|off", ON_OFF, Boolean.class,
                     "Turn on/off quick context scan. By default, only the first 1024KB of a",
                     "file is scanned, and a link ('[..all..]') is inserted when the file is",
@@ -882,6 +944,13 @@ public final class Indexer {
                 "Default tab size to use (number of spaces per tab character).")
                     .execute(tabSize -> cfg.setTabSize((Integer) tabSize));
 
+            parser.on("--termVectors", "=on|off", ON_OFF, Boolean.class,
+                    "Index full text and references with term vectors so that the web application",
+                    "can highlight wildcard, prefix and regular expression matches in the search",
+                    "results without re-analyzing the source files, at the cost of a larger index.",
+                    "Takes effect only for newly created indexes. Default is off.").execute(v ->
+                    cfg.setTermVectorsEnabled((Boolean) v));
+
             parser.on("--token", "=string|@file_with_string",
                     "Authorization bearer API token to use when making API calls",
                     "to the web application").
@@ -23,20 +23,25 @@
  */
 package org.opengrok.indexer.index;
 
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.opengrok.indexer.Metrics;
 import org.opengrok.indexer.analysis.Ctags;
-import org.opengrok.indexer.analysis.CtagsValidator;
+import org.opengrok.indexer.analysis.CtagsService;
 import org.opengrok.indexer.configuration.OpenGrokThreadFactory;
 import org.opengrok.indexer.configuration.RuntimeEnvironment;
-import org.opengrok.indexer.util.BoundedBlockingObjectPool;
 import org.opengrok.indexer.util.LazilyInstantiate;
-import org.opengrok.indexer.util.ObjectFactory;
-import org.opengrok.indexer.util.ObjectPool;
 
 import static java.util.concurrent.ForkJoinPool.defaultForkJoinWorkerThreadFactory;
 
@@ -48,8 +53,14 @@ import static java.util.concurrent.ForkJoinPool.defaultForkJoinWorkerThreadFacto
  * work-stealing {@link ForkJoinPool} is used for parallelism within any
  * {@link IndexDatabase}. Threads in the former pool are customers of the
  * latter, and the bulk of work is done in the latter pool. The work-stealing
- * {@link ForkJoinPool} makes use of a corresponding fixed pool of {@link Ctags}
- * instances.
+ * {@link ForkJoinPool} submits requests for definitions to {@link CtagsService},
+ * which runs a corresponding fixed number of {@link Ctags} processes.
+ * <p>The documents produced by the {@link ForkJoinPool} are handed over via
+ * bounded queues to the index writer pool and then to the annotation cache pool,
+ * so that each stage of the indexing pipeline has its own parallelism.
+ * When the queue of a stage is full, the submitting thread runs the task itself,
+ * which throttles the preceding stage. Once the pool of a stage is shut down, its tasks are rejected
+ * with {@link RejectedExecutionException} rather than discarded.
  * <p>Additionally there are pools for executing for history, for renamings in
  * history, and for watching the {@link Ctags} instances for timing purposes.
  */
@@ -59,12 +70,15 @@ public class IndexerParallelizer implements AutoCloseable {
     private final int indexingParallelism;
 
     private LazilyInstantiate<ForkJoinPool> lzForkJoinPool;
-    private LazilyInstantiate<ObjectPool<Ctags>> lzCtagsPool;
+    private LazilyInstantiate<CtagsService> lzCtagsService;
     private LazilyInstantiate<ExecutorService> lzFixedExecutor;
     private LazilyInstantiate<ExecutorService> lzHistoryExecutor;
     private LazilyInstantiate<ExecutorService> lzHistoryFileExecutor;
+    private LazilyInstantiate<ExecutorService> lzHistoryChunkExecutor;
     private LazilyInstantiate<ExecutorService> lzCtagsWatcherExecutor;
     private LazilyInstantiate<ExecutorService> lzXrefWatcherExecutor;
+    private LazilyInstantiate<ThreadPoolExecutor> lzIndexWriterExecutor;
+    private LazilyInstantiate<ThreadPoolExecutor> lzAnnotationExecutor;
 
     /**
      * Initializes a new instance using settings from the specified environment
@@ -83,12 +97,31 @@ public class IndexerParallelizer implements AutoCloseable {
         this.indexingParallelism = env.getIndexingParallelism();
 
         createLazyForkJoinPool();
-        createLazyCtagsPool();
+        createLazyCtagsService();
         createLazyFixedExecutor();
         createLazyHistoryExecutor();
         createLazyHistoryFileExecutor();
+        createLazyHistoryChunkExecutor();
         createLazyCtagsWatcherExecutor();
         createLazyXrefWatcherExecutor();
+        createLazyIndexWriterExecutor();
+        createLazyAnnotationExecutor();
+
+        MeterRegistry registry = Metrics.getRegistry();
+        if (registry != null) {
+            Gauge.builder("indexer.pipeline.queue", this, p -> getQueueDepth(p.lzIndexWriterExecutor)).
+                    description("number of documents waiting to be added to the index").
+                    tag("stage", "write").
+                    register(registry);
+            Gauge.builder("indexer.pipeline.queue", this, p -> getQueueDepth(p.lzAnnotationExecutor)).
+                    description("number of files waiting for annotation cache creation").
+                    tag("stage", "annotation").
+                    register(registry);
+        }
+    }
+
+    private static int getQueueDepth(LazilyInstantiate<ThreadPoolExecutor> lzExecutor) {
+        return lzExecutor.isActive() ? lzExecutor.get().getQueue().size() : 0;
     }
 
     /**
@@ -106,10 +139,10 @@ public class IndexerParallelizer implements AutoCloseable {
     }
 
     /**
-     * @return the ctagsPool
+     * @return the service computing definitions using ctags
      */
-    public ObjectPool<Ctags> getCtagsPool() {
-        return lzCtagsPool.get();
+    public CtagsService getCtagsService() {
+        return lzCtagsService.get();
     }
 
     /**
@@ -126,6 +159,13 @@ public class IndexerParallelizer implements AutoCloseable {
         return lzHistoryFileExecutor.get();
     }
 
+    /**
+     * @return the ExecutorService used for history parallelism (chunk level within single repository)
+     */
+    public ExecutorService getHistoryChunkExecutor() {
+        return lzHistoryChunkExecutor.get();
+    }
+
     /**
      * @return the Executor used for ctags parallelism
      */
@@ -140,6 +180,20 @@ public class IndexerParallelizer implements AutoCloseable {
         return lzXrefWatcherExecutor.get();
     }
 
+    /**
+     * @return the ExecutorService used for adding analyzed documents to the index
+     */
+    public ExecutorService getIndexWriterExecutor() {
+        return lzIndexWriterExecutor.get();
+    }
+
+    /**
+     * @return the ExecutorService used for creating annotation cache entries during indexing
+     */
+    public ExecutorService getAnnotationExecutor() {
+        return lzAnnotationExecutor.get();
+    }
+
     /**
      * Calls {@link #bounce()}, which prepares for -- but does not start -- new
      * pools.
@@ -168,11 +222,14 @@ public class IndexerParallelizer implements AutoCloseable {
     public void bounce() {
         bounceForkJoinPool();
         bounceFixedExecutor();
-        bounceCtagsPool();
+        bounceCtagsService();
         bounceHistoryExecutor();
         bounceHistoryRenamedExecutor();
+        bounceHistoryChunkExecutor();
         bounceCtagsWatcherExecutor();
         bounceXrefWatcherExecutor();
+        bounceIndexWriterExecutor();
+        bounceAnnotationExecutor();
     }
 
     private void bounceForkJoinPool() {
@@ -191,11 +248,11 @@ public class IndexerParallelizer implements AutoCloseable {
         }
     }
 
-    private void bounceCtagsPool() {
-        if (lzCtagsPool.isActive()) {
-            ObjectPool<Ctags> formerCtagsPool = lzCtagsPool.get();
-            createLazyCtagsPool();
-            formerCtagsPool.shutdown();
+    private void bounceCtagsService() {
+        if (lzCtagsService.isActive()) {
+            CtagsService formerCtagsService = lzCtagsService.get();
+            createLazyCtagsService();
+            formerCtagsService.close();
         }
     }
 
@@ -215,6 +272,14 @@ public class IndexerParallelizer implements AutoCloseable {
         }
     }
 
+    private void bounceHistoryChunkExecutor() {
+        if (lzHistoryChunkExecutor.isActive()) {
+            ExecutorService formerHistoryChunkExecutor = lzHistoryChunkExecutor.get();
+            createLazyHistoryChunkExecutor();
+            formerHistoryChunkExecutor.shutdown();
+        }
+    }
+
     private void bounceCtagsWatcherExecutor() {
         if (lzCtagsWatcherExecutor.isActive()) {
             ExecutorService formerCtagsWatcherExecutor = lzCtagsWatcherExecutor.get();
@@ -231,6 +296,22 @@ public class IndexerParallelizer implements AutoCloseable {
         }
     }
 
+    private void bounceIndexWriterExecutor() {
+        if (lzIndexWriterExecutor.isActive()) {
+            ExecutorService formerIndexWriterExecutor = lzIndexWriterExecutor.get();
+            createLazyIndexWriterExecutor();
+            formerIndexWriterExecutor.shutdown();
+        }
+    }
+
+    private void bounceAnnotationExecutor() {
+        if (lzAnnotationExecutor.isActive()) {
+            ExecutorService formerAnnotationExecutor = lzAnnotationExecutor.get();
+            createLazyAnnotationExecutor();
+            formerAnnotationExecutor.shutdown();
+        }
+    }
+
     private void createLazyForkJoinPool() {
         lzForkJoinPool = LazilyInstantiate.using(() ->
                 new ForkJoinPool(indexingParallelism, forkJoinPool -> {
@@ -240,10 +321,17 @@ public class IndexerParallelizer implements AutoCloseable {
                 }, null, false));
     }
 
-    private void createLazyCtagsPool() {
-        lzCtagsPool = LazilyInstantiate.using(() ->
-                new BoundedBlockingObjectPool<>(indexingParallelism,
-                        new CtagsValidator(), new CtagsObjectFactory()));
+    private void createLazyCtagsService() {
+        lzCtagsService = LazilyInstantiate.using(() ->
+                new CtagsService(indexingParallelism, this::createCtags, CtagsService.DEFAULT_MAX_BATCH_SIZE));
+    }
+
+    private Ctags createCtags() {
+        Ctags ctags = new Ctags();
+        if (env.getCtagsTimeout() != 0) {
+            ctags.setTimeout(env.getCtagsTimeout());
+        }
+        return ctags;
     }
 
     private void createLazyCtagsWatcherExecutor() {
@@ -276,10 +364,41 @@ public class IndexerParallelizer implements AutoCloseable {
                         new OpenGrokThreadFactory("history-file")));
     }
 
-    private class CtagsObjectFactory implements ObjectFactory<Ctags> {
+    private void createLazyHistoryChunkExecutor() {
+        lzHistoryChunkExecutor = LazilyInstantiate.using(() ->
+                Executors.newFixedThreadPool(env.getHistoryChunkParallelism(),
+                        new OpenGrokThreadFactory("history-chunk")));
+    }
+
+    private void createLazyIndexWriterExecutor() {
+        lzIndexWriterExecutor = LazilyInstantiate.using(() ->
+                newBoundedExecutor(env.getIndexWriterParallelism(), "index-writer"));
+    }
+
+    private void createLazyAnnotationExecutor() {
+        lzAnnotationExecutor = LazilyInstantiate.using(() ->
+                newBoundedExecutor(env.getAnnotationCacheParallelism(), "annotation"));
+    }
 
-        public Ctags createNew() {
-            return new Ctags();
+    private ThreadPoolExecutor newBoundedExecutor(int parallelism, String threadNamePrefix) {
+        return new ThreadPoolExecutor(parallelism, parallelism, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(env.getIndexingQueueSize()),
+                new OpenGrokThreadFactory(threadNamePrefix),
+                new CallerRunsUnlessShutdownPolicy());
+    }
+
+    /**
+     * Like {@link ThreadPoolExecutor.CallerRunsPolicy}, however, the tasks submitted after the executor
+     * was shut down are rejected with exception instead of being silently discarded, so that
+     * the futures of such tasks do not stay incomplete forever.
+     */
+    static final class CallerRunsUnlessShutdownPolicy implements RejectedExecutionHandler {
+        @Override
+        public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("Task " + r + " rejected from shut down " + executor);
+            }
+            r.run();
         }
     }
 }
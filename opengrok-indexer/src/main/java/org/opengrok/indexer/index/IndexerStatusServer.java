@@ -0,0 +1,141 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.index;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.jetbrains.annotations.VisibleForTesting;
+import org.opengrok.indexer.logger.LoggerFactory;
+import org.opengrok.indexer.util.Progress;
+
+/**
+ * Small HTTP server listening on the loopback interface that exposes the live progress of the indexer.
+ * <p>
+ * {@code GET /progress} returns JSON object with the uptime of the indexer and the list of operations in progress
+ * (as tracked by {@link Progress}), each with the number of items completed so far, total number of items
+ * (if known), elapsed time and throughput in items per second.
+ * </p>
+ */
+public final class IndexerStatusServer implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IndexerStatusServer.class);
+
+    static final String PROGRESS_PATH = "/progress";
+
+    private final HttpServer server;
+    private final long startTime = System.nanoTime();
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private IndexerStatusServer(HttpServer server) {
+        this.server = server;
+    }
+
+    /**
+     * Start the server.
+     * @param port port to listen on, 0 means any free port
+     * @return server instance
+     * @throws IOException if the server cannot be started
+     */
+    public static IndexerStatusServer start(int port) throws IOException {
+        HttpServer httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        IndexerStatusServer statusServer = new IndexerStatusServer(httpServer);
+        httpServer.createContext(PROGRESS_PATH, statusServer::handleProgress);
+        httpServer.start();
+        LOGGER.log(Level.INFO, "indexer progress available on http://{0}:{1}{2}",
+                new Object[]{InetAddress.getLoopbackAddress().getHostAddress(),
+                        String.valueOf(statusServer.getPort()), PROGRESS_PATH});
+        return statusServer;
+    }
+
+    /**
+     * @return port the server is listening on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handleProgress(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(HttpURLConnection.HTTP_BAD_METHOD, -1);
+                return;
+            }
+
+            byte[] body = mapper.writeValueAsBytes(getProgress());
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(HttpURLConnection.HTTP_OK, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    @VisibleForTesting
+    Map<String, Object> getProgress() {
+        List<Map<String, Object>> operations = new ArrayList<>();
+        List<Progress> active = Progress.getActive();
+        active.sort(Comparator.comparing(Progress::getElapsed).reversed());
+        for (Progress progress : active) {
+            Map<String, Object> operation = new LinkedHashMap<>();
+            long current = progress.getCurrentCount();
+            Long total = progress.getTotalCount();
+            Duration elapsed = progress.getElapsed();
+            operation.put("name", progress.getSuffix());
+            operation.put("current", current);
+            operation.put("total", total);
+            if (total != null && total > 0) {
+                operation.put("percent", 100.0 * current / total);
+            }
+            operation.put("elapsedSeconds", elapsed.toMillis() / 1000.0);
+            operation.put("itemsPerSecond", elapsed.toMillis() > 0 ? current * 1000.0 / elapsed.toMillis() : 0.0);
+            operations.add(operation);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("uptimeSeconds", Duration.ofNanos(System.nanoTime() - startTime).toMillis() / 1000.0);
+        result.put("operations", operations);
+        return result;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+}
@@ -31,8 +31,8 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.Reader;
+import java.io.StringReader;
 import java.io.Writer;
-import java.nio.charset.StandardCharsets;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.util.ArrayList;
@@ -56,6 +56,7 @@ import org.opengrok.indexer.configuration.RuntimeEnvironment;
 import org.opengrok.indexer.history.HistoryException;
 import org.opengrok.indexer.logger.LoggerFactory;
 import org.opengrok.indexer.search.context.HistoryContext;
+import org.opengrok.indexer.search.context.SourceContentCache;
 import org.opengrok.indexer.util.IOUtils;
 import org.opengrok.indexer.util.TandemPath;
 import org.opengrok.indexer.web.Prefix;
@@ -179,7 +180,8 @@ public final class Results {
         boolean evenRow = true;
         out.write("<tbody class=\"search-result\">");
         for (Map.Entry<String, ArrayList<Integer>> entry :
-                createMap(sh.getSearcher(), sh.getHits(), start, end).entrySet()) {
+                createMap(sh.getSearcher(), sh.getHits(), start - sh.getHitsOffset(),
+                        end - sh.getHitsOffset()).entrySet()) {
             String parent = entry.getKey();
             out.write("<tr class=\"dir\"><td colspan=\"3\"><a href=\"");
             out.write(xrefPrefixE);
@@ -302,8 +304,9 @@ public final class Results {
             boolean isDefSearch = fargs.shelp.getBuilder().isDefSearch();
             // SRCROOT is read with UTF-8 as a default.
             File sourceFile = new File(fargs.shelp.getSourceRoot(), rpath);
-            try (FileInputStream fis = new FileInputStream(sourceFile);
-                 Reader r = IOUtils.createBOMStrippedReader(fis, StandardCharsets.UTF_8.name())) {
+            String uid = Util.path2uid(rpath, DateTools.timeToString(sourceFile.lastModified(),
+                    DateTools.Resolution.MILLISECOND));
+            try (Reader r = new StringReader(SourceContentCache.getInstance().get(sourceFile, uid))) {
                 fargs.shelp.getSourceContext().getContext(r, fargs.out,
                     fargs.xrefPrefix, fargs.morePrefix, rpath, tags, true,
                     isDefSearch, null, scopes);
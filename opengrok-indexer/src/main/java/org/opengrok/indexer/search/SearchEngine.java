@@ -18,7 +18,7 @@
  */
 
  /*
- * Copyright (c) 2005, 2022, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2005, 2023, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2018, Chris Fraire <cfraire@me.com>.
  */
 package org.opengrok.indexer.search;
@@ -31,8 +31,9 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
-import java.nio.charset.StandardCharsets;
+import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -40,9 +41,9 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.zip.GZIPInputStream;
 import org.apache.lucene.analysis.charfilter.HTMLStripCharFilter;
+import org.apache.lucene.document.DateTools;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.IndexableField;
-import org.apache.lucene.index.MultiReader;
 import org.apache.lucene.index.StoredFields;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.search.IndexSearcher;
@@ -50,10 +51,12 @@ import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.TopScoreDocCollector;
 import org.apache.lucene.util.Version;
+import org.jetbrains.annotations.Nullable;
 import org.opengrok.indexer.analysis.AbstractAnalyzer;
 import org.opengrok.indexer.analysis.CompatibleAnalyser;
 import org.opengrok.indexer.analysis.Definitions;
 import org.opengrok.indexer.analysis.Scopes;
+import org.opengrok.indexer.configuration.CachedMultiSearcher;
 import org.opengrok.indexer.configuration.Project;
 import org.opengrok.indexer.configuration.RuntimeEnvironment;
 import org.opengrok.indexer.configuration.SuperIndexSearcher;
@@ -63,9 +66,11 @@ import org.opengrok.indexer.logger.LoggerFactory;
 import org.opengrok.indexer.search.Summary.Fragment;
 import org.opengrok.indexer.search.context.Context;
 import org.opengrok.indexer.search.context.HistoryContext;
+import org.opengrok.indexer.search.context.SourceContentCache;
 import org.opengrok.indexer.util.Statistics;
 import org.opengrok.indexer.util.TandemPath;
 import org.opengrok.indexer.web.Prefix;
+import org.opengrok.indexer.web.Util;
 
 /**
  * This is an encapsulation of the details on how to search in the index database.
@@ -123,25 +128,25 @@ public class SearchEngine {
     private Context sourceContext;
     private HistoryContext historyContext;
     private Summarizer summarizer;
-    // internal structure to hold the results from lucene
-    private final List<Document> docs;
     private final char[] content = new char[1024 * 8];
     private String source;
     private String data;
     int hitsPerPage = RuntimeEnvironment.getInstance().getHitsPerPage();
     int cachePages = RuntimeEnvironment.getInstance().getCachePages();
     int totalHits = 0;
+    /**
+     * Hits collected so far, i.e. the first {@code hitsPerPage * cachePages} hits, possibly extended
+     * by {@link #results(int, int, List)}. The stored fields are loaded only for the hits being rendered.
+     */
     private ScoreDoc[] hits;
-    private TopScoreDocCollector collector;
     private IndexSearcher searcher;
-    boolean allCollected;
     private final ArrayList<SuperIndexSearcher> searcherList = new ArrayList<>();
+    private CachedMultiSearcher multiSearcher;
 
     /**
      * Creates a new instance of SearchEngine.
      */
     public SearchEngine() {
-        docs = new ArrayList<>();
     }
 
     /**
@@ -174,23 +179,21 @@ public class SearchEngine {
 
     /**
      * Search one index. This is used if no projects are set up.
-     * @param paging whether to use paging (if yes, first X pages will load  faster)
      * @throws IOException when index could not be read
      */
-    private void searchSingleDatabase(boolean paging) throws IOException {
+    private void searchSingleDatabase() throws IOException {
         SuperIndexSearcher superIndexSearcher = RuntimeEnvironment.getInstance().getSuperIndexSearcher("");
         searcherList.add(superIndexSearcher);
         searcher = superIndexSearcher;
-        searchIndex(superIndexSearcher, paging);
+        searchIndex(superIndexSearcher);
     }
 
     /**
      * Perform search on multiple indexes.
-     * @param paging whether to use paging (if yes, first X pages will load faster)
      * @param projectList list of projects to search
      * @throws IOException when some index could not be read
      */
-    private void searchMultiDatabase(List<Project> projectList, boolean paging) throws IOException {
+    private void searchMultiDatabase(List<Project> projectList) throws IOException {
         SortedSet<String> projectNames = new TreeSet<>();
         for (Project project : projectList) {
             projectNames.add(project.getName());
@@ -198,31 +201,29 @@ public class SearchEngine {
 
         // We use MultiReader even for single project. This should
         // not matter given that MultiReader is just a cheap wrapper
-        // around set of IndexReader objects.
-        MultiReader searchables = RuntimeEnvironment.getInstance().getMultiReader(projectNames, searcherList);
-        searcher = RuntimeEnvironment.getInstance().getIndexSearcherFactory().newSearcher(searchables);
-        searchIndex(searcher, paging);
+        // around set of IndexReader objects. The searcher is shared
+        // with other searches of the same set of projects.
+        multiSearcher = RuntimeEnvironment.getInstance().getMultiSearcher(projectNames);
+        if (multiSearcher == null) {
+            throw new IOException("cannot get searcher for projects " + projectNames);
+        }
+        searcher = multiSearcher;
+        searchIndex(searcher);
     }
 
-    private void searchIndex(IndexSearcher searcher, boolean paging) throws IOException {
-        collector = TopScoreDocCollector.create(hitsPerPage * cachePages, Short.MAX_VALUE);
+    /**
+     * Collect the first {@code hitsPerPage * cachePages} hits. More hits are collected on demand
+     * by {@link #results(int, int, List)} or {@link #results(ScoreDoc, int, List)}.
+     */
+    private void searchIndex(IndexSearcher searcher) throws IOException {
+        TopScoreDocCollector collector = TopScoreDocCollector.create(hitsPerPage * cachePages, Short.MAX_VALUE);
         Statistics stat = new Statistics();
         searcher.search(query, collector);
         totalHits = collector.getTotalHits();
         stat.report(LOGGER, Level.FINEST, "search via SearchEngine done",
                 "search.latency", new String[]{"category", "engine",
                         "outcome", totalHits > 0 ? "success" : "empty"});
-        if (!paging && totalHits > 0) {
-            collector = TopScoreDocCollector.create(totalHits, Short.MAX_VALUE);
-            searcher.search(query, collector);
-        }
         hits = collector.topDocs().scoreDocs;
-        StoredFields storedFields = searcher.storedFields();
-        for (ScoreDoc hit : hits) {
-            int docId = hit.doc;
-            Document d = storedFields.document(docId);
-            docs.add(d);
-        }
     }
 
     /**
@@ -274,7 +275,8 @@ public class SearchEngine {
      * so that IndexSearcher objects are properly freed.
      *
      * @param projects projects to search
-     * @return The number of hits
+     * @return total number of matching documents (the hits themselves are collected on demand by
+     * {@link #results(int, int, List)}); it is a lower bound if more than {@link Short#MAX_VALUE} documents match
      */
     public int search(List<Project> projects) {
         return search(projects, new File(RuntimeEnvironment.getInstance().getDataRootFile(), IndexDatabase.INDEX_DIR));
@@ -291,7 +293,8 @@ public class SearchEngine {
      * Call to search() must be eventually followed by call to destroy()
      * so that IndexSearcher objects are properly freed.
      *
-     * @return The number of hits
+     * @return total number of matching documents (the hits themselves are collected on demand by
+     * {@link #results(int, int, List)}); it is a lower bound if more than {@link Short#MAX_VALUE} documents match
      */
     public int search() {
         RuntimeEnvironment env = RuntimeEnvironment.getInstance();
@@ -309,12 +312,14 @@ public class SearchEngine {
      * Call to search() must be eventually followed by call to destroy()
      * so that IndexSearcher objects are properly freed.
      *
-     * @return The number of hits
+     * @return total number of matching documents (the hits themselves are collected on demand by
+     * {@link #results(int, int, List)}); it is a lower bound if more than {@link Short#MAX_VALUE} documents match
      */
     private int search(List<Project> projects, File root) {
         source = RuntimeEnvironment.getInstance().getSourceRootPath();
         data = RuntimeEnvironment.getInstance().getDataRootPath();
-        docs.clear();
+        hits = null;
+        totalHits = 0;
 
         QueryBuilder newBuilder = createQueryBuilder();
         try {
@@ -324,19 +329,18 @@ public class SearchEngine {
                     // search the index database
                     // NOTE: this assumes that source root does not contain any project,
                     //       just data files - so no authorization can be enforced.
-                    searchSingleDatabase(true);
+                    searchSingleDatabase();
                 } else {
                     // search selected projects
-                    //TODO support paging per project (in search.java)
                     //NOTE projects are already filtered if we accessed through web page @see search(HttpServletRequest)
-                    searchMultiDatabase(projects, false);
+                    searchMultiDatabase(projects);
                 }
             }
         } catch (Exception e) {
             LOGGER.log(Level.WARNING, SEARCH_EXCEPTION_MSG, e);
         }
 
-        if (!docs.isEmpty()) {
+        if (hits != null && hits.length > 0) {
             sourceContext = null;
             summarizer = null;
             try {
@@ -359,9 +363,8 @@ public class SearchEngine {
                 LOGGER.log(Level.WARNING, "An error occurred while getting history context", e);
             }
         }
-        int count = hits == null ? 0 : hits.length;
         queryBuilder = newBuilder;
-        return count;
+        return totalHits;
     }
 
     /**
@@ -390,9 +393,11 @@ public class SearchEngine {
 
     /**
      * Get results , if no search was started before, no results are returned.
-     * This method will requery if {@code end} is more than first query from search,
-     * hence performance hit applies, if you want results in later pages than
-     * number of cachePages. {@code end} has to be bigger than {@code start} !
+     * If {@code end} is more than the number of hits collected so far, the search continues
+     * after the last collected hit so that the hits are collected only once. Note that the hits
+     * before {@code start} still have to be collected, see {@link #results(ScoreDoc, int, List)}
+     * for paging whose cost does not depend on the position of the page.
+     * {@code end} has to be bigger than {@code start} !
      *
      * @param start start of the hit list
      * @param end end of the hit list
@@ -400,128 +405,159 @@ public class SearchEngine {
      * was started
      */
     public void results(int start, int end, List<Hit> ret) {
+        ret.clear();
 
         //return if no start search() was done
         if (hits == null || (end < start)) {
-            ret.clear();
             return;
         }
 
-        ret.clear();
-
-        // TODO check if below fits for if end=old hits.length, or it should include it
-        if (end > hits.length && !allCollected) {
-            //do the requery, we want more than 5 pages
-            collector = TopScoreDocCollector.create(totalHits, Short.MAX_VALUE);
+        if (end > hits.length && hits.length > 0 && hits.length < totalHits) {
             try {
-                searcher.search(query, collector);
-            } catch (Exception e) { // this exception should never be hit, since search() will hit this before
-                LOGGER.log(
-                        Level.WARNING, SEARCH_EXCEPTION_MSG, e);
+                ScoreDoc[] more = searcher.searchAfter(hits[hits.length - 1], query, end - hits.length).scoreDocs;
+                ScoreDoc[] all = Arrays.copyOf(hits, hits.length + more.length);
+                System.arraycopy(more, 0, all, hits.length, more.length);
+                hits = all;
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, SEARCH_EXCEPTION_MSG, e);
             }
-            hits = collector.topDocs().scoreDocs;
-            StoredFields storedFields = null;
+        }
+
+        addHits(hits, start, Math.min(end, hits.length), ret);
+    }
+
+    /**
+     * Get results of the page following given hit. The page is collected by continuing the search after
+     * the hit so the cost of getting the page does not depend on its position in the result list.
+     * The hit has to come from search of the same index version, i.e. the paging should be restarted
+     * once the index is updated.
+     *
+     * @param after last hit of the previous page as returned by previous call of this method
+     *              or {@code null} to get the first page
+     * @param count maximum number of documents on the page
+     * @param ret list of results on the page or empty if no search was started
+     * @return last hit of the page to be used for getting the next page
+     * or {@code null} if there are no more hits
+     */
+    @Nullable
+    public ScoreDoc results(@Nullable ScoreDoc after, int count, List<Hit> ret) {
+        ret.clear();
+
+        //return if no start search() was done
+        if (hits == null || count <= 0) {
+            return null;
+        }
+
+        ScoreDoc[] page;
+        if (after == null && (count <= hits.length || hits.length >= totalHits)) {
+            page = Arrays.copyOf(hits, Math.min(count, hits.length));
+        } else {
             try {
-                storedFields = searcher.storedFields();
-            } catch (Exception e) {
-                LOGGER.log(
-                        Level.WARNING, SEARCH_EXCEPTION_MSG, e);
-            }
-            if (storedFields != null) {
-                Document d;
-                for (ScoreDoc hit : hits) {
-                    try {
-                        d = storedFields.document(hit.doc);
-                        docs.add(d);
-                    } catch (Exception e) {
-                        LOGGER.log(
-                                Level.SEVERE, SEARCH_EXCEPTION_MSG, e);
-                    }
-                }
+                page = searcher.searchAfter(after, query, count).scoreDocs;
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, SEARCH_EXCEPTION_MSG, e);
+                return null;
             }
-            allCollected = true;
+        }
+
+        addHits(page, 0, page.length, ret);
+        return page.length < count ? null : page[page.length - 1];
+    }
+
+    private void addHits(ScoreDoc[] scoreDocs, int start, int end, List<Hit> ret) {
+        StoredFields storedFields;
+        try {
+            storedFields = searcher.storedFields();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, SEARCH_EXCEPTION_MSG, e);
+            return;
         }
 
         //TODO generation of ret(results) could be cashed and consumers of engine would just print them in whatever
-        // form they need, this way we could get rid of docs
-        // the only problem is that count of docs is usually smaller than number of results
+        // form they need
         for (int ii = start; ii < end; ++ii) {
-            boolean alt = (ii % 2 == 0);
-            boolean hasContext = false;
-            try {
-                Document doc = docs.get(ii);
-                String filename = doc.get(QueryBuilder.PATH);
-
-                AbstractAnalyzer.Genre genre = AbstractAnalyzer.Genre.get(doc.get(QueryBuilder.T));
-                Definitions tags = null;
-                IndexableField tagsField = doc.getField(QueryBuilder.TAGS);
-                if (tagsField != null) {
-                    tags = Definitions.deserialize(tagsField.binaryValue().bytes);
-                }
-                Scopes scopes = null;
-                IndexableField scopesField = doc.getField(QueryBuilder.SCOPES);
-                if (scopesField != null) {
-                    scopes = Scopes.deserialize(scopesField.binaryValue().bytes);
-                }
-                int nhits = docs.size();
-
-                if (sourceContext != null) {
-                    sourceContext.toggleAlt();
-                    try {
-                        if (AbstractAnalyzer.Genre.PLAIN == genre && (source != null)) {
-                            // SRCROOT is read with UTF-8 as a default.
-                            hasContext = sourceContext.getContext(
-                                new InputStreamReader(new FileInputStream(
-                                source + filename), StandardCharsets.UTF_8),
-                                null, null, null, filename, tags, nhits > 100,
-                                getDefinition() != null, ret, scopes);
-                        } else if (AbstractAnalyzer.Genre.XREFABLE == genre && data != null && summarizer != null) {
-                            int l;
-                            /**
-                             * For backward compatibility, read the
-                             * OpenGrok-produced document using the system
-                             * default charset.
-                             */
-                            try (Reader r = RuntimeEnvironment.getInstance().isCompressXref()
-                                    ? new HTMLStripCharFilter(new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(
-                                            TandemPath.join(data + Prefix.XREF_P + filename, ".gz"))))))
-                                    : new HTMLStripCharFilter(new BufferedReader(new FileReader(data + Prefix.XREF_P + filename)))) {
-                                l = r.read(content);
-                            }
-                            //TODO FIX below fragmenter according to either summarizer or context
-                            // (to get line numbers, might be hard, since xref writers will need to be fixed too,
-                            // they generate just one line of html code now :( )
-                            Summary sum = summarizer.getSummary(new String(content, 0, l));
-                            Fragment[] fragments = sum.getFragments();
-                            for (Fragment fragment : fragments) {
-                                String match = fragment.toString();
-                                if (match.length() > 0) {
-                                    if (!fragment.isEllipsis()) {
-                                        Hit hit = new Hit(filename, fragment.toString(), "", true, alt);
-                                        ret.add(hit);
-                                    }
-                                    hasContext = true;
+            addHit(storedFields, scoreDocs[ii].doc, ii, ret);
+        }
+    }
+
+    private void addHit(StoredFields storedFields, int docId, int ii, List<Hit> ret) {
+        boolean alt = (ii % 2 == 0);
+        boolean hasContext = false;
+        try {
+            Document doc = storedFields.document(docId);
+            String filename = doc.get(QueryBuilder.PATH);
+
+            AbstractAnalyzer.Genre genre = AbstractAnalyzer.Genre.get(doc.get(QueryBuilder.T));
+            Definitions tags = null;
+            IndexableField tagsField = doc.getField(QueryBuilder.TAGS);
+            if (tagsField != null) {
+                tags = Definitions.deserialize(tagsField.binaryValue().bytes);
+            }
+            Scopes scopes = null;
+            IndexableField scopesField = doc.getField(QueryBuilder.SCOPES);
+            if (scopesField != null) {
+                scopes = Scopes.deserialize(scopesField.binaryValue().bytes);
+            }
+            int nhits = totalHits;
+
+            if (sourceContext != null) {
+                sourceContext.toggleAlt();
+                try {
+                    if (AbstractAnalyzer.Genre.PLAIN == genre && (source != null)) {
+                        // SRCROOT is read with UTF-8 as a default.
+                        File sourceFile = new File(source + filename);
+                        String uid = Util.path2uid(filename, DateTools.timeToString(sourceFile.lastModified(),
+                                DateTools.Resolution.MILLISECOND));
+                        hasContext = sourceContext.getContext(
+                            new StringReader(SourceContentCache.getInstance().get(sourceFile, uid)),
+                            null, null, null, filename, tags, nhits > 100,
+                            getDefinition() != null, ret, scopes);
+                    } else if (AbstractAnalyzer.Genre.XREFABLE == genre && data != null && summarizer != null) {
+                        int l;
+                        /**
+                         * For backward compatibility, read the
+                         * OpenGrok-produced document using the system
+                         * default charset.
+                         */
+                        try (Reader r = RuntimeEnvironment.getInstance().isCompressXref()
+                                ? new HTMLStripCharFilter(new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(
+                                        TandemPath.join(data + Prefix.XREF_P + filename, ".gz"))))))
+                                : new HTMLStripCharFilter(new BufferedReader(new FileReader(data + Prefix.XREF_P + filename)))) {
+                            l = r.read(content);
+                        }
+                        //TODO FIX below fragmenter according to either summarizer or context
+                        // (to get line numbers, might be hard, since xref writers will need to be fixed too,
+                        // they generate just one line of html code now :( )
+                        Summary sum = summarizer.getSummary(new String(content, 0, l));
+                        Fragment[] fragments = sum.getFragments();
+                        for (Fragment fragment : fragments) {
+                            String match = fragment.toString();
+                            if (match.length() > 0) {
+                                if (!fragment.isEllipsis()) {
+                                    Hit hit = new Hit(filename, fragment.toString(), "", true, alt);
+                                    ret.add(hit);
                                 }
+                                hasContext = true;
                             }
-                        } else {
-                            LOGGER.log(Level.WARNING, "Unknown genre: {0} for {1}", new Object[]{genre, filename});
-                            hasContext |= sourceContext.getContext(null, null, null, null, filename, tags, false, false, ret, scopes);
                         }
-                    } catch (FileNotFoundException exp) {
-                        LOGGER.log(Level.WARNING, "Couldn''t read summary from {0} ({1})", new Object[]{filename, exp.getMessage()});
+                    } else {
+                        LOGGER.log(Level.WARNING, "Unknown genre: {0} for {1}", new Object[]{genre, filename});
                         hasContext |= sourceContext.getContext(null, null, null, null, filename, tags, false, false, ret, scopes);
                     }
+                } catch (FileNotFoundException exp) {
+                    LOGGER.log(Level.WARNING, "Couldn''t read summary from {0} ({1})", new Object[]{filename, exp.getMessage()});
+                    hasContext |= sourceContext.getContext(null, null, null, null, filename, tags, false, false, ret, scopes);
                 }
-                if (historyContext != null) {
-                    hasContext |= historyContext.getContext(source + filename, filename, ret);
-                }
-                if (!hasContext) {
-                    ret.add(new Hit(filename, "...", "", false, alt));
-                }
-            } catch (IOException | ClassNotFoundException | HistoryException e) {
-                LOGGER.log(
-                        Level.WARNING, SEARCH_EXCEPTION_MSG, e);
             }
+            if (historyContext != null) {
+                hasContext |= historyContext.getContext(source + filename, filename, ret);
+            }
+            if (!hasContext) {
+                ret.add(new Hit(filename, "...", "", false, alt));
+            }
+        } catch (IOException | ClassNotFoundException | HistoryException e) {
+            LOGGER.log(
+                    Level.WARNING, SEARCH_EXCEPTION_MSG, e);
         }
     }
 
@@ -536,6 +572,11 @@ public class SearchEngine {
                 LOGGER.log(Level.WARNING, "cannot release indexSearcher", ex);
             }
         }
+        searcherList.clear();
+        if (multiSearcher != null) {
+            multiSearcher.release();
+            multiSearcher = null;
+        }
     }
 
     /**
@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2005, 2022, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2005, 2023, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2011, Jens Elkner.
  * Portions Copyright (c) 2018, 2020, Chris Fraire <cfraire@me.com>.
  */
@@ -146,16 +146,8 @@ public class Context {
             return false;
         }
 
-        Definitions tags = null;
-        try {
-            IndexableField tagsField = doc.getField(QueryBuilder.TAGS);
-            if (tagsField != null) {
-                tags = Definitions.deserialize(tagsField.binaryValue().bytes);
-            }
-        } catch (ClassNotFoundException | IOException e) {
-            LOGGER.log(Level.WARNING, "ERROR Definitions.deserialize(...)", e);
-            return false;
-        }
+        // Only the tags on the lines of the context are decoded, by the formatter.
+        IndexableField tagsField = doc.getField(QueryBuilder.TAGS);
 
         Scopes scopes;
         try {
@@ -192,7 +184,9 @@ public class Context {
 
         ContextFormatter formatter = new ContextFormatter(args);
         formatter.setUrl(urlPrefixE + pathE);
-        formatter.setDefs(tags);
+        if (tagsField != null) {
+            formatter.setSerializedDefs(tagsField.binaryValue().bytes);
+        }
         formatter.setScopes(scopes);
         formatter.setMoreUrl(moreURL);
         formatter.setMoreLimit(linelimit);
@@ -19,6 +19,7 @@
 
 /*
  * Copyright (c) 2018, 2020, Chris Fraire <cfraire@me.com>.
+ * Portions Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
  */
 package org.opengrok.indexer.search.context;
 
@@ -61,6 +62,11 @@ public class ContextFormatter extends PassageFormatter {
     private final List<String> marks = new ArrayList<>();
     private String url;
     private Definitions defs;
+    private byte[] serializedDefs;
+    /**
+     * Definitions used for formatting the current lines.
+     */
+    private Definitions lineDefs;
     private Scopes scopes;
 
     /**
@@ -163,6 +169,16 @@ public class ContextFormatter extends PassageFormatter {
         this.defs = value;
     }
 
+    /**
+     * Sets the optional definitions in the serialized form as stored in the index. Only the tags on the lines
+     * being formatted are decoded, see {@link Definitions#deserialize(byte[], java.util.function.IntPredicate)}.
+     * Ignored if {@link #setDefs(Definitions)} was used.
+     * @param value serialized definitions
+     */
+    public void setSerializedDefs(byte[] value) {
+        this.serializedDefs = value;
+    }
+
     /**
      * Gets the optional scopes to use.
      * @return the scopes
@@ -207,6 +223,7 @@ public class ContextFormatter extends PassageFormatter {
         StringBuilder bld = new StringBuilder();
         SortedMap<Integer, LineHighlight> lines = cvt.convert(passages,
             splitter);
+        lineDefs = getLineDefs(lines);
         int numl = 0;
         boolean limited = false;
         for (LineHighlight lhi : lines.values()) {
@@ -336,11 +353,28 @@ public class ContextFormatter extends PassageFormatter {
         }
     }
 
+    /**
+     * @param lines the lines to be formatted keyed by 0-based line number
+     * @return the definitions with the tags of the lines or {@code null}
+     */
+    private Definitions getLineDefs(SortedMap<Integer, LineHighlight> lines) {
+        if (defs != null || serializedDefs == null) {
+            return defs;
+        }
+        try {
+            // N.b. use ctags 1-based indexing vs 0-based.
+            return Definitions.deserialize(serializedDefs, line -> lines.containsKey(line - 1));
+        } catch (IOException | ClassNotFoundException e) {
+            LOGGER.log(Level.WARNING, "ERROR Definitions.deserialize(...)", e);
+            return null;
+        }
+    }
+
     private void writeTag(int lineOffset, Appendable dest, List<String> marks)
             throws IOException {
-        if (defs != null) {
+        if (lineDefs != null) {
             // N.b. use ctags 1-based indexing vs 0-based.
-            List<Tag> linetags =  defs.getTags(lineOffset + 1);
+            List<Tag> linetags =  lineDefs.getTags(lineOffset + 1);
             if (linetags != null) {
                 Tag pickedTag = findTagForMark(linetags, marks);
                 if (pickedTag != null) {
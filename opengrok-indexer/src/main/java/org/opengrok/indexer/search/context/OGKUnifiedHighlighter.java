@@ -22,12 +22,8 @@
 
 package org.opengrok.indexer.search.context;
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.Reader;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -37,6 +33,11 @@ import java.util.logging.Logger;
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.document.DateTools;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.FieldInfos;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.ReaderUtil;
 import org.apache.lucene.index.StoredFields;
 import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.Query;
@@ -45,12 +46,9 @@ import org.apache.lucene.search.uhighlight.UHComponents;
 import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
 import org.apache.lucene.util.BytesRef;
 import org.opengrok.indexer.analysis.AnalyzerGuru;
-import org.opengrok.indexer.analysis.ExpandTabsReader;
-import org.opengrok.indexer.analysis.StreamSource;
 import org.opengrok.indexer.configuration.RuntimeEnvironment;
 import org.opengrok.indexer.logger.LoggerFactory;
 import org.opengrok.indexer.search.QueryBuilder;
-import org.opengrok.indexer.util.IOUtils;
 import org.opengrok.indexer.web.Util;
 
 /**
@@ -66,6 +64,8 @@ public class OGKUnifiedHighlighter extends UnifiedHighlighter {
 
     private String fileTypeName;
 
+    private FieldInfos docFieldInfos;
+
     /**
      * Initializes an instance with
      * {@link UnifiedHighlighter#UnifiedHighlighter(UnifiedHighlighter.Builder)}
@@ -130,10 +130,13 @@ public class OGKUnifiedHighlighter extends UnifiedHighlighter {
          */
         Document doc = searcher.storedFields().document(docId);
         fileTypeName = doc == null ? null : doc.get(QueryBuilder.TYPE);
+        List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+        docFieldInfos = leaves.get(ReaderUtil.subIndex(docId, leaves)).reader().getFieldInfos();
         try {
             return highlightFieldsUnionWork(fields, query, docId, lineLimit);
         } finally {
             fileTypeName = null;
+            docFieldInfos = null;
         }
     }
 
@@ -261,7 +264,9 @@ public class OGKUnifiedHighlighter extends UnifiedHighlighter {
              * since re-analysis would not at all accord with ctags Definitions.
              *     For FULL and REFS, highlightFieldsUnion() arranges that
              * getIndexAnalyzer() can return a TYPE-specific analyzer for use by
-             * getOffsetStrategy() -- if re-ANALYSIS is required.
+             * getOffsetStrategy() -- if re-ANALYSIS is required. Indexes created
+             * with RuntimeEnvironment.isTermVectorsEnabled() store term vectors
+             * for FULL and REFS as well, so re-ANALYSIS is avoided for them.
              */
             switch (field) {
                 case QueryBuilder.FULL:
@@ -280,6 +285,40 @@ public class OGKUnifiedHighlighter extends UnifiedHighlighter {
         return res;
     }
 
+    /**
+     * Determines the offset source like the {@code super} implementation but
+     * from the field information of the index segment of the document being
+     * highlighted. The {@code super} implementation merges the field
+     * information from all index segments, which fails if a field is stored
+     * with term vectors in some segments and without them in others. That
+     * happens when searching across projects indexed with and without
+     * {@link RuntimeEnvironment#isTermVectorsEnabled()}.
+     * @return the offset source supported by the segment of the document
+     */
+    @Override
+    protected OffsetSource getOffsetSource(String field) {
+        FieldInfos fieldInfos = docFieldInfos;
+        if (fieldInfos == null) {
+            try {
+                return super.getOffsetSource(field);
+            } catch (IllegalArgumentException e) {
+                // Inconsistent field information across the segments.
+                return OffsetSource.ANALYSIS;
+            }
+        }
+
+        FieldInfo fieldInfo = fieldInfos.fieldInfo(field);
+        if (fieldInfo != null) {
+            if (fieldInfo.getIndexOptions() == IndexOptions.DOCS_AND_FREQS_AND_POSITIONS_AND_OFFSETS) {
+                return fieldInfo.hasVectors() ? OffsetSource.POSTINGS_WITH_TERM_VECTORS : OffsetSource.POSTINGS;
+            }
+            if (fieldInfo.hasVectors()) {
+                return OffsetSource.TERM_VECTORS;
+            }
+        }
+        return OffsetSource.ANALYSIS;
+    }
+
     private String getRepoFileContent(String repoRelPath, String storedU)
             throws IOException {
 
@@ -309,24 +348,7 @@ public class OGKUnifiedHighlighter extends UnifiedHighlighter {
             return null;
         }
 
-        StringBuilder bld = new StringBuilder();
-        StreamSource src = StreamSource.fromFile(repoAbsFile);
-        try (InputStream in = src.getStream();
-            Reader rdr = getReader(in)) {
-            int c;
-            while ((c = rdr.read()) != -1) {
-                bld.append((char) c);
-            }
-        }
-
-        return bld.toString();
-    }
-
-    private Reader getReader(InputStream in) throws IOException {
-        Reader bsrdr = IOUtils.createBOMStrippedReader(in,
-            StandardCharsets.UTF_8.name());
-        BufferedReader bufrdr = new BufferedReader(bsrdr);
-        return ExpandTabsReader.wrap(bufrdr, tabSize);
+        return SourceContentCache.expandTabs(SourceContentCache.getInstance().get(repoAbsFile, uid), tabSize);
     }
 
     @Override
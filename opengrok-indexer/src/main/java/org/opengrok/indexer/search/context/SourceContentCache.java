@@ -0,0 +1,213 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.search.context;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.jetbrains.annotations.VisibleForTesting;
+import org.opengrok.indexer.util.IOUtils;
+
+/**
+ * Cache of decoded contents of source files used to produce the search results context,
+ * shared by {@link OGKUnifiedHighlighter} and the fallback context of the search results.
+ * <p>
+ * The files are read in bulk through memory mapping and decoded the same way as by
+ * {@link IOUtils#createBOMStrippedReader(java.io.InputStream, String)} with UTF-8 as the default charset.
+ * The contents are keyed by the UID of the file, i.e. the path along with the last modified time,
+ * so a modified file is never served from the cache. The least recently used contents are evicted
+ * once the total size of the cached contents exceeds the limit.
+ * </p>
+ */
+public final class SourceContentCache {
+
+    /**
+     * Default maximum number of characters of all cached contents.
+     */
+    static final long DEFAULT_MAX_CHARS = 16L * 1024 * 1024;
+
+    /**
+     * Files smaller than this are read into heap buffer directly, mapping them would not pay off.
+     */
+    private static final int MAP_THRESHOLD = 64 * 1024;
+
+    private static final SourceContentCache INSTANCE = new SourceContentCache(DEFAULT_MAX_CHARS);
+
+    private final long maxChars;
+    private long totalChars;
+    private final LinkedHashMap<String, String> contents = new LinkedHashMap<>(16, 0.75f, true);
+
+    @VisibleForTesting
+    SourceContentCache(long maxChars) {
+        this.maxChars = maxChars;
+    }
+
+    public static SourceContentCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get decoded content of a file.
+     * @param file source file
+     * @param uid UID of the file, see {@link org.opengrok.indexer.web.Util#path2uid(String, String)},
+     * that corresponds to the current last modified time of the file
+     * @return content of the file with the byte order mark stripped
+     * @throws IOException if the file cannot be read
+     */
+    public String get(File file, String uid) throws IOException {
+        synchronized (contents) {
+            String content = contents.get(uid);
+            if (content != null) {
+                return content;
+            }
+        }
+
+        String content = read(file);
+        // Contents that would take a large part of the cache are not worth evicting everything else.
+        if (content.length() <= maxChars / 4) {
+            synchronized (contents) {
+                String previous = contents.put(uid, content);
+                if (previous != null) {
+                    totalChars -= previous.length();
+                }
+                totalChars += content.length();
+                Iterator<Map.Entry<String, String>> iterator = contents.entrySet().iterator();
+                while (totalChars > maxChars && iterator.hasNext()) {
+                    totalChars -= iterator.next().getValue().length();
+                    iterator.remove();
+                }
+            }
+        }
+        return content;
+    }
+
+    /**
+     * Remove all cached contents.
+     */
+    public void clear() {
+        synchronized (contents) {
+            contents.clear();
+            totalChars = 0;
+        }
+    }
+
+    @VisibleForTesting
+    int size() {
+        synchronized (contents) {
+            return contents.size();
+        }
+    }
+
+    /**
+     * Read and decode the whole file.
+     * @param file source file
+     * @return content of the file with the byte order mark stripped
+     * @throws IOException if the file cannot be read
+     */
+    static String read(File file) throws IOException {
+        byte[] bytes;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE - 8) {
+                throw new IOException(String.format("file '%s' is too large: %d bytes", file, size));
+            }
+            bytes = new byte[(int) size];
+            if (size >= MAP_THRESHOLD) {
+                channel.map(FileChannel.MapMode.READ_ONLY, 0, size).get(bytes);
+            } else {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                // Read until the buffer is full or end of the file is reached.
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) {
+                        break;
+                    }
+                }
+                if (buffer.hasRemaining()) {
+                    bytes = Arrays.copyOf(bytes, buffer.position());
+                }
+            }
+        }
+        return decode(bytes);
+    }
+
+    /**
+     * Decode the bytes the same way as {@link IOUtils#createBOMStrippedReader(java.io.InputStream, String)}
+     * with UTF-8 as the default.
+     */
+    private static String decode(byte[] bytes) {
+        int offset = 0;
+        Charset charset = StandardCharsets.UTF_8;
+        if (bytes.length >= 2 && ((bytes[0] == (byte) 0xFE && bytes[1] == (byte) 0xFF) ||
+                (bytes[0] == (byte) 0xFF && bytes[1] == (byte) 0xFE))) {
+            // The decoder consumes the byte order mark.
+            charset = StandardCharsets.UTF_16;
+        } else if (bytes.length >= 3 && bytes[0] == (byte) 0xEF && bytes[1] == (byte) 0xBB &&
+                bytes[2] == (byte) 0xBF) {
+            offset = 3;
+        }
+        return new String(bytes, offset, bytes.length - offset, charset);
+    }
+
+    /**
+     * Expand tabs to spaces the same way as {@link org.opengrok.indexer.analysis.ExpandTabsReader}.
+     * @param content content of a file
+     * @param tabSize a value effective only if greater than zero
+     * @return content with tabs expanded
+     */
+    public static String expandTabs(String content, int tabSize) {
+        if (tabSize < 1 || content.indexOf('\t') < 0) {
+            return content;
+        }
+
+        StringBuilder builder = new StringBuilder(content.length() + content.length() / 8);
+        int pos = 0;
+        int start = 0;
+        for (int i = 0; i < content.length(); i++) {
+            char c = content.charAt(i);
+            if (c == '\t') {
+                builder.append(content, start, i);
+                int spaces = tabSize - (pos % tabSize);
+                for (int j = 0; j < spaces; j++) {
+                    builder.append(' ');
+                }
+                pos += spaces;
+                start = i + 1;
+            } else if (c == '\n' || c == '\r') {
+                pos = 0;
+            } else {
+                pos++;
+            }
+        }
+        builder.append(content, start, content.length());
+        return builder.toString();
+    }
+}
@@ -23,15 +23,20 @@
  */
 package org.opengrok.indexer.util;
 
+import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.VisibleForTesting;
 import org.opengrok.indexer.configuration.RuntimeEnvironment;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -42,13 +47,20 @@ import java.util.logging.Logger;
  * This class will then log based on the number of pings. The bigger the progress,
  * the higher log level ({@link Level} value) will be used. The default base level is {@code Level.INFO}.
  * Regardless of the base level, maximum 4 log levels will be used.
+ * <p>
+ * The instances that were not closed yet are available via {@link #getActive()} so that the progress
+ * can be also reported by other means.
+ * </p>
  */
 public class Progress implements AutoCloseable {
+    private static final Set<Progress> active = ConcurrentHashMap.newKeySet();
+
     private final Logger logger;
     private final Long totalCount;
     private final String suffix;
 
     private final AtomicLong currentCount = new AtomicLong();
+    private final long startTime = System.nanoTime();
     private final Map<Level, Integer> levelCountMap = new TreeMap<>(Comparator.comparingInt(Level::intValue).reversed());
     private Thread loggerThread = null;
     private volatile boolean run;
@@ -124,6 +136,44 @@ public class Progress implements AutoCloseable {
         if (!baseLogLevel.equals(Level.OFF) && RuntimeEnvironment.getInstance().isPrintProgress()) {
             spawnLogThread();
         }
+
+        active.add(this);
+    }
+
+    /**
+     * @return the instances that were not closed yet
+     */
+    public static List<Progress> getActive() {
+        return new ArrayList<>(active);
+    }
+
+    /**
+     * @return string identifying the operation
+     */
+    public String getSuffix() {
+        return suffix;
+    }
+
+    /**
+     * @return number of items completed so far
+     */
+    public long getCurrentCount() {
+        return currentCount.get();
+    }
+
+    /**
+     * @return total number of items or {@code null} if not known
+     */
+    @Nullable
+    public Long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * @return time elapsed since the instance was created
+     */
+    public Duration getElapsed() {
+        return Duration.ofNanos(System.nanoTime() - startTime);
     }
 
     private void spawnLogThread() {
@@ -225,6 +275,7 @@ public class Progress implements AutoCloseable {
 
     @Override
     public void close() {
+        active.remove(this);
         if (loggerThread == null) {
             return;
         }
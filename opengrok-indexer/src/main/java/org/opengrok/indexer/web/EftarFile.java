@@ -18,14 +18,17 @@
  */
 
 /*
- * Copyright (c) 2005, 2021, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2005, 2023, Oracle and/or its affiliates. All rights reserved.
  */
 package org.opengrok.indexer.web;
 
 import java.io.BufferedOutputStream;
 import java.io.DataOutputStream;
+import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
@@ -160,13 +163,23 @@ public class EftarFile {
     public void write(String outPath) throws IOException {
         offset = RECORD_LENGTH;
         traverse(root);
-        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(outPath)))) {
-            out.writeLong(0x5e33);
-            out.writeShort(RECORD_LENGTH);
-            out.writeShort(root.children.size());
-            out.writeShort(0);
-            offset = RECORD_LENGTH;
-            write(root, out);
+        // Write into temporary file and move it into place as the file can be memory mapped by EftarFileReader.
+        File outFile = new File(outPath).getAbsoluteFile();
+        File tmpFile = File.createTempFile("ogtmp", null, outFile.getParentFile());
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(tmpFile)))) {
+                out.writeLong(0x5e33);
+                out.writeShort(RECORD_LENGTH);
+                out.writeShort(root.children.size());
+                out.writeShort(0);
+                offset = RECORD_LENGTH;
+                write(root, out);
+            }
+            Files.move(tmpFile.toPath(), outFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmpFile.toPath());
         }
     }
 
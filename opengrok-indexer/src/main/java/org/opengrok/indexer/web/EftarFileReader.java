@@ -18,26 +18,41 @@
  */
 
 /*
- * Copyright (c) 2005, 2021, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2005, 2023, Oracle and/or its affiliates. All rights reserved.
  */
 package org.opengrok.indexer.web;
 
 import java.io.Closeable;
 import java.io.EOFException;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
 import java.util.StringTokenizer;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.opengrok.indexer.logger.LoggerFactory;
-import org.opengrok.indexer.util.IOUtils;
 
 /**
  * An Extremely Fast Tagged Attribute Read-only File Reader.
  * Created on October 12, 2005
+ * <p>
+ * The file is memory mapped and the instance can be used by multiple threads at once.
+ * When the file is replaced (see {@link EftarFile#write(String)}), the new file is mapped on the next lookup.
+ * The nodes visited when resolving paths and the descriptions of their children are cached with the mapping,
+ * so repeated lookups of frequently used paths do not have to search the file.
+ * </p>
  *
  * @author Chandan
  */
@@ -45,81 +60,168 @@ public class EftarFileReader implements Closeable {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(EftarFileReader.class);
 
-    private final RandomAccessFile f;
-    private boolean isOpen;
+    private static final Map<File, EftarFileReader> shared = new ConcurrentHashMap<>();
 
-    public class FNode {
+    private final File file;
+    private volatile Content content;
+    private volatile boolean isOpen;
 
-        private final long offset;
-        private long hash;
-        private int childOffset;
-        private int numChildren;
-        private int tagOffset;
-
-        public FNode() throws IOException {
-            offset = f.getFilePointer();
+    /**
+     * Mapped file along with the attributes used to detect that the file was replaced.
+     */
+    private static final class Content {
+        private final FNode root;
+        private final Object fileKey;
+        private final long lastModified;
+        private final long size;
 
+        private Content(ByteBuffer buffer, BasicFileAttributes attrs) {
+            FNode node = null;
             try {
-                hash = f.readLong();
-                childOffset = f.readUnsignedShort();
-                numChildren = f.readUnsignedShort();
-                tagOffset = f.readUnsignedShort();
+                node = FNode.read(buffer, 0);
             } catch (EOFException e) {
-                numChildren = 0;
-                tagOffset = 0;
+                LOGGER.log(Level.FINE, "eftar file is too short to contain the root node");
             }
+            this.root = node != null ? node : new FNode(buffer, 0, 0, 0, 0, 0);
+            this.fileKey = attrs.fileKey();
+            this.lastModified = attrs.lastModifiedTime().toMillis();
+            this.size = attrs.size();
         }
 
-        public FNode(long hash, long offset, int childOffset, int num, int tagOffset) {
-            this.hash = hash;
+        private boolean isCurrent(BasicFileAttributes attrs) {
+            return Objects.equals(fileKey, attrs.fileKey()) && lastModified == attrs.lastModifiedTime().toMillis() &&
+                    size == attrs.size();
+        }
+    }
+
+    public static final class FNode {
+
+        private final ByteBuffer buffer;
+        private final int offset;
+        private final long hash;
+        private final int childOffset;
+        private final int numChildren;
+        private final int tagOffset;
+
+        /**
+         * Children visited so far, keyed by hash of their names.
+         */
+        private volatile Map<Long, FNode> children;
+        /**
+         * Descriptions of all children, keyed by hash of their names.
+         */
+        private volatile Map<Long, String> childTags;
+        private volatile String tag;
+
+        private FNode(ByteBuffer buffer, int offset, long hash, int childOffset, int num, int tagOffset) {
+            this.buffer = buffer;
             this.offset = offset;
+            this.hash = hash;
             this.childOffset = childOffset;
             this.numChildren = num;
             this.tagOffset = tagOffset;
         }
 
+        private static FNode read(ByteBuffer buffer, int offset) throws EOFException {
+            if (offset < 0 || offset > buffer.limit() - EftarFile.RECORD_LENGTH) {
+                throw new EOFException(String.format("no eftar record at offset %d", offset));
+            }
+            return new FNode(buffer, offset, buffer.getLong(offset),
+                    Short.toUnsignedInt(buffer.getShort(offset + 8)),
+                    Short.toUnsignedInt(buffer.getShort(offset + 10)),
+                    Short.toUnsignedInt(buffer.getShort(offset + 12)));
+        }
+
+        private boolean hasChildren() {
+            return childOffset != 0 && numChildren != 0;
+        }
+
         public FNode get(long hash) throws IOException {
-            if (childOffset == 0 || numChildren == 0) {
+            if (!hasChildren()) {
                 return null;
             }
-            return binarySearch(offset + childOffset, numChildren, hash);
+
+            Map<Long, FNode> cache = children;
+            FNode child = cache != null ? cache.get(hash) : null;
+            if (child == null) {
+                child = binarySearch(hash);
+                if (child != null) {
+                    if (cache == null) {
+                        synchronized (this) {
+                            if (children == null) {
+                                children = new ConcurrentHashMap<>();
+                            }
+                            cache = children;
+                        }
+                    }
+                    cache.put(hash, child);
+                }
+            }
+            return child;
         }
 
-        private FNode binarySearch(long start, int len, long hash) throws IOException {
+        private FNode binarySearch(long hash) throws IOException {
+            int start = offset + childOffset;
             int b = 0;
-            int e = len;
+            int e = numChildren - 1;
             while (b <= e) {
-                int m = (b + e) / 2;
-                f.seek(start + (long) m * EftarFile.RECORD_LENGTH);
-                long mhash = f.readLong();
-                if (hash > mhash) {
+                int m = (b + e) >>> 1;
+                FNode node = read(buffer, start + m * EftarFile.RECORD_LENGTH);
+                if (hash > node.hash) {
                     b = m + 1;
-                } else if (hash < mhash) {
+                } else if (hash < node.hash) {
                     e = m - 1;
                 } else {
-                    return new FNode(mhash, f.getFilePointer() - 8L, f.readUnsignedShort(), f.readUnsignedShort(),
-                            f.readUnsignedShort());
+                    return node;
                 }
             }
             return null;
         }
 
+        /**
+         * @return descriptions of all children of this node keyed by hash of their names
+         * @throws IOException if the file is corrupted
+         */
+        private Map<Long, String> getChildTags() throws IOException {
+            Map<Long, String> result = childTags;
+            if (result == null) {
+                result = new HashMap<>();
+                if (hasChildren()) {
+                    int start = offset + childOffset;
+                    for (int i = 0; i < numChildren; i++) {
+                        FNode child = read(buffer, start + i * EftarFile.RECORD_LENGTH);
+                        String childTag = child.getTag();
+                        if (childTag != null) {
+                            result.put(child.hash, childTag);
+                        }
+                    }
+                }
+                childTags = result;
+            }
+            return result;
+        }
+
         public String getTag() throws IOException {
             if (tagOffset == 0) {
                 return null;
             }
-            f.seek(offset + tagOffset);
-            byte[] tagString;
-            if (childOffset == 0) {
-                tagString = new byte[numChildren];
-            } else {
-                tagString = new byte[childOffset - tagOffset];
-            }
-            int len = f.read(tagString);
-            if (len == -1) {
-                throw new EOFException();
+
+            String result = tag;
+            if (result == null) {
+                int start = offset + tagOffset;
+                if (start >= buffer.limit()) {
+                    throw new EOFException();
+                }
+                int length = childOffset == 0 ? numChildren : childOffset - tagOffset;
+                byte[] tagString = new byte[Math.max(Math.min(length, buffer.limit() - start), 0)];
+                // Absolute bulk get is not available in Java 11, use a private view instead.
+                ByteBuffer view = buffer.duplicate();
+                view.position(start);
+                view.get(tagString);
+                result = new String(tagString);
+                tag = result;
             }
-            return new String(tagString, 0, len);
+            return result;
         }
 
         @Override
@@ -140,19 +242,79 @@ public class EftarFileReader implements Closeable {
         }
     }
 
-    public EftarFileReader(String file) throws FileNotFoundException {
+    public EftarFileReader(String file) throws IOException {
         this(new File(file));
     }
 
-    public EftarFileReader(File file) throws FileNotFoundException {
-        f = new RandomAccessFile(file, "r");
+    public EftarFileReader(File file) throws IOException {
+        this.file = file;
+        content = map();
         isOpen = true;
     }
 
+    /**
+     * Get reader of given file shared by all its users. The shared reader should not be closed.
+     * @param file eftar file
+     * @return reader instance
+     * @throws IOException if the file cannot be read
+     */
+    public static EftarFileReader getShared(File file) throws IOException {
+        File key = file.getAbsoluteFile();
+        EftarFileReader reader = shared.get(key);
+        if (reader == null || reader.isClosed()) {
+            synchronized (shared) {
+                reader = shared.get(key);
+                if (reader == null || reader.isClosed()) {
+                    reader = new EftarFileReader(key);
+                    shared.put(key, reader);
+                }
+            }
+        }
+        return reader;
+    }
+
+    private Content map() throws IOException {
+        // Read the attributes first so that the file is mapped again if it is replaced in the meantime.
+        BasicFileAttributes attrs = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return new Content(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), attrs);
+        }
+    }
+
+    /**
+     * @return content of the file, mapped again if the file was replaced since the last call
+     * @throws IOException if the reader is closed or the file cannot be mapped
+     */
+    private Content getContent() throws IOException {
+        Content current = content;
+        if (!isOpen || current == null) {
+            throw new IOException(String.format("eftar reader for '%s' is closed", file));
+        }
+
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            // Keep using the last known content.
+            return current;
+        }
+
+        if (!current.isCurrent(attrs)) {
+            synchronized (this) {
+                current = content;
+                if (current != null && !current.isCurrent(attrs)) {
+                    LOGGER.log(Level.FINE, "eftar file ''{0}'' changed, mapping it again", file);
+                    current = map();
+                    content = current;
+                }
+            }
+        }
+        return current;
+    }
+
     public FNode getNode(String path) throws IOException {
         StringTokenizer toks = new StringTokenizer(path, "/");
-        f.seek(0);
-        FNode n = new FNode();
+        FNode n = getContent().root;
         if (File.separator.equals(path) || path.length() == 0) {
             return n;
         }
@@ -167,8 +329,8 @@ public class EftarFileReader implements Closeable {
     }
 
     public String getChildTag(FNode fn, String name) throws IOException {
-        if (fn != null && fn.childOffset != 0 && fn.numChildren != 0) {
-            FNode ch = fn.binarySearch(fn.offset + fn.childOffset, fn.numChildren, EftarFile.myHash(name));
+        if (fn != null && fn.hasChildren()) {
+            FNode ch = fn.get(EftarFile.myHash(name));
             if (ch != null) {
                 return ch.getTag();
             }
@@ -176,6 +338,29 @@ public class EftarFileReader implements Closeable {
         return null;
     }
 
+    /**
+     * Get descriptions of multiple children of a node at once, e.g. for all entries of directory listing.
+     * @param fn the parent node as returned from {@link #getNode(String)}
+     * @param names names of the children
+     * @return map of names of the children to their descriptions, children without description are omitted
+     * @throws IOException I/O
+     */
+    public Map<String, String> getChildTags(FNode fn, Collection<String> names) throws IOException {
+        if (fn == null || !fn.hasChildren()) {
+            return Collections.emptyMap();
+        }
+
+        Map<Long, String> tags = fn.getChildTags();
+        Map<String, String> result = new HashMap<>();
+        for (String name : names) {
+            String tag = tags.get(EftarFile.myHash(name));
+            if (tag != null) {
+                result.put(name, tag);
+            }
+        }
+        return result;
+    }
+
     /**
      * Get description for path.
      * @param path path relative to source root
@@ -184,38 +369,24 @@ public class EftarFileReader implements Closeable {
      */
     public String get(String path) throws IOException {
         StringTokenizer toks = new StringTokenizer(path, "/");
-        f.seek(0);
-        FNode n = new FNode();
-        FNode next;
-        long tagOffset = 0;
-        int tagLength = 0;
+        FNode n = getContent().root;
+        FNode tagged = null;
         while (toks.hasMoreTokens()) {
             String tok = toks.nextToken();
             if (tok == null || tok.length() == 0) {
                 continue;
             }
-            next = n.get(EftarFile.myHash(tok));
+            FNode next = n.get(EftarFile.myHash(tok));
             if (next == null) {
                 break;
             }
             if (next.tagOffset != 0) {
-                tagOffset = next.offset + next.tagOffset;
-                if (next.childOffset == 0) {
-                    tagLength = next.numChildren;
-                } else {
-                    tagLength = next.childOffset - next.tagOffset;
-                }
+                tagged = next;
             }
             n = next;
         }
-        if (tagOffset != 0) {
-            f.seek(tagOffset);
-            byte[] desc = new byte[tagLength];
-            int len = f.read(desc);
-            if (len == -1) {
-                throw new EOFException();
-            }
-            return new String(desc, 0, len);
+        if (tagged != null) {
+            return tagged.getTag();
         }
         return "";
     }
@@ -228,11 +399,15 @@ public class EftarFileReader implements Closeable {
         return !isOpen;
     }
 
+    /**
+     * Release the mapping of the file. The mapping itself is released by the garbage collector
+     * once no node of this reader is referenced.
+     */
     @Override
     public void close() {
         if (isOpen) {
-            IOUtils.close(f);
             isOpen = false;
+            content = null;
         }
     }
 }
@@ -0,0 +1,201 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.web;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jetbrains.annotations.VisibleForTesting;
+import org.opengrok.indexer.configuration.AnnotationCachePolicy;
+import org.opengrok.indexer.configuration.RuntimeEnvironment;
+import org.opengrok.indexer.logger.LoggerFactory;
+
+/**
+ * Number of accesses of individual files in the web application.
+ * <p>
+ * The counts are recorded by the web application and periodically stored to a file under the data root
+ * so that they survive restarts and can be used by the indexer to decide which files are worth creating
+ * annotation cache entries for, see {@link AnnotationCachePolicy#HOT}.
+ * The counts are recorded only when the {@link AnnotationCachePolicy#HOT} policy is in effect.
+ * </p>
+ * Each line of the file contains the count and the path of the file relative to source root, separated by tab.
+ */
+public final class FileAccessStatistics {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FileAccessStatistics.class);
+
+    static final String DIRECTORY = "stats";
+    static final String FILE_NAME = "file-access";
+
+    private static final long STORE_INTERVAL = TimeUnit.MINUTES.toMillis(5);
+
+    private static FileAccessStatistics instance;
+
+    private final File file;
+    private final Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+    private final AtomicLong lastStored = new AtomicLong(System.currentTimeMillis());
+    private final AtomicBoolean dirty = new AtomicBoolean();
+
+    @VisibleForTesting
+    FileAccessStatistics(File file) {
+        this.file = file;
+        load();
+    }
+
+    /**
+     * @return instance for the current data root
+     */
+    public static synchronized FileAccessStatistics getInstance() {
+        File file = new File(new File(RuntimeEnvironment.getInstance().getDataRootFile(), DIRECTORY), FILE_NAME);
+        if (instance == null || !instance.file.equals(file)) {
+            instance = new FileAccessStatistics(file);
+        }
+        return instance;
+    }
+
+    private static boolean isEnabled() {
+        return RuntimeEnvironment.getInstance().getAnnotationCachePolicy() == AnnotationCachePolicy.HOT;
+    }
+
+    /**
+     * Record single access of a file. Stores the counts if they were not stored for a while.
+     * @param path path of the file relative to source root
+     */
+    public void record(String path) {
+        if (!isEnabled() || path.indexOf('\n') >= 0) {
+            return;
+        }
+
+        counts.computeIfAbsent(path, k -> new LongAdder()).increment();
+        dirty.set(true);
+
+        long last = lastStored.get();
+        long now = System.currentTimeMillis();
+        if (now - last > STORE_INTERVAL && lastStored.compareAndSet(last, now)) {
+            storeQuietly();
+        }
+    }
+
+    /**
+     * @param path path of the file relative to source root
+     * @return number of recorded accesses of the file
+     */
+    public long getCount(String path) {
+        LongAdder count = counts.get(path);
+        return count != null ? count.sum() : 0;
+    }
+
+    /**
+     * @param path path of the file relative to source root
+     * @return whether the file was accessed at least
+     * {@link RuntimeEnvironment#getAnnotationCacheHotThreshold()} times
+     */
+    public boolean isHot(String path) {
+        return getCount(path) >= RuntimeEnvironment.getInstance().getAnnotationCacheHotThreshold();
+    }
+
+    private void load() {
+        if (!file.isFile()) {
+            return;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int idx = line.indexOf('\t');
+                if (idx <= 0) {
+                    continue;
+                }
+                try {
+                    LongAdder count = new LongAdder();
+                    count.add(Long.parseLong(line.substring(0, idx)));
+                    counts.put(line.substring(idx + 1), count);
+                } catch (NumberFormatException e) {
+                    LOGGER.log(Level.FINE, "ignoring malformed line in ''{0}'': {1}", new Object[]{file, line});
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, String.format("failed to read file access statistics from '%s'", file), e);
+        }
+        LOGGER.log(Level.FINE, "loaded access counts of {0} files from ''{1}''", new Object[]{counts.size(), file});
+    }
+
+    /**
+     * Store the counts to the file under the data root if there were any accesses since the last time.
+     * @throws IOException on error
+     */
+    public synchronized void store() throws IOException {
+        if (!dirty.getAndSet(false)) {
+            return;
+        }
+
+        File dir = file.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory()) {
+            throw new IOException(String.format("cannot create directory '%s'", dir));
+        }
+
+        // Write into temporary file and move it into place so that the indexer never reads partial file.
+        File tmpFile = File.createTempFile("ogtmp", null, dir);
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(tmpFile.toPath(), StandardCharsets.UTF_8)) {
+                for (Map.Entry<String, LongAdder> entry : counts.entrySet()) {
+                    writer.write(Long.toString(entry.getValue().sum()));
+                    writer.write('\t');
+                    writer.write(entry.getKey());
+                    writer.newLine();
+                }
+            }
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            dirty.set(true);
+            throw e;
+        } finally {
+            Files.deleteIfExists(tmpFile.toPath());
+        }
+    }
+
+    /**
+     * Wrapper of {@link #store()} that logs the errors.
+     */
+    public void storeQuietly() {
+        try {
+            store();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, String.format("failed to store file access statistics to '%s'", file), e);
+        }
+    }
+}
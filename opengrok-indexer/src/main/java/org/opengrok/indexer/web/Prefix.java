@@ -19,7 +19,7 @@
 
 /*
  * Copyright (c) 2011, Jens Elkner.
- * Copyright (c) 2011, 2019, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2011, 2023, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2020, Chris Fraire <cfraire@me.com>.
  */
 package org.opengrok.indexer.web;
@@ -63,6 +63,8 @@ public enum Prefix {
     DOWNLOAD_P("/download"),
     /** Raw file display (link prefix). */
     RAW_P("/raw"),
+    /** Cross reference of the latest revision of a file as HTML fragment, possibly gzip encoded. */
+    RAW_XREF_P("/rawxref"),
     /** Full-blown search from main page or top bar (link prefix). */
     SEARCH_P("/search"),
     /** Search from cross reference, can lead to direct match (which opens
@@ -46,6 +46,7 @@ import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.ReaderUtil;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Matches;
 import org.apache.lucene.search.MatchesIterator;
@@ -66,6 +67,7 @@ import org.opengrok.indexer.analysis.AbstractAnalyzer;
 import org.opengrok.indexer.analysis.AnalyzerGuru;
 import org.opengrok.indexer.analysis.CompatibleAnalyser;
 import org.opengrok.indexer.analysis.Definitions;
+import org.opengrok.indexer.configuration.CachedMultiSearcher;
 import org.opengrok.indexer.configuration.Project;
 import org.opengrok.indexer.configuration.RuntimeEnvironment;
 import org.opengrok.indexer.configuration.SuperIndexSearcher;
@@ -180,10 +182,24 @@ public class SearchHelper {
      * once the results are read.
      */
     private final ArrayList<SuperIndexSearcher> superIndexSearchers = new ArrayList<>();
+    /**
+     * If performing multi-project search, the shared searcher which has to be released
+     * once the results are read.
+     */
+    private CachedMultiSearcher multiSearcher;
     /**
      * List of docs which result from the executing the query.
      */
     private ScoreDoc[] hits;
+    /**
+     * Index of the first element of {@link #hits} in the complete list of hits.
+     */
+    private int hitsOffset;
+    /**
+     * If not {@code null}, {@link #executeQuery()} collects only the page of hits following this hit
+     * instead of all the hits up to {@link #start} + {@link #maxItems}.
+     */
+    private FieldDoc searchAfter;
     /**
      * Total number of hits.
      */
@@ -281,6 +297,41 @@ public class SearchHelper {
         return hits;
     }
 
+    /**
+     * @return index of the first element of {@link #getHits()} in the complete list of hits,
+     * i.e. {@link #getStart()} if the hits were collected after a hit set via {@link #setSearchAfter(FieldDoc)},
+     * 0 otherwise
+     */
+    public int getHitsOffset() {
+        return hitsOffset;
+    }
+
+    /**
+     * Populate the results from previous execution of the same query instead of calling {@link #executeQuery()}.
+     * @param hits the hits
+     * @param totalHits total number of hits
+     * @param hitsOffset index of the first element of {@code hits} in the complete list of hits
+     * @return this instance
+     */
+    public SearchHelper setCachedResults(ScoreDoc[] hits, long totalHits, int hitsOffset) {
+        this.hits = hits;
+        this.totalHits = totalHits;
+        this.hitsOffset = hitsOffset;
+        return this;
+    }
+
+    /**
+     * Make {@link #executeQuery()} collect only the page of hits following given hit so that the cost
+     * of getting the page does not depend on {@link #getStart()}.
+     * @param searchAfter the last hit of the previous page, i.e. the hit at {@link #getStart()} - 1,
+     *                    for the same query, sort order and searcher
+     * @return this instance
+     */
+    public SearchHelper setSearchAfter(FieldDoc searchAfter) {
+        this.searchAfter = searchAfter;
+        return this;
+    }
+
     public Query getQuery() {
         return query;
     }
@@ -396,9 +447,11 @@ public class SearchHelper {
 
                 // We use MultiReader even for single project. This should not matter
                 // given that MultiReader is just a cheap wrapper around set of IndexReader objects.
-                reader = RuntimeEnvironment.getInstance().getMultiReader(projects, superIndexSearchers);
-                if (reader != null) {
-                    searcher = RuntimeEnvironment.getInstance().getIndexSearcherFactory().newSearcher(reader);
+                // The searcher is shared with other searches of the same set of projects.
+                multiSearcher = RuntimeEnvironment.getInstance().getMultiSearcher(projects);
+                if (multiSearcher != null) {
+                    searcher = multiSearcher;
+                    reader = multiSearcher.getIndexReader();
                 } else {
                     errorMsg = "Failed to initialize search. Check the index";
                     if (!projects.isEmpty()) {
@@ -474,15 +527,24 @@ public class SearchHelper {
             return this;
         }
         try {
-            TopFieldDocs fdocs = searcher.search(query, start + maxItems, sort);
+            TopFieldDocs fdocs;
+            if (searchAfter != null) {
+                fdocs = searcher.searchAfter(searchAfter, query, maxItems, sort, false);
+                hitsOffset = start;
+            } else {
+                fdocs = searcher.search(query, start + maxItems, sort);
+                hitsOffset = 0;
+            }
             totalHits = fdocs.totalHits.value;
             hits = fdocs.scoreDocs;
 
             /*
              * Determine if possibly a single-result redirect to xref is
-             * eligible and applicable. If history query is active, then nope.
+             * eligible and applicable. If history query is active or this is
+             * not the first page, then nope.
              */
-            if (!noRedirect && hits != null && hits.length == 1 && builder.getHist() == null) {
+            if (!noRedirect && searchAfter == null && hits != null && hits.length == 1 &&
+                    builder.getHist() == null) {
                 int docID = hits[0].doc;
                 if (crossRefSearch && query instanceof TermQuery && builder.getDefs() != null) {
                     maybeRedirectToDefinition(docID, (TermQuery) query);
@@ -710,6 +772,11 @@ public class SearchHelper {
                 LOGGER.log(Level.WARNING, "cannot release SuperIndexSearcher", ex);
             }
         }
+        superIndexSearchers.clear();
+        if (multiSearcher != null) {
+            multiSearcher.release();
+            multiSearcher = null;
+        }
     }
 
     /**
@@ -63,6 +63,7 @@ import java.util.zip.GZIPInputStream;
 import jakarta.servlet.http.HttpServletRequest;
 import org.apache.commons.lang3.SystemUtils;
 import org.apache.lucene.queryparser.classic.QueryParser;
+import org.jetbrains.annotations.Nullable;
 import org.opengrok.indexer.configuration.RuntimeEnvironment;
 import org.opengrok.indexer.history.Annotation;
 import org.opengrok.indexer.history.HistoryGuru;
@@ -1245,15 +1246,31 @@ public final class Util {
         }
 
         Statistics stat = new Statistics();
-        XrefSourceTransformer xform = new XrefSourceTransformer(in);
-        xform.setWriter(out);
-        xform.setContextPath(contextPath);
-        while (xform.yylex()) {
-            // Nothing else to do.
+        if (isXrefTransformNeeded(contextPath)) {
+            XrefSourceTransformer xform = new XrefSourceTransformer(in);
+            xform.setWriter(out);
+            xform.setContextPath(contextPath);
+            while (xform.yylex()) {
+                // Nothing else to do.
+            }
+        } else {
+            // The links in the xref already point to the right place, avoid character by character processing.
+            dump(out, in);
         }
         stat.report(LOGGER, Level.FINEST, String.format("dumped xref '%s'", file), "xref.dump.latency");
     }
 
+    /**
+     * The links in the xref files are generated with the default {@code /source/} context path.
+     * @param contextPath context path of the web application
+     * @return whether the links in xref need to be rewritten for given context path,
+     * see {@link XrefSourceTransformer#setContextPath(String)}
+     */
+    public static boolean isXrefTransformNeeded(@Nullable String contextPath) {
+        return contextPath != null && !contextPath.equals("source") && !contextPath.equals("/source") &&
+                !contextPath.equals("/source/");
+    }
+
     /**
      * Print a row in an HTML table.
      *
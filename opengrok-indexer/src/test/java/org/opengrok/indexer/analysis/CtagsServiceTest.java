@@ -0,0 +1,144 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.analysis;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ObjIntConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CtagsServiceTest {
+
+    /**
+     * Fake {@link Ctags} that produces single tag named after the file and fails for the files
+     * with "bad" in the name.
+     */
+    private static class FakeCtags extends Ctags {
+        private final List<Integer> batchSizes;
+        private final boolean failOnBad;
+        private boolean closed;
+
+        FakeCtags(List<Integer> batchSizes, boolean failOnBad) {
+            this.batchSizes = batchSizes;
+            this.failOnBad = failOnBad;
+        }
+
+        @Override
+        public void doCtags(List<String> files, ObjIntConsumer<Definitions> consumer) throws InterruptedException {
+            batchSizes.add(files.size());
+            for (int i = 0; i < files.size(); i++) {
+                String file = files.get(i);
+                if (failOnBad && file.contains("bad")) {
+                    closed = true;
+                    throw new InterruptedException("ctags timeout");
+                }
+                Definitions definitions = new Definitions();
+                definitions.addTag(getTabSize(), file, "function", file, 0, file.length());
+                consumer.accept(definitions, i);
+            }
+        }
+
+        @Override
+        public boolean isClosed() {
+            return closed;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    @Test
+    void testDefinitions() throws Exception {
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Definitions>> futures = new ArrayList<>();
+        try (CtagsService service = new CtagsService(2, () -> new FakeCtags(batchSizes, false), 4)) {
+            for (int i = 0; i < 20; i++) {
+                futures.add(service.submit("file" + i, i % 2 == 0 ? 4 : 8));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                Definitions definitions = futures.get(i).get(10, TimeUnit.SECONDS);
+                assertTrue(definitions.hasSymbol("file" + i));
+                // The tab size is stored as the line number by the fake.
+                assertEquals(i % 2 == 0 ? 4 : 8, definitions.getTags().get(0).line);
+            }
+        }
+        assertEquals(20, batchSizes.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(batchSizes.stream().allMatch(size -> size <= 4));
+    }
+
+    @Test
+    void testRestartAfterFailure() throws Exception {
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger created = new AtomicInteger();
+        try (CtagsService service = new CtagsService(1, () -> {
+            // Only the first instance fails.
+            boolean fail = created.getAndIncrement() == 0;
+            return new FakeCtags(batchSizes, fail);
+        }, 16)) {
+            CompletableFuture<Definitions> bad = service.submit("bad", 0);
+            assertTrue(bad.get(10, TimeUnit.SECONDS).hasSymbol("bad"));
+            assertTrue(service.submit("good", 0).get(10, TimeUnit.SECONDS).hasSymbol("good"));
+        }
+        assertEquals(2, created.get());
+    }
+
+    @Test
+    void testNoMoreRetries() throws Exception {
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger created = new AtomicInteger();
+        try (CtagsService service = new CtagsService(1, () -> {
+            created.incrementAndGet();
+            return new FakeCtags(batchSizes, true);
+        }, 16)) {
+            CompletableFuture<Definitions> bad = service.submit("bad", 0);
+            ExecutionException exception = assertThrows(ExecutionException.class,
+                    () -> bad.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(InterruptedException.class, exception.getCause());
+            assertTrue(service.submit("good", 0).get(10, TimeUnit.SECONDS).hasSymbol("good"));
+        }
+        assertEquals(3, created.get());
+    }
+
+    @Test
+    void testClosed() {
+        CtagsService service = new CtagsService(1, () -> new FakeCtags(new ArrayList<>(), false), 16);
+        service.close();
+        CompletableFuture<Definitions> future = service.submit("file", 0);
+        ExecutionException exception = assertThrows(ExecutionException.class, future::get);
+        assertInstanceOf(IOException.class, exception.getCause());
+    }
+}
@@ -18,18 +18,24 @@
  */
 
 /*
- * Copyright (c) 2010, 2021, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2010, 2023, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2018, Chris Fraire <cfraire@me.com>.
  */
 package org.opengrok.indexer.analysis;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.List;
 import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
@@ -145,4 +151,92 @@ public class DefinitionsTest {
         assertEquals(instance.getSymbols().size(), instance2.getSymbols().size());
     }
 
+    private static Definitions getDefinitions() {
+        Definitions instance = new Definitions();
+        instance.addTag(10, "foo", "function", "int foo(void) {", "ns", "(void)", 4, 7);
+        instance.addTag(3, "bar", "variable", "int bar, baz;", 4, 7);
+        instance.addTag(3, "baz", "variable", "int bar, baz;", 9, 12);
+        instance.addTag(20, "foo", "function", "int foo(int x) {", null, null, -1, -1);
+        return instance;
+    }
+
+    private static void assertTagEquals(Definitions.Tag expected, Definitions.Tag actual) {
+        assertEquals(expected.line, actual.line);
+        assertEquals(expected.symbol, actual.symbol);
+        assertEquals(expected.type, actual.type);
+        assertEquals(expected.text, actual.text);
+        assertEquals(expected.namespace, actual.namespace);
+        assertEquals(expected.signature, actual.signature);
+        assertEquals(expected.lineStart, actual.lineStart);
+        assertEquals(expected.lineEnd, actual.lineEnd);
+    }
+
+    @Test
+    void testSerializeRoundTrip() throws Exception {
+        Definitions instance = getDefinitions();
+        Definitions instance2 = Definitions.deserialize(instance.serialize());
+        List<Definitions.Tag> tags = instance.getTags();
+        List<Definitions.Tag> tags2 = instance2.getTags();
+        assertEquals(tags.size(), tags2.size());
+        for (int i = 0; i < tags.size(); i++) {
+            assertTagEquals(tags.get(i), tags2.get(i));
+        }
+        assertEquals(instance.getSymbols(), instance2.getSymbols());
+        assertEquals(2, instance2.occurrences("foo"));
+        assertTrue(instance2.hasDefinitionAt("baz", 3, new String[1]));
+    }
+
+    @Test
+    void testDeserializeSelectedLines() throws Exception {
+        Definitions instance = getDefinitions();
+        Definitions instance2 = Definitions.deserialize(instance.serialize(), line -> line == 3);
+        assertEquals(2, instance2.getTags().size());
+        assertEquals(Set.of("bar", "baz"), instance2.getSymbols());
+        assertEquals(2, instance2.getTags(3).size());
+        assertNull(instance2.getTags(10));
+    }
+
+    @Test
+    void testDeserializeJavaSerialized() throws Exception {
+        Definitions instance = getDefinitions();
+        byte[] serial;
+        try (ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+             ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(instance);
+            oos.flush();
+            serial = bytes.toByteArray();
+        }
+
+        Definitions instance2 = Definitions.deserialize(serial);
+        assertEquals(instance.getTags().size(), instance2.getTags().size());
+        assertEquals(instance.getSymbols(), instance2.getSymbols());
+
+        Definitions instance3 = Definitions.deserialize(serial, line -> line == 10);
+        assertEquals(1, instance3.getTags().size());
+        assertTagEquals(instance.getTags().get(0), instance3.getTags().get(0));
+    }
+
+    @Test
+    void testSerializedSize() throws Exception {
+        Definitions instance = new Definitions();
+        for (int i = 1; i <= 1000; i++) {
+            instance.addTag(i, "symbol" + (i % 10), "function", "text of line " + i, 0, 6);
+        }
+        byte[] serial;
+        try (ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+             ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+            oos.writeObject(instance);
+            oos.flush();
+            serial = bytes.toByteArray();
+        }
+        assertTrue(instance.serialize().length < serial.length / 2);
+    }
+
+    @Test
+    void testDeserializeCorrupted() throws Exception {
+        byte[] serial = getDefinitions().serialize();
+        byte[] truncated = new byte[serial.length / 2];
+        System.arraycopy(serial, 0, truncated, 0, truncated.length);
+        assertThrows(IOException.class, () -> Definitions.deserialize(truncated));
+    }
 }
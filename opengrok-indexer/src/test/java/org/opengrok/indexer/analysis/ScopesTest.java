@@ -18,16 +18,19 @@
  */
 
 /*
- * Copyright (c) 2015, 2021, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2015, 2023, Oracle and/or its affiliates. All rights reserved.
  */
 package org.opengrok.indexer.analysis;
 
 import org.junit.jupiter.api.Test;
 import org.opengrok.indexer.analysis.Scopes.Scope;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.ObjectOutputStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 /**
  *
@@ -75,4 +78,39 @@ public class ScopesTest {
         assertEquals(1, deserialized.size());
     }
 
+    @Test
+    void testSerializeRoundTrip() throws IOException, ClassNotFoundException {
+        Scopes scopes = new Scopes();
+        scopes.addScope(new Scope(10, 20, "scope1", "ns", "(int)"));
+        scopes.addScope(new Scope(30, 30, "scope2", null, null));
+        Scopes deserialized = Scopes.deserialize(scopes.serialize());
+        assertEquals(2, deserialized.size());
+        Scope scope = deserialized.getScope(15);
+        assertEquals(10, scope.getLineFrom());
+        assertEquals(20, scope.getLineTo());
+        assertEquals("scope1", scope.getName());
+        assertEquals("ns", scope.getNamespace());
+        assertEquals("(int)", scope.getSignature());
+        scope = deserialized.getScope(30);
+        assertEquals("scope2", scope.getName());
+        assertNull(scope.getNamespace());
+        assertNull(scope.getSignature());
+        assertEquals(Scopes.GLOBAL_SCOPE, deserialized.getScope(25));
+    }
+
+    @Test
+    void testDeserializeJavaSerialized() throws IOException, ClassNotFoundException {
+        Scopes scopes = new Scopes();
+        scopes.addScope(new Scope(1, 100, "name", "namespace", "signature"));
+        byte[] bytes;
+        try (ByteArrayOutputStream out = new ByteArrayOutputStream();
+             ObjectOutputStream oos = new ObjectOutputStream(out)) {
+            oos.writeObject(scopes);
+            oos.flush();
+            bytes = out.toByteArray();
+        }
+        Scopes deserialized = Scopes.deserialize(bytes);
+        assertEquals(1, deserialized.size());
+        assertEquals("name", deserialized.getScope(50).getName());
+    }
 }
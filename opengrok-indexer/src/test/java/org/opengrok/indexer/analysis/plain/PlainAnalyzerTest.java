@@ -18,17 +18,19 @@
  */
 
 /*
- * Copyright (c) 2021, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2021, 2023, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2021, Chris Fraire <cfraire@me.com>.
  */
 package org.opengrok.indexer.analysis.plain;
 
 import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexableField;
 import org.junit.jupiter.api.Test;
 import org.opengrok.indexer.analysis.StreamSource;
 import org.opengrok.indexer.analysis.WriteXrefArgs;
 import org.opengrok.indexer.analysis.Xrefer;
 import org.opengrok.indexer.configuration.RuntimeEnvironment;
+import org.opengrok.indexer.search.QueryBuilder;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -37,6 +39,8 @@ import java.io.InputStream;
 import java.io.OutputStreamWriter;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -68,6 +72,27 @@ class PlainAnalyzerTest {
         env.setXrefTimeout(timeoutOriginal);
     }
 
+    @Test
+    void testTermVectors() throws Exception {
+        PlainAnalyzer analyzer = new PlainAnalyzer(PlainAnalyzerFactory.DEFAULT_INSTANCE);
+        Document doc = new Document();
+        analyzer.analyze(doc, getStreamSource("int main".getBytes()), null);
+        for (String name : new String[] {QueryBuilder.FULL, QueryBuilder.REFS}) {
+            IndexableField field = doc.getField(name);
+            assertNotNull(field);
+            assertFalse(field.fieldType().storeTermVectors());
+        }
+
+        analyzer.setTermVectorsEnabled(true);
+        doc = new Document();
+        analyzer.analyze(doc, getStreamSource("int main".getBytes()), null);
+        for (String name : new String[] {QueryBuilder.FULL, QueryBuilder.REFS}) {
+            IndexableField field = doc.getField(name);
+            assertNotNull(field);
+            assertTrue(field.fieldType().storeTermVectors());
+        }
+    }
+
     private static class TestablePlainAnalyzer extends PlainAnalyzer {
         boolean writeXrefCalled;
 
@@ -0,0 +1,102 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.authorization;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuthorizationCacheTest {
+
+    private static final int MAX_SIZE = 100;
+
+    @Test
+    void testGetPut() {
+        AuthorizationCache cache = new AuthorizationCache();
+        assertNull(cache.get(new AuthorizationCache.Key("alice", "project", "foo", 1), 0));
+        cache.put(new AuthorizationCache.Key("alice", "project", "foo", 1), true, 10, 0, MAX_SIZE);
+        cache.put(new AuthorizationCache.Key("alice", "project", "bar", 1), false, 10, 0, MAX_SIZE);
+        assertTrue(cache.get(new AuthorizationCache.Key("alice", "project", "foo", 1), 5));
+        assertFalse(cache.get(new AuthorizationCache.Key("alice", "project", "bar", 1), 5));
+        assertNull(cache.get(new AuthorizationCache.Key("bob", "project", "foo", 1), 5));
+        assertNull(cache.get(new AuthorizationCache.Key("alice", "group", "foo", 1), 5));
+    }
+
+    @Test
+    void testExpiry() {
+        AuthorizationCache cache = new AuthorizationCache();
+        cache.put(new AuthorizationCache.Key("alice", "project", "foo", 1), true, 10, 100, MAX_SIZE);
+        assertTrue(cache.get(new AuthorizationCache.Key("alice", "project", "foo", 1), 109));
+        assertNull(cache.get(new AuthorizationCache.Key("alice", "project", "foo", 1), 110));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testPluginVersion() {
+        AuthorizationCache cache = new AuthorizationCache();
+        cache.put(new AuthorizationCache.Key("alice", "project", "foo", 1), true, 10, 0, MAX_SIZE);
+        assertNull(cache.get(new AuthorizationCache.Key("alice", "project", "foo", 2), 0));
+        assertTrue(cache.get(new AuthorizationCache.Key("alice", "project", "foo", 1), 0));
+    }
+
+    @Test
+    void testDisabled() {
+        AuthorizationCache cache = new AuthorizationCache();
+        cache.put(new AuthorizationCache.Key("alice", "project", "foo", 1), true, 0, 0, MAX_SIZE);
+        cache.put(new AuthorizationCache.Key("alice", "project", "bar", 1), true, 10, 0, 0);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testEviction() {
+        AuthorizationCache cache = new AuthorizationCache();
+        for (int i = 0; i < 3 * MAX_SIZE; i++) {
+            cache.put(new AuthorizationCache.Key("alice", "project", "foo" + i, 1), true, 10, 0, MAX_SIZE);
+            assertTrue(cache.size() <= MAX_SIZE);
+        }
+        assertTrue(cache.get(new AuthorizationCache.Key("alice", "project", "foo" + (3 * MAX_SIZE - 1), 1), 0));
+    }
+
+    @Test
+    void testEvictionPrefersExpired() {
+        AuthorizationCache cache = new AuthorizationCache();
+        cache.put(new AuthorizationCache.Key("alice", "project", "fresh", 1), true, 1000, 0, 2);
+        cache.put(new AuthorizationCache.Key("alice", "project", "stale", 1), true, 10, 0, 2);
+        cache.put(new AuthorizationCache.Key("alice", "project", "new", 1), true, 1000, 20, 2);
+        assertEquals(2, cache.size());
+        assertTrue(cache.get(new AuthorizationCache.Key("alice", "project", "fresh", 1), 20));
+        assertTrue(cache.get(new AuthorizationCache.Key("alice", "project", "new", 1), 20));
+    }
+
+    @Test
+    void testClear() {
+        AuthorizationCache cache = new AuthorizationCache();
+        cache.put(new AuthorizationCache.Key("alice", "project", "foo", 1), true, 10, 0, MAX_SIZE);
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertNull(cache.get(new AuthorizationCache.Key("alice", "project", "foo", 1), 0));
+    }
+}
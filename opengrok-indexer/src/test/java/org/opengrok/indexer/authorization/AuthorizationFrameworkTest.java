@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2016, 2021, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2016, 2023, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2017, 2018, Chris Fraire <cfraire@me.com>.
  */
 package org.opengrok.indexer.authorization;
@@ -29,6 +29,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import jakarta.servlet.http.HttpServletRequest;
@@ -39,9 +40,12 @@ import org.opengrok.indexer.condition.DeliberateRuntimeException;
 import org.opengrok.indexer.configuration.Group;
 import org.opengrok.indexer.configuration.Nameable;
 import org.opengrok.indexer.configuration.Project;
+import org.opengrok.indexer.configuration.RuntimeEnvironment;
 import org.opengrok.indexer.web.DummyHttpServletRequest;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class AuthorizationFrameworkTest {
 
@@ -941,4 +945,63 @@ public class AuthorizationFrameworkTest {
         authorizationFramework.setPluginDirectory(pluginDirectoryPath);
         assertEquals(pluginDirectoryPath, authorizationFramework.getPluginDirectory().toString());
     }
+
+    private static HttpServletRequest createRequest(String user) {
+        return new DummyHttpServletRequest() {
+            @Override
+            public String getRemoteUser() {
+                return user;
+            }
+        };
+    }
+
+    @Test
+    void testDecisionCache() {
+        RuntimeEnvironment env = RuntimeEnvironment.getInstance();
+        int origTimeout = env.getAuthorizationCacheTimeout();
+        int origNegativeTimeout = env.getAuthorizationCacheNegativeTimeout();
+        AtomicInteger checks = new AtomicInteger();
+        IAuthorizationPlugin plugin = new TestPlugin() {
+            @Override
+            public boolean isAllowed(HttpServletRequest request, Project project) {
+                checks.incrementAndGet();
+                return project.getName().startsWith("allowed");
+            }
+        };
+        AuthorizationStack stack = newStack(AuthControlFlag.REQUIRED,
+                new AuthorizationPlugin(AuthControlFlag.REQUIRED, plugin));
+        AuthorizationFramework framework = new AuthorizationFramework(null, stack);
+        framework.loadAllPlugins(stack);
+        Project allowed = createAllowedProject();
+        Project notAllowed = createUnallowedProject();
+
+        try {
+            env.setAuthorizationCacheTimeout(60);
+            env.setAuthorizationCacheNegativeTimeout(0);
+
+            // Decision is shared by requests of the same user.
+            assertTrue(framework.isAllowed(createRequest("alice"), allowed));
+            assertTrue(framework.isAllowed(createRequest("alice"), allowed));
+            assertEquals(1, checks.get());
+            assertTrue(framework.isAllowed(createRequest("bob"), allowed));
+            assertEquals(2, checks.get());
+
+            // Denials are not shared unless enabled.
+            assertFalse(framework.isAllowed(createRequest("alice"), notAllowed));
+            assertFalse(framework.isAllowed(createRequest("alice"), notAllowed));
+            assertEquals(4, checks.get());
+            env.setAuthorizationCacheNegativeTimeout(60);
+            assertFalse(framework.isAllowed(createRequest("alice"), notAllowed));
+            assertFalse(framework.isAllowed(createRequest("alice"), notAllowed));
+            assertEquals(5, checks.get());
+
+            // Anonymous requests are never shared.
+            assertTrue(framework.isAllowed(createRequest(null), allowed));
+            assertTrue(framework.isAllowed(createRequest(null), allowed));
+            assertEquals(7, checks.get());
+        } finally {
+            env.setAuthorizationCacheTimeout(origTimeout);
+            env.setAuthorizationCacheNegativeTimeout(origNegativeTimeout);
+        }
+    }
 }
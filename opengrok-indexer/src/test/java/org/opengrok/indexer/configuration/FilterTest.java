@@ -0,0 +1,124 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.configuration;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FilterTest {
+
+    private static final List<String> ITEMS = List.of("*.c", "*.?xx", ".make.*", "*~", "foo*bar", "a?b",
+            "cscope.out", "usr/src/uts", "/usr/src/Makefile", "src/*/gen", "*/build/*.o", "x.y", "te\nst*");
+
+    private static final List<String> NAMES = List.of("main.c", "main.cc", "c", ".c", "main.cxx", "main.hpp",
+            "main.hxx", ".make.state", ".make", "file~", "~", "foobar", "foo-bar", "foo/bar", "fooba", "a1b",
+            "ab", "a12b", "cscope.out", "cscope.outx", "/ws/usr/src/uts", "/ws/usr/src/uts/x", "/ws/myusr/src/uts",
+            "/usr/src/Makefile", "usr/src/Makefile", "/ws/src/x/gen", "/ws/src/x/y/gen", "/ws/build/a.o",
+            "/ws/x/build/y/a.o", "xzy", "x.y", "main.c\n", "te\nst", "te\nstx", "a\nb", " .c", "😀.c",
+            "/ws/dir/main.c", "/ws/dir.c/main", "/", "");
+
+    /**
+     * Implementation of matching before the patterns were compiled into automata.
+     */
+    private static boolean referenceMatch(List<String> items, String name) {
+        File file = new File(name);
+        boolean checkAbsolute = name.startsWith("/");
+        String fileName = file.getName();
+        String absolute = file.getAbsolutePath();
+        for (String item : items) {
+            if (item.contains("*") || item.contains("?")) {
+                StringBuilder regex = new StringBuilder();
+                for (String part : item.split("(?=[*?])|(?<=[*?])")) {
+                    if (part.equals("*")) {
+                        regex.append(".*");
+                    } else if (part.equals("?")) {
+                        regex.append('.');
+                    } else {
+                        regex.append(Pattern.quote(part));
+                    }
+                }
+                Pattern p = Pattern.compile(regex.toString());
+                if (p.matcher(fileName).matches() ||
+                        (checkAbsolute && item.contains("/") && p.matcher(absolute).matches())) {
+                    return true;
+                }
+            } else if (item.contains(File.separator)) {
+                String path = item.charAt(0) == File.separatorChar ? item : File.separator + item;
+                if (checkAbsolute && absolute.endsWith(path)) {
+                    return true;
+                }
+            } else if (fileName.equals(item)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    void testSameAsRegularExpressions() {
+        Filter filter = new Filter();
+        filter.setItems(ITEMS);
+
+        for (String name : NAMES) {
+            assertEquals(referenceMatch(ITEMS, name), filter.match(name), "matching of '" + name + "'");
+        }
+    }
+
+    @Test
+    void testSameAsRegularExpressionsManyPatterns() {
+        List<String> items = new ArrayList<>(ITEMS);
+        for (int i = 0; i < 500; i++) {
+            items.add("*" + i + "*" + (i * 7) + "?" + (i % 13) + "*");
+            items.add("*.ext" + i);
+        }
+        Filter filter = new Filter();
+        filter.setItems(items);
+
+        List<String> names = new ArrayList<>(NAMES);
+        names.addAll(List.of("a.ext42", "a.ext500", "x42y294z3", "42294x3", "1771x8"));
+        for (String name : names) {
+            assertEquals(referenceMatch(items, name), filter.match(name), "matching of '" + name + "'");
+        }
+    }
+
+    @Test
+    void testPatternsAddedLater() {
+        Filter filter = new Filter();
+        assertFalse(filter.match("main.c"));
+        filter.add("*.c");
+        assertTrue(filter.match("main.c"));
+        filter.clear();
+        assertFalse(filter.match("main.c"));
+        filter.add("/src/main.c");
+        assertTrue(filter.match("/ws/src/main.c"));
+        assertFalse(filter.match("src/main.c"));
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.configuration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.opengrok.indexer.index.IndexDatabase;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * Test the {@link MultiSearcherCache} class via {@link RuntimeEnvironment#getMultiSearcher(SortedSet)}.
+ */
+class MultiSearcherCacheTest {
+
+    private final RuntimeEnvironment env = RuntimeEnvironment.getInstance();
+
+    @TempDir
+    Path dataRoot;
+
+    private String origDataRoot;
+    private int origCacheSize;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        origDataRoot = env.getDataRootPath();
+        origCacheSize = env.getMultiSearcherCacheSize();
+        env.setDataRoot(dataRoot.toString());
+        // Make sure the SearcherManager objects from other tests are not reused.
+        env.refreshSearcherManagerMap();
+        addDocument("a", "/a/foo.c");
+        addDocument("b", "/b/bar.c");
+    }
+
+    @AfterEach
+    void tearDown() {
+        env.clearMultiSearcherCache();
+        env.refreshSearcherManagerMap();
+        env.setMultiSearcherCacheSize(origCacheSize);
+        env.setDataRoot(origDataRoot);
+    }
+
+    private void addDocument(String project, String path) throws IOException {
+        Path indexDir = dataRoot.resolve(IndexDatabase.INDEX_DIR).resolve(project);
+        try (Directory dir = FSDirectory.open(indexDir);
+             IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig())) {
+            Document doc = new Document();
+            doc.add(new StringField("path", path, Field.Store.YES));
+            writer.addDocument(doc);
+        }
+    }
+
+    private static SortedSet<String> projects(String... names) {
+        return new TreeSet<>(List.of(names));
+    }
+
+    @Test
+    void testSearcherIsShared() {
+        CachedMultiSearcher searcher1 = env.getMultiSearcher(projects("a", "b"));
+        CachedMultiSearcher searcher2 = env.getMultiSearcher(projects("b", "a"));
+        assertNotNull(searcher1);
+        assertSame(searcher1, searcher2);
+        assertEquals(2, searcher1.getIndexReader().numDocs());
+        searcher1.release();
+        searcher2.release();
+
+        CachedMultiSearcher searcher3 = env.getMultiSearcher(projects("a"));
+        assertNotNull(searcher3);
+        assertNotSame(searcher1, searcher3);
+        assertEquals(1, searcher3.getIndexReader().numDocs());
+        searcher3.release();
+    }
+
+    @Test
+    void testRefreshInvalidates() throws IOException {
+        CachedMultiSearcher searcher1 = env.getMultiSearcher(projects("a", "b"));
+        assertNotNull(searcher1);
+        searcher1.release();
+
+        addDocument("a", "/a/baz.c");
+        env.maybeRefreshIndexSearchers(List.of("a"));
+
+        CachedMultiSearcher searcher2 = env.getMultiSearcher(projects("a", "b"));
+        assertNotNull(searcher2);
+        assertNotSame(searcher1, searcher2);
+        assertEquals(3, searcher2.getIndexReader().numDocs());
+        searcher2.release();
+    }
+
+    @Test
+    void testSizeLimit() {
+        env.setMultiSearcherCacheSize(1);
+
+        CachedMultiSearcher searcherA = env.getMultiSearcher(projects("a"));
+        assertNotNull(searcherA);
+        searcherA.release();
+        CachedMultiSearcher searcherB = env.getMultiSearcher(projects("b"));
+        assertNotNull(searcherB);
+        searcherB.release();
+
+        // The searcher for "a" was evicted by the searcher for "b".
+        CachedMultiSearcher searcher = env.getMultiSearcher(projects("a"));
+        assertNotNull(searcher);
+        assertNotSame(searcherA, searcher);
+        searcher.release();
+        assertSame(searcher, env.getMultiSearcher(projects("a")));
+        searcher.release();
+    }
+}
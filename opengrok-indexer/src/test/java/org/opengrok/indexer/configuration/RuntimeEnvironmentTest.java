@@ -136,6 +136,38 @@ public class RuntimeEnvironmentTest {
         assertEquals(path, instance.getSourceRootFile().getCanonicalPath());
     }
 
+    @Test
+    void testIndexingPipelineParallelism() {
+        RuntimeEnvironment instance = RuntimeEnvironment.getInstance();
+        assertTrue(instance.getIndexWriterParallelism() >= 1);
+        assertTrue(instance.getAnnotationCacheParallelism() >= 1);
+        assertEquals(4 * instance.getIndexingParallelism(), instance.getIndexingQueueSize());
+
+        Configuration config = new Configuration();
+        config.setIndexWriterParallelism(3);
+        config.setAnnotationCacheParallelism(5);
+        config.setIndexingQueueSize(-1);
+        instance.setConfiguration(config);
+        assertEquals(3, instance.getIndexWriterParallelism());
+        assertEquals(5, instance.getAnnotationCacheParallelism());
+        assertEquals(4 * instance.getIndexingParallelism(), instance.getIndexingQueueSize());
+    }
+
+    @Test
+    void testMaxSearchSlices() {
+        RuntimeEnvironment instance = RuntimeEnvironment.getInstance();
+        Configuration config = new Configuration();
+        config.setMaxSearchThreadCount(8);
+        instance.setConfiguration(config);
+        assertEquals(4, instance.getMaxSearchSlices());
+
+        config.setMaxSearchThreadCount(1);
+        assertEquals(1, instance.getMaxSearchSlices());
+
+        config.setMaxSearchSlices(3);
+        assertEquals(3, instance.getMaxSearchSlices());
+    }
+
     @Test
     void testProjects() throws IOException {
         RuntimeEnvironment instance = RuntimeEnvironment.getInstance();
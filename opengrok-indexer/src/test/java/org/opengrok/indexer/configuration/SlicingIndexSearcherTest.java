@@ -0,0 +1,117 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.configuration;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.MultiReader;
+import org.apache.lucene.search.IndexSearcher.LeafSlice;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Test the {@link SlicingIndexSearcher} class.
+ */
+class SlicingIndexSearcherTest {
+
+    private static final int READERS = 12;
+
+    private final List<Directory> directories = new ArrayList<>();
+    private MultiReader multiReader;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        IndexReader[] readers = new IndexReader[READERS];
+        for (int i = 0; i < READERS; i++) {
+            Directory dir = new ByteBuffersDirectory();
+            directories.add(dir);
+            try (IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig())) {
+                for (int j = 0; j <= i; j++) {
+                    writer.addDocument(new Document());
+                }
+            }
+            readers[i] = DirectoryReader.open(dir);
+        }
+        multiReader = new MultiReader(readers, true);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        multiReader.close();
+        for (Directory dir : directories) {
+            dir.close();
+        }
+    }
+
+    @Test
+    void testSlicesWithinLimit() {
+        List<LeafReaderContext> leaves = multiReader.leaves();
+        assertEquals(READERS, leaves.size());
+        // The default slicing puts at most 5 segments into single slice.
+        assertEquals(3, SlicingIndexSearcher.slices(leaves, 10).length);
+    }
+
+    @Test
+    void testSlicesOverLimit() {
+        List<LeafReaderContext> leaves = multiReader.leaves();
+        LeafSlice[] slices = SlicingIndexSearcher.slices(leaves, 2);
+        assertEquals(2, slices.length);
+
+        Set<LeafReaderContext> seen = new HashSet<>();
+        int[] docCounts = new int[slices.length];
+        for (int i = 0; i < slices.length; i++) {
+            for (LeafReaderContext ctx : slices[i].leaves) {
+                assertTrue(seen.add(ctx));
+                docCounts[i] += ctx.reader().maxDoc();
+            }
+        }
+        assertEquals(new HashSet<>(leaves), seen);
+        // 78 documents in total, distributed evenly.
+        assertEquals(78, Arrays.stream(docCounts).sum());
+        assertTrue(Math.abs(docCounts[0] - docCounts[1]) <= 1);
+    }
+
+    @Test
+    void testSingleSlice() {
+        LeafSlice[] slices = SlicingIndexSearcher.slices(multiReader.leaves(), 1);
+        assertEquals(1, slices.length);
+        assertEquals(READERS, slices[0].leaves.length);
+    }
+}
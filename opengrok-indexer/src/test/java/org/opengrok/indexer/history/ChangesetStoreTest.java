@@ -0,0 +1,117 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.history;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChangesetStoreTest {
+
+    @TempDir
+    Path temporaryPath;
+
+    private final HistoryEntry entry1 = new HistoryEntry("84599b3c", new Date(1485438707000L),
+            "Kryštof Tulinger <krystof.tulinger@oracle.com>", "renaming directories", true);
+    private final HistoryEntry entry2 = new HistoryEntry("67dfbe26", new Date(1485263397000L),
+            "Kryštof Tulinger <krystof.tulinger@oracle.com>", "renaming renamed -> renamed2", true);
+
+    @Test
+    void testRoundTrip() throws Exception {
+        File file = temporaryPath.resolve(ChangesetStore.FILE_NAME).toFile();
+        ChangesetStore store = new ChangesetStore(file);
+        long offset1 = store.getOffset(entry1);
+        long offset2 = store.getOffset(entry2);
+        assertNotEquals(offset1, offset2);
+
+        assertEquals(entry1, store.get(offset1));
+        assertEquals(entry2, store.get(offset2));
+
+        // Use new instance to force reading the offsets from the file.
+        ChangesetStore otherStore = new ChangesetStore(file);
+        assertEquals(offset2, otherStore.getOffset(new HistoryEntry(entry2)));
+        assertEquals(entry1, otherStore.get(offset1));
+    }
+
+    @Test
+    void testDeduplication() throws Exception {
+        File file = temporaryPath.resolve(ChangesetStore.FILE_NAME).toFile();
+        ChangesetStore store = new ChangesetStore(file);
+        store.beginBatch();
+        long offset = store.getOffset(entry1);
+        store.endBatch();
+        long length = file.length();
+        assertEquals(offset, store.getOffset(new HistoryEntry(entry1)));
+        assertEquals(length, file.length());
+
+        // Same revision with different contents (e.g. per-file revisions) is stored as separate changeset.
+        HistoryEntry entry = new HistoryEntry(entry1);
+        entry.setMessage("different message");
+        assertNotEquals(offset, store.getOffset(entry));
+        assertTrue(file.length() > length);
+    }
+
+    @Test
+    void testBatch() throws Exception {
+        File file = temporaryPath.resolve(ChangesetStore.FILE_NAME).toFile();
+        ChangesetStore store = new ChangesetStore(file);
+        store.beginBatch();
+        long offset1 = store.getOffset(entry1);
+        // Nested batch does not close the file of the outer one.
+        store.beginBatch();
+        store.endBatch();
+        long offset2 = store.getOffset(entry2);
+        assertEquals(entry1, store.get(offset1));
+        assertEquals(entry2, store.get(offset2));
+        store.endBatch();
+
+        // Appending outside of batch works as well.
+        HistoryEntry entry = new HistoryEntry(entry1);
+        entry.setRevision("a1b2c3d4");
+        long offset = store.getOffset(entry);
+        assertEquals(entry, store.get(offset));
+        assertEquals(entry2, new ChangesetStore(file).get(offset2));
+    }
+
+    @Test
+    void testNullFields() throws Exception {
+        File file = temporaryPath.resolve(ChangesetStore.FILE_NAME).toFile();
+        ChangesetStore store = new ChangesetStore(file);
+        HistoryEntry entry = new HistoryEntry("1.1", null, null, "", false);
+        HistoryEntry stored = store.get(store.getOffset(entry));
+        assertEquals("1.1", stored.getRevision());
+        assertNull(stored.getDate());
+        assertNull(stored.getAuthor());
+        assertFalse(stored.isActive());
+        assertFalse(store.isStale());
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.history;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+
+import org.eclipse.jgit.api.Git;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.opengrok.indexer.configuration.RuntimeEnvironment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ColumnarHistoryCacheTest {
+
+    private final RuntimeEnvironment env = RuntimeEnvironment.getInstance();
+    private String origSourceRoot;
+    private String origDataRoot;
+
+    @TempDir
+    Path sourceRoot;
+
+    @TempDir
+    Path dataRoot;
+
+    private final HistoryEntry entry1 = new HistoryEntry("84599b3c", new Date(1485438707000L),
+            "Kryštof Tulinger <krystof.tulinger@oracle.com>", "renaming directories", true);
+    private final HistoryEntry entry2 = new HistoryEntry("67dfbe26", new Date(1485263397000L),
+            "Kryštof Tulinger <krystof.tulinger@oracle.com>", "renaming renamed -> renamed2", true);
+
+    @BeforeEach
+    void setUp() {
+        origSourceRoot = env.getSourceRootPath();
+        origDataRoot = env.getDataRootPath();
+        env.setSourceRoot(sourceRoot.toString());
+        env.setDataRoot(dataRoot.toString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        env.setSourceRoot(origSourceRoot);
+        env.setDataRoot(origDataRoot);
+    }
+
+    @Test
+    void testStore() throws Exception {
+        Path repoPath = sourceRoot.resolve("repo");
+        try (Git git = Git.init().setDirectory(repoPath.toFile()).call()) {
+            for (String content : List.of("int a;\n", "int b;\n")) {
+                Files.writeString(repoPath.resolve("file.c"), content);
+                git.add().addFilepattern("file.c").call();
+                git.commit().setMessage(content).setAuthor("author", "author@example.com").call();
+            }
+        }
+        GitRepository repository = new GitRepository();
+        repository.setDirectoryName(repoPath.toFile());
+        History history = repository.getHistory(repoPath.toFile());
+
+        ColumnarHistoryCache cache = new ColumnarHistoryCache();
+        cache.store(history, repository);
+
+        File storeFile = new File(CacheUtil.getRepositoryCacheDataDirname(repository, cache),
+                ChangesetStore.FILE_NAME);
+        assertTrue(storeFile.isFile());
+        long length = storeFile.length();
+        History fileHistory = cache.get(repoPath.resolve("file.c").toFile(), repository, false);
+        assertEquals(history.getHistoryEntries().size(), fileHistory.getHistoryEntries().size());
+        for (int i = 0; i < history.getHistoryEntries().size(); i++) {
+            assertEquals(history.getHistoryEntries().get(i).getRevision(),
+                    fileHistory.getHistoryEntries().get(i).getRevision());
+        }
+
+        // Storing the same history again does not append any changesets.
+        cache.store(history, repository);
+        assertEquals(length, storeFile.length());
+    }
+
+    /**
+     * Readers should ignore offset that is being appended to the cache file.
+     */
+    @Test
+    void testPartiallyAppendedOffset() throws Exception {
+        Path repoPath = Files.createDirectories(sourceRoot.resolve("repo"));
+        GitRepository repository = new GitRepository();
+        repository.setDirectoryName(repoPath.toFile());
+
+        ColumnarHistoryCache cache = new ColumnarHistoryCache();
+        // The cache file is placed under the repository cache directory like the files written by store().
+        File cacheFile = Files.createDirectories(Path.of(CacheUtil.getRepositoryCacheDataDirname(repository, cache))).
+                resolve("file.c").toFile();
+        cache.writeCache(new History(List.of(entry1, entry2)), cacheFile, repository, false);
+
+        try (FileOutputStream out = new FileOutputStream(cacheFile, true)) {
+            out.write(new byte[]{0, 0, 0});
+        }
+
+        assertEquals(List.of(entry1, entry2), cache.readCache(cacheFile, null).getHistoryEntries());
+        assertEquals(entry1, cache.readCacheLastEntry(cacheFile));
+
+        // The incomplete file cannot be appended to, so it is rewritten.
+        HistoryEntry entry3 = new HistoryEntry(entry1);
+        entry3.setRevision("a1b2c3d4");
+        cache.writeCache(new History(List.of(entry3, entry1, entry2)), cacheFile, repository, true);
+        assertEquals(List.of(entry3, entry1, entry2), cache.readCache(cacheFile, null).getHistoryEntries());
+    }
+}
@@ -1049,6 +1049,41 @@ class FileHistoryCacheTest {
         cache.clear(repository);
     }
 
+    /**
+     * Test that {@link FileHistoryCache#fillLastHistoryEntries(List)} uses the directory summary
+     * maintained by {@link FileHistoryCache#store(History, Repository)} instead of reading
+     * the cache files of individual files.
+     */
+    @Test
+    void testFillLastHistoryEntriesFromDirectorySummary() throws Exception {
+        File repositoryRoot = new File(repositories.getSourceRoot(), "git");
+        Repository repository = RepositoryFactory.getRepository(repositoryRoot);
+
+        FileHistoryCache spyCache = Mockito.spy(cache);
+        spyCache.clear(repository);
+        History historyToStore = repository.getHistory(repositoryRoot);
+        spyCache.store(historyToStore, repository);
+        assertTrue(new File(cache.getCachedFile(new File(repositoryRoot, "main.c")).getParentFile(),
+                DirectoryHistorySummary.FILE_NAME).isFile());
+
+        File[] files = repositoryRoot.listFiles();
+        assertNotNull(files);
+        List<DirectoryEntry> directoryEntries = Arrays.stream(files).map(DirectoryEntry::new).
+                collect(Collectors.toList());
+
+        assertTrue(spyCache.fillLastHistoryEntries(directoryEntries));
+        Mockito.verify(spyCache, never()).getLastHistoryEntry(ArgumentMatchers.any());
+        for (DirectoryEntry entry : directoryEntries) {
+            if (!entry.getFile().isDirectory()) {
+                assertNotNull(entry.getDate());
+                assertEquals(cache.getLastHistoryEntry(entry.getFile()).getDescription(), entry.getDescription());
+            }
+        }
+
+        // Cleanup.
+        cache.clear(repository);
+    }
+
     /**
      * Test {@link FileHistoryCache#fillLastHistoryEntries(List)}, in particular that it
      * returns {@code false} and resets date/descriptions if some entries cannot be filled.
@@ -1082,4 +1117,31 @@ class FileHistoryCacheTest {
         // Cleanup.
         cache.clear(repository);
     }
+
+    /**
+     * Test that the directory summary changes done by {@link FileHistoryCache#storeFile(History, File, Repository)}
+     * and {@link FileHistoryCache#clearFile(String)} are written by {@link FileHistoryCache#flush()}.
+     */
+    @Test
+    void testDirectorySummaryFlush() throws Exception {
+        File repositoryRoot = new File(repositories.getSourceRoot(), "git");
+        Repository repository = RepositoryFactory.getRepository(repositoryRoot);
+        cache.clear(repository);
+
+        File file = new File(repositoryRoot, "main.c");
+        File dir = cache.getCachedFile(file).getParentFile();
+        File summaryFile = new File(dir, DirectoryHistorySummary.FILE_NAME);
+        cache.storeFile(repository.getHistory(file), file, repository);
+        assertFalse(summaryFile.exists());
+        cache.flush();
+        assertNotNull(DirectoryHistorySummary.read(dir).get(file));
+
+        cache.clearFile(env.getPathRelativeToSourceRoot(file));
+        assertTrue(summaryFile.isFile());
+        cache.flush();
+        assertFalse(summaryFile.exists());
+
+        // Cleanup.
+        cache.clear(repository);
+    }
 }
@@ -31,8 +31,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.Writer;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
@@ -359,6 +362,53 @@ public class GitRepositoryTest {
         assertEquals(revSet, annotation.getRevisions());
     }
 
+    private static RevCommit commitLines(Git git, File file, String author, List<String> lines) throws Exception {
+        Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+        git.add().addFilepattern(file.getName()).call();
+        return git.commit().setAuthor(author, author + "@moomin.valley").setMessage("change by " + author).call();
+    }
+
+    @Test
+    void testIncrementalAnnotation() throws Exception {
+        File root = new File(repository.getSourceRoot(), "gitIncrementalAnnotation");
+        try (Git git = Git.init().setDirectory(root).call()) {
+            File file = new File(root, "file.txt");
+            List<String> lines = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                lines.add("line " + i);
+            }
+            RevCommit first = commitLines(git, file, "Moomin", lines);
+
+            GitRepository gitrepo = (GitRepository) RepositoryFactory.getRepository(root);
+            Annotation previous = gitrepo.annotate(file, first.getId().name());
+            assertNotNull(previous);
+            previous.setRevision(first.getId().name());
+
+            lines.set(3, "changed line 3");
+            lines.add(10, "inserted line");
+            commitLines(git, file, "Snufkin", lines);
+            lines.remove(15);
+            lines.set(0, "  line 0");
+            RevCommit last = commitLines(git, file, "Little My", lines);
+
+            Annotation incremental = gitrepo.annotate(file, last.getId().name(), previous);
+            assertNotNull(incremental);
+            Annotation full = gitrepo.annotate(file, last.getId().name());
+            assertNotNull(full);
+            assertEquals(full.annotationData.getLines(), incremental.annotationData.getLines());
+            assertEquals(full.getWidestAuthor(), incremental.getWidestAuthor());
+            assertEquals(full.getWidestRevision(), incremental.getWidestRevision());
+            assertEquals(Set.of("Moomin", "Snufkin"), incremental.getAuthors());
+
+            // Large changes are annotated from scratch.
+            Collections.reverse(lines);
+            RevCommit rewrite = commitLines(git, file, "Little My", lines);
+            assertNull(gitrepo.annotate(file, rewrite.getId().name(), previous));
+        } finally {
+            removeRecursive(root);
+        }
+    }
+
     @Test
     void testAnnotationOfRenamedFileWithHandlingOff() throws Exception {
         String[] revisions = {HASH_84599B3C};
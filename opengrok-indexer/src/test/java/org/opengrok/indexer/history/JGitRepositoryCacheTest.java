@@ -0,0 +1,128 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.history;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.stream.Stream;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JGitRepositoryCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private File init() throws Exception {
+        try (Git git = Git.init().setDirectory(tempDir.toFile()).call()) {
+            return git.getRepository().getDirectory();
+        }
+    }
+
+    @Test
+    void testSharedHandle() throws Exception {
+        File gitDir = init();
+        try (Repository first = JGitRepositoryCache.open(gitDir);
+             Repository second = JGitRepositoryCache.open(gitDir)) {
+            assertSame(first, second);
+        }
+
+        // The handle stays cached after its users are done.
+        try (Repository first = JGitRepositoryCache.open(gitDir);
+             Repository second = JGitRepositoryCache.open(gitDir)) {
+            assertSame(first, second);
+        }
+    }
+
+    @Test
+    void testInvalidationOnPackChange() throws Exception {
+        File gitDir = init();
+        try (Repository first = JGitRepositoryCache.open(gitDir)) {
+            File packDir = new File(gitDir, "objects" + File.separator + "pack");
+            assertTrue(packDir.setLastModified(packDir.lastModified() - 10_000));
+            try (Repository second = JGitRepositoryCache.open(gitDir)) {
+                assertNotSame(first, second);
+                // The original handle is still usable by its current user.
+                first.resolve(Constants.HEAD);
+            }
+        }
+    }
+
+    private static boolean isPackOpen(File gitDir) throws IOException {
+        Path packDir = gitDir.toPath().resolve("objects").resolve("pack").toRealPath();
+        try (Stream<Path> fds = Files.list(Paths.get("/proc/self/fd"))) {
+            return fds.anyMatch(fd -> {
+                try {
+                    return Files.readSymbolicLink(fd).startsWith(packDir);
+                } catch (IOException e) {
+                    return false;
+                }
+            });
+        }
+    }
+
+    @Test
+    @EnabledOnOs(OS.LINUX)
+    void testIdleHandleClosedOnPackChange() throws Exception {
+        try (Git git = Git.init().setDirectory(tempDir.toFile()).call()) {
+            Files.writeString(tempDir.resolve("file.txt"), "content");
+            git.add().addFilepattern("file.txt").call();
+            git.commit().setMessage("initial").call();
+            git.gc().call();
+        }
+        File gitDir = new File(tempDir.toFile(), Constants.DOT_GIT);
+
+        try (Repository repository = JGitRepositoryCache.open(gitDir)) {
+            ObjectId head = repository.resolve(Constants.HEAD);
+            repository.open(head).getBytes();
+        }
+        assertTrue(isPackOpen(gitDir));
+
+        // The idle handle is dropped from the cache and has to release its pack files.
+        File packDir = new File(gitDir, "objects" + File.separator + "pack");
+        assertTrue(packDir.setLastModified(packDir.lastModified() - 10_000));
+        JGitRepositoryCache.open(gitDir).close();
+        assertFalse(isPackOpen(gitDir));
+    }
+
+    @Test
+    void testNotRepository() {
+        assertThrows(IOException.class, () -> JGitRepositoryCache.open(tempDir.toFile()));
+    }
+}
@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2021, 2022, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2021, 2023, Oracle and/or its affiliates. All rights reserved.
  */
 package org.opengrok.indexer.history;
 
@@ -27,6 +27,7 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
 import org.opengrok.indexer.configuration.RuntimeEnvironment;
 import org.opengrok.indexer.util.TestRepository;
@@ -42,7 +43,9 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -80,6 +83,8 @@ class RepositoryWithPerPartesHistoryTest {
     void testChangesets() throws Exception {
         // To avoid calling getHistory() for individual files via createHistoryCache() below.
         RuntimeEnvironment.getInstance().setHandleHistoryOfRenamedFiles(false);
+        // The order of the captured arguments is checked below, so retrieve the chunks sequentially.
+        RuntimeEnvironment.getInstance().setHistoryChunkParallelism(1);
 
         ArgumentCaptor<String> stringArgumentCaptor1 = ArgumentCaptor.forClass(String.class);
         ArgumentCaptor<String> stringArgumentCaptor2 = ArgumentCaptor.forClass(String.class);
@@ -103,6 +108,7 @@ class RepositoryWithPerPartesHistoryTest {
         tillRevisions.add("b6413947a59f481ddc0a05e0d181731233557f6e");
         tillRevisions.add(null);
         assertEquals(tillRevisions, stringArgumentCaptor2.getAllValues());
+        RuntimeEnvironment.getInstance().setHistoryChunkParallelism(0);
     }
 
     /**
@@ -142,4 +148,38 @@ class RepositoryWithPerPartesHistoryTest {
         verify(spyCache, times(1)).store(any(), any(), isNull());
         env.setHistoryCachePerPartesEnabled(true);
     }
+
+    /**
+     * Retrieve the chunks in parallel and verify that they are stored in the history cache in the order
+     * of the boundary changesets and that the result is the same as with sequential processing.
+     */
+    @Test
+    void testParallelChunks() throws Exception {
+        RuntimeEnvironment env = RuntimeEnvironment.getInstance();
+        env.setHandleHistoryOfRenamedFiles(false);
+        env.setHistoryChunkParallelism(4);
+        try {
+            FileHistoryCache spyCache = Mockito.spy(new FileHistoryCache());
+            GitRepository gitSpyRepository = Mockito.spy(gitRepository);
+            Mockito.when(gitSpyRepository.getPerPartesCount()).thenReturn(3);
+            gitSpyRepository.createCache(spyCache, null);
+
+            InOrder inOrder = inOrder(spyCache);
+            inOrder.verify(spyCache).store(any(), any(), eq("8482156421620efbb44a7b6f0eb19d1f191163c7"));
+            inOrder.verify(spyCache).store(any(), any(), eq("b6413947a59f481ddc0a05e0d181731233557f6e"));
+            inOrder.verify(spyCache).store(any(), any(), isNull());
+
+            List<HistoryEntry> historyEntries = gitRepository.getHistory(new File(gitRepository.getDirectoryName())).
+                    getHistoryEntries();
+            assertEquals(historyEntries.get(0).getRevision(), spyCache.getLatestCachedRevision(gitSpyRepository));
+            History cachedHistory = spyCache.get(Paths.get(gitRepository.getDirectoryName(), "main.c").toFile(),
+                    gitSpyRepository, false);
+            assertNotNull(cachedHistory);
+            History expectedHistory = gitRepository.getHistory(
+                    Paths.get(gitRepository.getDirectoryName(), "main.c").toFile());
+            assertEquals(expectedHistory.getHistoryEntries().size(), cachedHistory.getHistoryEntries().size());
+        } finally {
+            env.setHistoryChunkParallelism(0);
+        }
+    }
 }
@@ -0,0 +1,214 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.index;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DirectoryScanTest {
+
+    @TempDir
+    Path root;
+
+    private ForkJoinPool pool;
+
+    @BeforeEach
+    void setUp() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    private static void touch(Path path) throws Exception {
+        Files.createDirectories(path.getParent());
+        Files.createFile(path);
+    }
+
+    /**
+     * Collects the files in the same order as {@link IndexDatabase} traverses them.
+     */
+    private static void collect(DirectoryScan scan, String parent, List<String> paths) {
+        List<DirectoryScan.Entry> entries = scan.getEntries();
+        assertNotNull(entries);
+        int ahead = 0;
+        for (int i = 0; i < entries.size(); i++) {
+            if (ahead < entries.size()) {
+                ahead = DirectoryScan.startSubdirectories(entries, Math.max(ahead, i + 1));
+            }
+            DirectoryScan.Entry entry = entries.get(i);
+            String path = parent + "/" + entry.getFile().getName();
+            if (entry.isAccepted()) {
+                if (entry.isDirectory()) {
+                    collect(entry.getSubdirectory(), path, paths);
+                } else {
+                    paths.add(path);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testSortedTraversal() throws Exception {
+        touch(root.resolve("b/z.c"));
+        touch(root.resolve("b/a.c"));
+        touch(root.resolve("a.c"));
+        touch(root.resolve("c/d/e.c"));
+        touch(root.resolve("B.c"));
+        touch(root.resolve("ignored/x.c"));
+
+        DirectoryScan scan = new DirectoryScan(root.toFile(),
+                (file, attrs) -> !file.getName().equals("ignored"), new DirectoryScan.ReadAhead(pool, 2));
+
+        List<String> paths = new ArrayList<>();
+        collect(scan, "", paths);
+
+        assertEquals(List.of("/B.c", "/a.c", "/b/a.c", "/b/z.c", "/c/d/e.c"), paths);
+    }
+
+    @Test
+    void testAttributes() throws Exception {
+        Path file = root.resolve("file.c");
+        touch(file);
+        File f = file.toFile();
+        assertTrue(f.setLastModified(1234000L));
+
+        DirectoryScan scan = new DirectoryScan(root.toFile(), (fl, attrs) -> true,
+                new DirectoryScan.ReadAhead(pool, 2));
+        List<DirectoryScan.Entry> entries = scan.getEntries();
+
+        assertEquals(1, entries.size());
+        DirectoryScan.Entry entry = entries.get(0);
+        assertEquals(f, entry.getFile());
+        assertFalse(entry.isDirectory());
+        assertFalse(entry.isSymbolicLink());
+        assertEquals(f.lastModified(), entry.lastModified());
+        assertNull(entry.getSubdirectory());
+    }
+
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void testSymbolicLinksNotAccepted() throws Exception {
+        touch(root.resolve("target/file.c"));
+        Files.createSymbolicLink(root.resolve("link"), root.resolve("target"));
+
+        DirectoryScan scan = new DirectoryScan(root.toFile(), (file, attrs) -> true,
+                new DirectoryScan.ReadAhead(pool, 2));
+        List<DirectoryScan.Entry> entries = scan.getEntries();
+
+        List<String> names = entries.stream().map(e -> e.getFile().getName()).collect(Collectors.toList());
+        assertEquals(List.of("link", "target"), names);
+        DirectoryScan.Entry link = entries.get(0);
+        assertTrue(link.isSymbolicLink());
+        assertFalse(link.isAccepted());
+        assertNull(link.getSubdirectory());
+        assertTrue(entries.get(1).isAccepted());
+    }
+
+    @Test
+    void testCancelled() throws Exception {
+        touch(root.resolve("file.c"));
+
+        DirectoryScan.ReadAhead readAhead = new DirectoryScan.ReadAhead(pool, 2);
+        readAhead.cancel();
+        assertNull(new DirectoryScan(root.toFile(), (file, attrs) -> true, readAhead).getEntries());
+    }
+
+    @Test
+    void testMissingDirectory() {
+        assertNull(new DirectoryScan(root.resolve("nonexistent").toFile(), (file, attrs) -> true,
+                new DirectoryScan.ReadAhead(pool, 2)).getEntries());
+    }
+
+    @Test
+    void testBoundedReadAhead() throws Exception {
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            touch(root.resolve("dir" + i + "/sub/file.c"));
+            expected.add("/dir" + i + "/sub/file.c");
+        }
+
+        // directories whose entries were listed
+        Set<File> listed = ConcurrentHashMap.newKeySet();
+        // Let the root directory start its subdirectories before they start theirs.
+        CountDownLatch rootDone = new CountDownLatch(1);
+        DirectoryScan scan = new DirectoryScan(root.toFile(), (file, attrs) -> {
+            listed.add(file.getParentFile());
+            if (!file.getParentFile().equals(root.toFile())) {
+                try {
+                    rootDone.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return true;
+        }, new DirectoryScan.ReadAhead(pool, 3));
+
+        List<DirectoryScan.Entry> entries = scan.getEntries();
+        rootDone.countDown();
+        assertEquals(10, entries.size());
+        assertTrue(pool.awaitQuiescence(10, TimeUnit.SECONDS));
+        // the root directory plus the directories scanned ahead
+        assertEquals(4, listed.size());
+
+        // Consuming the listing of the first directory moves the window on by one directory.
+        List<String> paths = new ArrayList<>();
+        collect(entries.get(0).getSubdirectory(), "/dir0", paths);
+        assertEquals(List.of("/dir0/sub/file.c"), paths);
+        assertEquals(4, DirectoryScan.startSubdirectories(entries, 1));
+        assertTrue(pool.awaitQuiescence(10, TimeUnit.SECONDS));
+        // plus dir0/sub scanned by the traversal itself and dir3 scanned ahead
+        assertEquals(6, listed.size());
+
+        for (int i = 1; i < entries.size(); i++) {
+            DirectoryScan.startSubdirectories(entries, i + 1);
+            collect(entries.get(i).getSubdirectory(), "/dir" + i, paths);
+        }
+        assertEquals(expected, paths);
+        assertEquals(21, listed.size());
+    }
+}
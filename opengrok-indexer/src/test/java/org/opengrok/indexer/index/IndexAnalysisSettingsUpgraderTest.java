@@ -33,6 +33,7 @@ import org.opengrok.indexer.analysis.AnalyzerGuru;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -93,6 +94,23 @@ public class IndexAnalysisSettingsUpgraderTest {
                 "index symlinks values should be equal");
     }
 
+    @Test
+    public void shouldHandleTermVectors() throws IOException, ClassNotFoundException {
+        IndexAnalysisSettings3 obj = new IndexAnalysisSettings3();
+        obj.setProjectName(PROJECT_NAME);
+        IndexAnalysisSettingsUpgrader upgrader = new IndexAnalysisSettingsUpgrader();
+        assertNull(upgrader.upgrade(obj.serialize(), 3).getTermVectors(), "should have no termVectors");
+
+        obj.setTermVectors(true);
+        IndexAnalysisSettings3 vLatest = upgrader.upgrade(obj.serialize(), 3);
+        assertEquals(PROJECT_NAME, vLatest.getProjectName(), "should have same projectName");
+        assertEquals(Boolean.TRUE, vLatest.getTermVectors(), "should have same termVectors");
+
+        obj.setTermVectors(false);
+        assertEquals(Boolean.FALSE, upgrader.upgrade(obj.serialize(), 3).getTermVectors(),
+                "should have same termVectors");
+    }
+
     @Test
     public void shouldUpgradeV2() throws IOException, ClassNotFoundException {
         IndexAnalysisSettings obj = new IndexAnalysisSettings();
@@ -43,8 +43,15 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.queryparser.classic.ParseException;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
 
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.MergeCommand;
@@ -57,6 +64,8 @@ import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.opengrok.indexer.analysis.Definitions;
+import org.opengrok.indexer.analysis.OGKTextVecField;
+import org.opengrok.indexer.analysis.plain.PlainAnalyzerFactory;
 import org.opengrok.indexer.condition.EnabledForRepository;
 import org.opengrok.indexer.configuration.CommandTimeoutType;
 import org.opengrok.indexer.configuration.Project;
@@ -290,6 +299,32 @@ class IndexDatabaseTest {
         assertEquals(origNumFiles - 1, idb.getNumFiles());
     }
 
+    @Test
+    void testIsTermVectorsInEffect() throws IOException {
+        try (Directory directory = new ByteBuffersDirectory();
+             IndexWriter writer = new IndexWriter(directory,
+                     new IndexWriterConfig(PlainAnalyzerFactory.DEFAULT_INSTANCE.getAnalyzer()))) {
+            writer.commit();
+            try (IndexReader reader = DirectoryReader.open(directory)) {
+                // No source documents yet, so the requested mode applies.
+                assertTrue(IndexDatabase.isTermVectorsInEffect(reader, null, true));
+                assertFalse(IndexDatabase.isTermVectorsInEffect(reader, false, false));
+            }
+
+            Document doc = new Document();
+            doc.add(new OGKTextVecField(QueryBuilder.FULL, "hello world", Field.Store.NO));
+            writer.addDocument(doc);
+            writer.commit();
+            try (IndexReader reader = DirectoryReader.open(directory)) {
+                // The recorded mode stays in effect regardless of the requested one.
+                assertFalse(IndexDatabase.isTermVectorsInEffect(reader, null, true));
+                assertFalse(IndexDatabase.isTermVectorsInEffect(reader, false, true));
+                assertTrue(IndexDatabase.isTermVectorsInEffect(reader, true, false));
+                assertTrue(IndexDatabase.isTermVectorsInEffect(reader, true, true));
+            }
+        }
+    }
+
     /**
      * This is a test of {@code populateDocument} so it should be rather in {@code AnalyzerGuruTest}
      * however it lacks the pre-requisite indexing phase.
@@ -0,0 +1,101 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.index;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.URL;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.opengrok.indexer.logger.LoggerFactory;
+import org.opengrok.indexer.util.Progress;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IndexerStatusServerTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(IndexerStatusServerTest.class);
+
+    private static JsonNode getProgress(IndexerStatusServer server) throws Exception {
+        URL url = new URL("http", InetAddress.getLoopbackAddress().getHostAddress(), server.getPort(),
+                IndexerStatusServer.PROGRESS_PATH);
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try (InputStream in = connection.getInputStream()) {
+            assertEquals(HttpURLConnection.HTTP_OK, connection.getResponseCode());
+            assertEquals("application/json", connection.getContentType());
+            return new ObjectMapper().readTree(in);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static JsonNode findOperation(JsonNode progress, String name) {
+        for (JsonNode operation : progress.get("operations")) {
+            if (name.equals(operation.get("name").asText())) {
+                return operation;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    void testProgress() throws Exception {
+        try (IndexerStatusServer server = IndexerStatusServer.start(0)) {
+            try (Progress progress = new Progress(LOGGER, "status server test", 4, Level.OFF)) {
+                progress.increment();
+
+                JsonNode operation = findOperation(getProgress(server), "status server test");
+                assertNotNull(operation);
+                assertEquals(1, operation.get("current").asLong());
+                assertEquals(4, operation.get("total").asLong());
+                assertEquals(25.0, operation.get("percent").asDouble(), 0.01);
+                assertTrue(operation.has("itemsPerSecond"));
+            }
+
+            JsonNode progress = getProgress(server);
+            assertTrue(progress.get("uptimeSeconds").asDouble() >= 0);
+            assertNull(findOperation(progress, "status server test"));
+        }
+    }
+
+    @Test
+    void testUnknownTotal() throws Exception {
+        try (IndexerStatusServer server = IndexerStatusServer.start(0);
+             Progress progress = new Progress(LOGGER, "unknown total test", Level.OFF)) {
+            JsonNode operation = findOperation(getProgress(server), "unknown total test");
+            assertNotNull(operation);
+            assertNull(progress.getTotalCount());
+            assertTrue(operation.get("total").isNull());
+            assertFalse(operation.has("percent"));
+        }
+    }
+}
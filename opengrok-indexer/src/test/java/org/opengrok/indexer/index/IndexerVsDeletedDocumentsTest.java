@@ -65,6 +65,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.atLeast;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
@@ -333,7 +334,7 @@ class IndexerVsDeletedDocumentsTest {
                 // Verify the history based reindex was actually used.
                 verify(indexDatabase, atLeast(1)).processFileIncremental(any(), any(), any());
             } else {
-                verify(indexDatabase, atLeast(1)).processFile(any(), any(), any());
+                verify(indexDatabase, atLeast(1)).processFile(any(), any(), any(), anyLong());
             }
 
             // Only fooPath and barPath are updated in each cycle, hence there should be 2 removals.
@@ -24,9 +24,14 @@
 package org.opengrok.indexer.search;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
+import java.util.Set;
 import java.util.TreeSet;
+import java.util.stream.Collectors;
 
+import org.apache.lucene.search.ScoreDoc;
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -39,6 +44,7 @@ import org.opengrok.indexer.history.RepositoryFactory;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -148,6 +154,36 @@ public class SearchEngineTest {
                 instance.getQuery());
     }
 
+    @Test
+    void testPaging() {
+        SearchEngine instance = new SearchEngine();
+        // Collect only single hit in search() so that the remaining hits have to be collected on demand.
+        instance.hitsPerPage = 1;
+        instance.cachePages = 1;
+        instance.setFile("main");
+        int count = instance.search();
+        assertTrue(count > 2);
+        assertNotNull(instance.scoreDocs());
+        assertEquals(1, instance.scoreDocs().length);
+
+        List<Hit> hits = new ArrayList<>();
+        instance.results(0, count, hits);
+        assertEquals(count, instance.scoreDocs().length);
+        Set<String> paths = hits.stream().map(Hit::getPath).collect(Collectors.toSet());
+        assertEquals(count, paths.size());
+
+        Set<String> pagedPaths = new TreeSet<>();
+        ScoreDoc after = null;
+        int pages = 0;
+        do {
+            after = instance.results(after, 2, hits);
+            hits.forEach(hit -> pagedPaths.add(hit.getPath()));
+            pages++;
+        } while (after != null && pages <= count);
+        assertEquals(paths, pagedPaths);
+        instance.destroy();
+    }
+
     /* see https://github.com/oracle/opengrok/issues/2030
     @Test
     public void testSearch() {
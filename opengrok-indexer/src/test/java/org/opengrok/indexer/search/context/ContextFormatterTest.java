@@ -19,6 +19,7 @@
 
 /*
  * Copyright (c) 2018, Chris Fraire <cfraire@me.com>.
+ * Portions Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
  */
 package org.opengrok.indexer.search.context;
 
@@ -27,6 +28,7 @@ import java.util.Collections;
 import org.apache.lucene.search.uhighlight.Passage;
 import org.apache.lucene.util.BytesRef;
 import org.junit.jupiter.api.Test;
+import org.opengrok.indexer.analysis.Definitions;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -356,4 +358,30 @@ public class ContextFormatterTest {
         String ctx = res.toString();
         assertLinesEqual("format().toString()", DOC_CTX_0, ctx);
     }
+
+    @Test
+    void testSerializedDefsFormatted() throws Exception {
+        final String WORD = "gravida";
+        int woff = DOC.indexOf(WORD);
+
+        Passage p = new Passage();
+        p.setStartOffset(woff);
+        p.setEndOffset(woff + WORD.length());
+        p.addMatch(woff, p.getEndOffset(), new BytesRef(WORD), 1);
+
+        Definitions defs = new Definitions();
+        defs.addTag(1, "Lorem", "macro", "    Lorem ipsum dolor sit amet", 0, 5);
+        defs.addTag(3, WORD, "function", "Mauris diam nisl, tincidunt nec gravida", 0, 10);
+
+        ContextFormatter fmt = new ContextFormatter(new ContextArgs((short) 0, (short) 10));
+        fmt.setUrl("http://example.com");
+        fmt.setSerializedDefs(defs.serialize());
+        Object res = fmt.format(new Passage[] {p}, DOC);
+
+        final String DOCCTX_0 =
+                "<a class=\"s\" href=\"http://example.com#3\"><span class=\"l\">" +
+                        "3</span> Mauris diam nisl, tincidunt nec <b>gravida</b> sit" +
+                        " amet, efficitur vitae</a>  <i>function</i><br/>\n";
+        assertLinesEqual("format().toString()", DOCCTX_0, res.toString());
+    }
 }
@@ -0,0 +1,172 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.search.context;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.MultiReader;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.WildcardQuery;
+import org.apache.lucene.search.uhighlight.UHComponents;
+import org.apache.lucene.search.uhighlight.UnifiedHighlighter;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opengrok.indexer.analysis.OGKTextField;
+import org.opengrok.indexer.analysis.OGKTextVecField;
+import org.opengrok.indexer.analysis.plain.PlainAnalyzerFactory;
+import org.opengrok.indexer.configuration.RuntimeEnvironment;
+import org.opengrok.indexer.search.QueryBuilder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests the offset sources used by {@link OGKUnifiedHighlighter} for indexes
+ * created with and without term vectors.
+ */
+class OGKUnifiedHighlighterTest {
+
+    private static final String CONTENT = "content";
+
+    private final Analyzer analyzer = PlainAnalyzerFactory.DEFAULT_INSTANCE.getAnalyzer();
+    private final List<Directory> directories = new ArrayList<>();
+    private final List<IndexReader> readers = new ArrayList<>();
+
+    /**
+     * Takes the original text from a stored field instead of the source root
+     * and records the offset sources used for highlighting.
+     */
+    private static class TestHighlighter extends OGKUnifiedHighlighter {
+        private final List<OffsetSource> offsetSources = new ArrayList<>();
+
+        TestHighlighter(IndexSearcher searcher, Analyzer analyzer) {
+            super(RuntimeEnvironment.getInstance(), new UnifiedHighlighter.Builder(searcher, analyzer));
+        }
+
+        @Override
+        protected List<CharSequence[]> loadFieldValues(String[] fields, DocIdSetIterator docIter,
+                int cacheCharsThreshold) throws IOException {
+            List<CharSequence[]> docListOfFields = new ArrayList<>();
+            int docId = docIter.nextDoc();
+            if (docId != DocIdSetIterator.NO_MORE_DOCS) {
+                CharSequence[] seqs = new CharSequence[fields.length];
+                Arrays.fill(seqs, searcher.storedFields().document(docId).get(CONTENT));
+                docListOfFields.add(seqs);
+            }
+            return docListOfFields;
+        }
+
+        @Override
+        protected OffsetSource getOptimizedOffsetSource(UHComponents components) {
+            OffsetSource res = super.getOptimizedOffsetSource(components);
+            offsetSources.add(res);
+            return res;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        directories.clear();
+        readers.clear();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        for (IndexReader reader : readers) {
+            reader.close();
+        }
+        for (Directory directory : directories) {
+            directory.close();
+        }
+    }
+
+    private IndexReader createIndex(String content, boolean termVectors) throws IOException {
+        Directory directory = new ByteBuffersDirectory();
+        directories.add(directory);
+        try (IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(analyzer))) {
+            Document doc = new Document();
+            doc.add(termVectors ? new OGKTextVecField(QueryBuilder.FULL, content, Store.NO) :
+                    new OGKTextField(QueryBuilder.FULL, content, Store.NO));
+            doc.add(new StoredField(CONTENT, content));
+            writer.addDocument(doc);
+        }
+        IndexReader reader = DirectoryReader.open(directory);
+        readers.add(reader);
+        return reader;
+    }
+
+    private static String highlight(TestHighlighter highlighter, Query query, int docId) throws IOException {
+        return highlighter.highlightFieldsUnion(new String[]{QueryBuilder.FULL}, query, docId, 10);
+    }
+
+    @Test
+    void testWildcardWithTermVectors() throws IOException {
+        IndexReader reader = createIndex("hello world", true);
+        TestHighlighter highlighter = new TestHighlighter(new IndexSearcher(reader), analyzer);
+        Query query = new WildcardQuery(new Term(QueryBuilder.FULL, "hel*"));
+
+        String res = highlight(highlighter, query, 0);
+
+        assertNotNull(res);
+        assertTrue(res.contains("<b>hello</b>"), res);
+        assertEquals(List.of(UnifiedHighlighter.OffsetSource.POSTINGS_WITH_TERM_VECTORS),
+                highlighter.offsetSources);
+    }
+
+    @Test
+    void testMixedTermVectors() throws IOException {
+        IndexReader tvReader = createIndex("hello world", true);
+        IndexReader plainReader = createIndex("hello there", false);
+        MultiReader multiReader = new MultiReader(tvReader, plainReader);
+        TestHighlighter highlighter = new TestHighlighter(new IndexSearcher(multiReader), analyzer);
+        Query query = new WildcardQuery(new Term(QueryBuilder.FULL, "hel*"));
+
+        String tvRes = highlight(highlighter, query, 0);
+        String plainRes = highlight(highlighter, query, 1);
+
+        assertNotNull(tvRes);
+        assertTrue(tvRes.contains("<b>hello</b>"), tvRes);
+        assertNotNull(plainRes);
+        assertTrue(plainRes.contains("<b>hello</b>"), plainRes);
+        assertEquals(List.of(UnifiedHighlighter.OffsetSource.POSTINGS_WITH_TERM_VECTORS,
+                UnifiedHighlighter.OffsetSource.ANALYSIS), highlighter.offsetSources);
+    }
+}
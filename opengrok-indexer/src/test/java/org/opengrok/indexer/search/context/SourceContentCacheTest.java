@@ -0,0 +1,179 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.search.context;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.opengrok.indexer.analysis.ExpandTabsReader;
+import org.opengrok.indexer.util.IOUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class SourceContentCacheTest {
+
+    private static final String TEXT = "int\tmain() {\n\treturn 0;\r\n}\u00e9\u4e2d\n";
+
+    @TempDir
+    Path dir;
+
+    private File write(String name, byte[] bytes) throws IOException {
+        Path path = dir.resolve(name);
+        Files.write(path, bytes);
+        return path.toFile();
+    }
+
+    private static byte[] concat(byte[] prefix, byte[] bytes) {
+        byte[] result = new byte[prefix.length + bytes.length];
+        System.arraycopy(prefix, 0, result, 0, prefix.length);
+        System.arraycopy(bytes, 0, result, prefix.length, bytes.length);
+        return result;
+    }
+
+    private static String readAll(Reader reader) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        int c;
+        while ((c = reader.read()) != -1) {
+            builder.append((char) c);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * The content has to be the same as produced by the readers used before the cache was introduced.
+     */
+    private static String readWithReaders(File file, int tabSize) throws IOException {
+        try (Reader reader = ExpandTabsReader.wrap(new BufferedReader(IOUtils.createBOMStrippedReader(
+                Files.newInputStream(file.toPath()), StandardCharsets.UTF_8.name())), tabSize)) {
+            return readAll(reader);
+        }
+    }
+
+    @Test
+    void testUtf8() throws IOException {
+        File file = write("a.c", TEXT.getBytes(StandardCharsets.UTF_8));
+        assertEquals(TEXT, SourceContentCache.read(file));
+        assertEquals(readWithReaders(file, 0), SourceContentCache.read(file));
+    }
+
+    @Test
+    void testUtf8Bom() throws IOException {
+        File file = write("a.c", concat(new byte[] {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF},
+                TEXT.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(TEXT, SourceContentCache.read(file));
+        assertEquals(readWithReaders(file, 0), SourceContentCache.read(file));
+    }
+
+    @Test
+    void testUtf16BigEndianBom() throws IOException {
+        File file = write("a.c", concat(new byte[] {(byte) 0xFE, (byte) 0xFF},
+                TEXT.getBytes(StandardCharsets.UTF_16BE)));
+        assertEquals(TEXT, SourceContentCache.read(file));
+        assertEquals(readWithReaders(file, 0), SourceContentCache.read(file));
+    }
+
+    @Test
+    void testUtf16LittleEndianBom() throws IOException {
+        File file = write("a.c", concat(new byte[] {(byte) 0xFF, (byte) 0xFE},
+                TEXT.getBytes(StandardCharsets.UTF_16LE)));
+        assertEquals(TEXT, SourceContentCache.read(file));
+        assertEquals(readWithReaders(file, 0), SourceContentCache.read(file));
+    }
+
+    @Test
+    void testMapped() throws IOException {
+        String text = TEXT.repeat(10000);
+        File file = write("large.c", text.getBytes(StandardCharsets.UTF_8));
+        assertEquals(text, SourceContentCache.read(file));
+    }
+
+    @Test
+    void testEmpty() throws IOException {
+        assertEquals("", SourceContentCache.read(write("empty.c", new byte[0])));
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {-1, 0, 1, 2, 4, 8})
+    void testExpandTabs(int tabSize) throws IOException {
+        String text = "\ta\tbc\tdef\t\n12345678\t9\r\t\tx\r\n\t";
+        File file = write("tabs.c", text.getBytes(StandardCharsets.UTF_8));
+        try (Reader reader = ExpandTabsReader.wrap(new StringReader(text), tabSize)) {
+            assertEquals(readAll(reader), SourceContentCache.expandTabs(text, tabSize));
+        }
+        assertEquals(readWithReaders(file, tabSize),
+                SourceContentCache.expandTabs(SourceContentCache.read(file), tabSize));
+    }
+
+    @Test
+    void testCached() throws IOException {
+        SourceContentCache cache = new SourceContentCache(1000);
+        File file = write("a.c", TEXT.getBytes(StandardCharsets.UTF_8));
+        String content = cache.get(file, "uid1");
+        assertEquals(TEXT, content);
+        assertSame(content, cache.get(file, "uid1"));
+        assertEquals(1, cache.size());
+
+        // Different UID means the file was modified.
+        Files.writeString(file.toPath(), "changed", StandardCharsets.UTF_8);
+        assertEquals("changed", cache.get(file, "uid2"));
+        assertEquals(2, cache.size());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testEviction() throws IOException {
+        SourceContentCache cache = new SourceContentCache(400);
+        String text = "x".repeat(100);
+        File file = write("a.c", text.getBytes(StandardCharsets.UTF_8));
+        String first = cache.get(file, "uid1");
+        cache.get(file, "uid2");
+        cache.get(file, "uid3");
+        cache.get(file, "uid4");
+        assertEquals(4, cache.size());
+
+        // Access the first entry so that the second one is the least recently used.
+        assertSame(first, cache.get(file, "uid1"));
+        cache.get(file, "uid5");
+        assertEquals(4, cache.size());
+        assertSame(first, cache.get(file, "uid1"));
+        assertEquals(4, cache.size());
+
+        // Too large to be cached.
+        File large = write("large.c", "y".repeat(101).getBytes(StandardCharsets.UTF_8));
+        assertEquals(101, cache.get(large, "uid6").length());
+        assertEquals(4, cache.size());
+    }
+}
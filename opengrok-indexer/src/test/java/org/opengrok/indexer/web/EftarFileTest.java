@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2007, 2021, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2007, 2023, Oracle and/or its affiliates. All rights reserved.
  */
 package org.opengrok.indexer.web;
 
@@ -29,9 +29,18 @@ import org.junit.jupiter.api.Test;
 import java.io.File;
 import java.io.IOException;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 /**
  * JUnit test to test the EftarFile-system.
@@ -79,7 +88,60 @@ public class EftarFileTest {
         searchEftarFile(new EftarFileReader(eftar.getAbsolutePath()));
     }
 
+    @Test
+    void testChildTags() throws IOException {
+        try (EftarFileReader er = new EftarFileReader(eftar)) {
+            EftarFileReader.FNode node = er.getNode(PATH_STRING + "0");
+            assertNotNull(node);
+            Map<String, String> tags = er.getChildTags(node, List.of("path1", "nonexistent"));
+            assertEquals(Map.of("path1", "Description 1"), tags);
+            assertEquals("Description 1", er.getChildTag(node, "path1"));
+        }
+    }
+
+    @Test
+    void testConcurrentLookups() throws Exception {
+        EftarFileReader er = new EftarFileReader(eftar);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        Callable<Void> search = () -> {
+            searchEftarFile(er, false);
+            return null;
+        };
+        try {
+            List<Future<Void>> futures = executor.invokeAll(List.of(search, search, search, search));
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+            er.close();
+        }
+        assertThrows(IOException.class, () -> er.get(PATH_STRING + "0"));
+    }
+
+    @Test
+    void testReload() throws Exception {
+        File file = File.createTempFile("reload", ".eftar");
+        try {
+            new EftarFile().create(Set.of(new PathDescription("/foo", "first")), file.getAbsolutePath());
+            EftarFileReader er = EftarFileReader.getShared(file);
+            assertSame(er, EftarFileReader.getShared(file));
+            assertEquals("first", er.get("/foo"));
+
+            new EftarFile().create(Set.of(new PathDescription("/foo", "second"),
+                    new PathDescription("/foo/bar", "third")), file.getAbsolutePath());
+            assertEquals("second", er.get("/foo"));
+            assertEquals("third", er.get("/foo/bar"));
+        } finally {
+            file.delete();
+        }
+    }
+
     private void searchEftarFile(EftarFileReader er) throws IOException {
+        searchEftarFile(er, true);
+    }
+
+    private void searchEftarFile(EftarFileReader er, boolean close) throws IOException {
         StringBuilder sb = new StringBuilder();
         StringBuilder match = new StringBuilder();
         match.append("Description ");
@@ -92,6 +154,8 @@ public class EftarFileTest {
 
             assertEquals(match.toString(), er.get(sb.toString()), "description for path " + sb.toString());
         }
-        er.close();
+        if (close) {
+            er.close();
+        }
     }
 }
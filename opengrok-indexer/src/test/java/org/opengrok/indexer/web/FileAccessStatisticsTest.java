@@ -0,0 +1,118 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.indexer.web;
+
+import java.io.File;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.opengrok.indexer.configuration.AnnotationCachePolicy;
+import org.opengrok.indexer.configuration.RuntimeEnvironment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileAccessStatisticsTest {
+
+    private final RuntimeEnvironment env = RuntimeEnvironment.getInstance();
+    private AnnotationCachePolicy origPolicy;
+    private int origThreshold;
+
+    @TempDir
+    Path dataRoot;
+
+    @BeforeEach
+    void setUp() {
+        origPolicy = env.getAnnotationCachePolicy();
+        origThreshold = env.getAnnotationCacheHotThreshold();
+        env.setAnnotationCachePolicy(AnnotationCachePolicy.HOT);
+        env.setAnnotationCacheHotThreshold(2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        env.setAnnotationCachePolicy(origPolicy);
+        env.setAnnotationCacheHotThreshold(origThreshold);
+    }
+
+    private File getFile() {
+        return dataRoot.resolve(FileAccessStatistics.DIRECTORY).resolve(FileAccessStatistics.FILE_NAME).toFile();
+    }
+
+    @Test
+    void testHot() {
+        FileAccessStatistics statistics = new FileAccessStatistics(getFile());
+        assertFalse(statistics.isHot("/project/foo.c"));
+        statistics.record("/project/foo.c");
+        assertFalse(statistics.isHot("/project/foo.c"));
+        statistics.record("/project/foo.c");
+        assertTrue(statistics.isHot("/project/foo.c"));
+        assertEquals(2, statistics.getCount("/project/foo.c"));
+        assertEquals(0, statistics.getCount("/project/bar.c"));
+    }
+
+    @Test
+    void testStoreAndLoad() throws Exception {
+        FileAccessStatistics statistics = new FileAccessStatistics(getFile());
+        statistics.record("/project/foo.c");
+        statistics.record("/project/foo.c");
+        statistics.record("/project/dir with\ttab/bar.c");
+        statistics.store();
+        assertTrue(getFile().isFile());
+
+        FileAccessStatistics loaded = new FileAccessStatistics(getFile());
+        assertEquals(2, loaded.getCount("/project/foo.c"));
+        assertEquals(1, loaded.getCount("/project/dir with\ttab/bar.c"));
+        assertEquals(0, loaded.getCount("/project/baz.c"));
+    }
+
+    @Test
+    void testDisabled() throws Exception {
+        env.setAnnotationCachePolicy(AnnotationCachePolicy.ALL);
+        FileAccessStatistics statistics = new FileAccessStatistics(getFile());
+        statistics.record("/project/foo.c");
+        assertEquals(0, statistics.getCount("/project/foo.c"));
+        statistics.store();
+        assertFalse(getFile().exists());
+    }
+
+    @Test
+    void testInstancePerDataRoot() {
+        String origDataRoot = env.getDataRootPath();
+        try {
+            env.setDataRoot(dataRoot.toString());
+            FileAccessStatistics statistics = FileAccessStatistics.getInstance();
+            assertSame(statistics, FileAccessStatistics.getInstance());
+            env.setDataRoot(dataRoot.resolve("other").toString());
+            assertNotSame(statistics, FileAccessStatistics.getInstance());
+        } finally {
+            env.setDataRoot(origDataRoot);
+        }
+    }
+}
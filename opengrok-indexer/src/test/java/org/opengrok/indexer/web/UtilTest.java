@@ -18,13 +18,15 @@
  */
 
 /*
- * Copyright (c) 2007, 2022, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2007, 2023, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2017, 2019, Chris Fraire <cfraire@me.com>.
  */
 package org.opengrok.indexer.web;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.net.MalformedURLException;
@@ -692,4 +694,26 @@ public class UtilTest {
                         "<a href=\"/source/download/mercurial/main.c\" title=\"Download\">D</a></td>",
                 output);
     }
+
+    @Test
+    void testIsXrefTransformNeeded() {
+        assertFalse(Util.isXrefTransformNeeded(null));
+        assertFalse(Util.isXrefTransformNeeded("/source"));
+        assertFalse(Util.isXrefTransformNeeded("/source/"));
+        assertTrue(Util.isXrefTransformNeeded("/"));
+        assertTrue(Util.isXrefTransformNeeded("/grok"));
+    }
+
+    @Test
+    void testDumpXref() throws IOException {
+        String xref = "<a href=\"/source/xref/foo/bar.c#1\">bar</a>";
+
+        StringWriter writer = new StringWriter();
+        Util.dumpXref(writer, new StringReader(xref), "/source", new File("bar.c"));
+        assertEquals(xref, writer.toString());
+
+        writer = new StringWriter();
+        Util.dumpXref(writer, new StringReader(xref), "/grok", new File("bar.c"));
+        assertEquals("<a href=\"/grok/xref/foo/bar.c#1\">bar</a>", writer.toString());
+    }
 }
@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2005, 2022, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2005, 2023, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2011, Jens Elkner.
  * Portions Copyright (c) 2017, 2020, Chris Fraire <cfraire@me.com>.
  */
@@ -33,8 +33,10 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
 
 import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.VisibleForTesting;
@@ -172,16 +174,17 @@ public class DirectoryListing {
             return entries;
         }
 
-        int offset = -1;
-        EftarFileReader.FNode parentFNode = null;
+        // Get the path descriptions of all entries at once.
+        Map<String, String> pathDescriptions = null;
         if (desc != null) {
             try {
-                parentFNode = desc.getNode(path);
+                EftarFileReader.FNode parentFNode = desc.getNode(path);
+                if (parentFNode != null && parentFNode.getChildOffset() > 0) {
+                    pathDescriptions = desc.getChildTags(parentFNode,
+                            entries.stream().map(entry -> entry.getFile().getName()).collect(Collectors.toList()));
+                }
             } catch (IOException e) {
-                LOGGER.log(Level.WARNING, String.format("cannot get Eftar node for path ''%s''", path), e);
-            }
-            if (parentFNode != null) {
-                offset = parentFNode.getChildOffset();
+                LOGGER.log(Level.WARNING, String.format("cannot get path descriptions for path '%s'", path), e);
             }
         }
 
@@ -189,17 +192,7 @@ public class DirectoryListing {
 
         for (DirectoryEntry entry : entries) {
             File child = entry.getFile();
-            String filename = child.getName();
-
-            String pathDescription = "";
-            try {
-                if (offset > 0) {
-                    pathDescription = desc.getChildTag(parentFNode, filename);
-                }
-            } catch (IOException e) {
-                LOGGER.log(Level.WARNING, String.format("cannot get path description for '%s'", child), e);
-            }
-            entry.setPathDescription(pathDescription);
+            entry.setPathDescription(pathDescriptions != null ? pathDescriptions.get(child.getName()) : "");
 
             if (entry.getDate() == null && fallback) {
                 long date = child.lastModified();
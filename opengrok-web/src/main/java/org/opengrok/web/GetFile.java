@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2008, 2020, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2008, 2023, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright (c) 2020, Chris Fraire <cfraire@me.com>.
  * Portions Copyright (c) 2011, Jens Elkner.
  */
@@ -29,12 +29,19 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
 
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.opengrok.indexer.history.HistoryGuru;
 import org.opengrok.indexer.web.Prefix;
+import org.opengrok.indexer.web.Util;
 
 public class GetFile extends HttpServlet {
 
@@ -55,6 +62,11 @@ public class GetFile extends HttpServlet {
             return;
         }
 
+        if (cfg.getPrefix() == Prefix.RAW_XREF_P) {
+            serveXref(cfg, request, response);
+            return;
+        }
+
         File f = cfg.getResourceFile();
         String revision = cfg.getRequestedRevision();
         if (revision.length() == 0) {
@@ -103,4 +115,76 @@ public class GetFile extends HttpServlet {
             in.close();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Serve the xref of the latest revision of the file. If the xref file is compressed, the links in it
+     * do not need to be rewritten for the context path and the client accepts gzip encoding,
+     * the stored bytes are sent as they are.
+     */
+    private void serveXref(PageConfig cfg, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+
+        File xrefFile = cfg.findDataFile();
+        if (xrefFile == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        if (cfg.isXrefNotModified(request, response, xrefFile)) {
+            return;
+        }
+
+        boolean compressed = xrefFile.getName().endsWith(".gz");
+        // The xref files are written using the system default charset.
+        response.setContentType("text/html");
+        response.setCharacterEncoding(Charset.defaultCharset().name());
+        response.setHeader("Vary", "Accept-Encoding");
+        if (compressed && !Util.isXrefTransformNeeded(request.getContextPath()) &&
+                acceptsGzip(request.getHeader("Accept-Encoding"))) {
+            response.setHeader("Content-Encoding", "gzip");
+            try (FileChannel channel = FileChannel.open(xrefFile.toPath(), StandardOpenOption.READ)) {
+                long size = channel.size();
+                response.setContentLengthLong(size);
+                WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+                long position = 0;
+                while (position < size) {
+                    position += channel.transferTo(position, size - position, out);
+                }
+            }
+        } else if (!Util.dumpXref(response.getWriter(), xrefFile, compressed, request.getContextPath())) {
+            response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * @param acceptEncoding value of the {@code Accept-Encoding} request header
+     * @return whether the header allows gzip content encoding
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            if (!name.equals("gzip") && !name.equals("x-gzip") && !name.equals("*")) {
+                continue;
+            }
+            boolean rejected = false;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim().toLowerCase(Locale.ROOT);
+                if (param.startsWith("q=")) {
+                    try {
+                        rejected = Double.parseDouble(param.substring(2)) <= 0;
+                    } catch (NumberFormatException e) {
+                        rejected = true;
+                    }
+                }
+            }
+            if (!rejected) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
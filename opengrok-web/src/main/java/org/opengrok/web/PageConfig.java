@@ -432,6 +432,7 @@ public final class PageConfig {
                     return null;
                 }
             } else if ((getPrefix() == Prefix.RAW_P)
+                    || (getPrefix() == Prefix.RAW_XREF_P)
                     || (getPrefix() == Prefix.DOWNLOAD_P)) {
                 return null;
             }
@@ -647,9 +648,9 @@ public final class PageConfig {
     }
 
     /**
-     * Get the <i>Eftar</i> reader for the data directory. If it has been already
-     * opened and not closed, this instance gets returned. One should not close
-     * it once used: {@link #cleanup(ServletRequest)} takes care to close it.
+     * Get the <i>Eftar</i> reader for the data directory. The reader is shared
+     * by all requests (see {@link EftarFileReader#getShared(File)}) so one should
+     * not close it once used.
      *
      * @return {@code null} if a reader can't be established, the reader
      * otherwise.
@@ -661,8 +662,8 @@ public final class PageConfig {
                 eftarReader = null;
             } else {
                 try {
-                    eftarReader = new EftarFileReader(f);
-                } catch (FileNotFoundException e) {
+                    eftarReader = EftarFileReader.getShared(f);
+                } catch (IOException e) {
                     LOGGER.log(Level.FINE, "Failed to create EftarFileReader: ", e);
                 }
             }
@@ -1305,6 +1306,27 @@ public final class PageConfig {
                 getPath(), env.isCompressXref());
     }
 
+    /**
+     * If enabled by {@link RuntimeEnvironment#isXrefLoadedSeparately()}, the compressed xref files
+     * which need no link rewriting for the context path (see {@link Util#isXrefTransformNeeded(String)})
+     * are fetched by the client separately via {@link Prefix#RAW_XREF_P} so that they can be sent
+     * in the stored form. Otherwise the xref is embedded in the page.
+     *
+     * @param xrefFile xref file of the latest revision, see {@link #findDataFile()}
+     * @return true if the page should load the xref separately, false if it should embed it
+     */
+    public boolean isXrefLoadedSeparately(File xrefFile) {
+        return getEnv().isXrefLoadedSeparately() && xrefFile.getName().endsWith(".gz") &&
+                !Util.isXrefTransformNeeded(req.getContextPath());
+    }
+
+    /**
+     * @return path of the xref of the latest revision served via {@link Prefix#RAW_XREF_P}
+     */
+    public String getRawXrefPath() {
+        return req.getContextPath() + Prefix.RAW_XREF_P + getUriEncodedPath();
+    }
+
     /**
      * Is revision the latest revision ?
      * @param rev revision string
@@ -1621,9 +1643,7 @@ public final class PageConfig {
         sr.removeAttribute(ATTR_NAME);
         cfg.env = null;
         cfg.req = null;
-        if (cfg.eftarReader != null) {
-            cfg.eftarReader.close();
-        }
+        cfg.eftarReader = null;
     }
 
     /**
@@ -1818,6 +1838,29 @@ public final class PageConfig {
                 )
         );
 
+        return isNotModified(request, response, currentEtag);
+    }
+
+    /**
+     * Decide if the xref file has been modified since the header value in the request.
+     * Unlike {@link #isNotModified(HttpServletRequest, HttpServletResponse)} this considers
+     * only the xref file itself (and the context path which the links in the xref depend on)
+     * so it is suitable for serving the xref content alone.
+     *
+     * @param request the http request containing the headers
+     * @param response the http response for setting the headers
+     * @param xrefFile xref file
+     * @return true if resource was not modified; false otherwise
+     */
+    public boolean isXrefNotModified(HttpServletRequest request, HttpServletResponse response, File xrefFile) {
+        String currentEtag = String.format("W/\"%s\"",
+                Objects.hash(xrefFile.lastModified(), xrefFile.length(), request.getContextPath(),
+                        Info.getVersion()));
+        return isNotModified(request, response, currentEtag);
+    }
+
+    private static boolean isNotModified(HttpServletRequest request, HttpServletResponse response,
+                                         String currentEtag) {
         String headerEtag = request.getHeader(HttpHeaders.IF_NONE_MATCH);
 
         if (headerEtag != null && headerEtag.equals(currentEtag)) {
@@ -0,0 +1,519 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.web;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.VisibleForTesting;
+import org.opengrok.indexer.Metrics;
+import org.opengrok.indexer.analysis.AbstractAnalyzer;
+import org.opengrok.indexer.analysis.AnalyzerFactory;
+import org.opengrok.indexer.analysis.AnalyzerGuru;
+import org.opengrok.indexer.analysis.Definitions;
+import org.opengrok.indexer.configuration.Project;
+import org.opengrok.indexer.configuration.RuntimeEnvironment;
+import org.opengrok.indexer.history.HistoryEntry;
+import org.opengrok.indexer.history.HistoryGuru;
+import org.opengrok.indexer.history.Repository;
+import org.opengrok.indexer.logger.LoggerFactory;
+import org.opengrok.indexer.util.ForbiddenSymlinkException;
+import org.opengrok.indexer.util.IOUtils;
+
+/**
+ * On-disk cache of the xrefs of historical revisions of files generated on the fly by {@code xref.jspf}.
+ * <p>
+ * The entries are keyed by the repository, path of the file relative to source root and the revision
+ * (plus the settings that affect the xref output) and stored as gzipped files (in the same format as
+ * the xref files produced by the indexer) in the {@value #DIRECTORY} directory under data root.
+ * The least recently used entries are evicted when the total size of the entries exceeds
+ * {@link RuntimeEnvironment#getRevisionXrefCacheSize()}.
+ * </p>
+ * Concurrent requests for the same entry are de-duplicated, i.e. the xref is generated by the first request
+ * and the others wait for it. The entries are opened while holding the lock which guards the eviction
+ * so that an entry returned to the caller remains readable even if it is evicted before it is read.
+ */
+public final class RevisionXrefCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RevisionXrefCache.class);
+
+    private static final String METRIC_NAME = "revision.xref.cache";
+
+    static final String DIRECTORY = "revxref";
+
+    private static final String SUFFIX = ".gz";
+    private static final String TMP_PREFIX = "ogtmp";
+
+    private static final RevisionXrefCache instance = new RevisionXrefCache();
+
+    /**
+     * Produces the xref of a cache entry.
+     */
+    @FunctionalInterface
+    interface XrefRenderer {
+        /**
+         * @param out destination of the xref
+         * @return {@code false} if the xref cannot be produced
+         * @throws IOException on error
+         */
+        boolean render(Writer out) throws IOException;
+    }
+
+    private final RuntimeEnvironment env = RuntimeEnvironment.getInstance();
+
+    /**
+     * Sizes of the entries keyed by file name, in access order. Guarded by {@code this}.
+     */
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Total size of all entries in bytes. Guarded by {@code this}.
+     */
+    private long weight;
+
+    /**
+     * Directory of the entries. Guarded by {@code this}.
+     */
+    private File directory;
+
+    /**
+     * Entries being generated.
+     */
+    private final Map<String, CompletableFuture<Void>> pending = new ConcurrentHashMap<>();
+
+    @VisibleForTesting
+    RevisionXrefCache() {
+        MeterRegistry registry = Metrics.getRegistry();
+        if (registry != null) {
+            Gauge.builder(METRIC_NAME + ".size", this, RevisionXrefCache::getWeight).
+                    description("size of the revision xref cache in bytes").
+                    register(registry);
+        }
+    }
+
+    public static RevisionXrefCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Get the xref of given revision of a file, generating it if it is not cached.
+     * @param file file under source root
+     * @param revision revision of the file
+     * @param project project of the file, possibly {@code null}
+     * @return reader of the xref suitable for {@link org.opengrok.indexer.web.Util#dumpXref(Writer, Reader, String,
+     * File)} to be closed by the caller or {@code null} if the caching is disabled or the file is not a plain text
+     * file or the xref could not be generated
+     */
+    @Nullable
+    public Reader get(File file, String revision, @Nullable Project project) {
+        String key = getKey(file, revision, project);
+        if (key == null) {
+            return null;
+        }
+
+        InputStream in = get(key, out -> render(out, file, revision, project));
+        if (in == null) {
+            return null;
+        }
+        try {
+            // The entries are written using the system default charset like the xref files of the indexer.
+            return new InputStreamReader(new GZIPInputStream(new BufferedInputStream(in)));
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, String.format("cannot read revision xref of '%s' in revision %s",
+                    file, revision), e);
+            IOUtils.close(in);
+            return null;
+        }
+    }
+
+    /**
+     * Generate the xref of the previous revision of a file in the background, if enabled by
+     * {@link RuntimeEnvironment#isRevisionXrefPrefetch()}.
+     * @param file file under source root
+     * @param entries history entries of the file, the most recent first
+     * @param project project of the file, possibly {@code null}
+     */
+    public void prefetch(File file, List<HistoryEntry> entries, @Nullable Project project) {
+        if (!env.isRevisionXrefPrefetch() || entries.size() < 2 || entries.get(1).getRevision() == null) {
+            return;
+        }
+
+        String revision = entries.get(1).getRevision();
+        String key = getKey(file, revision, project);
+        if (key == null || contains(key)) {
+            return;
+        }
+
+        try {
+            // Only the cache entry is needed, so release the reader right away.
+            env.getRevisionExecutor().submit(() -> IOUtils.close(get(file, revision, project)));
+        } catch (RejectedExecutionException e) {
+            LOGGER.log(Level.FINE, "cannot prefetch revision xref", e);
+        }
+    }
+
+    /**
+     * @return cache key or {@code null} if the xref should not be cached
+     */
+    @Nullable
+    private String getKey(File file, String revision, @Nullable Project project) {
+        if (env.getRevisionXrefCacheSize() == 0 ||
+                AnalyzerGuru.getGenre(AnalyzerGuru.find(file.getName())) != AbstractAnalyzer.Genre.PLAIN) {
+            return null;
+        }
+
+        Repository repository = HistoryGuru.getInstance().getRepository(file);
+        if (repository == null) {
+            return null;
+        }
+
+        String path;
+        try {
+            path = env.getPathRelativeToSourceRoot(file);
+        } catch (IOException | ForbiddenSymlinkException e) {
+            LOGGER.log(Level.FINE, String.format("cannot get path of '%s' relative to source root", file), e);
+            return null;
+        }
+
+        return repository.getDirectoryNameRelative() + '\0' + path + '\0' + revision + '\0' +
+                (project != null ? project.getTabSize() : 0) + '\0' + env.isWebappCtags() + '\0' +
+                AnalyzerGuru.getVersionNo();
+    }
+
+    private boolean render(Writer out, File file, String revision, @Nullable Project project) throws IOException {
+        AnalyzerFactory factory = AnalyzerGuru.find(file.getName());
+        File tempf = File.createTempFile("ogtags", file.getName());
+        try {
+            if (!HistoryGuru.getInstance().getRevision(tempf, file.getParent(), file.getName(), revision)) {
+                LOGGER.log(Level.WARNING, "failed to retrieve history contents of ''{0}'' in revision {1}",
+                        new Object[]{file, revision});
+                return false;
+            }
+
+            Definitions defs = null;
+            if (env.isWebappCtags()) {
+                try {
+                    defs = env.getIndexerParallelizer().getCtagsService().
+                            submit(tempf.getPath(), project != null ? project.getTabSize() : 0).get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("interrupted while waiting for ctags", e);
+                } catch (ExecutionException e) {
+                    // Do not cache xref without definitions.
+                    throw new IOException(String.format("ctags failed for '%s'", tempf), e.getCause());
+                }
+            }
+
+            // The data under source root is read with UTF-8 as a default.
+            try (Reader in = IOUtils.createBOMStrippedReader(new BufferedInputStream(new FileInputStream(tempf)),
+                    StandardCharsets.UTF_8.name())) {
+                AnalyzerGuru.writeXref(factory, in, out, defs, null, project, file);
+            }
+            return true;
+        } finally {
+            Files.deleteIfExists(tempf.toPath());
+        }
+    }
+
+    private synchronized boolean contains(String key) {
+        return directory != null && entries.containsKey(getFileName(key));
+    }
+
+    /**
+     * @return gzipped content of the entry to be closed by the caller or {@code null}
+     */
+    @VisibleForTesting
+    @Nullable
+    InputStream get(String key, XrefRenderer renderer) {
+        String name = getFileName(key);
+        File dir = getDirectory();
+        if (dir == null) {
+            return null;
+        }
+
+        InputStream cached = open(dir, name);
+        if (cached != null) {
+            count("hit");
+            return cached;
+        }
+
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        CompletableFuture<Void> existing = pending.putIfAbsent(name, future);
+        if (existing != null) {
+            count("wait");
+            try {
+                existing.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException e) {
+                return null;
+            }
+            // Possibly null if the entry could not be generated or was evicted already.
+            return open(dir, name);
+        }
+
+        count("miss");
+        try {
+            // The entry might have been added before this thread registered the future.
+            cached = open(dir, name);
+            if (cached == null) {
+                cached = store(dir, name, renderer);
+            }
+        } catch (IOException | RuntimeException e) {
+            LOGGER.log(Level.WARNING, "failed to generate revision xref", e);
+        } finally {
+            pending.remove(name, future);
+            future.complete(null);
+        }
+        return cached;
+    }
+
+    /**
+     * @return stream of the entry or {@code null} if there is no such entry
+     */
+    @Nullable
+    private InputStream open(File dir, String name) {
+        File file = new File(dir, name);
+        InputStream in;
+        synchronized (this) {
+            if (entries.get(name) == null) {
+                return null;
+            }
+            in = openFile(file);
+        }
+        if (in == null) {
+            return null;
+        }
+
+        // Keep the access order across restarts.
+        if (!file.setLastModified(System.currentTimeMillis())) {
+            LOGGER.log(Level.FINEST, "cannot set last modified time of ''{0}''", file);
+        }
+        return in;
+    }
+
+    /**
+     * Open the entry file. The stream stays readable even after the file is deleted by {@link #evict(long)}.
+     * Guarded by {@code this}.
+     * @return stream of the file or {@code null} if it cannot be opened
+     */
+    @Nullable
+    private InputStream openFile(File file) {
+        try {
+            return Files.newInputStream(file.toPath());
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, String.format("cannot open revision xref '%s'", file), e);
+            remove(file.getName());
+            return null;
+        }
+    }
+
+    @Nullable
+    private InputStream store(File dir, String name, XrefRenderer renderer) throws IOException {
+        File tmpFile = File.createTempFile(TMP_PREFIX, null, dir);
+        try {
+            try (Writer out = new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(tmpFile)))) {
+                if (!renderer.render(out)) {
+                    return null;
+                }
+            }
+
+            long size = tmpFile.length();
+            long maxWeight = env.getRevisionXrefCacheSize() * 1024L * 1024L;
+            if (size > maxWeight) {
+                return null;
+            }
+
+            File file = new File(dir, name);
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            synchronized (this) {
+                add(name, size);
+                InputStream in = openFile(file);
+                evict(maxWeight);
+                return in;
+            }
+        } finally {
+            Files.deleteIfExists(tmpFile.toPath());
+        }
+    }
+
+    /**
+     * @return directory of the cache entries or {@code null} if there is no data root
+     */
+    @Nullable
+    private synchronized File getDirectory() {
+        File dataRoot = env.getDataRootFile();
+        if (dataRoot == null) {
+            return null;
+        }
+
+        File dir = new File(dataRoot, DIRECTORY);
+        if (dir.equals(directory)) {
+            return directory;
+        }
+
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            LOGGER.log(Level.WARNING, "cannot create revision xref cache directory ''{0}''", dir);
+            return null;
+        }
+        load(dir);
+        return directory;
+    }
+
+    /**
+     * Populate the entries from the files left in given directory. Guarded by {@code this}.
+     */
+    private void load(File dir) {
+        entries.clear();
+        weight = 0;
+        directory = dir;
+
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(SUFFIX)) {
+                add(name, file.length());
+            } else if (name.startsWith(TMP_PREFIX)) {
+                // leftover of interrupted generation
+                delete(file);
+            }
+        }
+        evict(env.getRevisionXrefCacheSize() * 1024L * 1024L);
+    }
+
+    /**
+     * Guarded by {@code this}.
+     */
+    private void add(String name, long size) {
+        Long previous = entries.put(name, size);
+        if (previous != null) {
+            weight -= previous;
+        }
+        weight += size;
+    }
+
+    /**
+     * Guarded by {@code this}.
+     */
+    private void remove(String name) {
+        Long size = entries.remove(name);
+        if (size != null) {
+            weight -= size;
+        }
+    }
+
+    /**
+     * Guarded by {@code this}.
+     */
+    private void evict(long maxWeight) {
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (weight > maxWeight && iterator.hasNext()) {
+            Map.Entry<String, Long> entry = iterator.next();
+            weight -= entry.getValue();
+            iterator.remove();
+            delete(new File(directory, entry.getKey()));
+        }
+    }
+
+    private static void delete(File file) {
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, String.format("cannot delete '%s'", file), e);
+        }
+    }
+
+    private static String getFileName(String key) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is required to be supported by every Java platform.
+            throw new IllegalStateException(e);
+        }
+
+        StringBuilder builder = new StringBuilder();
+        for (byte b : digest.digest(key.getBytes(StandardCharsets.UTF_8))) {
+            builder.append(String.format("%02x", b));
+        }
+        return builder.append(SUFFIX).toString();
+    }
+
+    @VisibleForTesting
+    synchronized long getWeight() {
+        return weight;
+    }
+
+    @VisibleForTesting
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private static void count(String outcome) {
+        MeterRegistry registry = Metrics.getRegistry();
+        if (registry != null) {
+            Counter.builder(METRIC_NAME).
+                    description("revision xref cache lookups").
+                    tag("outcome", outcome).
+                    register(registry).
+                    increment();
+        }
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.web;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.ScoreDoc;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.VisibleForTesting;
+import org.opengrok.indexer.Metrics;
+import org.opengrok.indexer.configuration.CachedMultiSearcher;
+import org.opengrok.indexer.configuration.RuntimeEnvironment;
+import org.opengrok.indexer.web.SearchHelper;
+
+/**
+ * Cache of the search results displayed by {@code search.jsp}. The entries are keyed by the query,
+ * set of projects, sort order and the page, and contain the hits of the page. The results are rendered
+ * for each request because the output depends also on the configuration (e.g. project messages)
+ * and on the authorization of the user.
+ * <p>
+ * Each entry remembers the generations of the searchers of its projects
+ * (see {@link RuntimeEnvironment#getSearcherGenerations(java.util.SortedSet)}) so the entry is discarded once
+ * any of the projects is refreshed. The least recently used entries are evicted when the total size
+ * of the entries exceeds {@link RuntimeEnvironment#getSearchResultCacheSize()}.
+ * </p>
+ * <p>
+ * The hits of a cached page are also used to get the following page: the query is then executed
+ * with {@link SearchHelper#setSearchAfter(FieldDoc)} so that the cost of paging through the results
+ * does not grow with the page position.
+ * </p>
+ * Only multi-project searches are cached.
+ */
+public final class SearchResultCache {
+
+    private static final String METRIC_NAME = "search.result.cache";
+
+    private static final SearchResultCache instance = new SearchResultCache();
+
+    private final RuntimeEnvironment env = RuntimeEnvironment.getInstance();
+
+    /**
+     * Entries in access order. Guarded by {@code this}.
+     */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * Approximate size of all entries in bytes. Guarded by {@code this}.
+     */
+    private long weight;
+
+    private static final class Entry {
+        private final ScoreDoc[] hits;
+        private final long totalHits;
+        private final int hitsOffset;
+        private final long[] generations;
+        private final long weight;
+
+        Entry(String key, ScoreDoc[] hits, long totalHits, int hitsOffset, long[] generations) {
+            this.hits = hits;
+            this.totalHits = totalHits;
+            this.hitsOffset = hitsOffset;
+            this.generations = generations;
+            // Rough estimate of the memory occupied by the entry.
+            this.weight = 2L * key.length() + 32L * hits.length + 8L * generations.length + 128;
+        }
+    }
+
+    @VisibleForTesting
+    SearchResultCache() {
+        MeterRegistry registry = Metrics.getRegistry();
+        if (registry != null) {
+            Gauge.builder(METRIC_NAME + ".size", this, SearchResultCache::getWeight).
+                    description("approximate size of the search result cache in bytes").
+                    register(registry);
+        }
+    }
+
+    public static SearchResultCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Populate the results of the search helper from the cache or execute the query if the results
+     * are not cached, in which case they are added to the cache. To be called instead of
+     * {@link SearchHelper#executeQuery()}.
+     * @param sh search helper with the search prepared by {@link SearchHelper#prepareExec(java.util.SortedSet)}
+     * @return the search helper
+     */
+    public SearchHelper executeQuery(SearchHelper sh) {
+        String key = getKey(sh);
+        if (key == null) {
+            return sh.executeQuery();
+        }
+
+        Entry entry = get(key, sh, true);
+        if (entry != null) {
+            return sh.setCachedResults(entry.hits, entry.totalHits, entry.hitsOffset);
+        }
+
+        FieldDoc searchAfter = getPreviousPageLastHit(sh);
+        if (searchAfter != null) {
+            sh.setSearchAfter(searchAfter);
+        }
+        sh.executeQuery();
+        put(sh);
+        return sh;
+    }
+
+    /**
+     * @return the last hit of the page immediately preceding the page of given search if the page is cached
+     * and its searchers were not refreshed since, {@code null} otherwise
+     */
+    @Nullable
+    private FieldDoc getPreviousPageLastHit(SearchHelper sh) {
+        int start = sh.getStart();
+        int maxItems = sh.getMaxItems();
+        if (start < maxItems || maxItems <= 0) {
+            return null;
+        }
+
+        Entry entry = get(getKey(sh, start - maxItems), sh, false);
+        if (entry == null || entry.hits.length == 0 || entry.hitsOffset + entry.hits.length != start) {
+            return null;
+        }
+        ScoreDoc last = entry.hits[entry.hits.length - 1];
+        return last instanceof FieldDoc ? (FieldDoc) last : null;
+    }
+
+    /**
+     * @return cache key or {@code null} if the search should not be cached
+     */
+    @Nullable
+    private String getKey(SearchHelper sh) {
+        if (env.getSearchResultCacheSize() == 0 || sh.getErrorMsg() != null || sh.getRedirect() != null ||
+                sh.getQuery() == null || !(sh.getSearcher() instanceof CachedMultiSearcher)) {
+            return null;
+        }
+
+        return getKey(sh, sh.getStart());
+    }
+
+    private static String getKey(SearchHelper sh, int start) {
+        return sh.getQuery().toString() + '\0' + String.join(",", sh.getProjects()) + '\0' +
+                sh.getOrder() + '\0' + start + '\0' + sh.getMaxItems();
+    }
+
+    @Nullable
+    private Entry get(String key, SearchHelper sh, boolean recordMetrics) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry != null && !Arrays.equals(entry.generations, env.getSearcherGenerations(sh.getProjects()))) {
+                remove(key);
+                entry = null;
+            }
+        }
+
+        if (recordMetrics) {
+            count(entry != null ? "hit" : "miss");
+        }
+        return entry;
+    }
+
+    /**
+     * Add the hits of the page of given search to the cache.
+     * @param sh search helper with the results
+     */
+    private void put(SearchHelper sh) {
+        String key = getKey(sh);
+        ScoreDoc[] hits = sh.getHits();
+        int start = sh.getStart();
+        // Single hit on the first page might lead to redirect which is not cached.
+        if (key == null || hits == null || (start == 0 && hits.length == 1)) {
+            return;
+        }
+
+        int from = Math.max(start - sh.getHitsOffset(), 0);
+        int to = (int) Math.min((long) start + sh.getMaxItems() - sh.getHitsOffset(), hits.length);
+        if (from > to) {
+            return;
+        }
+
+        long[] generations = ((CachedMultiSearcher) sh.getSearcher()).getGenerations();
+        Entry entry = new Entry(key, Arrays.copyOfRange(hits, from, to), sh.getTotalHits(),
+                from + sh.getHitsOffset(), generations);
+        long maxWeight = env.getSearchResultCacheSize() * 1024L * 1024L;
+        if (entry.weight > maxWeight) {
+            return;
+        }
+
+        synchronized (this) {
+            remove(key);
+            entries.put(key, entry);
+            weight += entry.weight;
+
+            Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+            while (weight > maxWeight && iterator.hasNext()) {
+                weight -= iterator.next().getValue().weight;
+                iterator.remove();
+            }
+        }
+    }
+
+    /**
+     * Guarded by {@code this}.
+     */
+    private void remove(String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            weight -= entry.weight;
+        }
+    }
+
+    @VisibleForTesting
+    synchronized long getWeight() {
+        return weight;
+    }
+
+    @VisibleForTesting
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private static void count(String outcome) {
+        MeterRegistry registry = Metrics.getRegistry();
+        if (registry != null) {
+            Counter.builder(METRIC_NAME).
+                    description("search result cache lookups").
+                    tag("outcome", outcome).
+                    register(registry).
+                    increment();
+        }
+    }
+}
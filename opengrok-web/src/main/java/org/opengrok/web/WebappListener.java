@@ -41,6 +41,7 @@ import org.opengrok.indexer.index.IndexCheck;
 import org.opengrok.indexer.index.IndexDatabase;
 import org.opengrok.indexer.logger.LoggerFactory;
 import org.opengrok.indexer.util.Statistics;
+import org.opengrok.indexer.web.FileAccessStatistics;
 import org.opengrok.indexer.web.SearchHelper;
 import org.opengrok.web.api.ApiTaskManager;
 import org.opengrok.web.api.v1.controller.ConfigurationController;
@@ -203,6 +204,7 @@ public final class WebappListener implements ServletContextListener, ServletRequ
         env.getIndexerParallelizer().bounce();
         env.getWatchDog().stop();
         env.stopExpirationTimer();
+        env.clearMultiSearcherCache();
         try {
             env.shutdownRevisionExecutor();
             env.shutdownSearchExecutor();
@@ -211,6 +213,8 @@ public final class WebappListener implements ServletContextListener, ServletRequ
             LOGGER.log(Level.WARNING, "Could not shutdown revision executor", e);
         }
 
+        FileAccessStatistics.getInstance().storeQuietly();
+
         // need to explicitly close the suggester service because it might have scheduled rebuild which could prevent
         // the web application from closing
         SuggesterServiceFactory.getDefault().close();
@@ -365,7 +365,7 @@ public class ProjectsController {
                                 }
                             }
 
-                            CompletableFuture.runAsync(() -> suggester.rebuild(projectName));
+                            CompletableFuture.runAsync(() -> suggester.update(projectName));
 
                             // In case this project has just been incrementally indexed,
                             // its IndexSearcher needs a poke.
@@ -35,6 +35,7 @@ import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
 import org.opengrok.indexer.configuration.Project;
 import org.opengrok.indexer.search.Hit;
 import org.opengrok.indexer.search.SearchEngine;
@@ -76,8 +77,14 @@ public class SearchController {
             @QueryParam("projects") final List<String> projects,
             @QueryParam("maxresults") // Akin to QueryParameters.COUNT_PARAM
             @DefaultValue(MAX_RESULTS + "") final int maxResults,
-            @QueryParam(QueryParameters.START_PARAM) @DefaultValue(0 + "") final int startDocIndex
+            @QueryParam(QueryParameters.START_PARAM) @DefaultValue(0 + "") final int startDocIndex,
+            @QueryParam("cursor") final String cursor
     ) {
+        Cursor after = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            after = decodeCursor(cursor);
+        }
+
         try (SearchEngineWrapper engine = new SearchEngineWrapper(full, def, symbol, path, hist, type)) {
 
             if (!engine.isValid()) {
@@ -88,7 +95,7 @@ public class SearchController {
 
             suggester.onSearch(projects, engine.getQuery());
 
-            Map<String, List<SearchHit>> hits = engine.search(req, projects, startDocIndex, maxResults)
+            Map<String, List<SearchHit>> hits = engine.search(req, projects, startDocIndex, maxResults, after)
                     .stream()
                     .collect(Collectors.groupingBy(Hit::getPath,
                             Collectors.mapping(h -> new SearchHit(h.getLine(), h.getLineno(), h.getTag()),
@@ -96,10 +103,54 @@ public class SearchController {
 
             long duration = Duration.between(startTime, Instant.now()).toMillis();
 
-            int endDocument = startDocIndex + hits.size() - 1;
+            int startDocument = after == null ? startDocIndex : after.position;
+            int endDocument = startDocument + engine.numDocuments - 1;
+
+            return new SearchResult(duration, engine.numResults, hits, startDocument, endDocument,
+                    engine.nextCursor == null ? null : encodeCursor(engine.nextCursor));
+        }
+    }
 
-            return new SearchResult(duration, engine.numResults, hits, startDocIndex, endDocument);
+    /**
+     * Position of the next page in the result list together with the last hit of the previous page.
+     * The cursor is valid only until the index is updated.
+     */
+    static class Cursor {
+        /**
+         * Index of the first document of the next page.
+         */
+        final int position;
+        /**
+         * Last hit of the previous page identified by its document ID and score.
+         */
+        final ScoreDoc scoreDoc;
+
+        Cursor(int position, ScoreDoc scoreDoc) {
+            this.position = position;
+            this.scoreDoc = scoreDoc;
+        }
+    }
+
+    static String encodeCursor(Cursor cursor) {
+        return cursor.position + "." + cursor.scoreDoc.doc + "." +
+                Integer.toHexString(Float.floatToIntBits(cursor.scoreDoc.score));
+    }
+
+    static Cursor decodeCursor(String cursor) {
+        String[] parts = cursor.split("\\.", -1);
+        if (parts.length == 3) {
+            try {
+                int position = Integer.parseInt(parts[0]);
+                int doc = Integer.parseInt(parts[1]);
+                float score = Float.intBitsToFloat(Integer.parseUnsignedInt(parts[2], 16));
+                if (position > 0 && doc >= 0) {
+                    return new Cursor(position, new ScoreDoc(doc, score));
+                }
+            } catch (NumberFormatException e) {
+                // handled below
+            }
         }
+        throw new WebApplicationException("Invalid cursor", Response.Status.BAD_REQUEST);
     }
 
     private static class SearchEngineWrapper implements AutoCloseable {
@@ -108,6 +159,10 @@ public class SearchController {
 
         private int numResults;
 
+        private int numDocuments;
+
+        private Cursor nextCursor;
+
         private SearchEngineWrapper(
                 final String full,
                 final String def,
@@ -128,7 +183,8 @@ public class SearchController {
                 final HttpServletRequest req,
                 final List<String> projects,
                 final int startDocIndex,
-                final int maxResults
+                final int maxResults,
+                final Cursor after
         ) {
             Set<Project> allProjects = PageConfig.get(req).getProjectHelper().getAllProjects();
             if (projects == null || projects.isEmpty()) {
@@ -139,6 +195,19 @@ public class SearchController {
                         .collect(Collectors.toList()));
             }
 
+            List<Hit> results = new ArrayList<>();
+            if (after != null) {
+                ScoreDoc last = engine.results(after.scoreDoc, maxResults, results);
+                if (last != null) {
+                    numDocuments = maxResults;
+                    nextCursor = new Cursor(after.position + maxResults, last);
+                } else {
+                    // The page is the last one so it contains all the remaining documents.
+                    numDocuments = Math.max(0, Math.min(maxResults, numResults - after.position));
+                }
+                return results;
+            }
+
             if (startDocIndex > numResults) {
                 return Collections.emptyList();
             }
@@ -148,8 +217,14 @@ public class SearchController {
                 resultSize = maxResults;
             }
 
-            List<Hit> results = new ArrayList<>();
             engine.results(startDocIndex, startDocIndex + resultSize, results);
+            numDocuments = resultSize;
+
+            ScoreDoc[] scoreDocs = engine.scoreDocs();
+            int last = startDocIndex + resultSize - 1;
+            if (last + 1 < numResults && scoreDocs != null && last >= 0 && last < scoreDocs.length) {
+                nextCursor = new Cursor(last + 1, scoreDocs[last]);
+            }
 
             return results;
         }
@@ -180,18 +255,22 @@ public class SearchController {
 
         private final Map<String, List<SearchHit>> results;
 
+        private final String nextCursor;
+
         private SearchResult(
                 final long time,
                 final int resultCount,
                 final Map<String, List<SearchHit>> results,
                 final int startDocument,
-                final int endDocument
+                final int endDocument,
+                final String nextCursor
         ) {
             this.time = time;
             this.resultCount = resultCount;
             this.results = results;
             this.startDocument = startDocument;
             this.endDocument = endDocument;
+            this.nextCursor = nextCursor;
         }
 
         public long getTime() {
@@ -213,6 +292,10 @@ public class SearchController {
         public int getEndDocument() {
             return endDocument;
         }
+
+        public String getNextCursor() {
+            return nextCursor;
+        }
     }
 
     private static class SearchHit {
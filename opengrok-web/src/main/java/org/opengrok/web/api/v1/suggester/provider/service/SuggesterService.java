@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2018, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2018, 2023, Oracle and/or its affiliates. All rights reserved.
  */
 package org.opengrok.web.api.v1.suggester.provider.service;
 
@@ -62,6 +62,13 @@ public interface SuggesterService {
      */
     void rebuild(String project);
 
+    /**
+     * Updates suggester data structures for given project with the changes of its index. Unlike
+     * {@link #rebuild(String)} this processes only the newly indexed data where possible.
+     * @param project project name
+     */
+    void update(String project);
+
     /**
      * Wait for rebuild. For testing.
      * @param timeout timeout to wait for
@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2018, 2022, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2018, 2023, Oracle and/or its affiliates. All rights reserved.
  */
 package org.opengrok.web.api.v1.suggester.provider.service.impl;
 
@@ -193,6 +193,16 @@ public class SuggesterServiceImpl implements SuggesterService {
     /** {@inheritDoc} */
     @Override
     public void rebuild(final String project) {
+        rebuild(project, false);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void update(final String project) {
+        rebuild(project, true);
+    }
+
+    private void rebuild(final String project, final boolean incremental) {
         Project p = env.getProjects().get(project);
         if (p == null) {
             logger.log(Level.WARNING, "Cannot rebuild suggester because project for name {0} was not found",
@@ -209,7 +219,11 @@ public class SuggesterServiceImpl implements SuggesterService {
                 logger.log(Level.FINE, "Cannot rebuild {0} because suggester is not initialized", project);
                 return;
             }
-            suggester.rebuild(Collections.singleton(getNamedIndexDir(p)));
+            if (incremental) {
+                suggester.update(Collections.singleton(getNamedIndexDir(p)));
+            } else {
+                suggester.rebuild(Collections.singleton(getNamedIndexDir(p)));
+            }
         } finally {
             lock.readLock().unlock();
         }
@@ -18,7 +18,7 @@ information: Portions Copyright [yyyy] [name of copyright owner]
 
 CDDL HEADER END
 
-Copyright (c) 2005, 2022, Oracle and/or its affiliates. All rights reserved.
+Copyright (c) 2005, 2023, Oracle and/or its affiliates. All rights reserved.
 Portions Copyright 2011 Jens Elkner.
 Portions Copyright (c) 2018-2020, Chris Fraire <cfraire@me.com>.
 --%>
@@ -47,6 +47,7 @@ org.opengrok.indexer.web.Util"
 %>
 <%@ page import="jakarta.servlet.http.HttpServletResponse" %>
 <%@ page import="org.opengrok.indexer.web.SortOrder" %>
+<%@ page import="org.opengrok.web.RevisionXrefCache" %>
 <%/* ---------------------- history.jsp start --------------------- */
 {
     final Logger LOGGER = LoggerFactory.getLogger(getClass());
@@ -99,6 +100,9 @@ org.opengrok.indexer.web.Util"
             return;
         }
         request.setAttribute(cfg.getHistoryAttrName(), hist);
+        if (file.isFile()) {
+            RevisionXrefCache.getInstance().prefetch(file, hist.getHistoryEntries(), project);
+        }
     }
 }
 %>
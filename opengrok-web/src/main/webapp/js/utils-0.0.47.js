@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2009, 2021, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2009, 2023, Oracle and/or its affiliates. All rights reserved.
  * Portions Copyright 2011 Jens Elkner.
  * Portions Copyright (c) 2017, 2020, Chris Fraire <cfraire@me.com>.
  * Portions Copyright (c) 2022, Krystof Tulinger <k.tulinger@seznam.cz>.
@@ -1522,14 +1522,42 @@ function init_markdown_converter() {
     });
 }
 
-window.onload = function () {
-    for (let i in document.pageReady) {
-        document.pageReady[i]();
+/**
+ * Load the cross reference which list.jsp left to be fetched separately so that
+ * the stored compressed xref file can be sent as it is.
+ *
+ * @return promise resolved once the cross reference is in place
+ */
+function load_xref() {
+    const $pre = $('#src pre[data-xref-url]');
+    if ($pre.length === 0) {
+        return $.Deferred().resolve().promise();
     }
+    return $.ajax({
+        url: $pre.data('xref-url'),
+        dataType: 'html'
+    }).done(function (payload) {
+        $pre.html(payload);
+    }).fail(function () {
+        $pre.closest('#src').replaceWith('<h3 class="error">Error reading file</h3>');
+    });
+}
+
+window.onload = function () {
+    // The page initialization needs the cross reference to be in place.
+    $.when(document.xrefLoaded).always(function () {
+        for (let i in document.pageReady) {
+            document.pageReady[i]();
+        }
+    });
 };
 
 $(document).ready(function () {
-    for (let i in this.domReady) {
+    document.xrefLoaded = load_xref().always(domReadyPage);
+});
+
+function domReadyPage() {
+    for (let i in document.domReady) {
         document.domReady[i]();
     }
 
@@ -1617,7 +1645,7 @@ $(document).ready(function () {
     init_markdown_converter();
 
     restoreFocusAfterSearchSubmit();
-});
+}
 
 /**
  * Get a parameter value from the URL.
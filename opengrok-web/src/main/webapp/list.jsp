@@ -42,6 +42,7 @@ org.opengrok.indexer.index.IndexDatabase,
 org.opengrok.indexer.search.DirectoryEntry,
 org.opengrok.indexer.util.FileExtraZipper,
 org.opengrok.indexer.util.IOUtils,
+org.opengrok.indexer.web.FileAccessStatistics,
 org.opengrok.web.DirectoryListing"
 %>
 <%@ page import="static org.opengrok.web.PageConfig.DUMMY_REVISION" %>
@@ -99,6 +100,10 @@ org.opengrok.web.DirectoryListing"
         }
     }
 
+    if (!cfg.isDir()) {
+        FileAccessStatistics.getInstance().record(cfg.getPath());
+    }
+
     Annotation annotation = cfg.getAnnotation();
     if (annotation != null) {
         int r = annotation.getWidestRevision();
@@ -269,12 +274,20 @@ Click <a href="<%= rawPath %>">download <%= basename %></a><%
 
             } else {
 %>
-<div id="src" data-navigate-window-enabled="<%= navigateWindowEnabled %>">
+<div id="src" data-navigate-window-enabled="<%= navigateWindowEnabled %>"><%
+                if (cfg.isXrefLoadedSeparately(xrefFile)) {
+                    // The stored xref is sent as it is, see GetFile and load_xref() in utils.js.
+%>
+    <pre data-xref-url="<%= cfg.getRawXrefPath() %>"><noscript><a href="<%= cfg.getRawXrefPath() %>">View cross reference</a></noscript></pre><%
+                } else {
+%>
     <pre><%
                     boolean compressed = xrefFile.getName().endsWith(".gz");
                     Util.dumpXref(out, xrefFile, compressed,
                             request.getContextPath());
-    %></pre>
+    %></pre><%
+                }
+%>
 </div>
 <%
             }
@@ -292,11 +305,19 @@ include file="/xref.jspf"
         File xrefFile = cfg.findDataFile();
         if (xrefFile != null) {
 %>
-<div id="src" data-navigate-window-enabled="<%= navigateWindowEnabled %>">
+<div id="src" data-navigate-window-enabled="<%= navigateWindowEnabled %>"><%
+            if (cfg.isXrefLoadedSeparately(xrefFile)) {
+                // The stored xref is sent as it is, see GetFile and load_xref() in utils.js.
+%>
+    <pre data-xref-url="<%= cfg.getRawXrefPath() %>"><noscript><a href="<%= cfg.getRawXrefPath() %>">View cross reference</a></noscript></pre><%
+            } else {
+%>
     <pre><%
-            boolean compressed = xrefFile.getName().endsWith(".gz");
-            Util.dumpXref(out, xrefFile, compressed, request.getContextPath());
-    %></pre>
+                boolean compressed = xrefFile.getName().endsWith(".gz");
+                Util.dumpXref(out, xrefFile, compressed, request.getContextPath());
+    %></pre><%
+            }
+%>
 </div>
 <%
         } else {
@@ -26,6 +26,7 @@ Portions Copyright (c) 2017-2018, 2020, Chris Fraire <cfraire@me.com>.
 <%@page session="false" errorPage="error.jsp" import="
 org.apache.lucene.queryparser.classic.QueryParser,
 org.opengrok.indexer.search.Results,
+org.opengrok.web.SearchResultCache,
 org.opengrok.web.api.v1.suggester.provider.service.SuggesterServiceFactory,
 org.opengrok.indexer.web.QueryParameters,
 org.opengrok.indexer.web.SearchHelper,
@@ -83,7 +84,8 @@ include file="/projects.jspf"
     // WebappListener.requestDestroyed() on presence of the following
     // REQUEST_ATTR.
     request.setAttribute(SearchHelper.REQUEST_ATTR, searchHelper);
-    searchHelper.prepareExec(cfg.getRequestedProjects()).executeQuery().prepareSummary();
+    searchHelper.prepareExec(cfg.getRequestedProjects());
+    SearchResultCache.getInstance().executeQuery(searchHelper).prepareSummary();
     // notify suggester that query was searched
     SuggesterServiceFactory.getDefault().onSearch(cfg.getRequestedProjects(), searchHelper.getQuery());
     String redirect = searchHelper.getRedirect();
@@ -0,0 +1,239 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.web;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.opengrok.indexer.configuration.RuntimeEnvironment;
+import org.opengrok.indexer.web.DummyHttpServletRequest;
+import org.opengrok.indexer.web.Prefix;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class GetFileTest {
+
+    private static final String XREF = "<a class=\"l\" name=\"1\" href=\"#1\">1</a>" +
+            "<a href=\"/source/s?defs=main\">main</a>";
+
+    @TempDir
+    private Path tempDir;
+
+    private String oldSourceRoot;
+    private String oldDataRoot;
+    private File xrefFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        RuntimeEnvironment env = RuntimeEnvironment.getInstance();
+        oldSourceRoot = env.getSourceRootPath();
+        oldDataRoot = env.getDataRootPath();
+
+        Path sourceRoot = Files.createDirectories(tempDir.resolve("src"));
+        Path dataRoot = Files.createDirectories(tempDir.resolve("data"));
+        Path file = Files.writeString(Files.createDirectories(sourceRoot.resolve("foo")).resolve("main.c"),
+                "int main() {}\n");
+        xrefFile = Files.createDirectories(dataRoot.resolve("xref").resolve("foo")).
+                resolve("main.c.gz").toFile();
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(xrefFile.toPath()))) {
+            out.write(XREF.getBytes(StandardCharsets.UTF_8));
+        }
+        assertTrue(xrefFile.setLastModified(file.toFile().lastModified() + 1000));
+
+        env.setSourceRoot(sourceRoot.toString());
+        env.setDataRoot(dataRoot.toString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        RuntimeEnvironment env = RuntimeEnvironment.getInstance();
+        env.setSourceRoot(oldSourceRoot);
+        env.setDataRoot(oldDataRoot);
+    }
+
+    private static HttpServletRequest createRequest(String contextPath, String acceptEncoding, String etag) {
+        return new DummyHttpServletRequest() {
+            @Override
+            public String getContextPath() {
+                return contextPath;
+            }
+
+            @Override
+            public String getServletPath() {
+                return Prefix.RAW_XREF_P.toString();
+            }
+
+            @Override
+            public String getPathInfo() {
+                return "/foo/main.c";
+            }
+
+            @Override
+            public String getParameter(String name) {
+                return null;
+            }
+
+            @Override
+            public String getHeader(String name) {
+                if (name.equals("Accept-Encoding")) {
+                    return acceptEncoding;
+                }
+                if (name.equals("If-None-Match")) {
+                    return etag;
+                }
+                return null;
+            }
+        };
+    }
+
+    private static ServletOutputStream createOutputStream(ByteArrayOutputStream bytes) {
+        return new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) {
+                bytes.write(b);
+            }
+        };
+    }
+
+    @Test
+    void testServeStoredXref() throws Exception {
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        when(response.getOutputStream()).thenReturn(createOutputStream(bytes));
+
+        new GetFile().service(createRequest("/source", "gzip, deflate", null), response);
+
+        verify(response).setHeader("Content-Encoding", "gzip");
+        verify(response).setContentLengthLong(xrefFile.length());
+        assertEquals(Files.readAllBytes(xrefFile.toPath()).length, bytes.size());
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertEquals(XREF, new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testServeDecompressedXref() throws Exception {
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        StringWriter writer = new StringWriter();
+        when(response.getWriter()).thenReturn(new PrintWriter(writer));
+
+        new GetFile().service(createRequest("/source", null, null), response);
+
+        verify(response, never()).setHeader(eq("Content-Encoding"), anyString());
+        assertEquals(XREF, writer.toString());
+    }
+
+    @Test
+    void testServeTransformedXref() throws Exception {
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        StringWriter writer = new StringWriter();
+        when(response.getWriter()).thenReturn(new PrintWriter(writer));
+
+        new GetFile().service(createRequest("/grok", "gzip", null), response);
+
+        verify(response, never()).setHeader(eq("Content-Encoding"), anyString());
+        assertEquals(XREF.replace("/source/", "/grok/"), writer.toString());
+    }
+
+    @Test
+    void testServeXrefNotModified() throws Exception {
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        when(response.getOutputStream()).thenReturn(createOutputStream(new ByteArrayOutputStream()));
+        new GetFile().service(createRequest("/source", "gzip", null), response);
+        ArgumentCaptor<String> etag = ArgumentCaptor.forClass(String.class);
+        verify(response).setHeader(eq("ETag"), etag.capture());
+
+        response = mock(HttpServletResponse.class);
+        new GetFile().service(createRequest("/source", "gzip", etag.getValue()), response);
+
+        verify(response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(response, never()).getOutputStream();
+        verify(response, never()).getWriter();
+    }
+
+    @Test
+    void testXrefLoadedSeparately() {
+        RuntimeEnvironment env = RuntimeEnvironment.getInstance();
+        // The xref is embedded in the page by default.
+        assertFalse(PageConfig.get(createRequest("/source", null, null)).isXrefLoadedSeparately(xrefFile));
+
+        env.setXrefLoadedSeparately(true);
+        try {
+            PageConfig cfg = PageConfig.get(createRequest("/source", null, null));
+            assertTrue(cfg.isXrefLoadedSeparately(xrefFile));
+            assertEquals("/source/rawxref/foo/main.c", cfg.getRawXrefPath());
+            assertFalse(cfg.isXrefLoadedSeparately(new File(xrefFile.getParentFile(), "main.c")));
+            assertFalse(PageConfig.get(createRequest("/grok", null, null)).isXrefLoadedSeparately(xrefFile));
+        } finally {
+            env.setXrefLoadedSeparately(false);
+        }
+    }
+
+    @Test
+    void testAcceptsGzip() {
+        assertFalse(GetFile.acceptsGzip(null));
+        assertFalse(GetFile.acceptsGzip(""));
+        assertFalse(GetFile.acceptsGzip("br, deflate"));
+        assertTrue(GetFile.acceptsGzip("gzip"));
+        assertTrue(GetFile.acceptsGzip("deflate, GZIP;q=0.5, br"));
+        assertTrue(GetFile.acceptsGzip("*"));
+        assertFalse(GetFile.acceptsGzip("gzip;q=0"));
+        assertFalse(GetFile.acceptsGzip("gzip; q=0.0, identity"));
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.web;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.opengrok.indexer.configuration.RuntimeEnvironment;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RevisionXrefCacheTest {
+
+    private final RuntimeEnvironment env = RuntimeEnvironment.getInstance();
+    private String origDataRoot;
+    private int origCacheSize;
+
+    @TempDir
+    Path dataRoot;
+
+    @BeforeEach
+    void setUp() {
+        origDataRoot = env.getDataRootPath();
+        origCacheSize = env.getRevisionXrefCacheSize();
+        env.setDataRoot(dataRoot.toString());
+        env.setRevisionXrefCacheSize(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        env.setDataRoot(origDataRoot);
+        env.setRevisionXrefCacheSize(origCacheSize);
+    }
+
+    private static String read(InputStream in) throws IOException {
+        assertNotNull(in);
+        try (Reader reader = new InputStreamReader(new GZIPInputStream(in))) {
+            StringWriter out = new StringWriter();
+            reader.transferTo(out);
+            return out.toString();
+        }
+    }
+
+    private String[] listEntries() {
+        String[] files = dataRoot.resolve(RevisionXrefCache.DIRECTORY).toFile().list();
+        assertNotNull(files);
+        return files;
+    }
+
+    @Test
+    void testCacheHit() throws IOException {
+        RevisionXrefCache cache = new RevisionXrefCache();
+        AtomicInteger renders = new AtomicInteger();
+        RevisionXrefCache.XrefRenderer renderer = out -> {
+            renders.incrementAndGet();
+            out.write("<a href=\"/source/xref/foo\">foo</a>");
+            return true;
+        };
+
+        assertEquals("<a href=\"/source/xref/foo\">foo</a>", read(cache.get("key", renderer)));
+        assertEquals("<a href=\"/source/xref/foo\">foo</a>", read(cache.get("key", renderer)));
+        assertEquals(1, renders.get());
+        assertEquals(1, cache.size());
+        String[] files = listEntries();
+        assertEquals(1, files.length);
+        assertEquals(dataRoot.resolve(RevisionXrefCache.DIRECTORY).resolve(files[0]).toFile().length(),
+                cache.getWeight());
+    }
+
+    @Test
+    void testRenderFailure() {
+        RevisionXrefCache cache = new RevisionXrefCache();
+        assertNull(cache.get("key", out -> false));
+        assertNull(cache.get("key2", out -> {
+            throw new IllegalStateException("failed");
+        }));
+        assertEquals(0, cache.size());
+        assertEquals(0, listEntries().length);
+    }
+
+    @Test
+    void testEviction() throws IOException {
+        RevisionXrefCache cache = new RevisionXrefCache();
+        // Random content so that only two gzipped entries fit into the cache.
+        RevisionXrefCache.XrefRenderer renderer = out -> {
+            Random random = new Random();
+            for (int i = 0; i < 700 * 1024; i++) {
+                out.write('a' + random.nextInt(26));
+            }
+            return true;
+        };
+
+        read(cache.get("first", renderer));
+        read(cache.get("second", renderer));
+        // access the first entry so that the second is the least recently used one
+        read(cache.get("first", out -> false));
+        read(cache.get("third", renderer));
+
+        assertEquals(2, cache.size());
+        assertTrue(cache.getWeight() <= 1024 * 1024);
+        assertEquals(2, listEntries().length);
+        assertNull(cache.get("second", out -> false));
+
+        // The entries are loaded from the directory by new instance.
+        RevisionXrefCache cache2 = new RevisionXrefCache();
+        assertEquals(700 * 1024, read(cache2.get("first", out -> false)).length());
+        assertEquals(2, cache2.size());
+    }
+
+    @Test
+    void testReadEvictedEntry() throws IOException {
+        RevisionXrefCache cache = new RevisionXrefCache();
+        RevisionXrefCache.XrefRenderer renderer = out -> {
+            Random random = new Random();
+            for (int i = 0; i < 700 * 1024; i++) {
+                out.write('a' + random.nextInt(26));
+            }
+            return true;
+        };
+
+        read(cache.get("first", renderer));
+        try (InputStream in = cache.get("first", out -> false)) {
+            // Evict the first entry before its content is read.
+            read(cache.get("second", renderer));
+            read(cache.get("third", renderer));
+            assertNull(cache.get("first", out -> false));
+
+            assertEquals(700 * 1024, read(in).length());
+        }
+    }
+
+    @Test
+    void testConcurrentRequests() throws Exception {
+        RevisionXrefCache cache = new RevisionXrefCache();
+        AtomicInteger renders = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        RevisionXrefCache.XrefRenderer renderer = out -> {
+            renders.incrementAndGet();
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            out.write("foo");
+            return true;
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<String> first = executor.submit(() -> read(cache.get("key", renderer)));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            Future<String> second = executor.submit(() -> read(cache.get("key", renderer)));
+            Future<String> third = executor.submit(() -> read(cache.get("key", renderer)));
+            release.countDown();
+
+            assertEquals("foo", first.get(10, TimeUnit.SECONDS));
+            assertEquals("foo", second.get(10, TimeUnit.SECONDS));
+            assertEquals("foo", third.get(10, TimeUnit.SECONDS));
+            assertEquals(1, renders.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testDisabled() {
+        env.setRevisionXrefCacheSize(0);
+        assertNull(RevisionXrefCache.getInstance().get(new File(dataRoot.toFile(), "foo.c"), "1", null));
+    }
+}
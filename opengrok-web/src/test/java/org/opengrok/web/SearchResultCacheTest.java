@@ -0,0 +1,193 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.web;
+
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TermQuery;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.opengrok.indexer.configuration.CachedMultiSearcher;
+import org.opengrok.indexer.configuration.RuntimeEnvironment;
+import org.opengrok.indexer.web.SearchHelper;
+import org.opengrok.indexer.web.SortOrder;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SearchResultCacheTest {
+
+    private final RuntimeEnvironment env = RuntimeEnvironment.getInstance();
+    private final SortedSet<String> projects = new TreeSet<>(List.of("project1", "project2"));
+    private int origCacheSize;
+
+    @BeforeEach
+    void setUp() {
+        origCacheSize = env.getSearchResultCacheSize();
+        env.setSearchResultCacheSize(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        env.setSearchResultCacheSize(origCacheSize);
+    }
+
+    private SearchHelper createSearchHelper(String term, long[] generations) {
+        return createSearchHelper(term, generations, new ScoreDoc[]{new ScoreDoc(1, 2f), new ScoreDoc(3, 1f)});
+    }
+
+    private SearchHelper createSearchHelper(String term, long[] generations, ScoreDoc[] hits) {
+        CachedMultiSearcher searcher = mock(CachedMultiSearcher.class);
+        when(searcher.getGenerations()).thenReturn(generations);
+
+        SearchHelper sh = mock(SearchHelper.class);
+        when(sh.getQuery()).thenReturn(new TermQuery(new Term("full", term)));
+        when(sh.getProjects()).thenReturn(projects);
+        when(sh.getOrder()).thenReturn(SortOrder.RELEVANCY);
+        when(sh.getStart()).thenReturn(0);
+        when(sh.getMaxItems()).thenReturn(Math.max(25, hits.length));
+        when(sh.getSearcher()).thenReturn(searcher);
+        when(sh.getHits()).thenReturn(hits);
+        when(sh.getTotalHits()).thenReturn((long) hits.length);
+        when(sh.executeQuery()).thenReturn(sh);
+        when(sh.setCachedResults(any(), anyLong(), anyInt())).thenReturn(sh);
+        return sh;
+    }
+
+    @Test
+    void testCacheHit() {
+        SearchResultCache cache = new SearchResultCache();
+        long[] generations = env.getSearcherGenerations(projects);
+
+        SearchHelper sh = createSearchHelper("foo", generations);
+        cache.executeQuery(sh);
+        verify(sh).executeQuery();
+        assertEquals(1, cache.size());
+
+        SearchHelper sh2 = createSearchHelper("foo", generations);
+        cache.executeQuery(sh2);
+        verify(sh2, never()).executeQuery();
+        verify(sh2).setCachedResults(any(), eq(2L), eq(0));
+    }
+
+    @Test
+    void testStaleGeneration() {
+        SearchResultCache cache = new SearchResultCache();
+        long[] generations = env.getSearcherGenerations(projects);
+        long[] oldGenerations = new long[generations.length];
+        for (int i = 0; i < generations.length; i++) {
+            oldGenerations[i] = generations[i] - 1;
+        }
+
+        SearchHelper sh = createSearchHelper("foo", oldGenerations);
+        cache.executeQuery(sh);
+        assertEquals(1, cache.size());
+
+        // The entry is replaced by the results of the current searchers.
+        SearchHelper sh2 = createSearchHelper("foo", generations);
+        cache.executeQuery(sh2);
+        verify(sh2, times(1)).executeQuery();
+        verify(sh2, never()).setCachedResults(any(), anyLong(), anyInt());
+        assertEquals(1, cache.size());
+    }
+
+    private static ScoreDoc[] createHits(int count) {
+        ScoreDoc[] hits = new ScoreDoc[count];
+        for (int i = 0; i < count; i++) {
+            hits[i] = new ScoreDoc(i, 1f);
+        }
+        return hits;
+    }
+
+    @Test
+    void testWeightEviction() {
+        SearchResultCache cache = new SearchResultCache();
+        long[] generations = env.getSearcherGenerations(projects);
+        // Each entry takes more than half of the 1 MB limit.
+        ScoreDoc[] hits = createHits(20_000);
+
+        cache.executeQuery(createSearchHelper("foo", generations, hits));
+        assertEquals(1, cache.size());
+        cache.executeQuery(createSearchHelper("bar", generations, hits));
+        assertEquals(1, cache.size());
+        assertTrue(cache.getWeight() <= 1024 * 1024);
+
+        // Entry bigger than the limit is not cached at all.
+        cache.executeQuery(createSearchHelper("baz", generations, createHits(40_000)));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void testDisabled() {
+        env.setSearchResultCacheSize(0);
+        SearchResultCache cache = new SearchResultCache();
+        SearchHelper sh = createSearchHelper("foo", env.getSearcherGenerations(projects));
+        cache.executeQuery(sh);
+        verify(sh).executeQuery();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testSearchAfterPreviousPage() {
+        SearchResultCache cache = new SearchResultCache();
+        long[] generations = env.getSearcherGenerations(projects);
+        FieldDoc lastHit = new FieldDoc(3, 1f, new Object[]{1f});
+
+        SearchHelper sh = createSearchHelper("foo", generations);
+        when(sh.getMaxItems()).thenReturn(2);
+        when(sh.getHits()).thenReturn(new ScoreDoc[]{new FieldDoc(1, 2f, new Object[]{2f}), lastHit});
+        when(sh.getTotalHits()).thenReturn(5L);
+        cache.executeQuery(sh);
+
+        SearchHelper next = createSearchHelper("foo", generations);
+        when(next.getMaxItems()).thenReturn(2);
+        when(next.getStart()).thenReturn(2);
+        cache.executeQuery(next);
+        verify(next).setSearchAfter(same(lastHit));
+        verify(next).executeQuery();
+
+        // Page that does not immediately follow a cached page is searched from the start.
+        SearchHelper other = createSearchHelper("foo", generations);
+        when(other.getMaxItems()).thenReturn(2);
+        when(other.getStart()).thenReturn(4);
+        cache.executeQuery(other);
+        verify(other, never()).setSearchAfter(any());
+        verify(other).executeQuery();
+    }
+}
@@ -23,7 +23,9 @@
  */
 package org.opengrok.web.api.v1.controller;
 
+import jakarta.ws.rs.WebApplicationException;
 import jakarta.ws.rs.core.Response;
+import org.apache.lucene.search.ScoreDoc;
 import org.glassfish.jersey.servlet.ServletContainer;
 import org.glassfish.jersey.test.DeploymentContext;
 import org.glassfish.jersey.test.ServletDeploymentContext;
@@ -40,6 +42,7 @@ import org.opengrok.web.api.v1.RestApp;
 import java.util.Collections;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.opengrok.web.api.v1.filter.CorsFilter.ALLOW_CORS_HEADER;
 import static org.opengrok.web.api.v1.filter.CorsFilter.CORS_REQUEST_HEADER;
 
@@ -86,4 +89,28 @@ public class SearchControllerTest extends OGKJerseyTest {
                 .get();
         assertEquals("*", response.getHeaderString(ALLOW_CORS_HEADER));
     }
+
+    @Test
+    void testCursor() {
+        SearchController.Cursor cursor = new SearchController.Cursor(1000, new ScoreDoc(12345, 0.75f));
+        SearchController.Cursor decoded = SearchController.decodeCursor(SearchController.encodeCursor(cursor));
+        assertEquals(cursor.position, decoded.position);
+        assertEquals(cursor.scoreDoc.doc, decoded.scoreDoc.doc);
+        assertEquals(cursor.scoreDoc.score, decoded.scoreDoc.score);
+
+        assertThrows(WebApplicationException.class, () -> SearchController.decodeCursor("foo"));
+        assertThrows(WebApplicationException.class, () -> SearchController.decodeCursor("12345.3f400000"));
+        assertThrows(WebApplicationException.class, () -> SearchController.decodeCursor("0.12345.3f400000"));
+        assertThrows(WebApplicationException.class, () -> SearchController.decodeCursor("10.-1.0"));
+    }
+
+    @Test
+    void testInvalidCursor() {
+        Response response = target(SearchController.PATH)
+                .queryParam("full", "main")
+                .queryParam("cursor", "bogus")
+                .request()
+                .get();
+        assertEquals(Response.Status.BAD_REQUEST.getStatusCode(), response.getStatus());
+    }
 }
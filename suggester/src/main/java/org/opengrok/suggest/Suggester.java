@@ -293,6 +293,19 @@ public final class Suggester implements Closeable {
      * @param indexDirs paths to lucene indexes and name with which the index should be associated
      */
     public void rebuild(final Collection<NamedIndexDir> indexDirs) {
+        rebuild(indexDirs, false);
+    }
+
+    /**
+     * Updates the data structures for specified indexes with the terms of the index segments added since
+     * the last rebuild or update. The data structures are rebuilt where the incremental update is not possible.
+     * @param indexDirs paths to lucene indexes and name with which the index should be associated
+     */
+    public void update(final Collection<NamedIndexDir> indexDirs) {
+        rebuild(indexDirs, true);
+    }
+
+    private void rebuild(final Collection<NamedIndexDir> indexDirs, final boolean incremental) {
         if (indexDirs == null || indexDirs.isEmpty()) {
             LOGGER.log(Level.INFO, "Not rebuilding suggester data because no index directories were specified");
             return;
@@ -308,7 +321,8 @@ public final class Suggester implements Closeable {
             }
 
             Instant start = Instant.now();
-            LOGGER.log(Level.INFO, "Rebuilding the following suggesters: {0}", indexDirs);
+            LOGGER.log(Level.INFO, "{0} the following suggesters: {1}",
+                    new Object[] {incremental ? "Updating" : "Rebuilding", indexDirs});
 
             ExecutorService executor = Executors.newWorkStealingPool(rebuildParallelismLevel);
 
@@ -317,7 +331,7 @@ public final class Suggester implements Closeable {
                 for (NamedIndexDir indexDir : indexDirs) {
                     SuggesterProjectData data = this.projectData.get(indexDir.name);
                     if (data != null) {
-                        executor.submit(getRebuildRunnable(data, progress));
+                        executor.submit(getRebuildRunnable(data, progress, incremental));
                     } else {
                         submitInitIfIndexExists(executor, indexDir, progress);
                     }
@@ -356,7 +370,8 @@ public final class Suggester implements Closeable {
         }
     }
 
-    private Runnable getRebuildRunnable(final SuggesterProjectData data, Progress progress) {
+    private Runnable getRebuildRunnable(final SuggesterProjectData data, Progress progress,
+                                        final boolean incremental) {
         return () -> {
             try {
                 if (terminating) {
@@ -365,7 +380,11 @@ public final class Suggester implements Closeable {
 
                 Instant start = Instant.now();
                 LOGGER.log(Level.FINE, "Rebuilding {0}", data);
-                data.rebuild();
+                if (incremental) {
+                    data.update();
+                } else {
+                    data.rebuild();
+                }
 
                 Duration d = Duration.between(start, Instant.now());
                 LOGGER.log(Level.FINE, "Rebuild of {0} finished, took {1}", new Object[] {data, d});
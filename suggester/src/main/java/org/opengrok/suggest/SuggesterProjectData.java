@@ -25,8 +25,12 @@ package org.opengrok.suggest;
 import org.apache.commons.io.FileUtils;
 import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.FieldInfos;
+import org.apache.lucene.index.FilterLeafReader;
 import org.apache.lucene.index.IndexCommit;
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.MultiReader;
+import org.apache.lucene.index.SegmentReader;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.search.spell.LuceneDictionary;
 import org.apache.lucene.search.suggest.InputIterator;
@@ -35,6 +39,8 @@ import org.apache.lucene.search.suggest.fst.WFSTCompletionLookup;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
 import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.StringHelper;
+import org.opengrok.suggest.popular.PopularityBuffer;
 import org.opengrok.suggest.popular.PopularityCounter;
 import org.opengrok.suggest.popular.PopularityMap;
 import org.opengrok.suggest.popular.impl.chronicle.ChronicleMapAdapter;
@@ -48,6 +54,7 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -56,6 +63,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Level;
@@ -63,6 +72,18 @@ import java.util.logging.Logger;
 
 /**
  * Holds all the necessary data for one index directory. In the context of OpenGrok it is one project.
+ * <p>
+ * The terms of each field are stored in a {@link TieredLookup}. The rebuild creates the base WFSTs from the whole
+ * index and stores them in the suggester directory. The subsequent {@link #update()} only adds in-memory WFSTs
+ * with the terms of the index segments created since then. Once the number of these delta tiers or the number of
+ * documents in the new segments grows too large, the data is compacted by rebuild. The lookups are blocked only
+ * for the short time the new data is put in place.
+ * </p>
+ * <p>
+ * The search count increments are recorded without any locking into {@link PopularityBuffer}s and applied to
+ * the persistent search count maps in batches, so searches never wait for the rebuild and no increments are lost
+ * while it runs.
+ * </p>
  */
 class SuggesterProjectData implements Closeable {
 
@@ -80,6 +101,25 @@ class SuggesterProjectData implements Closeable {
 
     private static final String VERSION_FILE_NAME = "version.txt";
 
+    private static final String SEGMENTS_FILE_NAME = "segments.txt";
+
+    /**
+     * Maximum number of delta tiers of a field. Rebuild is performed instead of update once it is reached.
+     */
+    static final int MAX_DELTA_TIERS = 8;
+
+    /**
+     * Maximum ratio of documents in the new segments to all documents for which the update is done incrementally.
+     * Segment merges produce new segments as well, so large merges lead to rebuild.
+     */
+    static final double MAX_DELTA_DOCS_RATIO = 0.2;
+
+    /**
+     * Number of buffered terms of a field after which the search count increments are applied to the search count
+     * map. Otherwise they are applied by the next update or rebuild.
+     */
+    static final int SEARCH_COUNT_FLUSH_THRESHOLD = 1000;
+
     private static final int DEFAULT_WEIGHT = 0;
 
     private static final double AVERAGE_LENGTH_DEFAULT = 22;
@@ -88,20 +128,42 @@ class SuggesterProjectData implements Closeable {
 
     private final Path suggesterDir;
 
-    private final Map<String, WFSTCompletionLookup> lookups = new HashMap<>();
+    /**
+     * Lookups per field. The map is never modified, it is replaced as a whole, so that the terms can be checked
+     * by {@link #incrementSearchCount(Term, int, boolean)} without locking.
+     */
+    private volatile Map<String, TieredLookup> lookups = Collections.emptyMap();
 
     private final Map<String, PopularityMap> searchCountMaps = new HashMap<>();
 
-    private final Map<String, Double> averageLengths = new HashMap<>();
+    /**
+     * Search count increments not yet applied to {@link #searchCountMaps}.
+     */
+    private final Map<String, PopularityBuffer> searchCountBuffers = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean flushingSearchCounts = new AtomicBoolean();
+
+    private final Map<String, Double> averageLengths = new ConcurrentHashMap<>();
 
     private final boolean allowMostPopular;
 
     private final ReadWriteLock lock = new ReentrantReadWriteLock();
 
+    /**
+     * Serializes the initialization, rebuilds and updates. These hold {@link #lock} for writing only when
+     * the new data is put in place.
+     */
+    private final Object updateLock = new Object();
+
     private final Set<String> allowedFields;
 
     private Set<String> fields;
 
+    /**
+     * IDs of the index segments whose terms are contained in {@link #lookups}.
+     */
+    private Set<String> segments = Collections.emptySet();
+
     private final Directory tempDir;
 
     SuggesterProjectData(
@@ -117,27 +179,27 @@ class SuggesterProjectData implements Closeable {
 
         tempDir = FSDirectory.open(Paths.get(System.getProperty(TMP_DIR_PROPERTY)));
 
-        initFields();
+        try (IndexReader indexReader = DirectoryReader.open(indexDir)) {
+            fields = getFields(indexReader);
+        }
     }
 
-    private void initFields() throws IOException {
-        try (IndexReader indexReader = DirectoryReader.open(indexDir)) {
-            Collection<String> indexedFields = FieldInfos.getIndexedFields(indexReader);
-            if (allowedFields == null) {
-                this.fields = new HashSet<>(indexedFields);
-            } else if (!indexedFields.containsAll(allowedFields)) {
-                Set<String> copy = new HashSet<>(allowedFields);
-                copy.removeAll(indexedFields);
-                logger.log(Level.WARNING,
-                        "Fields {0} will be ignored because they were not found in index directory {1}",
-                        new Object[] {copy, indexDir});
-
-                copy = new HashSet<>(allowedFields);
-                copy.retainAll(indexedFields);
-                this.fields = copy;
-            } else {
-                this.fields = new HashSet<>(allowedFields);
-            }
+    private Set<String> getFields(final IndexReader indexReader) {
+        Collection<String> indexedFields = FieldInfos.getIndexedFields(indexReader);
+        if (allowedFields == null) {
+            return new HashSet<>(indexedFields);
+        } else if (!indexedFields.containsAll(allowedFields)) {
+            Set<String> copy = new HashSet<>(allowedFields);
+            copy.removeAll(indexedFields);
+            logger.log(Level.WARNING,
+                    "Fields {0} will be ignored because they were not found in index directory {1}",
+                    new Object[] {copy, indexDir});
+
+            copy = new HashSet<>(allowedFields);
+            copy.retainAll(indexedFields);
+            return copy;
+        } else {
+            return new HashSet<>(allowedFields);
         }
     }
 
@@ -146,24 +208,45 @@ class SuggesterProjectData implements Closeable {
      * @throws IOException if initialization was not successful
      */
     public void init() throws IOException {
-        lock.writeLock().lock();
-        try {
-            long commitVersion = getCommitVersion();
+        synchronized (updateLock) {
+            boolean needsUpdate = false;
+            lock.writeLock().lock();
+            try {
+                long commitVersion = getCommitVersion();
+                Set<String> storedSegments = loadSegments();
+
+                if (hasStoredData() && commitVersion == getDataVersion()) {
+                    loadStoredWFSTs();
+                    segments = storedSegments != null ? storedSegments : Collections.emptySet();
+                } else if (hasStoredData() && storedSegments != null) {
+                    // The index changed since the data were stored, add the new segments below.
+                    loadStoredWFSTs();
+                    segments = storedSegments;
+                    needsUpdate = true;
+                } else {
+                    createSuggesterDir();
+                    try (DirectoryReader indexReader = DirectoryReader.open(indexDir)) {
+                        lookups = build(indexReader, fields);
+                        segments = getSegmentIds(indexReader);
+                    }
+                    storeSegments(segments);
+                }
 
-            if (hasStoredData() && commitVersion == getDataVersion()) {
-                loadStoredWFSTs();
-            } else {
-                createSuggesterDir();
-                build();
-            }
+                if (allowMostPopular) {
+                    initSearchCountMap();
+                    drainSearchCountBuffers();
+                }
 
-            if (allowMostPopular) {
-                initSearchCountMap();
+                if (!needsUpdate) {
+                    storeDataVersion(commitVersion);
+                }
+            } finally {
+                lock.writeLock().unlock();
             }
 
-            storeDataVersion(commitVersion);
-        } finally {
-            lock.writeLock().unlock();
+            if (needsUpdate) {
+                update();
+            }
         }
     }
 
@@ -188,24 +271,26 @@ class SuggesterProjectData implements Closeable {
     }
 
     private void loadStoredWFSTs() throws IOException {
+        Map<String, TieredLookup> newLookups = new HashMap<>();
         try (IndexReader indexReader = DirectoryReader.open(indexDir)) {
             for (String field : fields) {
 
                 File WFSTfile = getWFSTFile(field);
                 if (WFSTfile.exists()) {
                     WFSTCompletionLookup WFST = loadStoredWFST(WFSTfile);
-                    lookups.put(field, WFST);
+                    newLookups.put(field, new TieredLookup(WFST));
                 } else {
                     logger.log(Level.INFO, "Missing WFST file for {0} field in {1}, creating a new one",
                             new Object[] {field, suggesterDir});
 
-                    WFSTCompletionLookup lookup = build(indexReader, field);
+                    WFSTCompletionLookup lookup = build(indexReader, indexReader, field);
                     store(lookup, field);
 
-                    lookups.put(field, lookup);
+                    newLookups.put(field, new TieredLookup(lookup));
                 }
             }
         }
+        lookups = newLookups;
     }
 
     private WFSTCompletionLookup loadStoredWFST(final File file) throws IOException {
@@ -229,44 +314,143 @@ class SuggesterProjectData implements Closeable {
     }
 
     /**
-     * Forces the rebuild of the data structure.
+     * Forces the rebuild of the data structure. The lookups can be performed while the new data is being built.
      * @throws IOException if some error occurred
      */
     public void rebuild() throws IOException {
-        lock.writeLock().lock();
-        try {
-            initFields();
-            build();
+        synchronized (updateLock) {
+            Set<String> newFields;
+            Map<String, TieredLookup> newLookups;
+            Set<String> newSegments;
+            long commitVersion;
 
-            if (allowMostPopular) {
-                initSearchCountMap();
+            // The read lock prevents closing the data while it is being built.
+            lock.readLock().lock();
+            try (DirectoryReader indexReader = DirectoryReader.open(indexDir)) {
+                commitVersion = indexReader.getIndexCommit().getGeneration();
+                newFields = getFields(indexReader);
+                newLookups = build(indexReader, newFields);
+                newSegments = getSegmentIds(indexReader);
+            } finally {
+                lock.readLock().unlock();
             }
 
-            storeDataVersion(getCommitVersion());
-        } finally {
-            lock.writeLock().unlock();
+            lock.writeLock().lock();
+            try {
+                fields = newFields;
+                lookups = newLookups;
+                segments = newSegments;
+                storeSegments(segments);
+
+                if (allowMostPopular) {
+                    initSearchCountMap();
+                    drainSearchCountBuffers();
+                }
+
+                storeDataVersion(commitVersion);
+            } finally {
+                lock.writeLock().unlock();
+            }
         }
     }
 
-    private void build() throws IOException {
-        try (IndexReader indexReader = DirectoryReader.open(indexDir)) {
-            for (String field : fields) {
-                WFSTCompletionLookup lookup = build(indexReader, field);
-                store(lookup, field);
+    /**
+     * Adds the terms of the index segments created since the last rebuild or update. Falls back to
+     * {@link #rebuild()} if the data cannot be updated incrementally or if it is time to compact the tiers.
+     * The lookups can be performed while the update is in progress.
+     * <p>
+     * The terms of the deleted documents are kept until the next rebuild and the weights of the terms
+     * in the older tiers are not recomputed.
+     * </p>
+     * @throws IOException if some error occurred
+     */
+    public void update() throws IOException {
+        synchronized (updateLock) {
+            Map<String, TieredLookup> updated = new HashMap<>();
+            Set<String> newSegments = new HashSet<>();
+            boolean needsRebuild;
 
-                lookups.put(field, lookup);
+            lock.readLock().lock();
+            try (DirectoryReader indexReader = DirectoryReader.open(indexDir)) {
+                List<IndexReader> addedReaders = new ArrayList<>();
+                long addedDocs = 0;
+                for (LeafReaderContext context : indexReader.leaves()) {
+                    String segmentId = getSegmentId(context);
+                    newSegments.add(segmentId);
+                    if (!segments.contains(segmentId)) {
+                        addedReaders.add(context.reader());
+                        addedDocs += context.reader().maxDoc();
+                    }
+                }
+
+                needsRebuild = !getFields(indexReader).equals(fields)
+                        || !lookups.keySet().containsAll(fields)
+                        || addedDocs > MAX_DELTA_DOCS_RATIO * indexReader.maxDoc()
+                        || lookups.values().stream().anyMatch(l -> l.getDeltaCount() >= MAX_DELTA_TIERS);
+
+                if (!needsRebuild && !addedReaders.isEmpty()) {
+                    try (MultiReader addedReader = new MultiReader(addedReaders.toArray(new IndexReader[0]),
+                            false)) {
+                        for (String field : fields) {
+                            WFSTCompletionLookup delta = build(addedReader, indexReader, field);
+                            if (delta.getCount() > 0) {
+                                updated.put(field, lookups.get(field).withDelta(delta));
+                            }
+                        }
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
             }
+
+            if (needsRebuild) {
+                logger.log(Level.FINE, "Cannot update {0} incrementally, rebuilding", this);
+                rebuild();
+                return;
+            }
+
+            lock.writeLock().lock();
+            try {
+                Map<String, TieredLookup> newLookups = new HashMap<>(lookups);
+                newLookups.putAll(updated);
+                lookups = newLookups;
+                segments = newSegments;
+                drainSearchCountBuffers();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            logger.log(Level.FINE, "Updated {0} fields in {1}", new Object[] {updated.keySet(), this});
+        }
+    }
+
+    private Map<String, TieredLookup> build(final IndexReader indexReader, final Set<String> fields)
+            throws IOException {
+        Map<String, TieredLookup> newLookups = new HashMap<>();
+        for (String field : fields) {
+            WFSTCompletionLookup lookup = build(indexReader, indexReader, field);
+            store(lookup, field);
+
+            newLookups.put(field, new TieredLookup(lookup));
         }
+        return newLookups;
     }
 
-    private WFSTCompletionLookup build(final IndexReader indexReader, final String field) throws IOException {
+    /**
+     * @param termsReader reader with the terms to put into the WFST
+     * @param indexReader reader of the whole index, used to compute the weights of the terms
+     * @param field field
+     * @return WFST with the terms of {@code termsReader}
+     */
+    private WFSTCompletionLookup build(final IndexReader termsReader, final IndexReader indexReader,
+                                       final String field) throws IOException {
         WFSTInputIterator iterator = new WFSTInputIterator(
-                new LuceneDictionary(indexReader, field).getEntryIterator(), indexReader, field, getSearchCounts(field));
+                new LuceneDictionary(termsReader, field).getEntryIterator(), indexReader, field,
+                getSearchCounts(field));
 
         WFSTCompletionLookup lookup = createWFST();
         lookup.build(iterator);
 
-        if (lookup.getCount() > 0) {
+        if (termsReader == indexReader && lookup.getCount() > 0) {
             double averageLength = (double) iterator.termLengthAccumulator / lookup.getCount();
             averageLengths.put(field, averageLength);
         }
@@ -274,6 +458,23 @@ class SuggesterProjectData implements Closeable {
         return lookup;
     }
 
+    /**
+     * The segments are identified by their unique IDs rather than names because the names start
+     * from {@code _0} again when the index is re-created.
+     */
+    private static String getSegmentId(final LeafReaderContext context) {
+        SegmentReader reader = (SegmentReader) FilterLeafReader.unwrap(context.reader());
+        return StringHelper.idToString(reader.getSegmentInfo().info.getId());
+    }
+
+    private static Set<String> getSegmentIds(final IndexReader indexReader) {
+        Set<String> ids = new HashSet<>();
+        for (LeafReaderContext context : indexReader.leaves()) {
+            ids.add(getSegmentId(context));
+        }
+        return ids;
+    }
+
     private void store(final WFSTCompletionLookup wfst, final String field) throws IOException {
         try (FileOutputStream fos = new FileOutputStream(getWFSTFile(field))) {
             wfst.store(fos);
@@ -365,8 +566,8 @@ class SuggesterProjectData implements Closeable {
         return AVERAGE_LENGTH_DEFAULT;
     }
 
-    private void removeOldTerms(final ChronicleMapAdapter adapter, final WFSTCompletionLookup lookup) {
-        adapter.removeIf(key -> lookup.get(key.toString()) == null);
+    private void removeOldTerms(final ChronicleMapAdapter adapter, final TieredLookup lookup) {
+        adapter.removeIf(key -> lookup.get(key.utf8ToString()) == null);
     }
 
     /**
@@ -379,12 +580,12 @@ class SuggesterProjectData implements Closeable {
     public List<Lookup.LookupResult> lookup(final String field, final String prefix, final int resultSize) {
         lock.readLock().lock();
         try {
-            WFSTCompletionLookup lookup = lookups.get(field);
+            TieredLookup lookup = lookups.get(field);
             if (lookup == null) {
                 logger.log(Level.WARNING, "No WFST for field {0} in {1}", new Object[] {field, suggesterDir});
                 return Collections.emptyList();
             }
-            return lookup.lookup(prefix, false, resultSize);
+            return lookup.lookup(prefix, resultSize);
         } catch (IOException e) {
             logger.log(Level.WARNING, "Could not perform lookup in {0} for {1}:{2}",
                     new Object[] {suggesterDir, field, prefix});
@@ -428,52 +629,98 @@ class SuggesterProjectData implements Closeable {
      * Increments search count for {@code term} by {@code value}.
      * @param term term for which to increment search count
      * @param value value to increment by
-     * @return false if update failed, otherwise true
+     * @return false if the term is not known, otherwise true
      */
     public boolean incrementSearchCount(final Term term, final int value) {
         return incrementSearchCount(term, value, false);
     }
 
+    /**
+     * Increments search count for {@code term} by {@code value}. The increment is buffered and applied to
+     * the search count map later, see {@link #flushSearchCounts(boolean)}.
+     * @param term term for which to increment search count
+     * @param value value to increment by
+     * @param waitForLock whether to apply the buffered increments to the search count map right away,
+     * waiting for a rebuild in progress if needed
+     * @return false if the term is not known, otherwise true
+     */
     boolean incrementSearchCount(final Term term, final int value, boolean waitForLock) {
         if (term == null) {
             throw new IllegalArgumentException("Cannot increment search count for null");
         }
+        if (value < 0) {
+            throw new IllegalArgumentException("Cannot increment search count by negative value " + value);
+        }
+        if (!allowMostPopular) {
+            return false;
+        }
+
+        TieredLookup lookup = lookups.get(term.field());
+        if (lookup == null || lookup.get(term.text()) == null) {
+            logger.log(Level.FINE, "Cannot increment search count for unknown term {0} in ''{1}''",
+                    new Object[]{term, suggesterDir});
+            return false; // unknown term
+        }
+
+        PopularityBuffer buffer = searchCountBuffers.computeIfAbsent(term.field(), f -> new PopularityBuffer());
+        buffer.increment(term.bytes(), value);
 
-        boolean ret = false;
-        boolean gotLock;
         if (waitForLock) {
-            lock.readLock().lock();
-        } else {
-            gotLock = lock.readLock().tryLock();
-            if (!gotLock) {
-                logger.log(Level.INFO, "Cannot increment search count for term {0} in ''{1}'', rebuild in progress",
-                        new Object[]{term, suggesterDir});
-                return false;
+            flushSearchCounts(true);
+        } else if (buffer.size() >= SEARCH_COUNT_FLUSH_THRESHOLD && flushingSearchCounts.compareAndSet(false, true)) {
+            try {
+                flushSearchCounts(false);
+            } finally {
+                flushingSearchCounts.set(false);
             }
         }
+        return true;
+    }
 
-        try {
-            WFSTCompletionLookup lookup = lookups.get(term.field());
-            if (lookup == null || lookup.get(term.text()) == null) {
-                logger.log(Level.FINE, "Cannot increment search count for unknown term {0} in ''{1}''",
-                        new Object[]{term, suggesterDir});
-                return false; // unknown term
-            }
+    /**
+     * Applies the buffered search count increments to the search count maps.
+     * @param waitForLock whether to wait for a rebuild in progress, otherwise the increments stay buffered
+     * until the next flush if the data structures cannot be locked right away
+     */
+    void flushSearchCounts(boolean waitForLock) {
+        if (waitForLock) {
+            lock.readLock().lock();
+        } else if (!lock.readLock().tryLock()) {
+            logger.log(Level.FINE, "Postponing search count update in ''{0}'', rebuild in progress", suggesterDir);
+            return;
+        }
 
-            PopularityMap map = searchCountMaps.get(term.field());
-            if (map != null) {
-                map.increment(term.bytes(), value);
-                ret = true;
-            }
+        try {
+            drainSearchCountBuffers();
         } finally {
             lock.readLock().unlock();
         }
-        return ret;
     }
 
     /**
-     * Returns search counts for term field. For the time the returned data structure is used this object needs to be
-     * locked by {@link #tryLock()}.
+     * Applies the buffered search count increments to the search count maps. The increments of the terms that
+     * are not known anymore are discarded. Needs to be called with {@link #lock} held.
+     */
+    private void drainSearchCountBuffers() {
+        for (Entry<String, PopularityBuffer> entry : searchCountBuffers.entrySet()) {
+            PopularityMap map = searchCountMaps.get(entry.getKey());
+            TieredLookup lookup = lookups.get(entry.getKey());
+            if (map == null || lookup == null) {
+                entry.getValue().drain((key, value) -> { });
+                continue;
+            }
+
+            entry.getValue().drain((key, value) -> {
+                if (lookup.get(key.utf8ToString()) != null) {
+                    map.increment(key, value);
+                }
+            });
+        }
+    }
+
+    /**
+     * Returns search counts for term field, including the increments not yet applied to the search count map.
+     * For the time the returned data structure is used this object needs to be locked by {@link #tryLock()}.
      * @param field term field
      * @return search counts object
      */
@@ -482,7 +729,15 @@ class SuggesterProjectData implements Closeable {
             return key -> 0;
         }
 
-        return key -> searchCountMaps.get(field).get(key);
+        return key -> {
+            PopularityMap map = searchCountMaps.get(field);
+            if (map == null) {
+                return 0;
+            }
+            PopularityBuffer buffer = searchCountBuffers.get(field);
+            long count = (long) map.get(key) + (buffer == null ? 0 : buffer.get(key));
+            return (int) Math.min(count, Integer.MAX_VALUE);
+        };
     }
 
     /**
@@ -493,6 +748,7 @@ class SuggesterProjectData implements Closeable {
     public void close() throws IOException {
         lock.writeLock().lock();
         try {
+            drainSearchCountBuffers();
             searchCountMaps.values().forEach(val -> {
                 try {
                     val.close();
@@ -500,6 +756,7 @@ class SuggesterProjectData implements Closeable {
                     logger.log(Level.WARNING, "Could not properly close most popular completion data", e);
                 }
             });
+            searchCountMaps.clear();
             indexDir.close();
 
             tempDir.close();
@@ -532,6 +789,45 @@ class SuggesterProjectData implements Closeable {
         }
     }
 
+    /**
+     * @return IDs of the segments the stored WFSTs were built from or {@code null} if not known
+     */
+    private Set<String> loadSegments() {
+        File segmentsFile = getFile(SEGMENTS_FILE_NAME);
+        if (!segmentsFile.exists()) {
+            return null;
+        }
+
+        try {
+            return new HashSet<>(FileUtils.readLines(segmentsFile, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not read suggester data segments", e);
+        }
+        return null;
+    }
+
+    private void storeSegments(final Set<String> segmentIds) {
+        try {
+            FileUtils.writeLines(getFile(SEGMENTS_FILE_NAME), StandardCharsets.UTF_8.toString(), segmentIds);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not store suggester data segments", e);
+        }
+    }
+
+    /**
+     * @param field term field
+     * @return number of delta tiers of the field
+     */
+    int getDeltaCount(final String field) {
+        lock.readLock().lock();
+        try {
+            TieredLookup lookup = lookups.get(field);
+            return lookup == null ? 0 : lookup.getDeltaCount();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
     /**
      * Tries to lock the inner data structures for reading, so far only for {@link #getSearchCounts(String)}.
      * @return {@code true} if lock was acquired, {@code false} otherwise
@@ -563,6 +859,7 @@ class SuggesterProjectData implements Closeable {
                 return Collections.emptyList();
             }
 
+            drainSearchCountBuffers();
             return map.getPopularityData(page, pageSize);
         } finally {
             lock.readLock().unlock();
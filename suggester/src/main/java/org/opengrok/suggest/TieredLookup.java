@@ -0,0 +1,132 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.suggest;
+
+import org.apache.lucene.search.suggest.Lookup;
+import org.apache.lucene.search.suggest.fst.WFSTCompletionLookup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable stack of WFSTs for one field. The base WFST contains the terms of the whole index as of the last
+ * rebuild, the delta WFSTs contain the terms of the index segments added by the subsequent incremental updates.
+ * The same term can be present in multiple tiers, in which case the highest weight wins.
+ */
+final class TieredLookup {
+
+    private final WFSTCompletionLookup base;
+
+    /**
+     * Deltas ordered from the oldest to the newest.
+     */
+    private final List<WFSTCompletionLookup> deltas;
+
+    TieredLookup(final WFSTCompletionLookup base) {
+        this(base, Collections.emptyList());
+    }
+
+    private TieredLookup(final WFSTCompletionLookup base, final List<WFSTCompletionLookup> deltas) {
+        this.base = base;
+        this.deltas = deltas;
+    }
+
+    /**
+     * @param delta WFST with the terms of the newly added segments
+     * @return new instance with the {@code delta} on top of the existing tiers
+     */
+    TieredLookup withDelta(final WFSTCompletionLookup delta) {
+        List<WFSTCompletionLookup> newDeltas = new ArrayList<>(deltas.size() + 1);
+        newDeltas.addAll(deltas);
+        newDeltas.add(delta);
+        return new TieredLookup(base, Collections.unmodifiableList(newDeltas));
+    }
+
+    WFSTCompletionLookup getBase() {
+        return base;
+    }
+
+    /**
+     * @return number of delta tiers
+     */
+    int getDeltaCount() {
+        return deltas.size();
+    }
+
+    /**
+     * @return number of terms in the base WFST
+     */
+    long getCount() {
+        return base.getCount();
+    }
+
+    /**
+     * @param key term
+     * @return weight of the term or {@code null} if the term is not present in any tier
+     */
+    Object get(final CharSequence key) {
+        for (int i = deltas.size() - 1; i >= 0; i--) {
+            Object weight = deltas.get(i).get(key);
+            if (weight != null) {
+                return weight;
+            }
+        }
+        return base.get(key);
+    }
+
+    /**
+     * Looks up the terms with the given prefix in all the tiers.
+     * @param prefix prefix the returned terms must contain
+     * @param resultSize number of terms to return
+     * @return terms with the highest weight
+     * @throws IOException on error
+     */
+    List<Lookup.LookupResult> lookup(final CharSequence prefix, final int resultSize) throws IOException {
+        List<Lookup.LookupResult> baseResults = base.lookup(prefix, false, resultSize);
+        if (deltas.isEmpty()) {
+            return baseResults;
+        }
+
+        Map<String, Lookup.LookupResult> merged = new HashMap<>();
+        merge(merged, baseResults);
+        for (WFSTCompletionLookup delta : deltas) {
+            merge(merged, delta.lookup(prefix, false, resultSize));
+        }
+
+        List<Lookup.LookupResult> results = new ArrayList<>(merged.values());
+        results.sort(Comparator.comparingLong((Lookup.LookupResult r) -> r.value).reversed()
+                .thenComparing(r -> r.key.toString()));
+        return results.size() > resultSize ? results.subList(0, resultSize) : results;
+    }
+
+    private static void merge(final Map<String, Lookup.LookupResult> merged, final List<Lookup.LookupResult> results) {
+        for (Lookup.LookupResult result : results) {
+            merged.merge(result.key.toString(), result, (r1, r2) -> r1.value >= r2.value ? r1 : r2);
+        }
+    }
+}
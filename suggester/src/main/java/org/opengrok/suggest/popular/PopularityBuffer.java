@@ -0,0 +1,113 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.suggest.popular;
+
+import org.apache.lucene.util.BytesRef;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Keeps the increments of popularity data in memory until they are applied to {@link PopularityMap} in a batch.
+ * <p>
+ * The increments do not take any locks. Each key has its own atomic counter and the counters are spread over
+ * the bins of {@link ConcurrentHashMap}, so increments of different keys do not contend with each other.
+ * A counter that was drained is marked as such and removed, increments that race with the drain retry
+ * with a new counter, so no increment is lost or applied twice.
+ * </p>
+ */
+public final class PopularityBuffer implements PopularityCounter {
+
+    /**
+     * Value of a counter that was already drained.
+     */
+    private static final long DRAINED = Long.MIN_VALUE;
+
+    private final Map<BytesRef, AtomicLong> counters = new ConcurrentHashMap<>();
+
+    /**
+     * Increment data for the {@code key} by {@code value}.
+     * @param key term to increment data for
+     * @param value positive value by which to increment the data
+     */
+    public void increment(final BytesRef key, final int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Cannot increment by negative value " + value);
+        }
+
+        while (true) {
+            AtomicLong counter = counters.get(key);
+            if (counter == null) {
+                counter = counters.computeIfAbsent(BytesRef.deepCopyOf(key), k -> new AtomicLong());
+            }
+
+            long current = counter.get();
+            while (current != DRAINED) {
+                if (counter.compareAndSet(current, current + value)) {
+                    return;
+                }
+                current = counter.get();
+            }
+
+            // The counter was drained in the meantime, make sure it is gone and start over with a new one.
+            counters.remove(key, counter);
+        }
+    }
+
+    /**
+     * @param key the term to retrieve data for
+     * @return value buffered for {@code key} since the last {@link #drain(ObjIntConsumer)}
+     */
+    @Override
+    public int get(final BytesRef key) {
+        AtomicLong counter = counters.get(key);
+        if (counter == null) {
+            return 0;
+        }
+        return (int) Math.min(Math.max(counter.get(), 0), Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return number of keys with buffered data
+     */
+    public int size() {
+        return counters.size();
+    }
+
+    /**
+     * Passes the buffered data to {@code consumer} and removes them from the buffer. The increments performed
+     * concurrently are either passed to {@code consumer} as well or stay buffered for the next call.
+     * @param consumer consumer of the keys and their buffered values
+     */
+    public void drain(final ObjIntConsumer<BytesRef> consumer) {
+        for (Map.Entry<BytesRef, AtomicLong> entry : counters.entrySet()) {
+            long value = entry.getValue().getAndSet(DRAINED);
+            counters.remove(entry.getKey(), entry.getValue());
+            if (value > 0) { // DRAINED if another thread drained the counter first
+                consumer.accept(entry.getKey(), (int) Math.min(value, Integer.MAX_VALUE));
+            }
+        }
+    }
+}
@@ -18,7 +18,7 @@
  */
 
 /*
- * Copyright (c) 2018, 2021, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2018, 2023, Oracle and/or its affiliates. All rights reserved.
  */
 package org.opengrok.suggest;
 
@@ -42,11 +42,15 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -110,6 +114,17 @@ public class SuggesterProjectDataTest {
         }
     }
 
+    private void addTexts(final String field, final int count) throws IOException {
+        try (IndexWriter iw = new IndexWriter(dir, new IndexWriterConfig())) {
+            for (int i = 0; i < count; i++) {
+                Document doc = new Document();
+                doc.add(new TextField(field, "term" + i, Field.Store.NO));
+
+                iw.addDocument(doc);
+            }
+        }
+    }
+
     private List<String> getSuggestions(String field, String prefix, int size) {
         List<Lookup.LookupResult> res = data.lookup(field, prefix, size);
 
@@ -235,6 +250,63 @@ public class SuggesterProjectDataTest {
         assertEquals(0, data.getSearchCounts(FIELD).get(new BytesRef("term")));
     }
 
+    @Test
+    public void searchCountsKeptAfterRebuildTest() throws IOException {
+        addText(FIELD, "term other");
+
+        init(true);
+
+        data.incrementSearchCount(new Term(FIELD, "term"), 10);
+        data.flushSearchCounts(true);
+        data.incrementSearchCount(new Term(FIELD, "term"), 5);
+
+        addText(FIELD, "term third");
+
+        data.rebuild();
+
+        assertEquals(15, data.getSearchCounts(FIELD).get(new BytesRef("term")));
+    }
+
+    @Test
+    public void concurrentIncrementsDuringRebuildTest() throws Exception {
+        addTexts(FIELD, 10);
+
+        init(true);
+
+        int threadCount = 4;
+        int iterations = 1000;
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount + 1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threadCount; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < iterations; j++) {
+                        for (int k = 0; k < 10; k++) {
+                            assertTrue(data.incrementSearchCount(new Term(FIELD, "term" + k), 1));
+                        }
+                    }
+                }));
+            }
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 5; i++) {
+                    data.rebuild();
+                }
+                return null;
+            }));
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        List<Entry<BytesRef, Integer>> searchCounts = data.getSearchCountsSorted(FIELD, 0, 20);
+        assertEquals(10, searchCounts.size());
+        for (Entry<BytesRef, Integer> entry : searchCounts) {
+            assertEquals(threadCount * iterations, entry.getValue());
+        }
+    }
+
     @Test
     public void initAfterChangingIndexTest() throws IOException {
         addText(FIELD, "term");
@@ -328,4 +400,95 @@ public class SuggesterProjectDataTest {
         assertFalse(getSuggestions(FIELD, "t", 10).isEmpty());
     }
 
+    @Test
+    public void testUpdateAddsDelta() throws IOException {
+        addTexts(FIELD, 20);
+
+        init(false);
+
+        addText(FIELD, "term5 newterm");
+
+        data.update();
+
+        assertEquals(1, data.getDeltaCount(FIELD));
+        assertThat(getSuggestions(FIELD, "n", 10), contains("newterm"));
+        assertThat(getSuggestions(FIELD, "term1", 20), containsInAnyOrder("term1", "term10", "term11", "term12",
+                "term13", "term14", "term15", "term16", "term17", "term18", "term19"));
+    }
+
+    @Test
+    public void testUpdateWithoutChange() throws IOException {
+        addTexts(FIELD, 20);
+
+        init(false);
+
+        data.update();
+
+        assertEquals(0, data.getDeltaCount(FIELD));
+        assertEquals(20, getSuggestions(FIELD, "t", 30).size());
+    }
+
+    @Test
+    public void testUpdateRebuildsLargeChange() throws IOException {
+        addText(FIELD, "term1");
+
+        init(false);
+
+        addText(FIELD, "term2");
+
+        data.update();
+
+        assertEquals(0, data.getDeltaCount(FIELD));
+        assertThat(getSuggestions(FIELD, "t", 10), containsInAnyOrder("term1", "term2"));
+    }
+
+    @Test
+    public void testUpdateCompactsDeltas() throws IOException {
+        addTexts(FIELD, 100);
+
+        init(false);
+
+        for (int i = 0; i < SuggesterProjectData.MAX_DELTA_TIERS; i++) {
+            addText(FIELD, "delta" + i);
+            data.update();
+            assertEquals(i + 1, data.getDeltaCount(FIELD));
+        }
+
+        addText(FIELD, "last");
+        data.update();
+
+        assertEquals(0, data.getDeltaCount(FIELD));
+        assertThat(getSuggestions(FIELD, "delta", 10), containsInAnyOrder("delta0", "delta1", "delta2", "delta3",
+                "delta4", "delta5", "delta6", "delta7"));
+        assertThat(getSuggestions(FIELD, "l", 10), contains("last"));
+    }
+
+    @Test
+    public void testInitAppliesNewSegments() throws IOException {
+        addTexts(FIELD, 20);
+        init(false);
+
+        addText(FIELD, "newterm");
+
+        data.init();
+
+        assertEquals(1, data.getDeltaCount(FIELD));
+        assertThat(getSuggestions(FIELD, "n", 10), contains("newterm"));
+    }
+
+    @Test
+    public void testUpdateAfterIndexRecreated() throws IOException {
+        addTexts(FIELD, 20);
+        init(false);
+        data.close();
+
+        // Re-create the index while keeping the suggester data, the new segment names start from _0 again.
+        dir = new ByteBuffersDirectory();
+        addText(FIELD, "newterm");
+
+        init(false);
+        data.update();
+
+        assertThat(getSuggestions(FIELD, "n", 10), contains("newterm"));
+    }
 }
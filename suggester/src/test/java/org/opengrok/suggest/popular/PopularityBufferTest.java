@@ -0,0 +1,119 @@
+/*
+ * CDDL HEADER START
+ *
+ * The contents of this file are subject to the terms of the
+ * Common Development and Distribution License (the "License").
+ * You may not use this file except in compliance with the License.
+ *
+ * See LICENSE.txt included in this distribution for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing Covered Code, include this CDDL HEADER in each
+ * file and include the License file at LICENSE.txt.
+ * If applicable, add the following below this CDDL HEADER, with the
+ * fields enclosed by brackets "[]" replaced with your own identifying
+ * information: Portions Copyright [yyyy] [name of copyright owner]
+ *
+ * CDDL HEADER END
+ */
+
+/*
+ * Copyright (c) 2023, Oracle and/or its affiliates. All rights reserved.
+ */
+package org.opengrok.suggest.popular;
+
+import org.apache.lucene.util.BytesRef;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PopularityBufferTest {
+
+    @Test
+    void testIncrementAndDrain() {
+        PopularityBuffer buffer = new PopularityBuffer();
+        BytesRef key = new BytesRef("term");
+
+        buffer.increment(key, 3);
+        buffer.increment(new BytesRef("term"), 2);
+        buffer.increment(new BytesRef("other"), 1);
+
+        assertEquals(5, buffer.get(key));
+        assertEquals(2, buffer.size());
+
+        Map<BytesRef, Integer> drained = new HashMap<>();
+        buffer.drain((k, v) -> drained.merge(k, v, Integer::sum));
+
+        assertEquals(Map.of(new BytesRef("term"), 5, new BytesRef("other"), 1), drained);
+        assertEquals(0, buffer.get(key));
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    void testKeyIsCopied() {
+        PopularityBuffer buffer = new PopularityBuffer();
+        BytesRef key = new BytesRef("term");
+
+        buffer.increment(key, 1);
+        key.bytes[0] = 'f';
+
+        assertEquals(1, buffer.get(new BytesRef("term")));
+        assertEquals(0, buffer.get(new BytesRef("ferm")));
+    }
+
+    @Test
+    void testNegativeIncrement() {
+        PopularityBuffer buffer = new PopularityBuffer();
+        assertThrows(IllegalArgumentException.class, () -> buffer.increment(new BytesRef("term"), -1));
+    }
+
+    @Test
+    void testConcurrentIncrementsAndDrains() throws Exception {
+        PopularityBuffer buffer = new PopularityBuffer();
+        Map<BytesRef, Integer> drained = new HashMap<>();
+        int threadCount = 4;
+        int iterations = 10000;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount + 1);
+        AtomicBoolean done = new AtomicBoolean();
+        try {
+            Future<?>[] futures = new Future<?>[threadCount];
+            for (int i = 0; i < threadCount; i++) {
+                futures[i] = executor.submit(() -> {
+                    for (int j = 0; j < iterations; j++) {
+                        buffer.increment(new BytesRef("term" + (j % 3)), 1);
+                    }
+                });
+            }
+
+            Future<?> drainer = executor.submit(() -> {
+                while (!done.get()) {
+                    synchronized (drained) {
+                        buffer.drain((k, v) -> drained.merge(k, v, Integer::sum));
+                    }
+                }
+            });
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            done.set(true);
+            drainer.get();
+        } finally {
+            executor.shutdown();
+        }
+
+        buffer.drain((k, v) -> drained.merge(k, v, Integer::sum));
+        assertTrue(drained.values().stream().allMatch(v -> v > 0));
+        assertEquals(threadCount * iterations, drained.values().stream().mapToInt(Integer::intValue).sum());
+    }
+}